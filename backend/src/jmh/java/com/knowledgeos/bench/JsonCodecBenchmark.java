@@ -0,0 +1,199 @@
+package com.knowledgeos.bench;
+
+import com.knowledgeos.infra.JsonCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JsonCodec} vs the hand-rolled helpers it replaced, on the work the list
+ * endpoints do per page: 20 timeline payloads decoded for {@code GET /timeline},
+ * 20 file lists decoded for {@code GET /changesets}, plus the matching writes.
+ *
+ * Run: ./gradlew jmh -PjmhArgs='JsonCodecBenchmark'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    private static final int PAGE = 20;
+
+    private final JsonCodec codec = new JsonCodec();
+
+    private List<Map<String, Object>> payloads;
+    private List<List<String>> fileLists;
+    private String[] payloadJson;
+    private String[] fileListJson;
+
+    @Setup
+    public void setup() {
+        payloads = new ArrayList<>(PAGE);
+        fileLists = new ArrayList<>(PAGE);
+        payloadJson = new String[PAGE];
+        fileListJson = new String[PAGE];
+        for (int i = 0; i < PAGE; i++) {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("changesetId", UUID.randomUUID().toString());
+            p.put("intent", "Refactor module " + i + " to use the \"new\" API");
+            p.put("filesChanged", 10);
+            p.put("status", "validated");
+            p.put("autoApply", false);
+            payloads.add(p);
+            payloadJson[i] = codec.writeMap(p);
+
+            List<String> files = new ArrayList<>();
+            for (int f = 0; f < 10; f++) files.add("src/main/java/com/example/module" + i + "/File" + f + ".java");
+            fileLists.add(files);
+            fileListJson[i] = codec.writeStringList(files);
+        }
+    }
+
+    // ── Timeline payloads ───────────────────────────────────────────────────
+
+    @Benchmark
+    public void timelinePage_read_legacy(Blackhole bh) {
+        for (String json : payloadJson) bh.consume(Legacy.fromJson(json));
+    }
+
+    @Benchmark
+    public void timelinePage_read_codec(Blackhole bh) {
+        for (String json : payloadJson) bh.consume(codec.readMap(json));
+    }
+
+    @Benchmark
+    public void timelinePayload_write_legacy(Blackhole bh) {
+        for (Map<String, Object> p : payloads) bh.consume(Legacy.toJson(p));
+    }
+
+    @Benchmark
+    public void timelinePayload_write_codec(Blackhole bh) {
+        for (Map<String, Object> p : payloads) bh.consume(codec.writeMap(p));
+    }
+
+    // ── File lists / tags ───────────────────────────────────────────────────
+
+    @Benchmark
+    public void changeSetPage_read_legacy(Blackhole bh) {
+        for (String json : fileListJson) bh.consume(Legacy.fromJsonArray(json));
+    }
+
+    @Benchmark
+    public void changeSetPage_read_codec(Blackhole bh) {
+        for (String json : fileListJson) bh.consume(codec.readStringList(json));
+    }
+
+    @Benchmark
+    public void fileList_write_legacy(Blackhole bh) {
+        for (List<String> files : fileLists) bh.consume(Legacy.toJsonArray(files));
+    }
+
+    @Benchmark
+    public void fileList_write_codec(Blackhole bh) {
+        for (List<String> files : fileLists) bh.consume(codec.writeStringList(files));
+    }
+
+    /** Verbatim copies of the removed helpers (TimelineService, ChangeSetService). */
+    static final class Legacy {
+
+        static String toJson(Map<String, Object> map) {
+            if (map == null || map.isEmpty()) return "{}";
+            StringBuilder sb = new StringBuilder("{");
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                if (!first) sb.append(",");
+                first = false;
+                sb.append("\"").append(escape(entry.getKey())).append("\":");
+                Object val = entry.getValue();
+                if (val == null) {
+                    sb.append("null");
+                } else if (val instanceof Number || val instanceof Boolean) {
+                    sb.append(val);
+                } else {
+                    sb.append("\"").append(escape(val.toString())).append("\"");
+                }
+            }
+            sb.append("}");
+            return sb.toString();
+        }
+
+        static Map<String, Object> fromJson(String json) {
+            if (json == null || json.isBlank() || "{}".equals(json.trim())) return Map.of();
+            try {
+                Map<String, Object> result = new LinkedHashMap<>();
+                String inner = json.trim();
+                if (inner.startsWith("{")) inner = inner.substring(1);
+                if (inner.endsWith("}")) inner = inner.substring(0, inner.length() - 1);
+                for (String pair : splitTopLevel(inner)) {
+                    int colon = pair.indexOf(':');
+                    if (colon < 0) continue;
+                    String key = pair.substring(0, colon).trim().replaceAll("^\"|\"$", "");
+                    String rawVal = pair.substring(colon + 1).trim();
+                    if ("null".equals(rawVal)) {
+                        result.put(key, null);
+                    } else if (rawVal.startsWith("\"")) {
+                        result.put(key, rawVal.replaceAll("^\"|\"$", "").replace("\\\"", "\""));
+                    } else {
+                        result.put(key, rawVal);
+                    }
+                }
+                return result;
+            } catch (Exception e) {
+                return Map.of();
+            }
+        }
+
+        static List<String> splitTopLevel(String s) {
+            List<String> parts = new ArrayList<>();
+            int depth = 0;
+            boolean inStr = false;
+            int start = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' && (i == 0 || s.charAt(i - 1) != '\\')) inStr = !inStr;
+                else if (!inStr && (c == '{' || c == '[')) depth++;
+                else if (!inStr && (c == '}' || c == ']')) depth--;
+                else if (!inStr && depth == 0 && c == ',') {
+                    parts.add(s.substring(start, i).trim());
+                    start = i + 1;
+                }
+            }
+            if (start < s.length()) parts.add(s.substring(start).trim());
+            return parts;
+        }
+
+        static String escape(String s) {
+            return s.replace("\\", "\\\\").replace("\"", "\\\"");
+        }
+
+        static String toJsonArray(List<String> list) {
+            if (list == null || list.isEmpty()) return "[]";
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < list.size(); i++) {
+                sb.append("\"").append(list.get(i).replace("\"", "\\\"")).append("\"");
+                if (i < list.size() - 1) sb.append(",");
+            }
+            return sb.append("]").toString();
+        }
+
+        static List<String> fromJsonArray(String json) {
+            if (json == null || json.isBlank() || "[]".equals(json.trim())) return List.of();
+            try {
+                String inner = json.trim().replaceFirst("^\\[", "").replaceFirst("]$", "").trim();
+                if (inner.isEmpty()) return List.of();
+                List<String> result = new ArrayList<>();
+                for (String part : inner.split(",(?=\")")) {
+                    result.add(part.trim().replaceAll("^\"|\"$", ""));
+                }
+                return result;
+            } catch (Exception e) {
+                return List.of();
+            }
+        }
+    }
+}
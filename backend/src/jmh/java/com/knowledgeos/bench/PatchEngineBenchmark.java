@@ -0,0 +1,105 @@
+package com.knowledgeos.bench;
+
+import com.knowledgeos.patch.FilePatch;
+import com.knowledgeos.patch.PatchEngine;
+import com.knowledgeos.patch.PatchResult;
+import com.knowledgeos.patch.UnifiedDiffParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PatchEngine} on a 10,000-line file with a 100-hunk diff: one change
+ * every 100 lines, each with three lines of context. {@code parse} is the diff
+ * parse alone; {@code apply_*} restore the original file before every call, so
+ * they measure a full stage-and-commit through the filesystem.
+ *
+ * Run: ./gradlew jmh -PjmhArgs='PatchEngineBenchmark'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatchEngineBenchmark {
+
+    private static final int LINES = 10_000;
+    private static final int HUNKS = 100;
+    private static final String FILE = "Large.java";
+
+    private final PatchEngine engine = new PatchEngine(2, 1000);
+
+    private Path root;
+    private byte[] original;
+    private String diff;
+    private String shiftedDiff;
+    private List<FilePatch> patches;
+    private List<FilePatch> shiftedPatches;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("kos-patch-bench");
+        StringBuilder file = new StringBuilder(LINES * 24);
+        for (int i = 1; i <= LINES; i++) file.append("    statement(").append(i).append(");\n");
+        original = file.toString().getBytes(StandardCharsets.UTF_8);
+
+        diff = buildDiff(0);
+        // Same edits, headers 7 lines off: every hunk goes through the outward search
+        shiftedDiff = buildDiff(7);
+        patches = UnifiedDiffParser.parse(diff);
+        shiftedPatches = UnifiedDiffParser.parse(shiftedDiff);
+    }
+
+    @Setup(Level.Invocation)
+    public void restore() throws IOException {
+        Files.write(root.resolve(FILE), original);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(root.resolve(FILE));
+        Files.deleteIfExists(root);
+    }
+
+    @Benchmark
+    public List<FilePatch> parse() {
+        return UnifiedDiffParser.parse(diff);
+    }
+
+    @Benchmark
+    public List<PatchResult> apply_exact() {
+        return engine.apply(root, patches);
+    }
+
+    @Benchmark
+    public List<PatchResult> apply_offset() {
+        return engine.apply(root, shiftedPatches);
+    }
+
+    /** One hunk per 100 lines: replace the middle line of seven. */
+    private static String buildDiff(int headerShift) {
+        StringBuilder sb = new StringBuilder(HUNKS * 220);
+        sb.append("--- a/").append(FILE).append('\n');
+        sb.append("+++ b/").append(FILE).append('\n');
+        for (int h = 0; h < HUNKS; h++) {
+            int start = h * (LINES / HUNKS) + 50;
+            int header = start + headerShift;
+            sb.append("@@ -").append(header).append(",7 +").append(header).append(",7 @@\n");
+            for (int i = start; i < start + 7; i++) {
+                if (i == start + 3) {
+                    sb.append("-    statement(").append(i).append(");\n");
+                    sb.append("+    statement(").append(i).append(", patched);\n");
+                } else {
+                    sb.append("     statement(").append(i).append(");\n");
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -2,8 +2,10 @@ package com.knowledgeos.controller;
 
 import com.knowledgeos.dto.AgentResponse;
 import com.knowledgeos.dto.CreateAgentRequest;
+import com.knowledgeos.dto.LeaseResponse;
 import com.knowledgeos.dto.UpdateAgentRequest;
 import com.knowledgeos.service.AgentService;
+import com.knowledgeos.service.LockLeaseService;
 import com.knowledgeos.service.ProjectService;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
@@ -29,6 +31,9 @@ public class AgentController {
     @Inject
     ProjectService projectService;
 
+    @Inject
+    LockLeaseService lockLeaseService;
+
     @Post
     @Operation(summary = "Spawn an agent pod")
     public HttpResponse<AgentResponse> create(UUID id, @Valid @Body CreateAgentRequest req) {
@@ -68,6 +73,12 @@ public class AgentController {
         return HttpResponse.ok(agentService.stop(id, aid));
     }
 
+    @Post("/{aid}/heartbeat")
+    @Operation(summary = "Renew the leases of every lock the agent holds")
+    public HttpResponse<LeaseResponse> heartbeat(UUID id, UUID aid) {
+        return HttpResponse.ok(lockLeaseService.heartbeat(id, aid));
+    }
+
     @Post("/{aid}/restart")
     @Operation(summary = "Restart agent pod")
     public HttpResponse<AgentResponse> restart(UUID id, UUID aid) {
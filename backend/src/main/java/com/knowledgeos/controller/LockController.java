@@ -1,6 +1,8 @@
 package com.knowledgeos.controller;
 
 import com.knowledgeos.dto.AcquireLockRequest;
+import com.knowledgeos.dto.BatchAcquireLockRequest;
+import com.knowledgeos.dto.BatchLockResponse;
 import com.knowledgeos.dto.FileLockResponse;
 import com.knowledgeos.service.FileLockService;
 import io.micronaut.http.HttpResponse;
@@ -14,6 +16,7 @@ import jakarta.validation.Valid;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Controller("/api/v1/projects/{id}/locks")
 @Validated
@@ -24,9 +27,18 @@ public class LockController {
     FileLockService fileLockService;
 
     @Post
-    @Operation(summary = "Acquire a file lock")
-    public HttpResponse<FileLockResponse> acquire(UUID id, @Valid @Body AcquireLockRequest req) {
-        return HttpResponse.status(HttpStatus.CREATED).body(fileLockService.acquire(id, req));
+    @Operation(summary = "Acquire a file lock, optionally waiting up to waitSeconds for it")
+    public CompletableFuture<HttpResponse<FileLockResponse>> acquire(UUID id, @Valid @Body AcquireLockRequest req) {
+        return fileLockService.acquireAsync(id, req)
+            .thenApply(lock -> HttpResponse.status(HttpStatus.CREATED).body(lock));
+    }
+
+    @Post("/batch")
+    @Operation(summary = "Acquire several file locks — all or none")
+    public HttpResponse<BatchLockResponse> acquireAll(UUID id, @Valid @Body BatchAcquireLockRequest req) {
+        BatchLockResponse resp = fileLockService.acquireAll(id, req);
+        return HttpResponse.status(resp.conflicts().isEmpty() ? HttpStatus.CREATED : HttpStatus.CONFLICT)
+            .body(resp);
     }
 
     @Get
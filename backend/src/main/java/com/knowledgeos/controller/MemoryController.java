@@ -1,19 +1,27 @@
 package com.knowledgeos.controller;
 
 import com.knowledgeos.dto.CreateMemoryRequest;
+import com.knowledgeos.dto.MemoryImportResponse;
+import com.knowledgeos.dto.MemoryReconcileResponse;
 import com.knowledgeos.dto.MemoryResponse;
 import com.knowledgeos.dto.MemorySearchRequest;
+import com.knowledgeos.memory.MemoryReconciler;
+import com.knowledgeos.service.MemoryImportService;
 import com.knowledgeos.service.MemoryService;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 import io.micronaut.validation.Validated;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,12 +33,33 @@ public class MemoryController {
     @Inject
     MemoryService memoryService;
 
+    @Inject
+    MemoryImportService memoryImportService;
+
+    @Inject
+    MemoryReconciler memoryReconciler;
+
     @Post
     @Operation(summary = "Write a memory entry")
     public HttpResponse<MemoryResponse> write(UUID id, @Valid @Body CreateMemoryRequest req) {
         return HttpResponse.status(HttpStatus.CREATED).body(memoryService.write(id, req));
     }
 
+    @Post("/batch")
+    @Operation(summary = "Write up to 1000 memory entries in one request")
+    public HttpResponse<List<MemoryResponse>> writeBatch(
+            UUID id, @Valid @Size(min = 1, max = 1000) @Body List<@Valid CreateMemoryRequest> req) {
+        return HttpResponse.status(HttpStatus.CREATED).body(memoryImportService.writeAll(id, req));
+    }
+
+    @Post(value = "/import", consumes = "application/x-ndjson")
+    @ExecuteOn(TaskExecutors.BLOCKING)
+    @Operation(summary = "Bulk-import memory entries from NDJSON, one write request per line",
+               description = "Streams the body; progress is reported as memory_import_progress timeline events.")
+    public HttpResponse<MemoryImportResponse> importNdjson(UUID id, @Body InputStream body) {
+        return HttpResponse.ok(memoryImportService.importNdjson(id, body));
+    }
+
     @Get
     @Operation(summary = "List memory entries")
     public HttpResponse<List<MemoryResponse>> list(UUID id, @Nullable @QueryValue String layer) {
@@ -49,4 +78,11 @@ public class MemoryController {
     public HttpResponse<List<MemoryResponse>> search(UUID id, @Valid @Body MemorySearchRequest req) {
         return HttpResponse.ok(memoryService.search(id, req));
     }
+
+    @Post("/reconcile")
+    @ExecuteOn(TaskExecutors.BLOCKING)
+    @Operation(summary = "Queue repairs for drift between memory entries and the vector store")
+    public HttpResponse<MemoryReconcileResponse> reconcile(UUID id) {
+        return HttpResponse.ok(memoryReconciler.reconcile(id));
+    }
 }
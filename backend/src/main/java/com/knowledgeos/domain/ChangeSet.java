@@ -34,9 +34,14 @@ public class ChangeSet {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String diff;
 
+    /** Legacy rollback data: full original file contents. Only set on changesets applied before V11. */
     @Column(name = "reverse_diff", columnDefinition = "TEXT")
     private String reverseDiff;
 
+    /** Hash of the inverse patch in changeset_blobs, stored after apply and used for rollback. */
+    @Column(name = "reverse_diff_hash")
+    private String reverseDiffHash;
+
     @Column(nullable = false)
     private String status = "pending";
 
@@ -87,6 +92,9 @@ public class ChangeSet {
     public String getReverseDiff() { return reverseDiff; }
     public void setReverseDiff(String reverseDiff) { this.reverseDiff = reverseDiff; }
 
+    public String getReverseDiffHash() { return reverseDiffHash; }
+    public void setReverseDiffHash(String reverseDiffHash) { this.reverseDiffHash = reverseDiffHash; }
+
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
@@ -0,0 +1,46 @@
+package com.knowledgeos.domain;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Compressed, content-addressed payload referenced by changesets (reverse diffs).
+ * Immutable once written; the id is the hex SHA-256 of the uncompressed content.
+ */
+@Entity
+@Table(name = "changeset_blobs")
+public class ChangeSetBlob {
+
+    @Id
+    private String hash;
+
+    @Column(nullable = false)
+    private String encoding = "deflate";
+
+    @Column(name = "raw_size", nullable = false)
+    private int rawSize;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+
+    @Column(name = "created_at")
+    private OffsetDateTime createdAt = OffsetDateTime.now();
+
+    // ── Getters and setters ────────────────────────────────────────────────
+
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public String getEncoding() { return encoding; }
+    public void setEncoding(String encoding) { this.encoding = encoding; }
+
+    public int getRawSize() { return rawSize; }
+    public void setRawSize(int rawSize) { this.rawSize = rawSize; }
+
+    public byte[] getData() { return data; }
+    public void setData(byte[] data) { this.data = data; }
+
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+}
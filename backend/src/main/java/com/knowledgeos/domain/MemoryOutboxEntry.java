@@ -0,0 +1,72 @@
+package com.knowledgeos.domain;
+
+import jakarta.annotation.Nullable;
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A pending vector store change for one memory entry's point, written in the
+ * same transaction as the entry. Applied and deleted by {@code MemoryOutboxRelay}.
+ */
+@Entity
+@Table(name = "memory_outbox")
+public class MemoryOutboxEntry {
+
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "project_id", nullable = false)
+    private UUID projectId;
+
+    @Column(name = "point_id", nullable = false)
+    private UUID pointId;
+
+    @Column(nullable = false, length = 10)
+    private String op;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt = OffsetDateTime.now();
+
+    @Nullable
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at")
+    private OffsetDateTime createdAt = OffsetDateTime.now();
+
+    // ── Getters and setters ────────────────────────────────────────────────
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public UUID getProjectId() { return projectId; }
+    public void setProjectId(UUID projectId) { this.projectId = projectId; }
+
+    public UUID getPointId() { return pointId; }
+    public void setPointId(UUID pointId) { this.pointId = pointId; }
+
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public OffsetDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(OffsetDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    @Nullable
+    public String getLastError() { return lastError; }
+    public void setLastError(@Nullable String lastError) { this.lastError = lastError; }
+
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -1,9 +1,11 @@
 package com.knowledgeos.dto;
 
+import io.micronaut.core.annotation.Creator;
 import io.micronaut.serde.annotation.Serdeable;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.annotation.Nullable;
 import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
 
@@ -27,5 +29,20 @@ public record AcquireLockRequest(
 
     @Nullable
     @Schema(description = "Agent acquiring the lock (null for system/user-level lock)")
-    UUID agentId
-) {}
+    UUID agentId,
+
+    @Nullable
+    @Min(0)
+    @Max(300)
+    @Schema(description = "If the lock is held, wait up to this long in a fair queue instead of failing with 409",
+            defaultValue = "0", maximum = "300")
+    Integer waitSeconds
+) {
+
+    @Creator
+    public AcquireLockRequest {}
+
+    public AcquireLockRequest(String filePath, String lockType, int durationSeconds, UUID agentId) {
+        this(filePath, lockType, durationSeconds, agentId, null);
+    }
+}
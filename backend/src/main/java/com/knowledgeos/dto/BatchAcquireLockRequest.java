@@ -0,0 +1,31 @@
+package com.knowledgeos.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.annotation.Nullable;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+@Serdeable
+@Schema(description = "Request to acquire several file locks at once — all are granted or none")
+public record BatchAcquireLockRequest(
+    @NotEmpty
+    @Size(max = 500)
+    @Schema(description = "Paths to lock; order does not matter")
+    List<@Valid LockTarget> locks,
+
+    @Positive
+    @Max(3600)
+    @Schema(description = "Lock duration in seconds, for every lock in the batch", defaultValue = "300", maximum = "3600")
+    int durationSeconds,
+
+    @Nullable
+    @Schema(description = "Agent acquiring the locks (null for system/user-level locks)")
+    UUID agentId
+) {}
@@ -0,0 +1,16 @@
+package com.knowledgeos.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Serdeable
+@Schema(description = "Outcome of a batch lock request: every lock, or the paths that conflicted")
+public record BatchLockResponse(
+    @Schema(description = "Granted locks in canonical (sorted) path order; empty on conflict")
+    List<FileLockResponse> locks,
+
+    @Schema(description = "Requested paths that could not be locked; empty when granted")
+    List<String> conflicts
+) {}
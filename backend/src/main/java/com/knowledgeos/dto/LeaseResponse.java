@@ -0,0 +1,19 @@
+package com.knowledgeos.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Serdeable
+@Schema(description = "Outcome of an agent heartbeat: the agent's lock leases after renewal")
+public record LeaseResponse(
+    UUID agentId,
+
+    @Schema(description = "Locks whose lease was extended by this heartbeat")
+    int renewed,
+
+    @Schema(description = "Locks of the agent now run at least until this time")
+    OffsetDateTime expiresAt
+) {}
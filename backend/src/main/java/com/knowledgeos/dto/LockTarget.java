@@ -0,0 +1,18 @@
+package com.knowledgeos.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotBlank;
+
+@Serdeable
+@Schema(description = "One path in a batch lock request")
+public record LockTarget(
+    @NotBlank
+    @Schema(description = "File, directory (trailing /) or glob to lock, relative to workspace root")
+    String filePath,
+
+    @Nullable
+    @Schema(description = "Lock type", allowableValues = {"read", "write"}, defaultValue = "write")
+    String lockType
+) {}
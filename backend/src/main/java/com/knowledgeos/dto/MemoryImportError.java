@@ -0,0 +1,14 @@
+package com.knowledgeos.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Serdeable
+@Schema(description = "An NDJSON line that was not imported")
+public record MemoryImportError(
+    @Schema(description = "1-based line number in the request body")
+    int line,
+
+    @Schema(description = "Why the line was rejected")
+    String message
+) {}
@@ -0,0 +1,23 @@
+package com.knowledgeos.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.UUID;
+
+@Serdeable
+@Schema(description = "Result of a bulk memory import")
+public record MemoryImportResponse(
+    @Schema(description = "Identifies this import in memory_import_progress timeline events")
+    UUID importId,
+
+    @Schema(description = "Entries written")
+    int imported,
+
+    @Schema(description = "Lines rejected")
+    int failed,
+
+    @Schema(description = "The first rejected lines and why")
+    List<MemoryImportError> errors
+) {}
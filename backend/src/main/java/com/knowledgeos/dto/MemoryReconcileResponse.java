@@ -0,0 +1,20 @@
+package com.knowledgeos.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Serdeable
+@Schema(description = "Differences found between memory entries and the vector store, and queued for repair")
+public record MemoryReconcileResponse(
+    @Schema(description = "Live memory entries")
+    int entries,
+
+    @Schema(description = "Points in the vector store")
+    int points,
+
+    @Schema(description = "Entries with no point — upserts queued")
+    int missing,
+
+    @Schema(description = "Points with no entry — deletes queued")
+    int orphaned
+) {}
@@ -19,6 +19,7 @@ public record MemoryResponse(
     @Nullable String scopeKey,
     @Nullable List<String> tags,
     @Nullable Double score,
+    @Nullable Double similarity,
     OffsetDateTime createdAt,
     @Nullable OffsetDateTime expiresAt
 ) {}
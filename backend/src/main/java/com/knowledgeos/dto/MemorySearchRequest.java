@@ -3,6 +3,8 @@ package com.knowledgeos.dto;
 import io.micronaut.serde.annotation.Serdeable;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
@@ -21,5 +23,18 @@ public record MemorySearchRequest(
     @Positive
     @Max(50)
     @Schema(description = "Maximum results to return", defaultValue = "10")
-    int limit
+    int limit,
+
+    @Nullable
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    @Schema(description = "How strongly near-duplicate results are demoted: 0 ranks by relevance alone, " +
+                          "higher values trade relevance for variety", defaultValue = "0")
+    Double diversity,
+
+    @Nullable
+    @Positive
+    @Schema(description = "Approximate token budget for the returned entries (about 4 characters per token); " +
+                          "the best-ranked entries that fit are returned")
+    Integer tokenBudget
 ) {}
@@ -1,7 +1,9 @@
 package com.knowledgeos.dto;
 
+import io.micronaut.core.annotation.Creator;
 import io.micronaut.serde.annotation.Serdeable;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.annotation.Nullable;
 
 import java.util.List;
 
@@ -11,5 +13,17 @@ public record ValidatorResultResponse(
     boolean passed,
     List<String> failures,
     long durationMs,
-    boolean requiresHumanReview
-) {}
+    boolean requiresHumanReview,
+    @Nullable
+    @Schema(description = "Whether the build ran on an already-warm daemon; null when no daemon was used")
+    Boolean warmDaemon
+) {
+
+    @Creator
+    public ValidatorResultResponse {}
+
+    public ValidatorResultResponse(boolean passed, List<String> failures, long durationMs,
+                                   boolean requiresHumanReview) {
+        this(passed, failures, durationMs, requiresHumanReview, null);
+    }
+}
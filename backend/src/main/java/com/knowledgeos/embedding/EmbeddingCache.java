@@ -0,0 +1,156 @@
+package com.knowledgeos.embedding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Embeddings by content hash: SHA-256 of the model id and the text, so the same
+ * text under the same model is embedded once, ever.
+ *
+ * Two tiers — a bounded in-memory Caffeine cache ({@code app.embedding.cache.max-entries})
+ * in front of the {@code embedding_cache} table, which survives restarts and is
+ * shared by every replica. Both are read and written a batch at a time. Table
+ * errors are logged and treated as misses; the cache never fails a request.
+ *
+ * Metrics: kos.embedding.cache{result=memory|table|miss}
+ */
+@Singleton
+public class EmbeddingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingCache.class);
+
+    private static final String SELECT_SQL =
+        "SELECT content_hash, vector FROM embedding_cache WHERE content_hash = ANY(?)";
+    private static final String INSERT_PREFIX =
+        "INSERT INTO embedding_cache (content_hash, model, dimensions, vector) VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?)";
+    private static final String INSERT_SUFFIX = " ON CONFLICT DO NOTHING";
+
+    @Inject DataSource dataSource;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.embedding.cache.max-entries:50000}")
+    long maxEntries;
+
+    private Cache<String, float[]> memory;
+    private Counter memoryHits;
+    private Counter tableHits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        memory = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        memoryHits = meterRegistry.counter("kos.embedding.cache", "result", "memory");
+        tableHits  = meterRegistry.counter("kos.embedding.cache", "result", "table");
+        misses     = meterRegistry.counter("kos.embedding.cache", "result", "miss");
+    }
+
+    /** Cache key for {@code text} embedded by {@code model}. */
+    public static String key(String model, String text) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(model.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            sha.update((text != null ? text : "").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** In-memory lookup only — cheap enough for a request thread. */
+    public float[] getIfPresent(String key) {
+        float[] v = memory.getIfPresent(key);
+        if (v != null) memoryHits.increment();
+        return v;
+    }
+
+    /** Cached vectors for {@code keys}: memory first, then one table query for the rest. */
+    public Map<String, float[]> getAll(Collection<String> keys) {
+        Map<String, float[]> found = new HashMap<>(memory.getAllPresent(keys));
+        memoryHits.increment(found.size());
+        List<String> missing = keys.stream().filter(k -> !found.containsKey(k)).distinct().toList();
+        if (missing.isEmpty()) return found;
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_SQL)) {
+            Array hashes = conn.createArrayOf("text", missing.toArray());
+            ps.setArray(1, hashes);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    float[] v = decode(rs.getBytes(2));
+                    found.put(rs.getString(1), v);
+                    memory.put(rs.getString(1), v);
+                    tableHits.increment();
+                }
+            }
+            hashes.free();
+        } catch (SQLException e) {
+            log.warn("Embedding cache lookup failed: {}", e.getMessage());
+        }
+        misses.increment(missing.stream().filter(k -> !found.containsKey(k)).count());
+        return found;
+    }
+
+    /** Remember freshly computed vectors in both tiers. */
+    public void putAll(String model, Map<String, float[]> vectors) {
+        if (vectors.isEmpty()) return;
+        memory.putAll(vectors);
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < vectors.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append(INSERT_ROW);
+        }
+        sql.append(INSERT_SUFFIX);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int p = 1;
+            for (Map.Entry<String, float[]> e : vectors.entrySet()) {
+                ps.setString(p++, e.getKey());
+                ps.setString(p++, model);
+                ps.setInt(p++, e.getValue().length);
+                ps.setBytes(p++, encode(e.getValue()));
+            }
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            log.warn("Embedding cache write of {} vectors failed: {}", vectors.size(), e.getMessage());
+        }
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    /** float32 little-endian — 4 bytes per dimension. */
+    private static byte[] encode(float[] v) {
+        ByteBuffer buf = ByteBuffer.allocate(v.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buf.asFloatBuffer().put(v);
+        return buf.array();
+    }
+
+    private static float[] decode(byte[] bytes) {
+        float[] v = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(v);
+        return v;
+    }
+}
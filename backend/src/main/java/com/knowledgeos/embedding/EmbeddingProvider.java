@@ -0,0 +1,37 @@
+package com.knowledgeos.embedding;
+
+import java.util.List;
+
+/**
+ * Turns text into vectors for semantic memory search.
+ *
+ * Implementations ({@code app.embedding.provider}):
+ *   hash   — deterministic pseudo-vectors with no meaning; needs no model files or
+ *            API key (default)
+ *   onnx   — a sentence-embedding model run in-process on the CPU (ONNX Runtime);
+ *            no network access
+ *   openai — the OpenAI embeddings API
+ *
+ * Callers go through {@link EmbeddingService}, which caches and batches; a
+ * provider sees only texts that are not cached.
+ */
+public interface EmbeddingProvider {
+
+    /** Identifies the model; part of the cache key, so switching models never reuses stale vectors. */
+    String model();
+
+    /** Length of every vector this provider returns. */
+    int dimensions();
+
+    /** Whether similar texts get similar vectors; searches ignore vectors that carry no meaning. */
+    default boolean semantic() {
+        return true;
+    }
+
+    /**
+     * Embed {@code texts} in one model call (or as few as the backend allows).
+     *
+     * @return one vector per text, in the same order
+     */
+    List<float[]> embed(List<String> texts);
+}
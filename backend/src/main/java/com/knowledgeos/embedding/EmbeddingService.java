@@ -0,0 +1,194 @@
+package com.knowledgeos.embedding;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Value;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embeddings for memory entries and search queries, through the configured
+ * {@link EmbeddingProvider}.
+ *
+ * Every text is looked up in the {@link EmbeddingCache} by content hash first,
+ * so re-embedding an unchanged memory costs nothing. What is left is batched:
+ *   {@link #embedAll} — the caller's misses go to the model in one call
+ *   {@link #embed} / {@link #embedAsync} — single texts from concurrent requests
+ *     are queued and a batcher thread sends up to {@code app.embedding.batch.max-size}
+ *     of them per model call, waiting at most {@code app.embedding.batch.linger}
+ *     for a batch to fill
+ *
+ * Metrics: kos.embedding.batch (texts per model call), kos.embedding.model (model call time)
+ */
+@Singleton
+public class EmbeddingService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingService.class);
+
+    @Inject EmbeddingProvider provider;
+    @Inject EmbeddingCache cache;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.embedding.batch.max-size:32}")
+    int maxBatch;
+
+    @Value("${app.embedding.batch.linger:5ms}")
+    Duration linger;
+
+    /** A single text waiting for the batcher. */
+    private record Request(String key, String text, CompletableFuture<float[]> future) {}
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private Thread batcher;
+    private volatile boolean running;
+
+    private DistributionSummary batchSize;
+    private Timer modelTime;
+
+    @PostConstruct
+    void start() {
+        batchSize = DistributionSummary.builder("kos.embedding.batch")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        modelTime = Timer.builder("kos.embedding.model")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        running = true;
+        batcher = Thread.ofPlatform().name("embedding-batcher").daemon(true).start(this::batchLoop);
+        log.info("Embedding with {} ({} dims)", provider.model(), provider.dimensions());
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (batcher != null) batcher.interrupt();
+        List<Request> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(r -> r.future().completeExceptionally(new IllegalStateException("Embedding service stopped")));
+    }
+
+    /** Length of every vector — the Qdrant collection's vector size. */
+    public int dimensions() {
+        return provider.dimensions();
+    }
+
+    /** Whether the vectors carry meaning — false for the placeholder {@code hash} provider. */
+    public boolean semantic() {
+        return provider.semantic();
+    }
+
+    /** Embed one text, batched with whatever other texts are waiting. */
+    public float[] embed(String text) {
+        try {
+            return embedAsync(text).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /** Non-blocking {@link #embed}; completes at once on an in-memory cache hit. */
+    public CompletableFuture<float[]> embedAsync(String text) {
+        String key = EmbeddingCache.key(provider.model(), text);
+        float[] cached = cache.getIfPresent(key);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        Request request = new Request(key, text, new CompletableFuture<>());
+        queue.add(request);
+        return request.future();
+    }
+
+    /**
+     * Embed {@code texts}, with everything not cached in one model call.
+     *
+     * @return one vector per text, in the same order
+     */
+    public List<float[]> embedAll(List<String> texts) {
+        LinkedHashMap<String, String> byKey = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            String key = EmbeddingCache.key(provider.model(), text);
+            keys.add(key);
+            byKey.putIfAbsent(key, text);
+        }
+        Map<String, float[]> vectors = resolve(byKey);
+        return keys.stream().map(vectors::get).toList();
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    /** Vectors for distinct texts by key: cache first, then one model call for the rest. */
+    private Map<String, float[]> resolve(LinkedHashMap<String, String> byKey) {
+        Map<String, float[]> vectors = cache.getAll(byKey.keySet());
+        if (vectors.size() == byKey.size()) return vectors;
+
+        List<String> missKeys = new ArrayList<>();
+        List<String> missTexts = new ArrayList<>();
+        byKey.forEach((key, text) -> {
+            if (!vectors.containsKey(key)) {
+                missKeys.add(key);
+                missTexts.add(text);
+            }
+        });
+
+        long start = System.nanoTime();
+        List<float[]> embedded = provider.embed(missTexts);
+        modelTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSize.record(missTexts.size());
+
+        Map<String, float[]> fresh = new HashMap<>();
+        for (int i = 0; i < missKeys.size(); i++) fresh.put(missKeys.get(i), embedded.get(i));
+        cache.putAll(provider.model(), fresh);
+        vectors.putAll(fresh);
+        return vectors;
+    }
+
+    private void batchLoop() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + linger.toNanos();
+                while (batch.size() < maxBatch) {
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                process(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    batch.forEach(r -> r.future().completeExceptionally(new IllegalStateException("Embedding service stopped")));
+                    break;
+                }
+                process(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Request> batch) {
+        LinkedHashMap<String, String> byKey = new LinkedHashMap<>();
+        batch.forEach(r -> byKey.putIfAbsent(r.key(), r.text()));
+        try {
+            Map<String, float[]> vectors = resolve(byKey);
+            batch.forEach(r -> r.future().complete(vectors.get(r.key())));
+        } catch (RuntimeException e) {
+            log.warn("Embedding batch of {} texts failed: {}", byKey.size(), e.getMessage());
+            batch.forEach(r -> r.future().completeExceptionally(e));
+        }
+    }
+}
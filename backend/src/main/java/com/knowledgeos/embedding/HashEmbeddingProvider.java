@@ -0,0 +1,51 @@
+package com.knowledgeos.embedding;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Singleton;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic pseudo-vectors derived from {@code String.hashCode()} — equal
+ * texts get equal vectors, nothing else is meaningful. The default provider, so a
+ * plain start (and every test) needs no model files or API key; real deployments
+ * opt into {@code onnx} or {@code openai}.
+ */
+@Singleton
+@Requires(property = "app.embedding.provider", value = "hash", defaultValue = "hash")
+public class HashEmbeddingProvider implements EmbeddingProvider {
+
+    @Value("${app.embedding.hash.dimensions:1536}")
+    int dimensions;
+
+    @Override
+    public String model() {
+        return "hash-" + dimensions;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public boolean semantic() {
+        return false;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            float[] v = new float[dimensions];
+            int hash = text != null ? text.hashCode() : 0;
+            for (int i = 0; i < dimensions; i++) {
+                v[i] = (float) Math.sin(hash * (i + 1) * 0.001);
+            }
+            vectors.add(v);
+        }
+        return vectors;
+    }
+}
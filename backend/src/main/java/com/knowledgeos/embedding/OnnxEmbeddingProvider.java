@@ -0,0 +1,172 @@
+package com.knowledgeos.embedding;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sentence embeddings from a local ONNX model on the CPU — no network access.
+ *
+ * Expects a BERT-style sentence-transformer export (e.g. all-MiniLM-L6-v2, or its
+ * int8-quantized {@code model_quantized.onnx}) and the model's {@code tokenizer.json}.
+ * A batch is padded to its longest text (at most {@code max-tokens}) and run as
+ * one inference; token vectors are mean-pooled over the attention mask and
+ * L2-normalized, as sentence-transformers does.
+ *
+ * Opt-in ({@code app.embedding.provider: onnx}): the deployment supplies both files,
+ * and startup fails naming the missing one rather than running without vectors.
+ */
+@Singleton
+@Requires(property = "app.embedding.provider", value = "onnx")
+public class OnnxEmbeddingProvider implements EmbeddingProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(OnnxEmbeddingProvider.class);
+
+    @Value("${app.embedding.onnx.model:all-MiniLM-L6-v2}")
+    String model;
+
+    @Value("${app.embedding.onnx.model-path:/models/all-MiniLM-L6-v2/model.onnx}")
+    String modelPath;
+
+    @Value("${app.embedding.onnx.tokenizer-path:/models/all-MiniLM-L6-v2/tokenizer.json}")
+    String tokenizerPath;
+
+    @Value("${app.embedding.onnx.dimensions:384}")
+    int dimensions;
+
+    @Value("${app.embedding.onnx.max-tokens:256}")
+    int maxTokens;
+
+    @Value("${app.embedding.onnx.threads:4}")
+    int threads;
+
+    private OrtEnvironment env;
+    private OrtSession session;
+    private HuggingFaceTokenizer tokenizer;
+    private boolean typeIds;
+
+    @PostConstruct
+    void start() throws OrtException, IOException {
+        requireFile("model-path", modelPath);
+        requireFile("tokenizer-path", tokenizerPath);
+        env = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setIntraOpNumThreads(threads);
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            session = env.createSession(modelPath, options);
+        }
+        tokenizer = HuggingFaceTokenizer.newInstance(Path.of(tokenizerPath));
+        typeIds = session.getInputNames().contains("token_type_ids");
+        log.info("ONNX embedding model {} loaded from {} ({} dims, {} threads)", model, modelPath, dimensions, threads);
+    }
+
+    @PreDestroy
+    void stop() throws OrtException {
+        if (session != null) session.close();
+        if (tokenizer != null) tokenizer.close();
+    }
+
+    @Override
+    public String model() {
+        return "onnx:" + model;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        if (texts.isEmpty()) return List.of();
+
+        List<Encoding> encodings = new ArrayList<>(texts.size());
+        int length = 1;
+        for (String text : texts) {
+            Encoding e = tokenizer.encode(text != null ? text : "");
+            encodings.add(e);
+            length = Math.max(length, Math.min(maxTokens, e.getIds().length));
+        }
+
+        int batch = texts.size();
+        long[][] ids = new long[batch][length];
+        long[][] mask = new long[batch][length];
+        long[][] types = new long[batch][length];
+        for (int b = 0; b < batch; b++) {
+            Encoding e = encodings.get(b);
+            long[] tokenIds = e.getIds();
+            int n = Math.min(length, tokenIds.length);
+            System.arraycopy(tokenIds, 0, ids[b], 0, n);
+            System.arraycopy(e.getTypeIds(), 0, types[b], 0, n);
+            for (int t = 0; t < n; t++) mask[b][t] = 1;
+            // Truncated: keep the closing [SEP] the model was trained to see
+            if (tokenIds.length > length) ids[b][length - 1] = tokenIds[tokenIds.length - 1];
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(env, ids));
+            inputs.put("attention_mask", OnnxTensor.createTensor(env, mask));
+            if (typeIds) inputs.put("token_type_ids", OnnxTensor.createTensor(env, types));
+
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][][] hidden = (float[][][]) result.get(0).getValue();
+                List<float[]> vectors = new ArrayList<>(batch);
+                for (int b = 0; b < batch; b++) {
+                    vectors.add(meanPool(hidden[b], mask[b]));
+                }
+                return vectors;
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("ONNX embedding failed: " + e.getMessage(), e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private static void requireFile(String property, String path) {
+        if (!Files.isRegularFile(Path.of(path))) {
+            throw new IllegalStateException("ONNX embedding provider: app.embedding.onnx." + property
+                + " " + path + " does not exist — mount the model files or set app.embedding.provider");
+        }
+    }
+
+    /** Average of the unmasked token vectors, scaled to unit length. */
+    private float[] meanPool(float[][] tokens, long[] mask) {
+        float[] v = new float[dimensions];
+        int count = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            if (mask[t] == 0) continue;
+            for (int d = 0; d < dimensions; d++) v[d] += tokens[t][d];
+            count++;
+        }
+        double norm = 0;
+        for (int d = 0; d < dimensions; d++) {
+            v[d] /= Math.max(1, count);
+            norm += v[d] * v[d];
+        }
+        float scale = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0f;
+        for (int d = 0; d < dimensions; d++) v[d] *= scale;
+        return v;
+    }
+}
@@ -0,0 +1,124 @@
+package com.knowledgeos.embedding;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.client.DefaultHttpClientConfiguration;
+import io.micronaut.http.client.HttpClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Embeddings from the OpenAI API ({@code app.embedding.provider: openai}).
+ *
+ * A batch goes out in requests of at most 2048 inputs, the API's limit, over one
+ * pooled client; the vectors come back in input order. The key comes from
+ * {@code app.embedding.openai.api-key} (defaults to {@code OPENAI_API_KEY}).
+ */
+@Singleton
+@Requires(property = "app.embedding.provider", value = "openai")
+public class OpenAiEmbeddingProvider implements EmbeddingProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiEmbeddingProvider.class);
+
+    /** Inputs per request accepted by the embeddings API. */
+    private static final int MAX_INPUTS = 2048;
+
+    /** A full request's response: 2048 vectors of up to 3072 floats as JSON text. */
+    private static final int MAX_RESPONSE_BYTES = 128 * 1024 * 1024;
+
+    @Value("${app.embedding.openai.url:https://api.openai.com}")
+    String url;
+
+    @Value("${app.embedding.openai.api-key:${OPENAI_API_KEY:}}")
+    String apiKey;
+
+    @Value("${app.embedding.openai.model:text-embedding-3-small}")
+    String model;
+
+    @Value("${app.embedding.openai.dimensions:1536}")
+    int dimensions;
+
+    @Value("${app.embedding.openai.timeout:30s}")
+    Duration timeout;
+
+    private HttpClient client;
+
+    @PostConstruct
+    void start() {
+        DefaultHttpClientConfiguration config = new DefaultHttpClientConfiguration();
+        config.setReadTimeout(timeout);
+        config.setMaxContentLength(MAX_RESPONSE_BYTES);
+        config.getConnectionPoolConfiguration().setEnabled(true);
+        try {
+            client = HttpClient.create(new URL(url), config);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Invalid embeddings URL: " + url, e);
+        }
+        if (apiKey == null || apiKey.isBlank()) {
+            log.warn("app.embedding.openai.api-key is not set — embedding requests will be rejected");
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (client != null) client.close();
+    }
+
+    @Override
+    public String model() {
+        return "openai:" + model + ":" + dimensions;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        if (texts.isEmpty()) return List.of();
+        if (texts.size() <= MAX_INPUTS) return embedChunk(texts);
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += MAX_INPUTS) {
+            vectors.addAll(embedChunk(texts.subList(from, Math.min(texts.size(), from + MAX_INPUTS))));
+        }
+        return vectors;
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    /** One API request for at most {@link #MAX_INPUTS} texts. */
+    private List<float[]> embedChunk(List<String> texts) {
+        Map<String, Object> body = Map.of(
+            "model", model,
+            "input", texts.stream().map(t -> t != null && !t.isEmpty() ? t : " ").toList(),
+            "dimensions", dimensions
+        );
+        Map<?, ?> response = client.toBlocking().retrieve(
+            HttpRequest.POST("/v1/embeddings", body)
+                .contentType(MediaType.APPLICATION_JSON_TYPE)
+                .bearerAuth(apiKey),
+            Map.class
+        );
+
+        float[][] vectors = new float[texts.size()][];
+        for (Object item : (List<?>) response.get("data")) {
+            Map<?, ?> data = (Map<?, ?>) item;
+            List<?> embedding = (List<?>) data.get("embedding");
+            float[] v = new float[embedding.size()];
+            for (int i = 0; i < v.length; i++) v[i] = ((Number) embedding.get(i)).floatValue();
+            vectors[((Number) data.get("index")).intValue()] = v;
+        }
+        return Arrays.asList(vectors);
+    }
+}
@@ -0,0 +1,115 @@
+package com.knowledgeos.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Listener registry, envelope and metrics shared by the bus implementations.
+ *
+ * Each message travels as {@code <publishedAtMillis>|<payload>} so the receiving
+ * node can record publish-to-deliver latency ({@code kos.events.delivery.latency},
+ * tagged by channel family — the topic up to the first ':'). Across nodes the
+ * figure includes clock skew, so read it as a trend rather than an absolute.
+ */
+abstract class AbstractClusterEventBus implements ClusterEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractClusterEventBus.class);
+
+    private final ConcurrentHashMap<String, Set<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    AbstractClusterEventBus(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Start receiving {@code topic} from the transport — called for its first listener. */
+    protected abstract void onFirstListener(String topic);
+
+    /** Stop receiving {@code topic} — called when its last listener is removed. */
+    protected abstract void onLastListener(String topic);
+
+    /** Send an encoded envelope to every subscribed node. */
+    protected abstract void send(String topic, String envelope);
+
+    @Override
+    public void publish(String topic, String message) {
+        meterRegistry.counter("kos.events.published", "channel", channel(topic)).increment();
+        try {
+            send(topic, System.currentTimeMillis() + "|" + message);
+        } catch (Exception e) {
+            log.warn("Event bus publish failed on {}: {}", topic, e.getMessage());
+        }
+    }
+
+    @Override
+    public Subscription subscribe(String topic, Consumer<String> listener) {
+        listeners.compute(topic, (t, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+                onFirstListener(t);
+            }
+            set.add(listener);
+            return set;
+        });
+        return () -> listeners.computeIfPresent(topic, (t, set) -> {
+            set.remove(listener);
+            if (!set.isEmpty()) return set;
+            onLastListener(t);
+            return null;
+        });
+    }
+
+    /** True while this node has at least one listener on {@code topic}. */
+    public boolean hasListeners(String topic) {
+        return listeners.containsKey(topic);
+    }
+
+    /** Hand a received envelope to this node's listeners. */
+    protected void deliver(String topic, String envelope) {
+        Set<Consumer<String>> set = listeners.get(topic);
+        if (set == null || set.isEmpty()) return;
+
+        String message = envelope;
+        int sep = envelope.indexOf('|');
+        if (sep > 0) {
+            try {
+                long publishedAt = Long.parseLong(envelope, 0, sep, 10);
+                message = envelope.substring(sep + 1);
+                long lagMs = Math.max(0, System.currentTimeMillis() - publishedAt);
+                latencyTimer(topic).record(Duration.ofMillis(lagMs));
+            } catch (NumberFormatException ignored) {
+                // Not an envelope — deliver as-is
+            }
+        }
+
+        for (Consumer<String> listener : set) {
+            try {
+                listener.accept(message);
+            } catch (Exception e) {
+                log.debug("Event bus listener failed on {}: {}", topic, e.getMessage());
+            }
+        }
+    }
+
+    private Timer latencyTimer(String topic) {
+        return latencyTimers.computeIfAbsent(channel(topic), c ->
+            Timer.builder("kos.events.delivery.latency")
+                .description("Publish-to-deliver latency of cluster bus messages")
+                .tag("channel", c)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+    }
+
+    private static String channel(String topic) {
+        int colon = topic.indexOf(':');
+        return colon > 0 ? topic.substring(0, colon) : topic;
+    }
+}
@@ -0,0 +1,34 @@
+package com.knowledgeos.events;
+
+import java.util.function.Consumer;
+
+/**
+ * Cross-node pub/sub for small, best-effort messages (WebSocket fan-out,
+ * cache invalidation).
+ *
+ * Every node that subscribes to a topic receives each message published to it,
+ * including the publishing node. Delivery is at-most-once: messages published
+ * while a node is disconnected are not replayed.
+ *
+ * Implementations ({@code app.events.bus}):
+ *   redis — Redis pub/sub via Lettuce (default)
+ *   local — in-process only; single-node dev and tests
+ */
+public interface ClusterEventBus {
+
+    /** Publish to every node subscribed to {@code topic}. Never throws. */
+    void publish(String topic, String message);
+
+    /**
+     * Register a listener for {@code topic}. The node only subscribes upstream
+     * while at least one listener is registered.
+     * Listeners are invoked on the bus's I/O thread and must not block.
+     */
+    Subscription subscribe(String topic, Consumer<String> listener);
+
+    /** Handle returned by {@link #subscribe}; closing it removes the listener. */
+    interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,33 @@
+package com.knowledgeos.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import jakarta.inject.Singleton;
+
+/**
+ * In-process stand-in for {@link RedisClusterEventBus}: publish delivers straight
+ * to this node's listeners. Used by tests and single-node dev setups
+ * ({@code app.events.bus: local}).
+ */
+@Singleton
+@Requires(property = "app.events.bus", value = "local")
+public class LocalClusterEventBus extends AbstractClusterEventBus {
+
+    public LocalClusterEventBus(MeterRegistry meterRegistry) {
+        super(meterRegistry);
+    }
+
+    @Override
+    protected void onFirstListener(String topic) {
+        // Nothing upstream to subscribe to
+    }
+
+    @Override
+    protected void onLastListener(String topic) {
+    }
+
+    @Override
+    protected void send(String topic, String envelope) {
+        deliver(topic, envelope);
+    }
+}
@@ -0,0 +1,77 @@
+package com.knowledgeos.events;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ClusterEventBus} over Redis pub/sub.
+ *
+ * Topics map to channels {@code kos:<topic>}. Publishing uses the shared Lettuce
+ * connection; receiving uses a dedicated pub/sub connection that only holds
+ * SUBSCRIBEs for topics with local listeners, so a node never receives traffic
+ * for projects nobody on it is watching. Lettuce re-issues the subscriptions
+ * after a reconnect.
+ *
+ * If a publish fails (Redis down) the message is still delivered to this node's
+ * own listeners, so a single replica degrades to the old in-process behaviour.
+ */
+@Singleton
+@Requires(property = "app.events.bus", value = "redis", defaultValue = "redis")
+public class RedisClusterEventBus extends AbstractClusterEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisClusterEventBus.class);
+    private static final String CHANNEL_PREFIX = "kos:";
+
+    private final StatefulRedisConnection<String, String> connection;
+    private final StatefulRedisPubSubConnection<String, String> pubSub;
+
+    public RedisClusterEventBus(RedisClient redisClient,
+                                StatefulRedisConnection<String, String> connection,
+                                MeterRegistry meterRegistry) {
+        super(meterRegistry);
+        this.connection = connection;
+        this.pubSub = redisClient.connectPubSub();
+        this.pubSub.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, String message) {
+                if (channel.startsWith(CHANNEL_PREFIX)) {
+                    deliver(channel.substring(CHANNEL_PREFIX.length()), message);
+                }
+            }
+        });
+        log.info("Redis cluster event bus connected");
+    }
+
+    @PreDestroy
+    void close() {
+        pubSub.close();
+    }
+
+    @Override
+    protected void onFirstListener(String topic) {
+        pubSub.async().subscribe(CHANNEL_PREFIX + topic);
+    }
+
+    @Override
+    protected void onLastListener(String topic) {
+        pubSub.async().unsubscribe(CHANNEL_PREFIX + topic);
+    }
+
+    @Override
+    protected void send(String topic, String envelope) {
+        connection.async().publish(CHANNEL_PREFIX + topic, envelope).whenComplete((receivers, error) -> {
+            if (error != null) {
+                log.warn("Redis publish failed on {}, delivering locally only: {}", topic, error.getMessage());
+                deliver(topic, envelope);
+            }
+        });
+    }
+}
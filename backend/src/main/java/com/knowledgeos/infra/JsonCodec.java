@@ -0,0 +1,202 @@
+package com.knowledgeos.infra;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.knowledgeos.timeline.TimelineEventMessage;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Shared JSON codec for the small JSON documents stored in text/JSONB columns
+ * (timeline payloads, file lists, tags) and for WebSocket messages.
+ *
+ * Built on Jackson's streaming API rather than an ObjectMapper: no reflection or
+ * intermediate tree, and each thread reuses one output buffer, so a write costs
+ * roughly the final String. Jackson recycles the parser/generator char buffers.
+ *
+ * Reads are best-effort like the helpers this replaces: malformed input yields an
+ * empty result instead of an exception. Unlike those helpers, nested objects and
+ * arrays, escapes and numbers round-trip correctly.
+ */
+@Singleton
+public class JsonCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonCodec.class);
+
+    /** Buffers that grew past this are dropped rather than pinned to the thread. */
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private final JsonFactory factory = new JsonFactory();
+    private final ThreadLocal<BufferWriter> buffers = ThreadLocal.withInitial(BufferWriter::new);
+
+    // ── Writes ──────────────────────────────────────────────────────────────
+
+    /** Serialize a map whose values are strings, numbers, booleans, null, maps or collections. */
+    public String writeMap(Map<String, ?> map) {
+        if (map == null || map.isEmpty()) return "{}";
+        return write(gen -> writeValue(gen, map));
+    }
+
+    public String writeStringList(List<String> list) {
+        if (list == null || list.isEmpty()) return "[]";
+        return write(gen -> {
+            gen.writeStartArray();
+            for (String s : list) gen.writeString(s);
+            gen.writeEndArray();
+        });
+    }
+
+    /** WebSocket frame for a persisted timeline event. */
+    public String writeTimelineEvent(TimelineEventMessage m) {
+        return write(gen -> {
+            gen.writeStartObject();
+            gen.writeStringField("id", m.id().toString());
+            gen.writeStringField("type", m.type());
+            gen.writeStringField("source", m.source());
+            gen.writeFieldName("agentId");
+            if (m.agentId() != null) gen.writeString(m.agentId().toString());
+            else gen.writeNull();
+            gen.writeStringField("createdAt", m.createdAt().toString());
+            gen.writeEndObject();
+        });
+    }
+
+    // ── Reads ───────────────────────────────────────────────────────────────
+
+    /** Parse a JSON object. Returns an empty map for null, blank or malformed input. */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> readMap(String json) {
+        if (json == null || json.isBlank()) return Map.of();
+        try (JsonParser p = factory.createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return Map.of();
+            return (Map<String, Object>) readValue(p);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Unparseable JSON object: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /** Parse a JSON array of strings; non-string elements are rendered as text. */
+    public List<String> readStringList(String json) {
+        if (json == null || json.isBlank()) return List.of();
+        try (JsonParser p = factory.createParser(json)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) return List.of();
+            List<String> result = new ArrayList<>();
+            JsonToken t;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+                if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+                    p.skipChildren();
+                } else if (t != JsonToken.VALUE_NULL) {
+                    result.add(p.getText());
+                }
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Unparseable JSON array: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonGenerator gen) throws IOException;
+    }
+
+    private String write(Body body) {
+        BufferWriter out = buffers.get();
+        out.reset();
+        try (JsonGenerator gen = factory.createGenerator(out)) {
+            body.write(gen);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String json = out.toString();
+        if (out.capacity() > MAX_RETAINED_BUFFER) buffers.remove();
+        return json;
+    }
+
+    private static void writeValue(JsonGenerator gen, Object value) throws IOException {
+        switch (value) {
+            case null -> gen.writeNull();
+            case String s -> gen.writeString(s);
+            case Boolean b -> gen.writeBoolean(b);
+            case Integer i -> gen.writeNumber(i);
+            case Long l -> gen.writeNumber(l);
+            case Double d -> gen.writeNumber(d);
+            case Float f -> gen.writeNumber(f);
+            case BigDecimal d -> gen.writeNumber(d);
+            case BigInteger i -> gen.writeNumber(i);
+            case Number n -> gen.writeNumber(n.toString());
+            case Map<?, ?> map -> {
+                gen.writeStartObject();
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    gen.writeFieldName(String.valueOf(e.getKey()));
+                    writeValue(gen, e.getValue());
+                }
+                gen.writeEndObject();
+            }
+            case Iterable<?> items -> {
+                gen.writeStartArray();
+                for (Object item : items) writeValue(gen, item);
+                gen.writeEndArray();
+            }
+            case Enum<?> e -> gen.writeString(e.name());
+            default -> gen.writeString(value.toString());
+        }
+    }
+
+    private static Object readValue(JsonParser p) throws IOException {
+        return switch (p.currentToken()) {
+            case START_OBJECT -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = p.currentName();
+                    p.nextToken();
+                    map.put(key, readValue(p));
+                }
+                yield map;
+            }
+            case START_ARRAY -> {
+                List<Object> list = new ArrayList<>();
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue(p));
+                }
+                yield list;
+            }
+            case VALUE_STRING -> p.getText();
+            case VALUE_NUMBER_INT -> p.getNumberValue();
+            case VALUE_NUMBER_FLOAT -> p.getDoubleValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            default -> throw new IOException("Unexpected token " + p.currentToken());
+        };
+    }
+
+    /** Unsynchronized, resettable Writer over a StringBuilder (unlike StringWriter). */
+    private static final class BufferWriter extends Writer {
+        private final StringBuilder sb = new StringBuilder(256);
+
+        void reset() { sb.setLength(0); }
+        int capacity() { return sb.capacity(); }
+
+        @Override public void write(char[] cbuf, int off, int len) { sb.append(cbuf, off, len); }
+        @Override public void write(String str, int off, int len) { sb.append(str, off, off + len); }
+        @Override public void write(int c) { sb.append((char) c); }
+        @Override public void flush() { }
+        @Override public void close() { }
+        @Override public String toString() { return sb.toString(); }
+    }
+}
@@ -89,6 +89,23 @@ public class AgentPodManager {
         }
     }
 
+    /**
+     * True only if Kubernetes says the pod no longer exists or has terminated.
+     * Errors talking to the API count as "not gone", so an API outage never
+     * looks like dead agents.
+     */
+    public boolean isPodGone(String podName, String namespace) {
+        try {
+            Pod pod = k8s.pods().inNamespace(namespace).withName(podName).get();
+            if (pod == null) return true;
+            String phase = pod.getStatus() != null ? pod.getStatus().getPhase() : null;
+            return "Succeeded".equals(phase) || "Failed".equals(phase);
+        } catch (Exception e) {
+            log.debug("Pod {} status unavailable: {}", podName, e.getMessage());
+            return false;
+        }
+    }
+
     private String buildPodName(Agent agent) {
         String shortId = agent.getId().toString().replace("-", "").substring(0, 8);
         String role = agent.getRole().toLowerCase().substring(0, Math.min(8, agent.getRole().length()));
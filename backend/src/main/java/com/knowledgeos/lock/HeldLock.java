@@ -0,0 +1,38 @@
+package com.knowledgeos.lock;
+
+import jakarta.annotation.Nullable;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A granted file lock as held by a {@link LockStore}.
+ *
+ * Ids are assigned by the application, not Postgres, so a lock can be granted
+ * (and returned to the caller) before its {@code file_locks} row exists.
+ */
+public record HeldLock(
+    UUID id,
+    UUID projectId,
+    String path,
+    String type,
+    @Nullable UUID agentId,
+    OffsetDateTime expiresAt,
+    OffsetDateTime createdAt
+) {
+
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+
+    public boolean isWrite() {
+        return WRITE.equals(type);
+    }
+
+    public boolean isExpired(OffsetDateTime now) {
+        return !expiresAt.isAfter(now);
+    }
+
+    public HeldLock withExpiresAt(OffsetDateTime newExpiry) {
+        return new HeldLock(id, projectId, path, type, agentId, newExpiry, createdAt);
+    }
+}
@@ -0,0 +1,146 @@
+package com.knowledgeos.lock;
+
+import io.micronaut.context.annotation.Requires;
+import jakarta.inject.Singleton;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process stand-in for {@link RedisLockStore}: one {@link PathLockTrie} per
+ * project. Used by tests and single-node dev setups ({@code app.locks.store: local});
+ * state is lost on restart and rebuilt from Postgres by {@link LockReconciler}.
+ */
+@Singleton
+@Requires(property = "app.locks.store", value = "local")
+public class InMemoryLockStore implements LockStore {
+
+    private final Map<UUID, PathLockTrie> tries = new HashMap<>();   // guarded by this
+    private final AtomicBoolean populated = new AtomicBoolean();
+
+    @Override
+    public synchronized List<String> tryAcquireAll(List<HeldLock> locks) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<HeldLock> granted = new ArrayList<>(locks.size());
+        List<String> conflicts = new ArrayList<>();
+        for (HeldLock lock : locks) {
+            PathLockTrie trie = tries.computeIfAbsent(lock.projectId(), id -> new PathLockTrie());
+            if (!lock.isExpired(now) && trie.tryAcquire(lock, now)) {
+                granted.add(lock);
+            } else {
+                conflicts.add(lock.path());
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            for (HeldLock lock : granted) tries.get(lock.projectId()).remove(lock.id());
+            tries.values().removeIf(PathLockTrie::isEmpty);
+        }
+        return conflicts;
+    }
+
+    @Override
+    public synchronized Optional<HeldLock> get(UUID projectId, UUID lockId) {
+        PathLockTrie trie = tries.get(projectId);
+        return live(trie != null ? trie.get(lockId) : null, OffsetDateTime.now());
+    }
+
+    @Override
+    public synchronized Optional<HeldLock> release(UUID projectId, UUID lockId) {
+        PathLockTrie trie = tries.get(projectId);
+        if (trie == null) return Optional.empty();
+        HeldLock lock = trie.remove(lockId);
+        if (trie.isEmpty()) tries.remove(projectId);
+        return live(lock, OffsetDateTime.now());
+    }
+
+    @Override
+    public synchronized Optional<HeldLock> extend(UUID projectId, UUID lockId, OffsetDateTime expiresAt) {
+        HeldLock lock = get(projectId, lockId).orElse(null);
+        if (lock == null) return Optional.empty();
+        HeldLock extended = lock.withExpiresAt(expiresAt);
+        tries.get(projectId).replace(extended);
+        return Optional.of(extended);
+    }
+
+    @Override
+    public synchronized List<HeldLock> renewAgent(UUID projectId, UUID agentId, OffsetDateTime expiresAt) {
+        List<HeldLock> renewed = new ArrayList<>();
+        for (HeldLock lock : list(projectId)) {
+            if (agentId.equals(lock.agentId()) && lock.expiresAt().isBefore(expiresAt)) {
+                HeldLock extended = lock.withExpiresAt(expiresAt);
+                tries.get(projectId).replace(extended);
+                renewed.add(extended);
+            }
+        }
+        return renewed;
+    }
+
+    @Override
+    public synchronized List<HeldLock> releaseAgent(UUID projectId, UUID agentId) {
+        List<HeldLock> released = new ArrayList<>();
+        for (HeldLock lock : list(projectId)) {
+            if (agentId.equals(lock.agentId())) {
+                release(projectId, lock.id()).ifPresent(released::add);
+            }
+        }
+        return released;
+    }
+
+    @Override
+    public synchronized List<HeldLock> list(UUID projectId) {
+        PathLockTrie trie = tries.get(projectId);
+        if (trie == null) return List.of();
+        OffsetDateTime now = OffsetDateTime.now();
+        return trie.locks().stream()
+            .filter(l -> !l.isExpired(now))
+            .sorted(Comparator.comparing(HeldLock::createdAt))
+            .toList();
+    }
+
+    @Override
+    public synchronized List<HeldLock> listAll() {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<HeldLock> all = new ArrayList<>();
+        for (PathLockTrie trie : tries.values()) {
+            for (HeldLock l : trie.locks()) {
+                if (!l.isExpired(now)) all.add(l);
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public synchronized List<String> writeLocked(UUID projectId, Collection<String> paths) {
+        PathLockTrie trie = tries.get(projectId);
+        if (trie == null) return List.of();
+        OffsetDateTime now = OffsetDateTime.now();
+        List<String> locked = new ArrayList<>();
+        for (String path : paths) {
+            LockPath file = LockPath.tryParse(path);
+            if (file != null && trie.isWriteLocked(file, now)) locked.add(path);
+        }
+        return locked;
+    }
+
+    @Override
+    public synchronized int purgeExpired() {
+        OffsetDateTime now = OffsetDateTime.now();
+        int purged = 0;
+        for (Iterator<PathLockTrie> it = tries.values().iterator(); it.hasNext(); ) {
+            PathLockTrie trie = it.next();
+            purged += trie.purgeExpired(now);
+            if (trie.isEmpty()) it.remove();
+        }
+        return purged;
+    }
+
+    @Override
+    public boolean markPopulated() {
+        return populated.compareAndSet(false, true);
+    }
+
+    private static Optional<HeldLock> live(HeldLock lock, OffsetDateTime now) {
+        return lock == null || lock.isExpired(now) ? Optional.empty() : Optional.of(lock);
+    }
+}
@@ -0,0 +1,350 @@
+package com.knowledgeos.lock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes lock changes granted by the {@link LockStore} through to
+ * {@code file_locks}, off the request path.
+ *
+ * Same shape as the timeline writer: a bounded queue drained by one background
+ * thread with JDBC batches. Operations are applied in the order they were
+ * recorded, so a release followed by a re-acquire of the same path never trips
+ * the one-writer-per-path unique index. Consecutive inserts go out as one
+ * multi-row INSERT; they skip rows that already exist ({@code ON CONFLICT DO
+ * NOTHING}) and null out agents that no longer exist. A write lock first deletes
+ * an expired write row on its path: the store may regrant a path whose lock
+ * expired before {@link com.knowledgeos.service.LockExpiryService} removed the
+ * row, and skipping the new row would hide the live lock from
+ * {@link LockReconciler}. Consecutive extensions to
+ * the same expiry — a lease renewal — go out as one {@code UPDATE ... WHERE id = ANY(?)}.
+ *
+ * A full queue drops the operation and counts it; {@link LockReconciler} repairs
+ * whatever the journal missed.
+ *
+ * Modes ({@code app.locks.journal.mode}):
+ *   async — background batching (default)
+ *   sync  — written on the calling thread (tests)
+ *
+ * Metrics: kos.locks.journal.queue.depth, kos.locks.journal.dropped
+ */
+@Singleton
+public class LockJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(LockJournal.class);
+
+    private static final String INSERT_PREFIX =
+        "INSERT INTO file_locks (id, project_id, file_path, lock_type, locked_by, expires_at, created_at) VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, (SELECT id FROM agents WHERE id = ?), ?, ?)";
+    private static final String INSERT_SUFFIX = " ON CONFLICT DO NOTHING";
+    private static final String INSERT_SQL = INSERT_PREFIX + INSERT_ROW + INSERT_SUFFIX;
+    private static final String DELETE_SQL = "DELETE FROM file_locks WHERE id = ?";
+    private static final String DELETE_EXPIRED_WRITE_SQL =
+        "DELETE FROM file_locks WHERE project_id = ? AND file_path = ? AND lock_type = 'write' AND expires_at <= now()";
+    private static final String EXTEND_SQL = "UPDATE file_locks SET expires_at = ? WHERE id = ?";
+    private static final String EXTEND_ALL_SQL = "UPDATE file_locks SET expires_at = ? WHERE id = ANY(?)";
+
+    enum Kind { INSERT, DELETE, EXTEND }
+
+    record Op(Kind kind, HeldLock lock) {}
+
+    @Inject DataSource dataSource;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.locks.journal.mode:async}")
+    String mode;
+
+    @Value("${app.locks.journal.capacity:50000}")
+    int capacity;
+
+    @Value("${app.locks.journal.batch-size:500}")
+    int batchSize;
+
+    @Value("${app.locks.journal.flush-interval:100ms}")
+    Duration flushInterval;
+
+    private BlockingQueue<Op> buffer;
+    private Thread drainer;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean running;
+
+    private Counter droppedOverflow;
+    private Counter droppedWriteError;
+
+    @PostConstruct
+    void start() {
+        buffer = new ArrayBlockingQueue<>(capacity);
+        meterRegistry.gauge("kos.locks.journal.queue.depth", buffer, BlockingQueue::size);
+        droppedOverflow   = meterRegistry.counter("kos.locks.journal.dropped", "reason", "overflow");
+        droppedWriteError = meterRegistry.counter("kos.locks.journal.dropped", "reason", "write_error");
+
+        if (isAsync()) {
+            running = true;
+            drainer = Thread.ofPlatform().name("lock-journal").daemon(true).start(this::drainLoop);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (drainer != null) {
+            drainer.interrupt();
+            try {
+                drainer.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Op> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+            inFlight.addAndGet(-rest.size());
+        }
+    }
+
+    public void inserted(HeldLock lock) {
+        accept(new Op(Kind.INSERT, lock));
+    }
+
+    /** Record a batch grant; in sync mode it is written as one multi-row insert. */
+    public void inserted(List<HeldLock> locks) {
+        List<Op> ops = locks.stream().map(l -> new Op(Kind.INSERT, l)).toList();
+        if (!isAsync()) {
+            flush(ops);
+            return;
+        }
+        ops.forEach(this::accept);
+    }
+
+    public void deleted(HeldLock lock) {
+        accept(new Op(Kind.DELETE, lock));
+    }
+
+    public void extended(HeldLock lock) {
+        accept(new Op(Kind.EXTEND, lock));
+    }
+
+    /** Record a lease renewal; in sync mode it is written as one UPDATE. */
+    public void extended(List<HeldLock> locks) {
+        List<Op> ops = locks.stream().map(l -> new Op(Kind.EXTEND, l)).toList();
+        if (!isAsync()) {
+            if (!ops.isEmpty()) flush(ops);
+            return;
+        }
+        ops.forEach(this::accept);
+    }
+
+    /** Block until everything recorded so far has been written (reconciliation and tests). */
+    public void awaitDrained(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private boolean isAsync() {
+        return !"sync".equalsIgnoreCase(mode);
+    }
+
+    private void accept(Op op) {
+        if (!isAsync()) {
+            flush(List.of(op));
+            return;
+        }
+        inFlight.incrementAndGet();
+        if (!buffer.offer(op)) {
+            inFlight.decrementAndGet();
+            droppedOverflow.increment();
+            log.warn("Lock journal full ({}) — dropped {} of lock {}", capacity, op.kind(), op.lock().id());
+        }
+    }
+
+    private void drainLoop() {
+        List<Op> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Op first = buffer.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                flush(batch);
+                inFlight.addAndGet(-batch.size());
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (Exception e) {
+                log.warn("Lock journal drain iteration failed: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Apply one batch in a single transaction, one JDBC batch per run of same-kind
+     * operations. If it is rejected (e.g. the project was deleted), fall back to
+     * row-by-row so one bad operation doesn't take the rest with it. Never throws.
+     */
+    private void flush(List<Op> ops) {
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                int i = 0;
+                while (i < ops.size()) {
+                    Kind kind = ops.get(i).kind();
+                    int end = i;
+                    while (end < ops.size() && ops.get(end).kind() == kind) end++;
+                    if (kind == Kind.INSERT) {
+                        insertRows(conn, ops.subList(i, end));
+                    } else if (kind == Kind.EXTEND) {
+                        extendRows(conn, ops.subList(i, end));
+                    } else {
+                        try (PreparedStatement ps = conn.prepareStatement(sql(kind))) {
+                            for (Op op : ops.subList(i, end)) {
+                                bind(ps, op);
+                                ps.addBatch();
+                            }
+                            ps.executeBatch();
+                        }
+                    }
+                    i = end;
+                }
+                conn.commit();
+                return;
+            } catch (SQLException batchFailure) {
+                conn.rollback();
+                log.debug("Lock journal batch failed, retrying row-by-row: {}", batchFailure.getMessage());
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+
+            for (Op op : ops) {
+                try (PreparedStatement ps = conn.prepareStatement(sql(op.kind()))) {
+                    if (op.kind() == Kind.INSERT) deleteExpiredWrites(conn, List.of(op));
+                    bind(ps, op);
+                    ps.executeUpdate();
+                } catch (SQLException rowFailure) {
+                    droppedWriteError.increment();
+                    log.warn("Lock journal {} failed for lock {}: {}", op.kind(), op.lock().id(), rowFailure.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            droppedWriteError.increment(ops.size());
+            log.warn("Lock journal flush of {} operations failed: {}", ops.size(), e.getMessage());
+        }
+    }
+
+    /** One INSERT statement per chunk of {@code batchSize} rows. */
+    private void insertRows(Connection conn, List<Op> inserts) throws SQLException {
+        deleteExpiredWrites(conn, inserts);
+        for (int from = 0; from < inserts.size(); from += batchSize) {
+            List<Op> chunk = inserts.subList(from, Math.min(inserts.size(), from + batchSize));
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+            for (int r = 0; r < chunk.size(); r++) {
+                if (r > 0) sql.append(", ");
+                sql.append(INSERT_ROW);
+            }
+            sql.append(INSERT_SUFFIX);
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                int p = 1;
+                for (Op op : chunk) {
+                    HeldLock l = op.lock();
+                    ps.setObject(p++, l.id());
+                    ps.setObject(p++, l.projectId());
+                    ps.setString(p++, l.path());
+                    ps.setString(p++, l.type());
+                    ps.setObject(p++, l.agentId());
+                    ps.setObject(p++, l.expiresAt());
+                    ps.setObject(p++, l.createdAt());
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /** Expired write rows on the paths of the write locks among {@code inserts}, deleted in one batch. */
+    private static void deleteExpiredWrites(Connection conn, List<Op> inserts) throws SQLException {
+        List<HeldLock> writes = inserts.stream().map(Op::lock).filter(HeldLock::isWrite).toList();
+        if (writes.isEmpty()) return;
+        try (PreparedStatement ps = conn.prepareStatement(DELETE_EXPIRED_WRITE_SQL)) {
+            for (HeldLock l : writes) {
+                ps.setObject(1, l.projectId());
+                ps.setString(2, l.path());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** One UPDATE per distinct expiry — a heartbeat moves all of an agent's locks to the same one. */
+    private void extendRows(Connection conn, List<Op> extensions) throws SQLException {
+        Map<OffsetDateTime, List<UUID>> byExpiry = new LinkedHashMap<>();
+        for (Op op : extensions) {
+            byExpiry.computeIfAbsent(op.lock().expiresAt(), e -> new ArrayList<>()).add(op.lock().id());
+        }
+        try (PreparedStatement ps = conn.prepareStatement(EXTEND_ALL_SQL)) {
+            for (Map.Entry<OffsetDateTime, List<UUID>> e : byExpiry.entrySet()) {
+                Array ids = conn.createArrayOf("uuid", e.getValue().toArray());
+                ps.setObject(1, e.getKey());
+                ps.setArray(2, ids);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static String sql(Kind kind) {
+        return switch (kind) {
+            case INSERT -> INSERT_SQL;
+            case DELETE -> DELETE_SQL;
+            case EXTEND -> EXTEND_SQL;
+        };
+    }
+
+    private static void bind(PreparedStatement ps, Op op) throws SQLException {
+        HeldLock l = op.lock();
+        switch (op.kind()) {
+            case INSERT -> {
+                ps.setObject(1, l.id());
+                ps.setObject(2, l.projectId());
+                ps.setString(3, l.path());
+                ps.setString(4, l.type());
+                ps.setObject(5, l.agentId());
+                ps.setObject(6, l.expiresAt());
+                ps.setObject(7, l.createdAt());
+            }
+            case DELETE -> ps.setObject(1, l.id());
+            case EXTEND -> {
+                ps.setObject(1, l.expiresAt());
+                ps.setObject(2, l.id());
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.knowledgeos.lock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What a lock's {@code filePath} covers.
+ *
+ *   src/Foo.java          the file
+ *   src/billing/          the directory and everything below it (stored as {@code src/billing/**})
+ *   src/billing/**        same
+ *   src/billing/*.java    a glob: locks the subtree of its literal prefix, {@code src/billing}
+ *   **                    the whole workspace
+ *
+ * Globs are widened to their literal prefix directory rather than matched, so a
+ * glob lock may conflict with more than it names but never with less.
+ *
+ * {@link #scope} is the trie node the lock sits on; {@link #ancestors} are the
+ * directories above it that carry intention marks.
+ */
+public record LockPath(String path, String scope, boolean subtree) {
+
+    private static final String GLOB_CHARS = "*?[{";
+
+    /**
+     * Normalize a workspace-relative path.
+     *
+     * @throws IllegalArgumentException if the path is blank or leaves the workspace
+     */
+    public static LockPath parse(String raw) {
+        if (raw == null || raw.isBlank()) throw new IllegalArgumentException("Lock path is blank");
+        String p = raw.trim().replace('\\', '/');
+        boolean trailingSlash = p.endsWith("/");
+
+        List<String> segments = new ArrayList<>();
+        for (String s : p.split("/")) {
+            if (s.isEmpty() || s.equals(".")) continue;
+            if (s.equals("..")) throw new IllegalArgumentException("Lock path leaves the workspace: " + raw);
+            segments.add(s);
+        }
+        if (segments.isEmpty()) {
+            if (trailingSlash) return new LockPath("**", "", true);
+            throw new IllegalArgumentException("Lock path is blank");
+        }
+
+        int firstGlob = -1;
+        for (int i = 0; i < segments.size(); i++) {
+            if (isGlob(segments.get(i))) {
+                firstGlob = i;
+                break;
+            }
+        }
+        if (firstGlob >= 0) {
+            String scope = String.join("/", segments.subList(0, firstGlob));
+            return new LockPath(String.join("/", segments), scope, true);
+        }
+        String scope = String.join("/", segments);
+        return trailingSlash
+            ? new LockPath(scope + "/**", scope, true)
+            : new LockPath(scope, scope, false);
+    }
+
+    /** Like {@link #parse}, but null for a path no lock can cover. */
+    public static LockPath tryParse(String raw) {
+        try {
+            return parse(raw);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Directories above {@link #scope}, root ({@code ""}) first. */
+    public List<String> ancestors() {
+        if (scope.isEmpty()) return List.of();
+        List<String> dirs = new ArrayList<>();
+        dirs.add("");
+        int slash = scope.indexOf('/');
+        while (slash >= 0) {
+            dirs.add(scope.substring(0, slash));
+            slash = scope.indexOf('/', slash + 1);
+        }
+        return dirs;
+    }
+
+    /** Path segments of {@link #scope}; empty for the root. */
+    List<String> segments() {
+        return scope.isEmpty() ? List.of() : Arrays.asList(scope.split("/"));
+    }
+
+    private static boolean isGlob(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (GLOB_CHARS.indexOf(segment.charAt(i)) >= 0) return true;
+        }
+        return false;
+    }
+}
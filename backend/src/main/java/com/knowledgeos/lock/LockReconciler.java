@@ -0,0 +1,145 @@
+package com.knowledgeos.lock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Repairs drift between the {@link LockStore} and {@code file_locks}.
+ *
+ * On startup and every {@code app.locks.reconcile-interval}:
+ *   store lost its data (Redis restart) → re-grant every unexpired Postgres lock
+ *   otherwise, Redis is authoritative   → insert locks Postgres is missing, delete
+ *                                          rows whose lock is gone, fix expiries
+ *
+ * Locks younger than {@code app.locks.reconcile-grace} are left alone in the second
+ * case — other nodes may still have them queued in their journals.
+ *
+ * Metrics: kos.locks.reconciled{action=restored|inserted|deleted|extended}
+ */
+@Singleton
+public class LockReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(LockReconciler.class);
+
+    private static final String ACTIVE_SQL =
+        "SELECT id, project_id, file_path, lock_type, locked_by, expires_at, created_at " +
+        "FROM file_locks WHERE expires_at > NOW()";
+
+    @Inject LockStore lockStore;
+    @Inject LockJournal journal;
+    @Inject DataSource dataSource;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.locks.reconcile-grace:30s}")
+    Duration grace;
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelay = "${app.locks.reconcile-interval:5m}", initialDelay = "${app.locks.reconcile-interval:5m}")
+    void scheduled() {
+        reconcile();
+    }
+
+    /** Run one reconciliation pass. Never throws. */
+    public synchronized void reconcile() {
+        try {
+            journal.awaitDrained(Duration.ofSeconds(5));
+            List<HeldLock> durable = loadActive();
+
+            if (lockStore.markPopulated()) {
+                int restored = 0;
+                for (HeldLock lock : durable) {
+                    if (lockStore.tryAcquire(lock)) restored++;
+                }
+                count("restored", restored);
+                if (!durable.isEmpty()) {
+                    log.info("Lock store was empty — restored {} of {} locks from Postgres", restored, durable.size());
+                }
+                return;
+            }
+
+            OffsetDateTime settled = OffsetDateTime.now().minus(grace);
+            Map<UUID, HeldLock> rows = new HashMap<>();
+            for (HeldLock lock : durable) rows.put(lock.id(), lock);
+
+            int inserted = 0, extended = 0, deleted = 0;
+            for (HeldLock live : lockStore.listAll()) {
+                HeldLock row = rows.remove(live.id());
+                if (row == null) {
+                    if (live.createdAt().isBefore(settled)) {
+                        journal.inserted(live);
+                        inserted++;
+                    }
+                } else if (!row.expiresAt().isEqual(live.expiresAt())) {
+                    journal.extended(live);
+                    extended++;
+                }
+            }
+            for (HeldLock orphan : rows.values()) {
+                if (orphan.createdAt().isBefore(settled)) {
+                    journal.deleted(orphan);
+                    deleted++;
+                }
+            }
+            count("inserted", inserted);
+            count("extended", extended);
+            count("deleted", deleted);
+            if (inserted + extended + deleted > 0) {
+                log.info("Lock reconciliation: {} inserted, {} extended, {} deleted in Postgres",
+                    inserted, extended, deleted);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Lock reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private List<HeldLock> loadActive() throws SQLException {
+        List<HeldLock> locks = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(ACTIVE_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                locks.add(new HeldLock(
+                    rs.getObject(1, UUID.class),
+                    rs.getObject(2, UUID.class),
+                    rs.getString(3),
+                    rs.getString(4),
+                    rs.getObject(5, UUID.class),
+                    rs.getObject(6, OffsetDateTime.class),
+                    rs.getObject(7, OffsetDateTime.class)));
+            }
+        }
+        return locks;
+    }
+
+    private void count(String action, int n) {
+        if (n > 0) meterRegistry.counter("kos.locks.reconciled", "action", action).increment(n);
+    }
+}
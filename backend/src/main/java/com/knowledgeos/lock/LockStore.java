@@ -0,0 +1,77 @@
+package com.knowledgeos.lock;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Hot-path lock table consulted by {@code FileLockService} and
+ * {@code ChangeSetService.submit} — no Postgres round trip on acquire.
+ *
+ * Write locks are exclusive per (project, path); read locks are shared and
+ * counted, and a path with live readers cannot be write-locked. Expired locks
+ * are ignored by every operation and disappear without a sweep.
+ *
+ * Every operation is atomic on its own. Postgres ({@code file_locks}) is the
+ * durable copy, written behind by {@link LockJournal}; {@link LockReconciler}
+ * repairs drift between the two.
+ *
+ * Implementations ({@code app.locks.store}):
+ *   redis — Lua scripts over SET NX PX keys and per-path reader sets (default)
+ *   local — in-process maps; single-node dev and tests
+ */
+public interface LockStore {
+
+    /** Grant {@code lock} unless a live lock conflicts with it. */
+    default boolean tryAcquire(HeldLock lock) {
+        return tryAcquireAll(List.of(lock)).isEmpty();
+    }
+
+    /**
+     * Grant all of {@code locks} or none of them, in one atomic step. Locks in the
+     * batch may conflict with each other as well as with held locks.
+     *
+     * @return paths of the locks that could not be granted; empty if all were
+     */
+    List<String> tryAcquireAll(List<HeldLock> locks);
+
+    /** The project's live lock with this id, if any. */
+    Optional<HeldLock> get(UUID projectId, UUID lockId);
+
+    /** Remove a lock; returns what was removed, empty if it was already gone or expired. */
+    Optional<HeldLock> release(UUID projectId, UUID lockId);
+
+    /** Move a live lock's expiry; returns the updated lock. */
+    Optional<HeldLock> extend(UUID projectId, UUID lockId, OffsetDateTime expiresAt);
+
+    /**
+     * Move every live lock {@code agentId} holds in the project that would expire
+     * before {@code expiresAt} out to {@code expiresAt}, in one atomic step. Never
+     * shortens a lock. Returns the renewed locks.
+     */
+    List<HeldLock> renewAgent(UUID projectId, UUID agentId, OffsetDateTime expiresAt);
+
+    /** Remove every lock {@code agentId} holds in the project, in one atomic step; returns what was removed. */
+    List<HeldLock> releaseAgent(UUID projectId, UUID agentId);
+
+    /** Live locks of a project. */
+    List<HeldLock> list(UUID projectId);
+
+    /** Every live lock in the store (reconciliation). */
+    List<HeldLock> listAll();
+
+    /** Those of {@code paths} that hold a live write lock in the project. */
+    List<String> writeLocked(UUID projectId, Collection<String> paths);
+
+    /** Drop bookkeeping left behind by locks that expired without a release; returns how many. */
+    int purgeExpired();
+
+    /**
+     * Mark the store as populated. Returns true if it was not marked before, i.e.
+     * it is new or lost its contents (Redis restart without persistence) and
+     * must be rebuilt from Postgres.
+     */
+    boolean markPopulated();
+}
@@ -0,0 +1,265 @@
+package com.knowledgeos.lock;
+
+import com.knowledgeos.events.ClusterEventBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fair waiting for contended locks, instead of clients retrying on 409.
+ *
+ * Waiters queue per (project, path) in arrival order. A request for a path that
+ * already has waiters joins the back of the queue even if the lock happens to
+ * be free, so nobody is overtaken. When a lock of the project is released or
+ * expires, only the head of each queue is tried — one lock store call per queue
+ * rather than every waiter retrying at once. Consecutive readers at the head
+ * are granted together.
+ *
+ * Wake-ups travel over the {@link ClusterEventBus} (topic {@code locks:<projectId>}),
+ * so a release on any node reaches waiters on every node; a node only subscribes
+ * for projects it has waiters in. Ordering is FIFO per node — waiters on different
+ * nodes for the same path race for the lock when it frees up.
+ *
+ * A waiter that times out is removed from its queue and its future fails with
+ * {@link TimeoutException}; a lock granted to it in that instant is released again.
+ *
+ * Metrics: kos.locks.waiters (gauge), kos.locks.wait{outcome=granted|timeout}
+ */
+@Singleton
+public class LockWaitQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(LockWaitQueue.class);
+
+    @Inject LockStore lockStore;
+    @Inject ClusterEventBus eventBus;
+    @Inject MeterRegistry meterRegistry;
+
+    /** A request waiting for its lock. */
+    private static final class Waiter {
+        final HeldLock request;
+        final Duration lease;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<HeldLock> future = new CompletableFuture<>();
+
+        Waiter(HeldLock request, Duration lease) {
+            this.request = request;
+            this.lease = lease;
+        }
+    }
+
+    /** One project's queues, oldest path first. */
+    private static final class ProjectQueues {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<String, ArrayDeque<Waiter>> byPath = new LinkedHashMap<>();
+        ClusterEventBus.Subscription subscription;
+    }
+
+    private final Map<UUID, ProjectQueues> projects = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("lock-wake-", 0).factory());
+
+    @PostConstruct
+    void init() {
+        meterRegistry.gauge("kos.locks.waiters", waiting);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Grant {@code request} now if its path has no waiters and no conflicting lock,
+     * otherwise queue it for up to {@code wait}. The granted lock runs for
+     * {@code lease} from the moment it is granted.
+     */
+    public CompletableFuture<HeldLock> acquire(HeldLock request, Duration lease, Duration wait) {
+        Waiter waiter = new Waiter(request, lease);
+        ProjectQueues queues = lockQueues(request.projectId());
+        try {
+            ArrayDeque<Waiter> queue = queues.byPath.get(request.path());
+            if (queue == null || queue.isEmpty()) {
+                HeldLock granted = fresh(waiter);
+                if (lockStore.tryAcquire(granted)) {
+                    dropIfIdle(request.projectId(), queues);
+                    return CompletableFuture.completedFuture(granted);
+                }
+            }
+            queues.byPath.computeIfAbsent(request.path(), p -> new ArrayDeque<>()).addLast(waiter);
+            waiting.incrementAndGet();
+            if (queues.subscription == null) {
+                UUID projectId = request.projectId();
+                queues.subscription = eventBus.subscribe(topic(projectId), message -> wake(projectId));
+            }
+        } finally {
+            queues.lock.unlock();
+        }
+
+        // Re-check once queued: a release between the failed attempt and the subscribe would be missed
+        wake(request.projectId());
+        return waiter.future
+            .orTimeout(wait.toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((lock, error) -> {
+                if (error instanceof TimeoutException) {
+                    meterRegistry.timer("kos.locks.wait", "outcome", "timeout")
+                        .record(System.nanoTime() - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+                    remove(request.projectId(), waiter);
+                }
+            });
+    }
+
+    /** Tell waiters on every node that a lock of the project was released. */
+    public void released(UUID projectId) {
+        eventBus.publish(topic(projectId), "released");
+    }
+
+    /** Retry the heads of every local queue — after expired locks were swept. */
+    public void wakeAll() {
+        projects.keySet().forEach(this::wake);
+    }
+
+    /** True if requests are queued for {@code path} — a non-waiting request must not overtake them. */
+    public boolean hasWaiters(UUID projectId, String path) {
+        ProjectQueues queues = projects.get(projectId);
+        if (queues == null) return false;
+        queues.lock.lock();
+        try {
+            ArrayDeque<Waiter> queue = queues.byPath.get(path);
+            return queue != null && !queue.isEmpty();
+        } finally {
+            queues.lock.unlock();
+        }
+    }
+
+    /** Requests currently queued on this node. */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private void wake(UUID projectId) {
+        if (!projects.containsKey(projectId)) return;
+        try {
+            executor.execute(() -> grantHeads(projectId));
+        } catch (RuntimeException e) {
+            log.debug("Lock wake-up for project {} not scheduled: {}", projectId, e.getMessage());
+        }
+    }
+
+    private void grantHeads(UUID projectId) {
+        ProjectQueues queues = projects.get(projectId);
+        if (queues == null) return;
+        // Completed after unlocking: completion runs the waiter's callbacks (journal,
+        // timeline, HTTP response), which must not hold up the project's other requests
+        List<Map.Entry<Waiter, HeldLock>> grants = new ArrayList<>();
+        queues.lock.lock();
+        try {
+            for (Iterator<ArrayDeque<Waiter>> it = queues.byPath.values().iterator(); it.hasNext(); ) {
+                ArrayDeque<Waiter> queue = it.next();
+                while (!queue.isEmpty()) {
+                    Waiter head = queue.peekFirst();
+                    if (head.future.isDone()) {
+                        queue.pollFirst();
+                        waiting.decrementAndGet();
+                        continue;
+                    }
+                    HeldLock granted = fresh(head);
+                    if (!lockStore.tryAcquire(granted)) break;
+                    queue.pollFirst();
+                    waiting.decrementAndGet();
+                    grants.add(Map.entry(head, granted));
+                }
+                if (queue.isEmpty()) it.remove();
+            }
+            dropIfIdle(projectId, queues);
+        } catch (RuntimeException e) {
+            log.warn("Granting queued locks for project {} failed: {}", projectId, e.getMessage());
+        } finally {
+            queues.lock.unlock();
+        }
+
+        for (Map.Entry<Waiter, HeldLock> grant : grants) {
+            Waiter waiter = grant.getKey();
+            HeldLock granted = grant.getValue();
+            try {
+                if (waiter.future.complete(granted)) {
+                    meterRegistry.timer("kos.locks.wait", "outcome", "granted")
+                        .record(System.nanoTime() - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+                } else {
+                    // Timed out in the meantime: hand the lock straight back
+                    lockStore.release(projectId, granted.id());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Handing lock {} to its waiter failed: {}", granted.id(), e.getMessage());
+            }
+        }
+    }
+
+    /** The project's queues, locked; never an instance {@link #dropIfIdle} already discarded. */
+    private ProjectQueues lockQueues(UUID projectId) {
+        while (true) {
+            ProjectQueues queues = projects.computeIfAbsent(projectId, id -> new ProjectQueues());
+            queues.lock.lock();
+            if (projects.get(projectId) == queues) return queues;
+            queues.lock.unlock();
+        }
+    }
+
+    private void remove(UUID projectId, Waiter waiter) {
+        ProjectQueues queues = projects.get(projectId);
+        if (queues == null) return;
+        queues.lock.lock();
+        try {
+            ArrayDeque<Waiter> queue = queues.byPath.get(waiter.request.path());
+            if (queue != null && queue.remove(waiter)) {
+                waiting.decrementAndGet();
+                if (queue.isEmpty()) queues.byPath.remove(waiter.request.path());
+            }
+            dropIfIdle(projectId, queues);
+        } finally {
+            queues.lock.unlock();
+        }
+        // The timed-out waiter may have been at the head, blocking a grantable one behind it
+        wake(projectId);
+    }
+
+    /** Forget a project with no waiters left. Caller holds {@code queues.lock}. */
+    private void dropIfIdle(UUID projectId, ProjectQueues queues) {
+        if (!queues.byPath.isEmpty()) return;
+        if (queues.subscription != null) {
+            queues.subscription.close();
+            queues.subscription = null;
+        }
+        projects.remove(projectId, queues);
+    }
+
+    /** The waiter's lock with a new id, starting now. */
+    private static HeldLock fresh(Waiter waiter) {
+        OffsetDateTime now = OffsetDateTime.now();
+        HeldLock r = waiter.request;
+        return new HeldLock(UUID.randomUUID(), r.projectId(), r.path(), r.type(), r.agentId(),
+            now.plus(waiter.lease), now);
+    }
+
+    private static String topic(UUID projectId) {
+        return "locks:" + projectId;
+    }
+}
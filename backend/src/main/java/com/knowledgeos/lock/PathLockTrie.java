@@ -0,0 +1,201 @@
+package com.knowledgeos.lock;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One project's locks as a trie of path segments, with intention marks.
+ *
+ * A lock sits on the node of its {@link LockPath#scope}; a directory or glob lock
+ * covers that node's whole subtree. Every directory above a lock carries an
+ * intention mark for it — "a reader below" or "a writer below" — so each conflict
+ * check looks at one root-to-node chain, O(depth), never at the subtree:
+ *
+ *   write on N conflicts with  a subtree lock above N, any lock on N, any lock below N
+ *   read on N conflicts with   a subtree write lock above N, a write lock on N,
+ *                              a write lock below N
+ *
+ * Expired locks are dropped as they are encountered. Not thread-safe; callers
+ * synchronize.
+ */
+final class PathLockTrie {
+
+    private static final class Node {
+        final Node parent;
+        final String name;
+        final Map<String, Node> children = new HashMap<>(4);
+        HeldLock writer;
+        final Map<UUID, HeldLock> readers = new HashMap<>(2);
+        /** Locks below this node, by type — the intention marks. */
+        final Map<UUID, HeldLock> writersBelow = new HashMap<>(2);
+        final Map<UUID, HeldLock> readersBelow = new HashMap<>(2);
+
+        Node(Node parent, String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        boolean isEmpty() {
+            return writer == null && readers.isEmpty() && children.isEmpty()
+                && writersBelow.isEmpty() && readersBelow.isEmpty();
+        }
+    }
+
+    /** A lock and what it covers. */
+    private record Entry(HeldLock lock, LockPath path) {}
+
+    private final Node root = new Node(null, "");
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    boolean tryAcquire(HeldLock lock, OffsetDateTime now) {
+        LockPath path = LockPath.parse(lock.path());
+        if (conflicts(path, lock.isWrite(), now)) return false;
+
+        Node node = root;
+        for (String segment : path.segments()) {
+            (lock.isWrite() ? node.writersBelow : node.readersBelow).put(lock.id(), lock);
+            Node parent = node;
+            node = node.children.computeIfAbsent(segment, s -> new Node(parent, s));
+        }
+        if (lock.isWrite()) {
+            node.writer = lock;
+        } else {
+            node.readers.put(lock.id(), lock);
+        }
+        entries.put(lock.id(), new Entry(lock, path));
+        return true;
+    }
+
+    HeldLock get(UUID lockId) {
+        Entry e = entries.get(lockId);
+        return e != null ? e.lock() : null;
+    }
+
+    /** Remove a lock and its intention marks; returns it, or null if unknown. */
+    HeldLock remove(UUID lockId) {
+        Entry e = entries.remove(lockId);
+        if (e == null) return null;
+        Node node = find(e.path());
+        if (node == null) return e.lock();
+        if (node.writer != null && node.writer.id().equals(lockId)) node.writer = null;
+        node.readers.remove(lockId);
+        for (Node n = node.parent; n != null; n = n.parent) {
+            n.writersBelow.remove(lockId);
+            n.readersBelow.remove(lockId);
+        }
+        prune(node);
+        return e.lock();
+    }
+
+    /** Swap in a new version of a held lock (same id, path and type). */
+    void replace(HeldLock updated) {
+        Entry e = entries.get(updated.id());
+        if (e == null) return;
+        entries.put(updated.id(), new Entry(updated, e.path()));
+        Node node = find(e.path());
+        if (updated.isWrite()) {
+            node.writer = updated;
+        } else {
+            node.readers.put(updated.id(), updated);
+        }
+        for (Node n = node.parent; n != null; n = n.parent) {
+            (updated.isWrite() ? n.writersBelow : n.readersBelow).put(updated.id(), updated);
+        }
+    }
+
+    /** True if a live write lock covers {@code file}: on it or a subtree lock above it. */
+    boolean isWriteLocked(LockPath file, OffsetDateTime now) {
+        Node node = root;
+        if (live(node.writer, now)) return true;
+        for (String segment : file.segments()) {
+            node = node.children.get(segment);
+            if (node == null) return false;
+            if (live(node.writer, now)) return true;
+        }
+        return false;
+    }
+
+    List<HeldLock> locks() {
+        List<HeldLock> all = new ArrayList<>(entries.size());
+        for (Entry e : entries.values()) all.add(e.lock());
+        return all;
+    }
+
+    /** Drop every expired lock; returns how many. */
+    int purgeExpired(OffsetDateTime now) {
+        List<UUID> expired = new ArrayList<>();
+        for (Entry e : entries.values()) {
+            if (e.lock().isExpired(now)) expired.add(e.lock().id());
+        }
+        expired.forEach(this::remove);
+        return expired.size();
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private boolean conflicts(LockPath path, boolean write, OffsetDateTime now) {
+        Node node = root;
+        List<String> segments = path.segments();
+        for (int depth = 0; ; depth++) {
+            boolean target = depth == segments.size();
+            if (!target) {
+                // Directory above the target: its own locks cover the subtree
+                if (live(node.writer, now) || (write && anyLive(node.readers, now))) return true;
+                Node next = node.children.get(segments.get(depth));
+                if (next == null) return false;
+                node = next;
+                continue;
+            }
+            if (live(node.writer, now) || anyLive(node.writersBelow, now)) return true;
+            return write && (anyLive(node.readers, now) || anyLive(node.readersBelow, now));
+        }
+    }
+
+    private Node find(LockPath path) {
+        Node node = root;
+        for (String segment : path.segments()) {
+            node = node.children.get(segment);
+            if (node == null) return null;
+        }
+        return node;
+    }
+
+    /** Unlink empty nodes from {@code node} upwards. */
+    private void prune(Node node) {
+        while (node.parent != null && node.isEmpty()) {
+            node.parent.children.remove(node.name, node);
+            node = node.parent;
+        }
+    }
+
+    private boolean live(HeldLock lock, OffsetDateTime now) {
+        if (lock == null) return false;
+        if (!lock.isExpired(now)) return true;
+        remove(lock.id());
+        return false;
+    }
+
+    /** Any unexpired lock in {@code locks}; expired ones found on the way are removed. */
+    private boolean anyLive(Map<UUID, HeldLock> locks, OffsetDateTime now) {
+        if (locks.isEmpty()) return false;
+        List<UUID> expired = null;
+        for (HeldLock l : locks.values()) {
+            if (!l.isExpired(now)) {
+                if (expired != null) expired.forEach(this::remove);
+                return true;
+            }
+            if (expired == null) expired = new ArrayList<>();
+            expired.add(l.id());
+        }
+        expired.forEach(this::remove);
+        return false;
+    }
+}
@@ -0,0 +1,611 @@
+package com.knowledgeos.lock;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.exceptions.HttpStatusException;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link LockStore} in Redis. Each operation is one Lua script (one round trip,
+ * atomic on the server); a batch of grants, releases or renewals is one script too.
+ *
+ * Keys — {@code {pid}} is a hash tag, so one project's keys share a cluster slot;
+ * {@code <node>} is a lock's {@link LockPath#scope}, {@code <dir>} a directory above it:
+ *   kos:lkw:{pid}:<node>   write holder: lock id, SET NX PX with the lock's TTL
+ *   kos:lkr:{pid}:<node>   readers: ZSET of lock id → expiry (epoch ms)
+ *   kos:lkiw:{pid}:<dir>   intention marks: write locks below, ZSET id → expiry
+ *   kos:lkir:{pid}:<dir>   intention marks: read locks below, ZSET id → expiry
+ *   kos:lkm:{pid}:<id>     lock metadata hash, expires with the lock
+ *   kos:lkp:{pid}          project index: ZSET of lock id → expiry
+ *   kos:lka:{pid}:<agent>  agent index: ZSET of the agent's lock ids → expiry
+ *   kos:lk:populated       marker; missing after Redis lost its data
+ *
+ * A grant checks the holder keys of every directory above the node, then the
+ * node's own holders and marks — the {@link PathLockTrie} rules, over O(depth) keys.
+ * Every key carries an expiry, so abandoned locks clean themselves up; expired
+ * members are trimmed from a ZSET before it is checked.
+ *
+ * Renewing or releasing everything an agent holds walks that agent's index and
+ * derives each lock's keys from the scope in its metadata, inside one script; the
+ * derived keys carry the same {@code {pid}} tag, so they live in the script's slot.
+ *
+ * Redis errors surface as 503: without the store no lock can be granted safely.
+ */
+@Singleton
+@Requires(property = "app.locks.store", value = "redis", defaultValue = "redis")
+public class RedisLockStore implements LockStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisLockStore.class);
+
+    private static final String PREFIX_WRITE = "kos:lkw:";
+    private static final String PREFIX_READ = "kos:lkr:";
+    private static final String PREFIX_WRITERS_BELOW = "kos:lkiw:";
+    private static final String PREFIX_READERS_BELOW = "kos:lkir:";
+    private static final String PREFIX_META = "kos:lkm:";
+    private static final String PREFIX_PROJECT = "kos:lkp:";
+    private static final String PREFIX_AGENT = "kos:lka:";
+    private static final String POPULATED_KEY = "kos:lk:populated";
+
+    /** Shared by the scripts: hold(key) adds the lock to a ZSET and keeps the key alive as long as its longest member. */
+    private static final String HOLD = """
+        local function hold(key, id, exp)
+          redis.call('ZADD', key, exp, id)
+          local last = redis.call('ZRANGE', key, -1, -1, 'WITHSCORES')
+          redis.call('PEXPIREAT', key, last[2])
+        end
+        """;
+
+    /** Shared by the agent scripts: the directories above a scope, as {@link LockPath#ancestors}. */
+    private static final String ANCESTORS = """
+        local function ancestors(scope)
+          local dirs = {}
+          if scope == '' then return dirs end
+          dirs[1] = ''
+          local from = 1
+          while true do
+            local slash = string.find(scope, '/', from, true)
+            if not slash then return dirs end
+            dirs[#dirs + 1] = string.sub(scope, 1, slash - 1)
+            from = slash + 1
+          end
+        end
+        """;
+
+    // Per lock, KEYS: node write, node readers, node writers-below, node readers-below, meta,
+    //                 project, then per ancestor: write, readers, mark (writers-below or
+    //                 readers-below by type), then last the agent index
+    // ARGV: lock count, nowMs, then per lock: key count, id, type, expiresAtMs, ttlMs, path,
+    //       agent, createdAtMs, scope
+    // Returns the 1-based positions of the locks that conflicted; on any conflict
+    // the locks granted earlier in the batch are taken back.
+    private static final Script ACQUIRE_ALL = new Script(HOLD + """
+        local now = ARGV[2]
+        local function live(key)
+          redis.call('ZREMRANGEBYSCORE', key, '-inf', now)
+          return redis.call('ZCARD', key) > 0
+        end
+        local function grant(k, a)
+          local last = k + tonumber(ARGV[a]) - 1
+          local id, write, exp = ARGV[a + 1], ARGV[a + 2] == 'write', ARGV[a + 3]
+          for i = k + 6, last - 1, 3 do
+            if redis.call('EXISTS', KEYS[i]) == 1 then return false end
+            if write and live(KEYS[i + 1]) then return false end
+          end
+          if live(KEYS[k + 2]) then return false end
+          if write then
+            if live(KEYS[k + 1]) or live(KEYS[k + 3]) then return false end
+            if not redis.call('SET', KEYS[k], id, 'NX', 'PX', ARGV[a + 4]) then return false end
+          else
+            if redis.call('EXISTS', KEYS[k]) == 1 then return false end
+            hold(KEYS[k + 1], id, exp)
+          end
+          for i = k + 8, last, 3 do hold(KEYS[i], id, exp) end
+          redis.call('HSET', KEYS[k + 4], 'path', ARGV[a + 5], 'type', ARGV[a + 2],
+                     'agent', ARGV[a + 6], 'exp', exp, 'created', ARGV[a + 7], 'scope', ARGV[a + 8])
+          redis.call('PEXPIREAT', KEYS[k + 4], exp)
+          hold(KEYS[k + 5], id, exp)
+          if ARGV[a + 6] ~= '' then hold(KEYS[last], id, exp) end
+          return true
+        end
+        local function ungrant(k, a)
+          local last = k + tonumber(ARGV[a]) - 1
+          local id = ARGV[a + 1]
+          if redis.call('GET', KEYS[k]) == id then redis.call('DEL', KEYS[k]) end
+          redis.call('ZREM', KEYS[k + 1], id)
+          for i = k + 8, last, 3 do redis.call('ZREM', KEYS[i], id) end
+          redis.call('ZREM', KEYS[k + 5], id)
+          redis.call('ZREM', KEYS[last], id)
+          redis.call('DEL', KEYS[k + 4])
+        end
+        local granted, failed = {}, {}
+        local k, a = 1, 3
+        for j = 1, tonumber(ARGV[1]) do
+          if grant(k, a) then
+            granted[#granted + 1] = {k, a}
+          else
+            failed[#failed + 1] = j
+          end
+          k = k + tonumber(ARGV[a])
+          a = a + 9
+        end
+        if #failed > 0 then
+          for _, g in ipairs(granted) do ungrant(g[1], g[2]) end
+        end
+        return failed
+        """);
+
+    // Per lock, KEYS: as ACQUIRE_ALL — ARGV: lock count, then per lock: key count, id
+    // Returns the 1-based positions of the locks that were still there.
+    private static final Script RELEASE_ALL = new Script("""
+        local released = {}
+        local k, a = 1, 2
+        for j = 1, tonumber(ARGV[1]) do
+          local last, id = k + tonumber(ARGV[a]) - 1, ARGV[a + 1]
+          if redis.call('GET', KEYS[k]) == id then redis.call('DEL', KEYS[k]) end
+          redis.call('ZREM', KEYS[k + 1], id)
+          for i = k + 8, last, 3 do redis.call('ZREM', KEYS[i], id) end
+          redis.call('ZREM', KEYS[k + 5], id)
+          redis.call('ZREM', KEYS[last], id)
+          if redis.call('DEL', KEYS[k + 4]) == 1 then released[#released + 1] = j end
+          k = last + 1
+          a = a + 2
+        end
+        return released
+        """);
+
+    // Per lock, KEYS: as ACQUIRE_ALL — ARGV: lock count, expiresAtMs, ttlMs, then per lock:
+    // key count, id
+    // Returns the 1-based positions of the locks that were extended.
+    private static final Script EXTEND_ALL = new Script(HOLD + """
+        local exp, ttl = ARGV[2], ARGV[3]
+        local function extend(k, last, id)
+          if redis.call('EXISTS', KEYS[k + 4]) == 0 then return false end
+          if redis.call('GET', KEYS[k]) == id then
+            redis.call('PEXPIRE', KEYS[k], ttl)
+          elseif redis.call('ZSCORE', KEYS[k + 1], id) then
+            hold(KEYS[k + 1], id, exp)
+          else
+            return false
+          end
+          for i = k + 8, last, 3 do hold(KEYS[i], id, exp) end
+          redis.call('HSET', KEYS[k + 4], 'exp', exp)
+          redis.call('PEXPIREAT', KEYS[k + 4], exp)
+          hold(KEYS[k + 5], id, exp)
+          if redis.call('ZSCORE', KEYS[last], id) then hold(KEYS[last], id, exp) end
+          return true
+        end
+        local extended = {}
+        local k, a = 1, 4
+        for j = 1, tonumber(ARGV[1]) do
+          local last = k + tonumber(ARGV[a]) - 1
+          if extend(k, last, ARGV[a + 1]) then extended[#extended + 1] = j end
+          k = last + 1
+          a = a + 2
+        end
+        return extended
+        """);
+
+    // KEYS: agent index, project index — ARGV: {pid}: tag, nowMs, expiresAtMs, ttlMs
+    // Extends the agent's live locks that expire before expiresAtMs; returns each as
+    // {id, meta field, value, ...}.
+    private static final Script RENEW_AGENT = new Script(HOLD + ANCESTORS + """
+        local agent, project, tag = KEYS[1], KEYS[2], ARGV[1]
+        local now, exp, ttl = ARGV[2], ARGV[3], ARGV[4]
+        redis.call('ZREMRANGEBYSCORE', agent, '-inf', now)
+        local renewed = {}
+        for _, id in ipairs(redis.call('ZRANGEBYSCORE', agent, '(' .. now, '(' .. exp)) do
+          local meta = 'kos:lkm:' .. tag .. id
+          local scope, type = unpack(redis.call('HMGET', meta, 'scope', 'type'))
+          local held = false
+          if scope and type == 'write' then
+            local write = 'kos:lkw:' .. tag .. scope
+            if redis.call('GET', write) == id then
+              redis.call('PEXPIRE', write, ttl)
+              held = true
+            end
+          elseif scope and redis.call('ZSCORE', 'kos:lkr:' .. tag .. scope, id) then
+            hold('kos:lkr:' .. tag .. scope, id, exp)
+            held = true
+          end
+          if held then
+            local mark = type == 'write' and 'kos:lkiw:' or 'kos:lkir:'
+            for _, dir in ipairs(ancestors(scope)) do hold(mark .. tag .. dir, id, exp) end
+            redis.call('HSET', meta, 'exp', exp)
+            redis.call('PEXPIREAT', meta, exp)
+            hold(project, id, exp)
+            hold(agent, id, exp)
+            local row = redis.call('HGETALL', meta)
+            table.insert(row, 1, id)
+            renewed[#renewed + 1] = row
+          else
+            redis.call('ZREM', agent, id)
+          end
+        end
+        return renewed
+        """);
+
+    // KEYS: agent index, project index — ARGV: {pid}: tag
+    // Removes every lock in the agent's index; returns each as {id, meta field, value, ...}.
+    private static final Script RELEASE_AGENT = new Script(ANCESTORS + """
+        local agent, project, tag = KEYS[1], KEYS[2], ARGV[1]
+        local released = {}
+        for _, id in ipairs(redis.call('ZRANGE', agent, 0, -1)) do
+          local meta = 'kos:lkm:' .. tag .. id
+          local row = redis.call('HGETALL', meta)
+          local scope, type = unpack(redis.call('HMGET', meta, 'scope', 'type'))
+          if scope then
+            local write = 'kos:lkw:' .. tag .. scope
+            if redis.call('GET', write) == id then redis.call('DEL', write) end
+            redis.call('ZREM', 'kos:lkr:' .. tag .. scope, id)
+            local mark = type == 'write' and 'kos:lkiw:' or 'kos:lkir:'
+            for _, dir in ipairs(ancestors(scope)) do redis.call('ZREM', mark .. tag .. dir, id) end
+          end
+          redis.call('ZREM', project, id)
+          if redis.call('DEL', meta) == 1 then
+            table.insert(row, 1, id)
+            released[#released + 1] = row
+          end
+        end
+        redis.call('DEL', agent)
+        return released
+        """);
+
+    private final StatefulRedisConnection<String, String> connection;
+
+    public RedisLockStore(StatefulRedisConnection<String, String> connection) {
+        this.connection = connection;
+        log.info("Redis lock store enabled");
+    }
+
+    @Override
+    public List<String> tryAcquireAll(List<HeldLock> locks) {
+        if (locks.isEmpty()) return List.of();
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>(2 + 9 * locks.size());
+        args.add(Integer.toString(locks.size()));
+        args.add(Long.toString(now));
+        for (HeldLock lock : locks) {
+            long expires = epochMillis(lock.expiresAt());
+            String[] lockKeys = keys(lock);
+            keys.addAll(Arrays.asList(lockKeys));
+            args.add(Integer.toString(lockKeys.length));
+            args.add(lock.id().toString());
+            args.add(lock.type());
+            args.add(Long.toString(expires));
+            args.add(Long.toString(Math.max(1, expires - now)));
+            args.add(lock.path());
+            args.add(lock.agentId() != null ? lock.agentId().toString() : "");
+            args.add(Long.toString(epochMillis(lock.createdAt())));
+            args.add(LockPath.parse(lock.path()).scope());
+        }
+        List<Long> failed = call(() -> eval(ACQUIRE_ALL, ScriptOutputType.MULTI,
+            keys.toArray(String[]::new), args.toArray(String[]::new)));
+        List<String> conflicts = new ArrayList<>(failed.size());
+        for (Long position : failed) {
+            conflicts.add(locks.get(position.intValue() - 1).path());
+        }
+        return conflicts;
+    }
+
+    @Override
+    public Optional<HeldLock> get(UUID projectId, UUID lockId) {
+        Map<String, String> meta = call(() -> connection.sync().hgetall(metaKey(projectId, lockId)));
+        return live(toLock(projectId, lockId, meta));
+    }
+
+    @Override
+    public Optional<HeldLock> release(UUID projectId, UUID lockId) {
+        Optional<HeldLock> lock = get(projectId, lockId);
+        if (lock.isEmpty()) return lock;
+        // Empty: a concurrent release (or expiry) got there first
+        return releaseAll(List.of(lock.get())).stream().findFirst();
+    }
+
+    @Override
+    public Optional<HeldLock> extend(UUID projectId, UUID lockId, OffsetDateTime expiresAt) {
+        Optional<HeldLock> lock = get(projectId, lockId);
+        if (lock.isEmpty()) return lock;
+        return extendAll(List.of(lock.get()), expiresAt).stream().findFirst();
+    }
+
+    @Override
+    public List<HeldLock> renewAgent(UUID projectId, UUID agentId, OffsetDateTime expiresAt) {
+        long now = System.currentTimeMillis();
+        long expires = epochMillis(expiresAt);
+        if (expires <= now) return List.of();
+        List<List<String>> renewed = call(() -> eval(RENEW_AGENT, ScriptOutputType.MULTI,
+            new String[] {agentKey(projectId, agentId), projectKey(projectId)},
+            tag(projectId), Long.toString(now), Long.toString(expires), Long.toString(expires - now)));
+        return toLocks(projectId, renewed);
+    }
+
+    @Override
+    public List<HeldLock> releaseAgent(UUID projectId, UUID agentId) {
+        List<List<String>> released = call(() -> eval(RELEASE_AGENT, ScriptOutputType.MULTI,
+            new String[] {agentKey(projectId, agentId), projectKey(projectId)}, tag(projectId)));
+        return toLocks(projectId, released);
+    }
+
+    @Override
+    public List<HeldLock> list(UUID projectId) {
+        return call(() -> {
+            List<String> ids = connection.sync().zrangebyscore(projectKey(projectId),
+                Range.create((double) System.currentTimeMillis(), Double.POSITIVE_INFINITY));
+            if (ids.isEmpty()) return List.of();
+
+            // Pipelined: one round trip for the whole project
+            List<RedisFuture<Map<String, String>>> metas = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                metas.add(connection.async().hgetall(metaKey(projectId, UUID.fromString(id))));
+            }
+            List<HeldLock> locks = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                Map<String, String> meta = LettuceFutures.awaitOrCancel(metas.get(i), 5, TimeUnit.SECONDS);
+                live(toLock(projectId, UUID.fromString(ids.get(i)), meta)).ifPresent(locks::add);
+            }
+            locks.sort(Comparator.comparing(HeldLock::createdAt));
+            return locks;
+        });
+    }
+
+    @Override
+    public List<HeldLock> listAll() {
+        List<HeldLock> all = new ArrayList<>();
+        for (UUID projectId : projects()) {
+            all.addAll(list(projectId));
+        }
+        return all;
+    }
+
+    @Override
+    public List<String> writeLocked(UUID projectId, Collection<String> paths) {
+        // Write holder keys of each file and every directory above it, fetched in one MGET
+        Map<String, List<String>> chains = new LinkedHashMap<>();
+        Set<String> keys = new LinkedHashSet<>();
+        for (String path : paths) {
+            LockPath file = LockPath.tryParse(path);
+            if (file == null) continue;
+            List<String> chain = new ArrayList<>();
+            for (String dir : file.ancestors()) chain.add(writeKey(projectId, dir));
+            chain.add(writeKey(projectId, file.scope()));
+            chains.put(path, chain);
+            keys.addAll(chain);
+        }
+        if (keys.isEmpty()) return List.of();
+
+        List<KeyValue<String, String>> holders = call(() -> connection.sync().mget(keys.toArray(String[]::new)));
+        Set<String> held = new HashSet<>();
+        for (KeyValue<String, String> holder : holders) {
+            if (holder.hasValue()) held.add(holder.getKey());
+        }
+        List<String> locked = new ArrayList<>();
+        chains.forEach((path, chain) -> {
+            if (chain.stream().anyMatch(held::contains)) locked.add(path);
+        });
+        return locked;
+    }
+
+    @Override
+    public int purgeExpired() {
+        double now = System.currentTimeMillis();
+        int purged = 0;
+        for (UUID projectId : projects()) {
+            Long removed = call(() -> connection.sync().zremrangebyscore(projectKey(projectId),
+                Range.create(Double.NEGATIVE_INFINITY, now)));
+            purged += removed != null ? removed.intValue() : 0;
+        }
+        return purged;
+    }
+
+    @Override
+    public boolean markPopulated() {
+        return "OK".equals(call(() -> connection.sync().set(POPULATED_KEY, "1", SetArgs.Builder.nx())));
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    /** A Lua script and its SHA-1, for EVALSHA. */
+    private record Script(String source, String sha) {
+        Script(String source) {
+            this(source, sha1(source));
+        }
+    }
+
+    /** EVALSHA, falling back to EVAL (which caches the script) after a Redis restart. */
+    private <T> T eval(Script script, ScriptOutputType type, String[] keys, String... args) {
+        RedisCommands<String, String> redis = connection.sync();
+        try {
+            return redis.evalsha(script.sha(), type, keys, args);
+        } catch (RedisNoScriptException e) {
+            return redis.eval(script.source(), type, keys, args);
+        }
+    }
+
+    private static <T> T call(Supplier<T> op) {
+        try {
+            return op.get();
+        } catch (RedisException e) {
+            log.warn("Lock store unavailable: {}", e.getMessage());
+            throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Lock store unavailable — retry later");
+        }
+    }
+
+    /** Release {@code locks} in one script call; returns those that were still held. */
+    private List<HeldLock> releaseAll(List<HeldLock> locks) {
+        if (locks.isEmpty()) return List.of();
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>(1 + 2 * locks.size());
+        args.add(Integer.toString(locks.size()));
+        for (HeldLock lock : locks) {
+            String[] lockKeys = keys(lock);
+            keys.addAll(Arrays.asList(lockKeys));
+            args.add(Integer.toString(lockKeys.length));
+            args.add(lock.id().toString());
+        }
+        List<Long> released = call(() -> eval(RELEASE_ALL, ScriptOutputType.MULTI,
+            keys.toArray(String[]::new), args.toArray(String[]::new)));
+        List<HeldLock> result = new ArrayList<>(released.size());
+        for (Long position : released) result.add(locks.get(position.intValue() - 1));
+        return result;
+    }
+
+    /** Move {@code locks} to {@code expiresAt} in one script call; returns those that were still held. */
+    private List<HeldLock> extendAll(List<HeldLock> locks, OffsetDateTime expiresAt) {
+        if (locks.isEmpty()) return List.of();
+        long expires = epochMillis(expiresAt);
+        long ttl = expires - System.currentTimeMillis();
+        if (ttl <= 0) return List.of();
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>(3 + 2 * locks.size());
+        args.add(Integer.toString(locks.size()));
+        args.add(Long.toString(expires));
+        args.add(Long.toString(ttl));
+        for (HeldLock lock : locks) {
+            String[] lockKeys = keys(lock);
+            keys.addAll(Arrays.asList(lockKeys));
+            args.add(Integer.toString(lockKeys.length));
+            args.add(lock.id().toString());
+        }
+        List<Long> extended = call(() -> eval(EXTEND_ALL, ScriptOutputType.MULTI,
+            keys.toArray(String[]::new), args.toArray(String[]::new)));
+        List<HeldLock> result = new ArrayList<>(extended.size());
+        for (Long position : extended) result.add(locks.get(position.intValue() - 1).withExpiresAt(expiresAt));
+        return result;
+    }
+
+    /** Projects with a lock index in Redis. */
+    private List<UUID> projects() {
+        return call(() -> {
+            List<UUID> ids = new ArrayList<>();
+            ScanArgs args = ScanArgs.Builder.matches(PREFIX_PROJECT + "*").limit(500);
+            KeyScanCursor<String> cursor = connection.sync().scan(args);
+            while (true) {
+                for (String key : cursor.getKeys()) {
+                    // kos:lkp:{<uuid>}
+                    ids.add(UUID.fromString(key.substring(PREFIX_PROJECT.length() + 1, key.length() - 1)));
+                }
+                if (cursor.isFinished()) return ids;
+                cursor = connection.sync().scan(ScanCursor.of(cursor.getCursor()), args);
+            }
+        });
+    }
+
+    /** Script keys for a lock: its node, metadata and project, three per ancestor directory, then its agent's index. */
+    private static String[] keys(HeldLock lock) {
+        UUID projectId = lock.projectId();
+        LockPath path = LockPath.parse(lock.path());
+        List<String> ancestors = path.ancestors();
+        String tag = tag(projectId);
+        String mark = lock.isWrite() ? PREFIX_WRITERS_BELOW : PREFIX_READERS_BELOW;
+
+        String[] keys = new String[7 + 3 * ancestors.size()];
+        keys[0] = PREFIX_WRITE + tag + path.scope();
+        keys[1] = PREFIX_READ + tag + path.scope();
+        keys[2] = PREFIX_WRITERS_BELOW + tag + path.scope();
+        keys[3] = PREFIX_READERS_BELOW + tag + path.scope();
+        keys[4] = metaKey(projectId, lock.id());
+        keys[5] = projectKey(projectId);
+        int i = 6;
+        for (String dir : ancestors) {
+            keys[i++] = PREFIX_WRITE + tag + dir;
+            keys[i++] = PREFIX_READ + tag + dir;
+            keys[i++] = mark + tag + dir;
+        }
+        keys[i] = agentKey(projectId, lock.agentId());
+        return keys;
+    }
+
+    /** {@code {pid}:} — the hash tag that keeps a project's keys in one slot. */
+    private static String tag(UUID projectId) {
+        return "{" + projectId + "}:";
+    }
+
+    private static String writeKey(UUID projectId, String scope) {
+        return PREFIX_WRITE + tag(projectId) + scope;
+    }
+
+    private static String metaKey(UUID projectId, UUID lockId) {
+        return PREFIX_META + tag(projectId) + lockId;
+    }
+
+    /** Locks without an agent share the empty-agent key, which the scripts never write. */
+    private static String agentKey(UUID projectId, UUID agentId) {
+        return PREFIX_AGENT + tag(projectId) + (agentId != null ? agentId : "");
+    }
+
+    private static String projectKey(UUID projectId) {
+        return PREFIX_PROJECT + "{" + projectId + "}";
+    }
+
+    private static HeldLock toLock(UUID projectId, UUID lockId, Map<String, String> meta) {
+        if (meta == null || meta.isEmpty()) return null;
+        String agent = meta.get("agent");
+        return new HeldLock(
+            lockId,
+            projectId,
+            meta.get("path"),
+            meta.get("type"),
+            agent == null || agent.isEmpty() ? null : UUID.fromString(agent),
+            fromEpochMillis(meta.get("exp")),
+            fromEpochMillis(meta.get("created")));
+    }
+
+    /** Rows of {id, meta field, value, ...} from the agent scripts, as live locks in creation order. */
+    private static List<HeldLock> toLocks(UUID projectId, List<List<String>> rows) {
+        List<HeldLock> locks = new ArrayList<>(rows.size());
+        for (List<String> row : rows) {
+            Map<String, String> meta = new HashMap<>();
+            for (int i = 1; i + 1 < row.size(); i += 2) meta.put(row.get(i), row.get(i + 1));
+            live(toLock(projectId, UUID.fromString(row.get(0)), meta)).ifPresent(locks::add);
+        }
+        locks.sort(Comparator.comparing(HeldLock::createdAt));
+        return locks;
+    }
+
+    private static Optional<HeldLock> live(HeldLock lock) {
+        return lock == null || lock.isExpired(OffsetDateTime.now()) ? Optional.empty() : Optional.of(lock);
+    }
+
+    private static long epochMillis(OffsetDateTime t) {
+        return t.toInstant().toEpochMilli();
+    }
+
+    private static OffsetDateTime fromEpochMillis(String ms) {
+        return Instant.ofEpochMilli(Long.parseLong(ms)).atOffset(ZoneOffset.UTC);
+    }
+
+    private static String sha1(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.knowledgeos.lock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel: deadlines for keys, to within one tick.
+ *
+ * A ring of {@code size} buckets, one per tick; a key goes into the bucket of its
+ * deadline's tick, modulo the ring. Each {@link #advance} visits only the buckets
+ * of the ticks that passed and takes out the keys that are due — keys a full turn
+ * or more ahead stay where they are until their turn comes round. Scheduling and
+ * cancelling are O(1); a key is looked at once per turn of the wheel.
+ *
+ * Scheduling a key again moves it to the new deadline. Thread-safe.
+ */
+public final class TimingWheel<K> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Map<K, Long>> buckets;
+    /** Bucket each scheduled key is in. */
+    private final Map<K, Integer> index = new HashMap<>();
+    private long lastTick;
+
+    /**
+     * @param tickMillis resolution of the wheel
+     * @param size       buckets; rounded up to a power of two
+     * @param nowMillis  the current time — the wheel starts at this tick
+     */
+    public TimingWheel(long tickMillis, int size, long nowMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tick must be positive");
+        int buckets = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = buckets - 1;
+        this.buckets = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) this.buckets.add(new HashMap<>());
+        this.lastTick = nowMillis / tickMillis;
+    }
+
+    /** Fire {@code key} at {@code deadlineMillis}, replacing any deadline it had; a past deadline fires on the next tick. */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        long tick = Math.max(deadlineMillis / tickMillis, lastTick + 1);
+        int bucket = (int) (tick & mask);
+        buckets.get(bucket).put(key, deadlineMillis);
+        index.put(key, bucket);
+    }
+
+    /** Forget {@code key}; false if it was not scheduled. */
+    public synchronized boolean cancel(K key) {
+        Integer bucket = index.remove(key);
+        if (bucket == null) return false;
+        buckets.get(bucket).remove(key);
+        return true;
+    }
+
+    /** Move the wheel to {@code nowMillis} and take out every key due by then, earliest tick first. */
+    public synchronized List<K> advance(long nowMillis) {
+        long now = nowMillis / tickMillis;
+        if (now <= lastTick) return List.of();
+        // A jump of more than one turn visits every bucket once
+        long from = Math.max(lastTick + 1, now - mask);
+        List<K> due = new ArrayList<>();
+        for (long tick = from; tick <= now; tick++) {
+            Map<K, Long> bucket = buckets.get((int) (tick & mask));
+            if (bucket.isEmpty()) continue;
+            for (Iterator<Map.Entry<K, Long>> it = bucket.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<K, Long> e = it.next();
+                if (e.getValue() / tickMillis <= now) {
+                    due.add(e.getKey());
+                    index.remove(e.getKey());
+                    it.remove();
+                }
+            }
+        }
+        lastTick = now;
+        return due;
+    }
+
+    /** Keys currently scheduled. */
+    public synchronized int size() {
+        return index.size();
+    }
+}
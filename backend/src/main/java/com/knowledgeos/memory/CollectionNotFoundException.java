@@ -0,0 +1,20 @@
+package com.knowledgeos.memory;
+
+/**
+ * Qdrant reported that a collection does not exist — e.g. it was dropped or
+ * Qdrant lost its storage. {@link QdrantCollectionManager} forgets the collection
+ * and creates it again.
+ */
+public class CollectionNotFoundException extends RuntimeException {
+
+    private final String collection;
+
+    public CollectionNotFoundException(String collection, Throwable cause) {
+        super("Qdrant collection not found: " + collection, cause);
+        this.collection = collection;
+    }
+
+    public String collection() {
+        return collection;
+    }
+}
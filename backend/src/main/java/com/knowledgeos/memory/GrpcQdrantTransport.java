@@ -0,0 +1,199 @@
+package com.knowledgeos.memory;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.QdrantGrpcClient;
+import io.qdrant.client.grpc.Collections.Distance;
+import io.qdrant.client.grpc.Collections.PayloadSchemaType;
+import io.qdrant.client.grpc.Collections.VectorParams;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.Points.Condition;
+import io.qdrant.client.grpc.Points.Filter;
+import io.qdrant.client.grpc.Points.PointId;
+import io.qdrant.client.grpc.Points.PointStruct;
+import io.qdrant.client.grpc.Points.RetrievedPoint;
+import io.qdrant.client.grpc.Points.ScrollPoints;
+import io.qdrant.client.grpc.Points.ScrollResponse;
+import io.qdrant.client.grpc.Points.ScoredPoint;
+import io.qdrant.client.grpc.Points.SearchPoints;
+import io.qdrant.client.grpc.Points.WithPayloadSelector;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+import static io.qdrant.client.ConditionFactory.matchKeyword;
+import static io.qdrant.client.PointIdFactory.id;
+import static io.qdrant.client.ValueFactory.value;
+import static io.qdrant.client.VectorsFactory.vectors;
+
+/**
+ * {@link QdrantTransport} over the Qdrant gRPC API ({@code qdrant.transport: grpc}).
+ *
+ * One multiplexed HTTP/2 channel for the life of the application; vectors travel
+ * as protobuf floats instead of JSON text, which roughly halves the bytes of an
+ * upsert or search at 1536 dimensions.
+ */
+@Singleton
+@Requires(property = "qdrant.transport", value = "grpc")
+public class GrpcQdrantTransport implements QdrantTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcQdrantTransport.class);
+
+    private static final int SCROLL_PAGE = 1000;
+
+    @Value("${qdrant.host:localhost}")
+    String qdrantHost;
+
+    @Value("${qdrant.grpc-port:6334}")
+    int grpcPort;
+
+    @Value("${qdrant.timeout:5s}")
+    Duration timeout;
+
+    private QdrantClient client;
+
+    @PostConstruct
+    void start() {
+        client = new QdrantClient(QdrantGrpcClient.newBuilder(qdrantHost, grpcPort, false)
+            .withTimeout(timeout)
+            .build());
+        log.info("Qdrant gRPC transport: {}:{}", qdrantHost, grpcPort);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (client != null) client.close();
+    }
+
+    @Override
+    public Mono<Integer> vectorSize(String collection) {
+        return mono(client.getCollectionInfoAsync(collection))
+            .map(info -> (int) info.getConfig().getParams().getVectorsConfig().getParams().getSize())
+            .onErrorResume(GrpcQdrantTransport::isNotFound, e -> Mono.empty());
+    }
+
+    @Override
+    public Mono<Void> createCollection(String collection, int vectorSize) {
+        VectorParams params = VectorParams.newBuilder()
+            .setSize(vectorSize)
+            .setDistance(Distance.Cosine)
+            .build();
+        return mono(client.createCollectionAsync(collection, params)).then();
+    }
+
+    @Override
+    public Mono<Void> createKeywordIndex(String collection, String field) {
+        return mono(client.createPayloadIndexAsync(collection, field, PayloadSchemaType.Keyword,
+            null, null, null, null)).then();
+    }
+
+    @Override
+    public Mono<Void> upsert(String collection, List<Point> points) {
+        List<PointStruct> structs = new ArrayList<>(points.size());
+        for (Point p : points) {
+            Map<String, JsonWithInt.Value> payload = new HashMap<>();
+            p.payload().forEach((k, v) -> payload.put(k, toValue(v)));
+            structs.add(PointStruct.newBuilder()
+                .setId(id(p.id()))
+                .setVectors(vectors(p.vector()))
+                .putAllPayload(payload)
+                .build());
+        }
+        return mono(client.upsertAsync(collection, structs)).then().onErrorMap(notFound(collection));
+    }
+
+    @Override
+    public Mono<List<Match>> search(String collection, float[] vector, Map<String, String> filter, int limit) {
+        List<Condition> must = new ArrayList<>(filter.size());
+        filter.forEach((key, value) -> must.add(matchKeyword(key, value)));
+
+        SearchPoints.Builder request = SearchPoints.newBuilder()
+            .setCollectionName(collection)
+            .setLimit(limit)
+            .setFilter(Filter.newBuilder().addAllMust(must).build());
+        for (float f : vector) request.addVector(f);
+
+        return mono(client.searchAsync(request.build())).map(points -> {
+            List<Match> matches = new ArrayList<>(points.size());
+            for (ScoredPoint p : points) {
+                matches.add(new Match(UUID.fromString(p.getId().getUuid()), p.getScore()));
+            }
+            return matches;
+        }).onErrorMap(notFound(collection));
+    }
+
+    @Override
+    public Mono<Void> delete(String collection, List<UUID> ids) {
+        List<PointId> pointIds = ids.stream().map(i -> id(i)).toList();
+        return mono(client.deleteAsync(collection, pointIds)).then().onErrorMap(notFound(collection));
+    }
+
+    @Override
+    public Mono<List<UUID>> pointIds(String collection, Map<String, String> filter) {
+        List<Condition> must = new ArrayList<>(filter.size());
+        filter.forEach((key, value) -> must.add(matchKeyword(key, value)));
+        ScrollPoints first = ScrollPoints.newBuilder()
+            .setCollectionName(collection)
+            .setFilter(Filter.newBuilder().addAllMust(must).build())
+            .setLimit(SCROLL_PAGE)
+            .setWithPayload(WithPayloadSelector.newBuilder().setEnable(false).build())
+            .build();
+
+        return mono(client.scrollAsync(first))
+            .expand(page -> page.hasNextPageOffset()
+                ? mono(client.scrollAsync(first.toBuilder().setOffset(page.getNextPageOffset()).build()))
+                : Mono.empty())
+            .flatMapIterable(ScrollResponse::getResultList)
+            .map((RetrievedPoint p) -> UUID.fromString(p.getId().getUuid()))
+            .collectList()
+            .onErrorMap(notFound(collection));
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private static Function<Throwable, Throwable> notFound(String collection) {
+        return e -> isNotFound(e) ? new CollectionNotFoundException(collection, e) : e;
+    }
+
+    private static boolean isNotFound(Throwable e) {
+        return e instanceof StatusRuntimeException s && s.getStatus().getCode() == Status.Code.NOT_FOUND;
+    }
+
+    private static JsonWithInt.Value toValue(Object v) {
+        if (v instanceof Boolean b) return value(b);
+        if (v instanceof Integer || v instanceof Long) return value(((Number) v).longValue());
+        if (v instanceof Number n) return value(n.doubleValue());
+        return value(String.valueOf(v));
+    }
+
+    private static <T> Mono<T> mono(ListenableFuture<T> future) {
+        return Mono.create(sink -> {
+            Futures.addCallback(future, new FutureCallback<>() {
+                @Override
+                public void onSuccess(T result) {
+                    sink.success(result);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    sink.error(t);
+                }
+            }, MoreExecutors.directExecutor());
+            sink.onCancel(() -> future.cancel(true));
+        });
+    }
+}
@@ -0,0 +1,330 @@
+package com.knowledgeos.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Hierarchical navigable small world graph for approximate nearest-neighbour
+ * search by cosine similarity (Malkov &amp; Yashunin).
+ *
+ * Each node is on level 0 and, with geometrically falling probability, on the
+ * levels above; a search walks greedily down the sparse upper levels and then
+ * does a best-first search of width {@code ef} on level 0. Nodes keep up to
+ * {@code m} links per level ({@code 2m} on level 0), chosen with the diversity
+ * heuristic so that clusters stay connected.
+ *
+ * Vectors are normalized and kept in a {@link VectorFile}, off-heap; only the
+ * links and labels are on the heap. Deleted nodes stay in the graph as
+ * tombstones — still walked through, never returned.
+ *
+ * Searches run concurrently; adds and deletes take an exclusive lock.
+ */
+final class HnswIndex<T> implements Closeable {
+
+    private static final int MAX_LEVEL = 16;
+    private static final Comparator<Scored> BY_SCORE = Comparator.comparingDouble(Scored::score);
+    private static final Comparator<Scored> BEST_FIRST = BY_SCORE.reversed();
+
+    /** A search result. */
+    record Hit<T>(T label, float score) {}
+
+    /** A node and its similarity to whatever is being searched for. */
+    private record Scored(int node, float score) {}
+
+    /** Per-thread buffers: a vector to read slots into, and visit marks that reset in O(1). */
+    private static final class Scratch {
+        final float[] vector;
+        int[] visited = new int[1024];
+        int epoch;
+
+        Scratch(int dimensions) {
+            vector = new float[dimensions];
+        }
+
+        void reset(int nodes) {
+            if (visited.length < nodes) visited = new int[Math.max(nodes, visited.length * 2)];
+            if (++epoch == 0) {
+                Arrays.fill(visited, 0);
+                epoch = 1;
+            }
+        }
+
+        boolean visit(int node) {
+            if (visited[node] == epoch) return false;
+            visited[node] = epoch;
+            return true;
+        }
+    }
+
+    private final VectorFile vectors;
+    private final int m;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final ThreadLocal<Scratch> scratch;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Node → per level: {@code [count, link1, link2, ...]}. */
+    private final List<int[][]> links = new ArrayList<>();
+    private final List<T> labels = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    private int entryPoint = -1;
+    private int topLevel = -1;
+    private int live;
+
+    /**
+     * @param m              links per node and level; 16 suits most embeddings
+     * @param efConstruction search width while inserting — higher builds a better graph, slower
+     */
+    HnswIndex(VectorFile vectors, int m, int efConstruction) {
+        this.vectors = vectors;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(vectors.dimensions()));
+    }
+
+    /** Insert {@code vector} labelled {@code label}; returns its node. */
+    int add(float[] vector, T label) throws IOException {
+        float[] v = normalized(vector);
+        lock.writeLock().lock();
+        try {
+            int node = vectors.append(v);
+            int level = Math.min(MAX_LEVEL,
+                (int) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelFactor));
+            int[][] layers = new int[level + 1][];
+            for (int l = 0; l <= level; l++) layers[l] = new int[maxLinks(l) + 1];
+            links.add(layers);
+            labels.add(label);
+            live++;
+            if (entryPoint < 0) {
+                entryPoint = node;
+                topLevel = level;
+                return node;
+            }
+
+            int ep = entryPoint;
+            for (int l = topLevel; l > level; l--) ep = closest(v, ep, l);
+            for (int l = Math.min(level, topLevel); l >= 0; l--) {
+                List<Scored> nearest = searchLayer(v, ep, efConstruction, l);
+                int[] own = layers[l];
+                for (Scored n : selectNeighbors(nearest, maxLinks(l))) {
+                    own[++own[0]] = n.node();
+                    link(n.node(), node, n.score(), l);
+                }
+                ep = nearest.get(0).node();
+            }
+            if (level > topLevel) {
+                topLevel = level;
+                entryPoint = node;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Never return {@code node} again. */
+    void delete(int node) {
+        lock.writeLock().lock();
+        try {
+            if (!deleted.get(node)) {
+                deleted.set(node);
+                live--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code k} live nodes accepted by {@code filter}, most similar to
+     * {@code query} first. {@code ef} is the search width; it is widened when
+     * tombstones or the filter leave fewer than {@code k} hits.
+     */
+    List<Hit<T>> search(float[] query, int k, int ef, Predicate<T> filter) {
+        float[] q = normalized(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) return List.of();
+            int ep = entryPoint;
+            for (int l = topLevel; l > 0; l--) ep = closest(q, ep, l);
+
+            int width = Math.max(ef, k);
+            while (true) {
+                List<Hit<T>> hits = new ArrayList<>(k);
+                for (Scored s : searchLayer(q, ep, width, 0)) {
+                    if (deleted.get(s.node())) continue;
+                    T label = labels.get(s.node());
+                    if (!filter.test(label)) continue;
+                    hits.add(new Hit<>(label, s.score()));
+                    if (hits.size() == k) break;
+                }
+                if (hits.size() >= k || width >= links.size()) return hits;
+                width = (int) Math.min(links.size(), width * 4L);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Live (not deleted) nodes. */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            vectors.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    /** Greedy walk on {@code level} from {@code ep} to the node most similar to {@code q}. */
+    private int closest(float[] q, int ep, int level) {
+        float best = similarity(ep, q);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int[] nbrs = links.get(ep)[level];
+            for (int i = 1; i <= nbrs[0]; i++) {
+                float s = similarity(nbrs[i], q);
+                if (s > best) {
+                    best = s;
+                    ep = nbrs[i];
+                    moved = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /** Best-first search of {@code level}; the {@code ef} most similar nodes found, best first. */
+    private List<Scored> searchLayer(float[] q, int ep, int ef, int level) {
+        Scratch s = scratch.get();
+        s.reset(links.size());
+        PriorityQueue<Scored> candidates = new PriorityQueue<>(BEST_FIRST);
+        PriorityQueue<Scored> results = new PriorityQueue<>(BY_SCORE);
+
+        Scored start = new Scored(ep, similarity(ep, q));
+        s.visit(ep);
+        candidates.add(start);
+        results.add(start);
+        while (!candidates.isEmpty()) {
+            Scored c = candidates.poll();
+            if (results.size() >= ef && c.score() < results.peek().score()) break;
+            int[] nbrs = links.get(c.node())[level];
+            for (int i = 1; i <= nbrs[0]; i++) {
+                int n = nbrs[i];
+                if (!s.visit(n)) continue;
+                float score = similarity(n, q);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Scored next = new Scored(n, score);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) results.poll();
+                }
+            }
+        }
+        List<Scored> found = new ArrayList<>(results);
+        found.sort(BEST_FIRST);
+        return found;
+    }
+
+    /**
+     * Up to {@code max} of {@code candidates} (best first): a candidate more similar
+     * to an already chosen neighbour than to the target is passed over, then the
+     * passed-over ones fill any remaining places.
+     */
+    private List<Scored> selectNeighbors(List<Scored> candidates, int max) {
+        if (candidates.size() <= max) return candidates;
+        List<Scored> chosen = new ArrayList<>(max);
+        List<float[]> chosenVectors = new ArrayList<>(max);
+        List<Scored> passed = new ArrayList<>();
+        for (Scored c : candidates) {
+            if (chosen.size() >= max) break;
+            float[] cv = copy(c.node());
+            boolean diverse = true;
+            for (float[] r : chosenVectors) {
+                if (dot(cv, r) > c.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                chosen.add(c);
+                chosenVectors.add(cv);
+            } else {
+                passed.add(c);
+            }
+        }
+        for (Scored c : passed) {
+            if (chosen.size() >= max) break;
+            chosen.add(c);
+        }
+        return chosen;
+    }
+
+    /** Add a link {@code from → to}; a full list keeps the best of its links plus the new one. */
+    private void link(int from, int to, float score, int level) {
+        int[] nbrs = links.get(from)[level];
+        int count = nbrs[0];
+        if (count < nbrs.length - 1) {
+            nbrs[++nbrs[0]] = to;
+            return;
+        }
+        float[] fv = copy(from);
+        List<Scored> all = new ArrayList<>(count + 1);
+        for (int i = 1; i <= count; i++) all.add(new Scored(nbrs[i], similarity(nbrs[i], fv)));
+        all.add(new Scored(to, score));
+        all.sort(BEST_FIRST);
+        List<Scored> kept = selectNeighbors(all, count);
+        nbrs[0] = kept.size();
+        for (int i = 0; i < kept.size(); i++) nbrs[i + 1] = kept.get(i).node();
+    }
+
+    private float similarity(int node, float[] q) {
+        float[] v = scratch.get().vector;
+        vectors.read(node, v);
+        return dot(v, q);
+    }
+
+    private float[] copy(int node) {
+        float[] v = new float[vectors.dimensions()];
+        vectors.read(node, v);
+        return v;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    private static float[] normalized(float[] vector) {
+        double norm = 0;
+        for (float x : vector) norm += x * x;
+        float[] v = vector.clone();
+        if (norm == 0) return v;
+        float inv = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < v.length; i++) v[i] *= inv;
+        return v;
+    }
+}
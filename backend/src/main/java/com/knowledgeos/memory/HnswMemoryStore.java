@@ -0,0 +1,232 @@
+package com.knowledgeos.memory;
+
+import com.knowledgeos.embedding.EmbeddingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memory entry vectors in an in-process HNSW index — semantic search with no
+ * Qdrant to run, for small deployments and CI ({@code app.memory.vector-store: hnsw}).
+ *
+ * One {@link HnswIndex} per project, its vectors memory-mapped from
+ * {@code <app.memory.hnsw.dir>/<projectId>.vec}. The index is not persisted:
+ * on startup the files are discarded and rebuilt in the background from
+ * {@code memory_entries}, embedding through the {@link EmbeddingService} cache,
+ * so a restart costs no model calls for entries seen before. Searches during
+ * the rebuild see the entries indexed so far.
+ *
+ * Re-upserting a point replaces it; replaced and deleted points are tombstones
+ * until the next restart.
+ *
+ * Each node holds its own index but only one node relays a given outbox row
+ * ({@link MemoryOutboxRelay}), so with more than one replica the indexes drift
+ * apart until restart — run a single replica on this backend.
+ *
+ * Metrics: kos.memory.hnsw.vectors
+ */
+@Singleton
+@Requires(property = "app.memory.vector-store", value = "hnsw")
+public class HnswMemoryStore implements MemoryVectorStore {
+
+    private static final Logger log = LoggerFactory.getLogger(HnswMemoryStore.class);
+
+    private static final String LOAD_SQL =
+        "SELECT project_id, qdrant_id, layer, title, content FROM memory_entries " +
+        "WHERE qdrant_id IS NOT NULL AND (expires_at IS NULL OR expires_at > NOW())";
+    private static final int LOAD_BATCH = 256;
+
+    /** What a node stands for. */
+    private record Point(UUID id, String layer) {}
+
+    /** A memory entry read for the rebuild. */
+    private record Row(UUID projectId, UUID pointId, String layer, String text) {}
+
+    /** One project's index and its point → node map. */
+    private static final class ProjectIndex {
+        final HnswIndex<Point> index;
+        final Map<UUID, Integer> nodes = new ConcurrentHashMap<>();
+
+        ProjectIndex(HnswIndex<Point> index) {
+            this.index = index;
+        }
+    }
+
+    @Inject EmbeddingService embeddings;
+    @Inject DataSource dataSource;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.memory.hnsw.dir:/var/lib/knowledgeos/hnsw}")
+    String dir;
+
+    @Value("${app.memory.hnsw.m:16}")
+    int m;
+
+    @Value("${app.memory.hnsw.ef-construction:100}")
+    int efConstruction;
+
+    @Value("${app.memory.hnsw.ef-search:100}")
+    int efSearch;
+
+    private final Map<UUID, ProjectIndex> projects = new ConcurrentHashMap<>();
+    private Path root;
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Files.createDirectories(Path.of(dir));
+        try (var stale = Files.newDirectoryStream(root, "*.vec")) {
+            for (Path file : stale) Files.deleteIfExists(file);
+        }
+        meterRegistry.gauge("kos.memory.hnsw.vectors", projects,
+            p -> p.values().stream().mapToInt(pi -> pi.index.size()).sum());
+    }
+
+    @PreDestroy
+    void close() {
+        projects.values().forEach(pi -> {
+            try {
+                pi.index.close();
+            } catch (IOException e) {
+                log.debug("Closing HNSW index failed: {}", e.getMessage());
+            }
+        });
+        projects.clear();
+    }
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        Thread.ofPlatform().name("hnsw-rebuild").daemon(true).start(this::rebuild);
+    }
+
+    @Override
+    public void upsertAll(UUID projectId, List<Entry> entries) {
+        if (entries.isEmpty()) return;
+        List<float[]> vectors = embeddings.embedAll(entries.stream().map(Entry::text).toList());
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                put(projectId, entries.get(i).pointId(), entries.get(i).layer(), vectors.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<Match> search(UUID projectId, String layer, String query, int limit) {
+        ProjectIndex pi = projects.get(projectId);
+        if (pi == null) return List.of();
+        try {
+            return pi.index.search(embeddings.embed(query), limit, efSearch,
+                    p -> layer == null || layer.equals(p.layer()))
+                .stream()
+                .map(hit -> new Match(hit.label().id(), hit.score()))
+                .toList();
+        } catch (Exception e) {
+            log.warn("HNSW search failed — returning empty results: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    @Override
+    public void deleteAll(UUID projectId, List<UUID> pointIds) {
+        ProjectIndex pi = projects.get(projectId);
+        if (pi == null) return;
+        synchronized (pi) {
+            for (UUID pointId : pointIds) {
+                Integer node = pi.nodes.remove(pointId);
+                if (node != null) pi.index.delete(node);
+            }
+        }
+    }
+
+    @Override
+    public Set<UUID> pointIds(UUID projectId) {
+        ProjectIndex pi = projects.get(projectId);
+        return pi != null ? Set.copyOf(pi.nodes.keySet()) : Set.of();
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private void put(UUID projectId, UUID pointId, String layer, float[] vector) throws IOException {
+        ProjectIndex pi = index(projectId);
+        synchronized (pi) {
+            Integer old = pi.nodes.put(pointId, pi.index.add(vector, new Point(pointId, layer)));
+            if (old != null) pi.index.delete(old);
+        }
+    }
+
+    private ProjectIndex index(UUID projectId) {
+        return projects.computeIfAbsent(projectId, id -> {
+            try {
+                VectorFile file = new VectorFile(root.resolve(id + ".vec"), embeddings.dimensions());
+                return new ProjectIndex(new HnswIndex<>(file, m, efConstruction));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /** Index every live memory entry, a batch of texts per embedding call. */
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        int indexed = 0;
+        try (Connection conn = dataSource.getConnection()) {
+            // Stream the rows instead of loading the table into memory
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(LOAD_SQL)) {
+                ps.setFetchSize(LOAD_BATCH);
+                try (ResultSet rs = ps.executeQuery()) {
+                    List<Row> batch = new ArrayList<>(LOAD_BATCH);
+                    while (rs.next()) {
+                        batch.add(new Row(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class),
+                            rs.getString(3), rs.getString(4) + " " + rs.getString(5)));
+                        if (batch.size() == LOAD_BATCH) indexed += load(batch);
+                    }
+                    indexed += load(batch);
+                }
+            } finally {
+                conn.rollback();
+            }
+            log.info("HNSW memory index rebuilt: {} entries in {} projects in {}ms",
+                indexed, projects.size(), System.currentTimeMillis() - start);
+        } catch (SQLException | IOException | RuntimeException e) {
+            log.error("Rebuilding the HNSW memory index failed after {} entries: {}", indexed, e.getMessage());
+        }
+    }
+
+    /** Embed and index {@code batch}, then clear it. */
+    private int load(List<Row> batch) throws IOException {
+        if (batch.isEmpty()) return 0;
+        List<float[]> vectors = embeddings.embedAll(batch.stream().map(Row::text).toList());
+        for (int i = 0; i < batch.size(); i++) {
+            Row row = batch.get(i);
+            // Upserted through the API since the row was read — that version wins
+            ProjectIndex pi = projects.get(row.projectId());
+            if (pi != null && pi.nodes.containsKey(row.pointId())) continue;
+            put(row.projectId(), row.pointId(), row.layer(), vectors.get(i));
+        }
+        int n = batch.size();
+        batch.clear();
+        return n;
+    }
+}
@@ -0,0 +1,213 @@
+package com.knowledgeos.memory;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.client.DefaultHttpClientConfiguration;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * {@link QdrantTransport} over the Qdrant REST API.
+ *
+ * One Netty HTTP client for the life of the application, with a connection pool
+ * of up to {@code qdrant.http.max-connections} keep-alive connections — no
+ * per-call client construction or TCP handshake.
+ */
+@Singleton
+@Requires(property = "qdrant.transport", value = "http", defaultValue = "http")
+public class HttpQdrantTransport implements QdrantTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpQdrantTransport.class);
+
+    private static final int SCROLL_PAGE = 1000;
+
+    /** One page of a scroll and the offset of the next, null after the last. */
+    private record Page(List<UUID> ids, Object next) {}
+
+    @Value("${qdrant.host:localhost}")
+    String qdrantHost;
+
+    @Value("${qdrant.port:6333}")
+    int qdrantPort;
+
+    @Value("${qdrant.http.max-connections:32}")
+    int maxConnections;
+
+    @Value("${qdrant.timeout:5s}")
+    Duration timeout;
+
+    private HttpClient client;
+
+    @PostConstruct
+    void start() {
+        DefaultHttpClientConfiguration config = new DefaultHttpClientConfiguration();
+        config.setConnectTimeout(timeout);
+        config.setReadTimeout(timeout);
+        config.getConnectionPoolConfiguration().setEnabled(true);
+        config.getConnectionPoolConfiguration().setMaxConnections(maxConnections);
+        try {
+            client = HttpClient.create(new URL(String.format("http://%s:%d", qdrantHost, qdrantPort)), config);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Invalid Qdrant URL", e);
+        }
+        log.info("Qdrant HTTP transport: {}:{} (pool of {})", qdrantHost, qdrantPort, maxConnections);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (client != null) client.close();
+    }
+
+    @Override
+    public Mono<Integer> vectorSize(String collection) {
+        return Mono.from(client.retrieve(HttpRequest.GET("/collections/" + collection), Map.class))
+            .map(response -> {
+                // result.config.params.vectors.size — one unnamed vector, as createCollection makes
+                Object node = response;
+                for (String key : List.of("result", "config", "params", "vectors", "size")) {
+                    node = node instanceof Map<?, ?> m ? m.get(key) : null;
+                }
+                if (!(node instanceof Number size)) {
+                    throw new IllegalStateException("Qdrant collection " + collection + " has no single unnamed vector");
+                }
+                return size.intValue();
+            })
+            .onErrorResume(HttpQdrantTransport::isNotFound, e -> Mono.empty());
+    }
+
+    @Override
+    public Mono<Void> createCollection(String collection, int vectorSize) {
+        Map<String, Object> body = Map.of(
+            "vectors", Map.of("size", vectorSize, "distance", "Cosine")
+        );
+        return Mono.from(client.exchange(
+            HttpRequest.PUT("/collections/" + collection, body).contentType(MediaType.APPLICATION_JSON_TYPE)
+        )).then();
+    }
+
+    @Override
+    public Mono<Void> createKeywordIndex(String collection, String field) {
+        Map<String, Object> body = Map.of("field_name", field, "field_schema", "keyword");
+        return Mono.from(client.exchange(
+            HttpRequest.PUT("/collections/" + collection + "/index", body).contentType(MediaType.APPLICATION_JSON_TYPE)
+        )).then();
+    }
+
+    @Override
+    public Mono<Void> upsert(String collection, List<Point> points) {
+        List<Map<String, Object>> wire = new ArrayList<>(points.size());
+        for (Point p : points) {
+            wire.add(Map.of(
+                "id", p.id().toString(),
+                "vector", vectorToList(p.vector()),
+                "payload", p.payload()
+            ));
+        }
+        Map<String, Object> body = Map.of("points", wire);
+        return Mono.from(client.exchange(
+            HttpRequest.PUT("/collections/" + collection + "/points", body).contentType(MediaType.APPLICATION_JSON_TYPE)
+        )).then().onErrorMap(HttpQdrantTransport::isNotFound, e -> new CollectionNotFoundException(collection, e));
+    }
+
+    @Override
+    public Mono<List<Match>> search(String collection, float[] vector, Map<String, String> filter, int limit) {
+        List<Map<String, Object>> mustConditions = new ArrayList<>();
+        filter.forEach((key, value) -> mustConditions.add(Map.of("key", key, "match", Map.of("value", value))));
+
+        Map<String, Object> body = Map.of(
+            "vector", vectorToList(vector),
+            "limit", limit,
+            "with_payload", false,
+            "filter", Map.of("must", mustConditions)
+        );
+        return Mono.from(client.retrieve(
+            HttpRequest.POST("/collections/" + collection + "/points/search", body)
+                .contentType(MediaType.APPLICATION_JSON_TYPE),
+            Map.class
+        )).map(HttpQdrantTransport::matches)
+            .onErrorMap(HttpQdrantTransport::isNotFound, e -> new CollectionNotFoundException(collection, e));
+    }
+
+    @Override
+    public Mono<Void> delete(String collection, List<UUID> ids) {
+        Map<String, Object> body = Map.of("points", ids.stream().map(UUID::toString).toList());
+        return Mono.from(client.exchange(
+            HttpRequest.POST("/collections/" + collection + "/points/delete", body)
+                .contentType(MediaType.APPLICATION_JSON_TYPE)
+        )).then().onErrorMap(HttpQdrantTransport::isNotFound, e -> new CollectionNotFoundException(collection, e));
+    }
+
+    @Override
+    public Mono<List<UUID>> pointIds(String collection, Map<String, String> filter) {
+        return scrollPage(collection, filter, null)
+            .expand(page -> page.next() != null ? scrollPage(collection, filter, page.next()) : Mono.empty())
+            .flatMapIterable(Page::ids)
+            .collectList()
+            .onErrorMap(HttpQdrantTransport::isNotFound, e -> new CollectionNotFoundException(collection, e));
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private Mono<Page> scrollPage(String collection, Map<String, String> filter, Object offset) {
+        List<Map<String, Object>> mustConditions = new ArrayList<>();
+        filter.forEach((key, value) -> mustConditions.add(Map.of("key", key, "match", Map.of("value", value))));
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("limit", SCROLL_PAGE);
+        body.put("with_payload", false);
+        body.put("with_vector", false);
+        body.put("filter", Map.of("must", mustConditions));
+        if (offset != null) body.put("offset", offset);
+        return Mono.from(client.retrieve(
+            HttpRequest.POST("/collections/" + collection + "/points/scroll", body)
+                .contentType(MediaType.APPLICATION_JSON_TYPE),
+            Map.class
+        )).map(response -> {
+            Map<?, ?> result = (Map<?, ?>) response.get("result");
+            List<?> points = result != null ? (List<?>) result.get("points") : null;
+            List<UUID> ids = new ArrayList<>(points != null ? points.size() : 0);
+            if (points != null) {
+                for (Object p : points) ids.add(UUID.fromString(((Map<?, ?>) p).get("id").toString()));
+            }
+            return new Page(ids, result != null ? result.get("next_page_offset") : null);
+        });
+    }
+
+    private static boolean isNotFound(Throwable e) {
+        return e instanceof HttpClientResponseException r && r.getStatus() == HttpStatus.NOT_FOUND;
+    }
+
+    private static List<Match> matches(Map<?, ?> response) {
+        List<?> results = (List<?>) response.get("result");
+        if (results == null) return List.of();
+        List<Match> matches = new ArrayList<>(results.size());
+        for (Object r : results) {
+            Map<?, ?> result = (Map<?, ?>) r;
+            Object score = result.get("score");
+            matches.add(new Match(
+                UUID.fromString(result.get("id").toString()),
+                score instanceof Number n ? n.floatValue() : 0f));
+        }
+        return matches;
+    }
+
+    private static List<Float> vectorToList(float[] v) {
+        List<Float> list = new ArrayList<>(v.length);
+        for (float f : v) list.add(f);
+        return list;
+    }
+}
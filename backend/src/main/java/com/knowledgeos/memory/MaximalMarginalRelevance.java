@@ -0,0 +1,71 @@
+package com.knowledgeos.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maximal marginal relevance: re-ranks search candidates so that near-duplicates
+ * of what is already picked drop down the list.
+ *
+ * Each step picks the candidate maximising
+ * {@code λ · relevance − (1 − λ) · max cosine(candidate, picked)}; with λ = 1
+ * this is plain relevance order, lower λ trades relevance for variety.
+ */
+public final class MaximalMarginalRelevance {
+
+    private MaximalMarginalRelevance() {}
+
+    /**
+     * Indexes of {@code relevance} in pick order — all of them.
+     *
+     * @param relevance per candidate, comparable to cosine similarity (0..1)
+     * @param vectors   embedding per candidate, same order
+     * @param lambda    weight of relevance against novelty, 0..1
+     */
+    public static List<Integer> rerank(double[] relevance, List<float[]> vectors, double lambda) {
+        int n = relevance.length;
+        double[] norms = new double[n];
+        for (int i = 0; i < n; i++) norms[i] = Math.sqrt(dot(vectors.get(i), vectors.get(i)));
+
+        // Highest similarity of each candidate to anything picked so far
+        double[] redundancy = new double[n];
+        Arrays.fill(redundancy, Double.NEGATIVE_INFINITY);
+        boolean[] picked = new boolean[n];
+        List<Integer> order = new ArrayList<>(n);
+
+        for (int step = 0; step < n; step++) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (picked[i]) continue;
+                double score = step == 0
+                    ? relevance[i]
+                    : lambda * relevance[i] - (1 - lambda) * redundancy[i];
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            picked[best] = true;
+            order.add(best);
+            for (int i = 0; i < n; i++) {
+                if (!picked[i]) redundancy[i] = Math.max(redundancy[i], cosine(vectors, norms, i, best));
+            }
+        }
+        return order;
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private static double cosine(List<float[]> vectors, double[] norms, int a, int b) {
+        double denominator = norms[a] * norms[b];
+        return denominator == 0 ? 0 : dot(vectors.get(a), vectors.get(b)) / denominator;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+}
@@ -0,0 +1,184 @@
+package com.knowledgeos.memory;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.knowledgeos.dto.MemoryResponse;
+import com.knowledgeos.events.ClusterEventBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.transaction.TransactionOperations;
+import io.micronaut.transaction.support.TransactionSynchronization;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of memory listings, per project and layer.
+ *
+ *   canonical — kept until invalidated; {@code app.memory.cache.canonical-ttl}
+ *               only bounds the damage of a missed invalidation
+ *   feature   — kept for {@code app.memory.cache.feature-ttl}
+ *   scratch   — never cached; it changes with every debugging session
+ *
+ * Concurrent misses for the same listing share one query, so agents starting
+ * together cost one read per node. A write or delete invalidates its layer once
+ * the writing transaction commits: on this node at once, and on the others over
+ * the {@link ClusterEventBus} (topic {@code memory-cache}). A load already in
+ * flight when its listing is invalidated is dropped, not cached.
+ *
+ * Metrics: kos.memory.cache{result=hit|miss}, kos.memory.cache.hit-ratio,
+ *          kos.memory.cache.size (listings), kos.memory.cache.entries (memories held)
+ */
+@Singleton
+public class MemoryListCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryListCache.class);
+
+    private static final String TOPIC = "memory-cache";
+
+    /** A cached listing. */
+    private record Key(UUID projectId, String layer) {}
+
+    @Inject ClusterEventBus eventBus;
+    @Inject TransactionOperations<Session> transactionOperations;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.memory.cache.max-size:10000}")
+    long maxSize;
+
+    @Value("${app.memory.cache.canonical-ttl:1h}")
+    Duration canonicalTtl;
+
+    @Value("${app.memory.cache.feature-ttl:30s}")
+    Duration featureTtl;
+
+    private AsyncCache<Key, List<MemoryResponse>> cache;
+    private ClusterEventBus.Subscription subscription;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<Key, List<MemoryResponse>>() {
+                @Override
+                public long expireAfterCreate(Key key, List<MemoryResponse> value, long currentTime) {
+                    return ("canonical".equals(key.layer()) ? canonicalTtl : featureTtl).toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(Key key, List<MemoryResponse> value, long currentTime,
+                                              long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(Key key, List<MemoryResponse> value, long currentTime,
+                                            long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .buildAsync();
+        hits   = meterRegistry.counter("kos.memory.cache", "result", "hit");
+        misses = meterRegistry.counter("kos.memory.cache", "result", "miss");
+        meterRegistry.gauge("kos.memory.cache.hit-ratio", this, c -> {
+            double total = c.hits.count() + c.misses.count();
+            return total == 0 ? 0 : c.hits.count() / total;
+        });
+        meterRegistry.gauge("kos.memory.cache.size", this, c -> c.cache.synchronous().estimatedSize());
+        meterRegistry.gauge("kos.memory.cache.entries", this, c -> c.cache.asMap().values().stream()
+            .mapToInt(f -> f.getNow(List.of()).size())
+            .sum());
+        subscription = eventBus.subscribe(TOPIC, this::onInvalidation);
+    }
+
+    @PreDestroy
+    void close() {
+        if (subscription != null) subscription.close();
+    }
+
+    /** True for layers whose listings are cached. */
+    public static boolean cacheable(String layer) {
+        return "canonical".equals(layer) || "feature".equals(layer);
+    }
+
+    /** The cached listing of {@code layer}, or {@code loader}'s result, cached when the layer is cacheable. */
+    public List<MemoryResponse> get(UUID projectId, String layer, Supplier<List<MemoryResponse>> loader) {
+        if (!cacheable(layer)) return loader.get();
+
+        Key key = new Key(projectId, layer);
+        CompletableFuture<List<MemoryResponse>> loading = new CompletableFuture<>();
+        CompletableFuture<List<MemoryResponse>> cached = cache.asMap().putIfAbsent(key, loading);
+        if (cached != null) {
+            hits.increment();
+            try {
+                return cached.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw e;
+            }
+        }
+
+        misses.increment();
+        try {
+            List<MemoryResponse> listing = List.copyOf(loader.get());
+            loading.complete(listing);
+            return listing;
+        } catch (RuntimeException e) {
+            // Failed loads are not cached; callers waiting on this one see the same error
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drop the project's listing of {@code layer} on every node — after the
+     * caller's transaction commits, or at once outside a transaction.
+     */
+    public void invalidate(UUID projectId, String layer) {
+        if (!cacheable(layer)) return;
+        var tx = transactionOperations.findTransactionStatus();
+        if (tx.isPresent()) {
+            tx.get().registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(projectId, layer);
+                }
+            });
+        } else {
+            invalidateNow(projectId, layer);
+        }
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private void invalidateNow(UUID projectId, String layer) {
+        // Locally first, so the writer reads its own write even before the bus delivers
+        cache.synchronous().invalidate(new Key(projectId, layer));
+        eventBus.publish(TOPIC, projectId + ":" + layer);
+    }
+
+    private void onInvalidation(String message) {
+        int sep = message.indexOf(':');
+        try {
+            cache.synchronous().invalidate(new Key(UUID.fromString(message.substring(0, sep)),
+                message.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed memory cache invalidation '{}': {}", message, e.getMessage());
+        }
+    }
+}
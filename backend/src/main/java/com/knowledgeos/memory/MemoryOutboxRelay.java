@@ -0,0 +1,238 @@
+package com.knowledgeos.memory;
+
+import com.knowledgeos.domain.MemoryOutboxEntry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Applies {@code memory_outbox} rows to the {@link MemoryVectorStore}, so that
+ * memory writes never wait on, or are lost to, the vector store.
+ *
+ * A background thread takes due rows in batches of {@code app.memory.outbox.batch-size}
+ * ({@code FOR UPDATE SKIP LOCKED}, so replicas share the work without overlap):
+ *   coalesce   — only the latest row per point counts; a point changed five
+ *                times since the last batch is written once
+ *   upsert     — the entry is read as it is now and upserted, all of a
+ *                project's entries in one {@link MemoryVectorStore#upsertAll};
+ *                an entry that no longer exists is deleted instead
+ *   delete     — one {@link MemoryVectorStore#deleteAll} per project
+ * Rows are deleted once applied. A project whose changes fail keeps its rows;
+ * they are retried after {@code backoff}, doubling per attempt up to {@code max-backoff}.
+ *
+ * With {@code app.memory.outbox.enabled=false} nothing runs in the background
+ * and rows wait for {@link #relayOnce} (tests).
+ *
+ * Metrics: kos.memory.outbox.relayed{op=upsert|delete}, kos.memory.outbox.coalesced,
+ *          kos.memory.outbox.retried
+ */
+@Singleton
+public class MemoryOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryOutboxRelay.class);
+
+    private static final String DUE_SQL =
+        "SELECT id, project_id, point_id, op FROM memory_outbox WHERE next_attempt_at <= NOW() " +
+        "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String ENTRIES_SQL =
+        "SELECT qdrant_id, id, layer, title, content, scope_key FROM memory_entries WHERE qdrant_id = ANY(?)";
+    private static final String DONE_SQL = "DELETE FROM memory_outbox WHERE id = ANY(?)";
+    private static final String RETRY_SQL =
+        "UPDATE memory_outbox SET attempts = attempts + 1, last_error = ?, " +
+        "next_attempt_at = NOW() + LEAST(? * POWER(2, attempts), ?) * INTERVAL '1 millisecond' " +
+        "WHERE id = ANY(?)";
+
+    /** An outbox row. */
+    private record Row(long id, UUID projectId, UUID pointId, String op) {}
+
+    /** One project's share of a batch. */
+    private static final class ProjectBatch {
+        final List<Long> rowIds = new ArrayList<>();
+        final List<MemoryVectorStore.Entry> upserts = new ArrayList<>();
+        final List<UUID> deletes = new ArrayList<>();
+    }
+
+    @Inject DataSource dataSource;
+    @Inject MemoryVectorStore vectorStore;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.memory.outbox.enabled:true}")
+    boolean enabled;
+
+    @Value("${app.memory.outbox.poll-interval:200ms}")
+    Duration pollInterval;
+
+    @Value("${app.memory.outbox.batch-size:500}")
+    int batchSize;
+
+    @Value("${app.memory.outbox.backoff:1s}")
+    Duration backoff;
+
+    @Value("${app.memory.outbox.max-backoff:5m}")
+    Duration maxBackoff;
+
+    private Thread relay;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        running = true;
+        relay = Thread.ofPlatform().name("memory-outbox").daemon(true).start(this::relayLoop);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (relay != null) relay.interrupt();
+    }
+
+    /** Apply one batch of due rows; returns how many rows it took. */
+    public int relayOnce() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int taken = relay(conn);
+                conn.commit();
+                return taken;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                // A full batch means more is probably waiting
+                if (relayOnce() < batchSize) Thread.sleep(pollInterval.toMillis());
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (Exception e) {
+                log.warn("Memory outbox relay failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException ie) {
+                    if (!running) break;
+                }
+            }
+        }
+    }
+
+    private int relay(Connection conn) throws SQLException {
+        List<Row> rows = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(DUE_SQL)) {
+            ps.setInt(1, batchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Row(rs.getLong(1), rs.getObject(2, UUID.class), rs.getObject(3, UUID.class),
+                        rs.getString(4)));
+                }
+            }
+        }
+        if (rows.isEmpty()) return 0;
+
+        // Rows come oldest first, so the last one per point wins
+        Map<UUID, Row> latest = new LinkedHashMap<>();
+        for (Row r : rows) latest.put(r.pointId(), r);
+        meterRegistry.counter("kos.memory.outbox.coalesced").increment(rows.size() - latest.size());
+
+        List<UUID> upsertIds = latest.values().stream()
+            .filter(r -> MemoryOutboxEntry.UPSERT.equals(r.op()))
+            .map(Row::pointId)
+            .toList();
+        Map<UUID, MemoryVectorStore.Entry> entries = entries(conn, upsertIds);
+
+        Map<UUID, ProjectBatch> byProject = new LinkedHashMap<>();
+        for (Row r : rows) byProject.computeIfAbsent(r.projectId(), p -> new ProjectBatch()).rowIds.add(r.id());
+        for (Row r : latest.values()) {
+            ProjectBatch batch = byProject.get(r.projectId());
+            MemoryVectorStore.Entry entry = entries.get(r.pointId());
+            if (MemoryOutboxEntry.UPSERT.equals(r.op()) && entry != null) {
+                batch.upserts.add(entry);
+            } else {
+                batch.deletes.add(r.pointId());
+            }
+        }
+
+        List<Long> done = new ArrayList<>(rows.size());
+        for (Map.Entry<UUID, ProjectBatch> e : byProject.entrySet()) {
+            UUID projectId = e.getKey();
+            ProjectBatch batch = e.getValue();
+            try {
+                if (!batch.upserts.isEmpty()) vectorStore.upsertAll(projectId, batch.upserts);
+                if (!batch.deletes.isEmpty()) vectorStore.deleteAll(projectId, batch.deletes);
+                done.addAll(batch.rowIds);
+                meterRegistry.counter("kos.memory.outbox.relayed", "op", "upsert").increment(batch.upserts.size());
+                meterRegistry.counter("kos.memory.outbox.relayed", "op", "delete").increment(batch.deletes.size());
+            } catch (RuntimeException ex) {
+                log.warn("Vector store sync of {} changes for project {} failed, will retry: {}",
+                    batch.rowIds.size(), projectId, ex.getMessage());
+                retry(conn, batch.rowIds, ex.getMessage());
+            }
+        }
+        if (!done.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(DONE_SQL)) {
+                Array ids = conn.createArrayOf("bigint", done.toArray());
+                ps.setArray(1, ids);
+                ps.executeUpdate();
+                ids.free();
+            }
+        }
+        return rows.size();
+    }
+
+    /** Current state of the entries behind {@code pointIds}; points without an entry are absent. */
+    private Map<UUID, MemoryVectorStore.Entry> entries(Connection conn, List<UUID> pointIds) throws SQLException {
+        Map<UUID, MemoryVectorStore.Entry> entries = new HashMap<>();
+        if (pointIds.isEmpty()) return entries;
+        try (PreparedStatement ps = conn.prepareStatement(ENTRIES_SQL)) {
+            Array ids = conn.createArrayOf("uuid", pointIds.toArray());
+            ps.setArray(1, ids);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    UUID pointId = rs.getObject(1, UUID.class);
+                    String title = rs.getString(4);
+                    String scopeKey = rs.getString(6);
+                    entries.put(pointId, new MemoryVectorStore.Entry(pointId, rs.getString(3),
+                        title + " " + rs.getString(5),
+                        Map.of("memoryId", rs.getObject(2, UUID.class).toString(),
+                               "title", title,
+                               "scopeKey", scopeKey != null ? scopeKey : "")));
+                }
+            }
+            ids.free();
+        }
+        return entries;
+    }
+
+    private void retry(Connection conn, List<Long> rowIds, String error) throws SQLException {
+        meterRegistry.counter("kos.memory.outbox.retried").increment(rowIds.size());
+        try (PreparedStatement ps = conn.prepareStatement(RETRY_SQL)) {
+            Array ids = conn.createArrayOf("bigint", rowIds.toArray());
+            ps.setString(1, error);
+            ps.setLong(2, backoff.toMillis());
+            ps.setLong(3, maxBackoff.toMillis());
+            ps.setArray(4, ids);
+            ps.executeUpdate();
+            ids.free();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.knowledgeos.memory;
+
+import com.knowledgeos.domain.MemoryOutboxEntry;
+import com.knowledgeos.dto.MemoryReconcileResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.exceptions.HttpStatusException;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Repairs drift between {@code memory_entries} and the {@link MemoryVectorStore} —
+ * points lost with a Qdrant volume, or written before the outbox existed.
+ *
+ * Compares the project's live entries with the points the store holds and
+ * queues outbox rows for the difference: an upsert per entry without a point,
+ * a delete per point without an entry. Points with rows already queued are
+ * left to the {@link MemoryOutboxRelay}.
+ */
+@Singleton
+public class MemoryReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryReconciler.class);
+
+    private static final String ENTRIES_SQL =
+        "SELECT qdrant_id FROM memory_entries WHERE project_id = ? AND qdrant_id IS NOT NULL " +
+        "AND (expires_at IS NULL OR expires_at > NOW())";
+    private static final String PENDING_SQL = "SELECT DISTINCT point_id FROM memory_outbox WHERE project_id = ?";
+    private static final String ENQUEUE_SQL = "INSERT INTO memory_outbox (project_id, point_id, op) VALUES (?, ?, ?)";
+
+    @Inject DataSource dataSource;
+    @Inject MemoryVectorStore vectorStore;
+
+    /** Queue the outbox rows that bring the vector store back in line with the project's entries. */
+    public MemoryReconcileResponse reconcile(UUID projectId) {
+        Set<UUID> points;
+        try {
+            points = vectorStore.pointIds(projectId);
+        } catch (RuntimeException e) {
+            log.warn("Listing vector store points for project {} failed: {}", projectId, e.getMessage());
+            throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Vector store unavailable — retry later");
+        }
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Set<UUID> entries = ids(conn, ENTRIES_SQL, projectId);
+                Set<UUID> pending = ids(conn, PENDING_SQL, projectId);
+
+                List<UUID> missing = new ArrayList<>();
+                for (UUID id : entries) {
+                    if (!points.contains(id) && !pending.contains(id)) missing.add(id);
+                }
+                List<UUID> orphaned = new ArrayList<>();
+                for (UUID id : points) {
+                    if (!entries.contains(id) && !pending.contains(id)) orphaned.add(id);
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(ENQUEUE_SQL)) {
+                    addAll(ps, projectId, missing, MemoryOutboxEntry.UPSERT);
+                    addAll(ps, projectId, orphaned, MemoryOutboxEntry.DELETE);
+                    ps.executeBatch();
+                }
+                conn.commit();
+
+                if (!missing.isEmpty() || !orphaned.isEmpty()) {
+                    log.info("Reconciled memory for project {}: {} missing, {} orphaned points queued",
+                        projectId, missing.size(), orphaned.size());
+                }
+                return new MemoryReconcileResponse(entries.size(), points.size(), missing.size(), orphaned.size());
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Memory reconcile failed: " + e.getMessage());
+        }
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private static Set<UUID> ids(Connection conn, String sql, UUID projectId) throws SQLException {
+        Set<UUID> ids = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setObject(1, projectId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.add(rs.getObject(1, UUID.class));
+            }
+        }
+        return ids;
+    }
+
+    private static void addAll(PreparedStatement ps, UUID projectId, List<UUID> pointIds, String op)
+            throws SQLException {
+        for (UUID pointId : pointIds) {
+            ps.setObject(1, projectId);
+            ps.setObject(2, pointId);
+            ps.setString(3, op);
+            ps.addBatch();
+        }
+    }
+}
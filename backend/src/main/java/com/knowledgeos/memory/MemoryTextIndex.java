@@ -0,0 +1,81 @@
+package com.knowledgeos.memory;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lexical memory search over the {@code memory_entries.search_vector} GIN index.
+ *
+ * A query matches entries containing any of its words (stemmed, stop words
+ * dropped); they are ranked by {@code ts_rank} with length normalization, title
+ * matches counting more than content — more query words, and rarer words in
+ * shorter entries, rank higher, much as BM25 would. Expired entries never match.
+ */
+@Singleton
+public class MemoryTextIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryTextIndex.class);
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private static final String SEARCH_SQL =
+        "SELECT m.id FROM memory_entries m, to_tsquery('english', ?) q " +
+        "WHERE m.project_id = ? AND m.search_vector @@ q " +
+        "AND (m.expires_at IS NULL OR m.expires_at > NOW()) %s" +
+        "ORDER BY ts_rank(m.search_vector, q, 1) DESC LIMIT ?";
+    private static final String ANY_LAYER_SQL = SEARCH_SQL.formatted("");
+    private static final String LAYER_SQL = SEARCH_SQL.formatted("AND m.layer = ? ");
+
+    @Inject DataSource dataSource;
+
+    /**
+     * Ids of the project's entries matching {@code query}, best first.
+     *
+     * @param layer if non-null, only entries of this layer
+     */
+    public List<UUID> search(UUID projectId, String layer, String query, int limit) {
+        String tsQuery = anyWord(query);
+        if (tsQuery.isEmpty()) return List.of();
+
+        List<UUID> ids = new ArrayList<>(limit);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(layer != null ? LAYER_SQL : ANY_LAYER_SQL)) {
+            int p = 1;
+            ps.setString(p++, tsQuery);
+            ps.setObject(p++, projectId);
+            if (layer != null) ps.setString(p++, layer);
+            ps.setInt(p, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.add(rs.getObject(1, UUID.class));
+            }
+        } catch (SQLException e) {
+            log.warn("Full-text memory search failed — returning empty results: {}", e.getMessage());
+            return List.of();
+        }
+        return ids;
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    /** {@code a | b | c} over the query's words — letters and digits only, so nothing is tsquery syntax. */
+    private static String anyWord(String query) {
+        if (query == null) return "";
+        List<String> words = new ArrayList<>();
+        Matcher m = WORD.matcher(query);
+        while (m.find()) words.add(m.group());
+        return String.join(" | ", words);
+    }
+}
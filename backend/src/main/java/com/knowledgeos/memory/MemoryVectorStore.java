@@ -0,0 +1,42 @@
+package com.knowledgeos.memory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Where memory entry vectors live, for semantic search.
+ *
+ * Implementations ({@code app.memory.vector-store}):
+ *   qdrant — an external Qdrant ({@link QdrantMemoryStore}, default)
+ *   hnsw   — an in-process HNSW index, nothing else to run ({@link HnswMemoryStore})
+ *
+ * Points are keyed by the entry's {@code qdrant_id}. Writes are made by the
+ * {@link MemoryOutboxRelay} only, which retries them, so they throw on failure;
+ * a failed search returns no results instead.
+ */
+public interface MemoryVectorStore {
+
+    /** A memory entry to index. */
+    record Entry(UUID pointId, String layer, String text, Map<String, Object> payload) {}
+
+    /** A search hit: point id and its similarity to the query (cosine; higher is closer). */
+    record Match(UUID pointId, float score) {}
+
+    /** Embed the entries' texts together and store them, replacing earlier versions of the same points. */
+    void upsertAll(UUID projectId, List<Entry> entries);
+
+    /** Forget the points; unknown ids are ignored. */
+    void deleteAll(UUID projectId, List<UUID> pointIds);
+
+    /**
+     * The project's entries most similar to {@code query}, most similar first.
+     *
+     * @param layer if non-null, only entries of this layer
+     */
+    List<Match> search(UUID projectId, String layer, String query, int limit);
+
+    /** Every point stored for the project — for reconciliation against {@code memory_entries}. */
+    Set<UUID> pointIds(UUID projectId);
+}
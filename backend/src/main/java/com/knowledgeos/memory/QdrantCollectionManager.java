@@ -0,0 +1,128 @@
+package com.knowledgeos.memory;
+
+import com.knowledgeos.embedding.EmbeddingService;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Which Qdrant collection holds a project's memories, and whether it is ready.
+ *
+ * A collection is verified once — created if missing, with keyword payload
+ * indexes on the fields searches filter by — and then remembered. It is checked
+ * again only after Qdrant answers an operation with "collection not found".
+ *
+ * Modes ({@code qdrant.collection-mode}):
+ *   shared      — one collection ({@code qdrant.collection}) for all projects,
+ *                 indexed on {@code projectId} and {@code layer} (default)
+ *   per-project — {@code <qdrant.collection>-<projectId>}, indexed on {@code layer};
+ *                 a search never scans other projects' points
+ *
+ * The shared collection is verified at startup; per-project ones on first use.
+ * New collections take their vector size from the embedding provider. An existing
+ * collection of another size is refused with {@link VectorSizeMismatchException} —
+ * at startup that stops the application — since Qdrant would reject every upsert;
+ * after switching model, point {@code qdrant.collection} at a new name.
+ */
+@Singleton
+@Requires(property = "app.memory.vector-store", value = "qdrant", defaultValue = "qdrant")
+public class QdrantCollectionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(QdrantCollectionManager.class);
+
+    @Inject QdrantTransport transport;
+    @Inject EmbeddingService embeddings;
+
+    @Value("${qdrant.collection:knowledgeos-memory}")
+    String collection;
+
+    @Value("${qdrant.collection-mode:shared}")
+    String mode;
+
+    @Value("${qdrant.timeout:5s}")
+    Duration timeout;
+
+    /** Collection name → its (cached) verification; an entry whose verification failed is dropped. */
+    private final Map<String, Mono<String>> verified = new ConcurrentHashMap<>();
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        if (isPerProject()) return;
+        try {
+            ready(null).block(timeout);
+        } catch (VectorSizeMismatchException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Cannot reach Qdrant — collection will be checked on first use: {}", e.getMessage());
+        }
+    }
+
+    /** The project's collection, created first if necessary. */
+    public Mono<String> ready(UUID projectId) {
+        return verified.computeIfAbsent(nameFor(projectId), this::verify);
+    }
+
+    /**
+     * Run {@code op} against the project's collection. If Qdrant says the collection
+     * is gone, it is created again and {@code op} retried once.
+     */
+    public <T> Mono<T> withCollection(UUID projectId, Function<String, Mono<T>> op) {
+        return ready(projectId).flatMap(op)
+            .onErrorResume(CollectionNotFoundException.class, e -> {
+                log.info("Qdrant collection {} disappeared — recreating", e.collection());
+                verified.remove(e.collection());
+                return ready(projectId).flatMap(op);
+            });
+    }
+
+    /** Whether searches must filter on {@code projectId} — false when each project has its own collection. */
+    public boolean filtersByProject() {
+        return !isPerProject();
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private String nameFor(UUID projectId) {
+        return isPerProject() && projectId != null ? collection + "-" + projectId : collection;
+    }
+
+    private boolean isPerProject() {
+        return "per-project".equalsIgnoreCase(mode);
+    }
+
+    private Mono<String> verify(String name) {
+        List<String> indexed = isPerProject() ? List.of("layer") : List.of("projectId", "layer");
+        int dimensions = embeddings.dimensions();
+        AtomicReference<Mono<String>> self = new AtomicReference<>();
+        Mono<String> check = Mono.defer(() -> transport.vectorSize(name))
+            .flatMap(size -> size == dimensions
+                ? Mono.just(name)
+                : Mono.<String>error(new VectorSizeMismatchException(name, size, dimensions)))
+            .switchIfEmpty(Mono.defer(() -> transport.createCollection(name, dimensions))
+                .doOnSuccess(v -> log.info("Created Qdrant collection: {} ({} dims)", name, dimensions))
+                .thenReturn(name))
+            // Idempotent: also covers collections created before the indexes existed
+            .then(Mono.defer(() -> Mono.when(indexed.stream()
+                .map(field -> transport.createKeywordIndex(name, field))
+                .toList())))
+            .thenReturn(name)
+            .doOnError(e -> verified.remove(name, self.get()))
+            .cache();
+        self.set(check);
+        return check;
+    }
+}
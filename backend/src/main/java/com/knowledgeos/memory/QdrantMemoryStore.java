@@ -1,197 +1,147 @@
 package com.knowledgeos.memory;
 
+import com.knowledgeos.embedding.EmbeddingService;
+import io.micronaut.context.annotation.Requires;
 import io.micronaut.context.annotation.Value;
-import io.micronaut.http.HttpRequest;
-import io.micronaut.http.MediaType;
-import io.micronaut.http.client.HttpClient;
-import io.micronaut.http.client.exceptions.HttpClientException;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.net.MalformedURLException;
-import java.net.URI;
-import java.net.URL;
+import java.time.Duration;
 import java.util.*;
 
 /**
- * HTTP client for Qdrant vector database.
+ * Memory entries as vectors in Qdrant.
  *
- * Stores memory entries as 1536-dim vectors (OpenAI text-embedding-ada-002 size).
- * In the absence of an embedding API, this implementation uses a placeholder
- * zero vector for storage and falls back to DB-only search when Qdrant is unavailable.
+ * Texts are embedded by {@link EmbeddingService} (cached by content hash, so
+ * re-upserting an unchanged entry costs no model call). When Qdrant is unavailable
+ * search returns no matches, and hybrid search ranks by the full-text index alone.
  *
- * Production: replace generatePlaceholderVector() with a real embedding API call.
+ * Talks to Qdrant through the shared {@link QdrantTransport}; the blocking calls wait
+ * up to {@code qdrant.timeout}. Writes throw, so that the outbox relay can retry them.
+ * {@link QdrantCollectionManager} picks the collection and keeps it ready, so an
+ * operation is one Qdrant round trip.
  */
 @Singleton
-public class QdrantMemoryStore {
+@Requires(property = "app.memory.vector-store", value = "qdrant", defaultValue = "qdrant")
+public class QdrantMemoryStore implements MemoryVectorStore {
 
     private static final Logger log = LoggerFactory.getLogger(QdrantMemoryStore.class);
 
-    @Value("${qdrant.host:localhost}")
-    String qdrantHost;
+    @Inject QdrantTransport transport;
+    @Inject QdrantCollectionManager collections;
+    @Inject EmbeddingService embeddings;
 
-    @Value("${qdrant.port:6333}")
-    int qdrantPort;
+    @Value("${qdrant.timeout:5s}")
+    Duration timeout;
 
-    @Value("${qdrant.collection:knowledgeos-memory}")
-    String collection;
+    @Value("${qdrant.upsert.batch-size:256}")
+    int upsertBatchSize;
 
-    @Value("${qdrant.vector-size:1536}")
-    int vectorSize;
-
-    private HttpClient createClient() {
-        try {
-            return HttpClient.create(new URL(String.format("http://%s:%d", qdrantHost, qdrantPort)));
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("Invalid Qdrant URL", e);
-        }
-    }
+    @Value("${qdrant.upsert.concurrency:4}")
+    int upsertConcurrency;
 
     /**
-     * Upsert a memory entry as a vector point in Qdrant.
-     *
-     * @param qdrantId   stable UUID used as the Qdrant point ID
-     * @param projectId  for payload filter during search
-     * @param layer      canonical | feature | scratch — stored in payload
-     * @param text       content to embed (title + content concatenated)
-     * @param payload    additional metadata stored with the vector
+     * Bulk upsert: the entries' texts are embedded in one call, then sent in requests
+     * of {@code qdrant.upsert.batch-size} points, {@code qdrant.upsert.concurrency}
+     * of them in flight at once. Waits up to {@code qdrant.timeout} per request and
+     * throws if any fails.
      */
-    public void upsert(UUID qdrantId, UUID projectId, String layer, String text, Map<String, Object> payload) {
-        try {
-            ensureCollection();
-
-            Map<String, Object> fullPayload = new HashMap<>(payload);
-            fullPayload.put("projectId", projectId.toString());
-            fullPayload.put("layer", layer);
-
-            float[] vector = generatePlaceholderVector(text);
-
-            // Build Qdrant upsert payload
-            Map<String, Object> point = Map.of(
-                "id", qdrantId.toString(),
-                "vector", vectorToList(vector),
-                "payload", fullPayload
-            );
-            Map<String, Object> body = Map.of("points", List.of(point));
-
-            String url = String.format("http://%s:%d/collections/%s/points", qdrantHost, qdrantPort, collection);
-            createClient().toBlocking().exchange(
-                HttpRequest.PUT(URI.create(url), body).contentType(MediaType.APPLICATION_JSON_TYPE)
-            );
-            log.debug("Upserted point {} to Qdrant collection {}", qdrantId, collection);
+    @Override
+    public void upsertAll(UUID projectId, List<Entry> entries) {
+        if (entries.isEmpty()) return;
+        int requests = (entries.size() + upsertBatchSize - 1) / upsertBatchSize;
+        upsertAllAsync(projectId, entries).block(timeout.multipliedBy(requests));
+    }
 
-        } catch (Exception e) {
-            log.warn("Qdrant upsert failed for point {} — search will fall back to DB: {}", qdrantId, e.getMessage());
-        }
+    /** Non-blocking {@link #upsertAll}; errors are signalled, not logged. */
+    public Mono<Void> upsertAllAsync(UUID projectId, List<Entry> entries) {
+        return Mono.fromCallable(() -> embeddings.embedAll(entries.stream().map(Entry::text).toList()))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(vectors -> {
+                List<QdrantTransport.Point> points = new ArrayList<>(entries.size());
+                for (int i = 0; i < entries.size(); i++) {
+                    Entry e = entries.get(i);
+                    points.add(new QdrantTransport.Point(e.pointId(), vectors.get(i),
+                        fullPayload(projectId, e.layer(), e.payload())));
+                }
+                List<List<QdrantTransport.Point>> chunks = new ArrayList<>();
+                for (int from = 0; from < points.size(); from += upsertBatchSize) {
+                    chunks.add(points.subList(from, Math.min(points.size(), from + upsertBatchSize)));
+                }
+                return Flux.fromIterable(chunks);
+            })
+            .flatMap(chunk -> collections.withCollection(projectId, c -> transport.upsert(c, chunk)), upsertConcurrency)
+            .then()
+            .doOnSuccess(v -> log.debug("Upserted {} points to Qdrant", entries.size()));
     }
 
     /**
-     * Semantic search: returns Qdrant point IDs ordered by similarity to the query.
+     * Semantic search: Qdrant points and their scores, ordered by similarity to the query.
      *
      * @param projectId  filter results to this project
      * @param layer      if non-null, filter to this layer
      * @param query      search query text
      * @param limit      max results
-     * @return ordered list of Qdrant point UUIDs (most similar first)
+     * @return matches, most similar first
      */
-    public List<UUID> search(UUID projectId, String layer, String query, int limit) {
+    @Override
+    public List<Match> search(UUID projectId, String layer, String query, int limit) {
         try {
-            ensureCollection();
-
-            float[] queryVector = generatePlaceholderVector(query);
-
-            // Build filter
-            List<Map<String, Object>> mustConditions = new ArrayList<>();
-            mustConditions.add(Map.of("key", "projectId", "match", Map.of("value", projectId.toString())));
-            if (layer != null) {
-                mustConditions.add(Map.of("key", "layer", "match", Map.of("value", layer)));
-            }
-
-            Map<String, Object> body = Map.of(
-                "vector", vectorToList(queryVector),
-                "limit", limit,
-                "with_payload", false,
-                "filter", Map.of("must", mustConditions)
-            );
-
-            String url = String.format("http://%s:%d/collections/%s/points/search", qdrantHost, qdrantPort, collection);
-            Map<?, ?> response = createClient().toBlocking().retrieve(
-                HttpRequest.POST(URI.create(url), body).contentType(MediaType.APPLICATION_JSON_TYPE),
-                Map.class
-            );
-
-            List<?> results = (List<?>) response.get("result");
-            if (results == null) return List.of();
-
-            return results.stream()
-                .map(r -> {
-                    Map<?, ?> result = (Map<?, ?>) r;
-                    return UUID.fromString(result.get("id").toString());
-                })
-                .toList();
-
+            return searchAsync(projectId, layer, query, limit).block(timeout);
         } catch (Exception e) {
             log.warn("Qdrant search failed — returning empty results: {}", e.getMessage());
             return List.of();
         }
     }
 
-    /**
-     * Delete a point from Qdrant when a memory entry is deleted.
-     */
-    public void delete(UUID qdrantId) {
-        try {
-            String url = String.format("http://%s:%d/collections/%s/points/delete", qdrantHost, qdrantPort, collection);
-            Map<String, Object> body = Map.of("points", List.of(qdrantId.toString()));
-            createClient().toBlocking().exchange(
-                HttpRequest.POST(URI.create(url), body).contentType(MediaType.APPLICATION_JSON_TYPE)
-            );
-            log.debug("Deleted point {} from Qdrant", qdrantId);
-        } catch (Exception e) {
-            log.warn("Qdrant delete failed for point {}: {}", qdrantId, e.getMessage());
-        }
+    /** Non-blocking {@link #search}; errors are signalled, not logged. */
+    public Mono<List<Match>> searchAsync(UUID projectId, String layer, String query, int limit) {
+        Map<String, String> filter = new LinkedHashMap<>();
+        if (collections.filtersByProject()) filter.put("projectId", projectId.toString());
+        if (layer != null) filter.put("layer", layer);
+
+        return Mono.fromFuture(() -> embeddings.embedAsync(query))
+            .flatMap(vector -> collections.withCollection(projectId, c -> transport.search(c, vector, filter, limit)))
+            .map(matches -> matches.stream().map(m -> new Match(m.id(), m.score())).toList())
+            .defaultIfEmpty(List.of());
     }
 
-    // ── Private helpers ────────────────────────────────────────────────────
+    /** Delete points in one request; throws if it fails. */
+    @Override
+    public void deleteAll(UUID projectId, List<UUID> pointIds) {
+        if (pointIds.isEmpty()) return;
+        deleteAllAsync(projectId, pointIds).block(timeout);
+    }
 
-    private void ensureCollection() {
-        try {
-            String url = String.format("http://%s:%d/collections/%s", qdrantHost, qdrantPort, collection);
-            try {
-                createClient().toBlocking().exchange(HttpRequest.GET(url));
-            } catch (HttpClientException e) {
-                // Collection doesn't exist — create it
-                Map<String, Object> body = Map.of(
-                    "vectors", Map.of("size", vectorSize, "distance", "Cosine")
-                );
-                createClient().toBlocking().exchange(
-                    HttpRequest.PUT(URI.create(url), body).contentType(MediaType.APPLICATION_JSON_TYPE)
-                );
-                log.info("Created Qdrant collection: {}", collection);
-            }
-        } catch (Exception e) {
-            log.warn("Cannot reach Qdrant — operating without semantic search: {}", e.getMessage());
-        }
+    /** Non-blocking {@link #deleteAll}; errors are signalled, not logged. */
+    public Mono<Void> deleteAllAsync(UUID projectId, List<UUID> pointIds) {
+        if (pointIds.isEmpty()) return Mono.empty();
+        return collections.withCollection(projectId, c -> transport.delete(c, pointIds))
+            .doOnSuccess(v -> log.debug("Deleted {} points from Qdrant", pointIds.size()));
     }
 
-    /**
-     * Placeholder: returns a deterministic pseudo-vector based on text length.
-     * Replace with a real embedding API call (e.g. Claude / OpenAI embeddings) in production.
-     */
-    float[] generatePlaceholderVector(String text) {
-        float[] v = new float[vectorSize];
-        // Use text hashCode to distribute values (not real semantic embedding)
-        int hash = text != null ? text.hashCode() : 0;
-        for (int i = 0; i < vectorSize; i++) {
-            v[i] = (float) Math.sin(hash * (i + 1) * 0.001);
-        }
-        return v;
+    /** Scrolls the project's points; throws if Qdrant cannot be read. */
+    @Override
+    public Set<UUID> pointIds(UUID projectId) {
+        Map<String, String> filter = collections.filtersByProject()
+            ? Map.of("projectId", projectId.toString())
+            : Map.of();
+        List<UUID> ids = collections.withCollection(projectId, c -> transport.pointIds(c, filter))
+            .block(timeout.multipliedBy(10));
+        return ids != null ? new HashSet<>(ids) : Set.of();
     }
 
-    private List<Float> vectorToList(float[] v) {
-        List<Float> list = new ArrayList<>(v.length);
-        for (float f : v) list.add(f);
-        return list;
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private static Map<String, Object> fullPayload(UUID projectId, String layer, Map<String, Object> payload) {
+        Map<String, Object> full = new HashMap<>(payload);
+        full.put("projectId", projectId.toString());
+        full.put("layer", layer);
+        return full;
     }
 }
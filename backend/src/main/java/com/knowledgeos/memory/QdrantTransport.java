@@ -0,0 +1,54 @@
+package com.knowledgeos.memory;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Wire protocol to Qdrant, one shared long-lived client per application.
+ *
+ * Every call is non-blocking; {@link QdrantMemoryStore} adds the blocking
+ * convenience methods and the error handling. Point operations on a collection
+ * that does not exist fail with {@link CollectionNotFoundException}.
+ *
+ * Implementations ({@code qdrant.transport}):
+ *   http — REST on {@code qdrant.port} over a pooled keep-alive HTTP client (default)
+ *   grpc — the Qdrant gRPC API on {@code qdrant.grpc-port}
+ */
+public interface QdrantTransport {
+
+    /** A vector point to store. */
+    record Point(UUID id, float[] vector, Map<String, Object> payload) {}
+
+    /** A search hit: point id and similarity score. */
+    record Match(UUID id, float score) {}
+
+    /** Vector size of the collection; empty if it does not exist. */
+    Mono<Integer> vectorSize(String collection);
+
+    /** Create a collection of {@code vectorSize}-dim vectors compared by cosine similarity. */
+    Mono<Void> createCollection(String collection, int vectorSize);
+
+    /** Index a payload field for exact-match filtering; a no-op if it is already indexed. */
+    Mono<Void> createKeywordIndex(String collection, String field);
+
+    Mono<Void> upsert(String collection, List<Point> points);
+
+    /**
+     * Nearest points to {@code vector}, most similar first.
+     *
+     * @param filter payload fields a point must match exactly (keyword match)
+     */
+    Mono<List<Match>> search(String collection, float[] vector, Map<String, String> filter, int limit);
+
+    Mono<Void> delete(String collection, List<UUID> ids);
+
+    /**
+     * Ids of every point matching {@code filter}, paging through the collection.
+     *
+     * @param filter payload fields a point must match exactly (keyword match)
+     */
+    Mono<List<UUID>> pointIds(String collection, Map<String, String> filter);
+}
@@ -0,0 +1,31 @@
+package com.knowledgeos.memory;
+
+import java.util.*;
+
+/**
+ * Reciprocal rank fusion: merges rankings from retrievers whose scores are not
+ * comparable (cosine similarity, {@code ts_rank}) using ranks alone.
+ *
+ * An item scores {@code Σ 1 / (k + rank)} over the rankings it appears in, rank
+ * starting at 1. {@code k} (60 in the literature) damps the head of each ranking,
+ * so an item ranked well by both retrievers beats one ranked first by only one.
+ */
+public final class RankFusion {
+
+    private RankFusion() {}
+
+    /** Fused scores of every ranked item, best first; ties keep first-seen order. */
+    public static <T> LinkedHashMap<T, Double> fuse(int k, List<? extends List<T>> rankings) {
+        Map<T, Double> scores = new LinkedHashMap<>();
+        for (List<T> ranking : rankings) {
+            for (int i = 0; i < ranking.size(); i++) {
+                scores.merge(ranking.get(i), 1.0 / (k + i + 1), Double::sum);
+            }
+        }
+        List<Map.Entry<T, Double>> sorted = new ArrayList<>(scores.entrySet());
+        sorted.sort(Map.Entry.<T, Double>comparingByValue().reversed());
+        LinkedHashMap<T, Double> fused = new LinkedHashMap<>();
+        sorted.forEach(e -> fused.put(e.getKey(), e.getValue()));
+        return fused;
+    }
+}
@@ -0,0 +1,82 @@
+package com.knowledgeos.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-length float vectors in a memory-mapped file, addressed by slot.
+ *
+ * The file is mapped in chunks of {@link #SLOTS_PER_CHUNK} vectors as it grows,
+ * so vectors live off-heap in the page cache and a single mapping never has to
+ * exceed 2 GB. Slots are append-only. The file is scratch space — it is
+ * truncated on open and deleted on close.
+ *
+ * Not thread-safe for appends; concurrent reads of written slots are fine.
+ */
+final class VectorFile implements Closeable {
+
+    static final int SLOTS_PER_CHUNK = 16384;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int dimensions;
+    private final List<FloatBuffer> chunks = new ArrayList<>();
+    private int size;
+
+    VectorFile(Path path, int dimensions) throws IOException {
+        this.path = path;
+        this.dimensions = dimensions;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    /** Slots written. */
+    int size() {
+        return size;
+    }
+
+    /** Write {@code vector} to the next slot; returns the slot. */
+    int append(float[] vector) throws IOException {
+        int slot = size;
+        int chunk = slot / SLOTS_PER_CHUNK;
+        if (chunk == chunks.size()) {
+            long chunkBytes = (long) SLOTS_PER_CHUNK * dimensions * Float.BYTES;
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, chunk * chunkBytes, chunkBytes)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer());
+        }
+        chunks.get(chunk).put(offset(slot), vector, 0, dimensions);
+        size++;
+        return slot;
+    }
+
+    /** Copy slot {@code slot} into {@code into}. */
+    void read(int slot, float[] into) {
+        chunks.get(slot / SLOTS_PER_CHUNK).get(offset(slot), into, 0, dimensions);
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunks.clear();
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private int offset(int slot) {
+        return (slot % SLOTS_PER_CHUNK) * dimensions;
+    }
+}
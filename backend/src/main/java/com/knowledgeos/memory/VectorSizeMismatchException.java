@@ -0,0 +1,15 @@
+package com.knowledgeos.memory;
+
+/**
+ * An existing Qdrant collection holds vectors of another size than the embedding
+ * provider produces — typically after switching model. Qdrant would reject every
+ * upsert into it, so {@link QdrantCollectionManager} refuses the collection instead;
+ * point {@code qdrant.collection} at a new name (and re-index) to switch.
+ */
+public class VectorSizeMismatchException extends IllegalStateException {
+
+    public VectorSizeMismatchException(String collection, int actual, int expected) {
+        super("Qdrant collection " + collection + " holds " + actual + "-dim vectors but the embedding provider makes "
+            + expected + "-dim ones — set qdrant.collection to a new collection for this model");
+    }
+}
@@ -0,0 +1,47 @@
+package com.knowledgeos.patch;
+
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All hunks for one file in a unified diff.
+ *
+ * @param oldPath source path relative to the workspace, or null when the file is created ({@code --- /dev/null})
+ * @param newPath target path relative to the workspace, or null when the file is deleted ({@code +++ /dev/null})
+ */
+public record FilePatch(
+    @Nullable String oldPath,
+    @Nullable String newPath,
+    List<Hunk> hunks
+) {
+
+    public boolean isCreate() { return oldPath == null; }
+    public boolean isDelete() { return newPath == null; }
+
+    /** The path this patch is reported under. */
+    public String path() {
+        return newPath != null ? newPath : oldPath;
+    }
+
+    /** Patch that undoes this one when applied to the patched file. */
+    public FilePatch inverse() {
+        List<Hunk> inverted = new ArrayList<>(hunks.size());
+        for (Hunk h : hunks) inverted.add(h.inverse());
+        return new FilePatch(newPath, oldPath, inverted);
+    }
+
+    /** Render as unified diff text ({@code a/} and {@code b/} prefixes). */
+    public String toUnifiedDiff() {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb);
+        return sb.toString();
+    }
+
+    void appendTo(StringBuilder sb) {
+        sb.append("--- ").append(oldPath != null ? "a/" + oldPath : "/dev/null").append('\n');
+        sb.append("+++ ").append(newPath != null ? "b/" + newPath : "/dev/null").append('\n');
+        for (Hunk h : hunks) h.appendTo(sb);
+    }
+}
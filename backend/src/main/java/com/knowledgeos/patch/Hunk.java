@@ -0,0 +1,71 @@
+package com.knowledgeos.patch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One {@code @@ -oldStart,oldCount +newStart,newCount @@} block.
+ *
+ * Each line keeps its unified-diff prefix: ' ' context, '-' removed, '+' added.
+ * As in unified diff, a start of 0 with a count of 0 means "before line 1".
+ *
+ * @param oldNoEol the old side's last line had no trailing newline ({@code \ No newline at end of file})
+ * @param newNoEol the new side's last line has no trailing newline
+ */
+public record Hunk(
+    int oldStart,
+    int oldCount,
+    int newStart,
+    int newCount,
+    List<String> lines,
+    boolean oldNoEol,
+    boolean newNoEol
+) {
+
+    /**
+     * The same change in the opposite direction: added lines become removed and
+     * vice versa. Within each run of changes the removals are listed first, as
+     * diff tools do.
+     */
+    public Hunk inverse() {
+        List<String> flipped = new ArrayList<>(lines.size());
+        List<String> removals = new ArrayList<>();
+        List<String> additions = new ArrayList<>();
+        for (String line : lines) {
+            char kind = line.charAt(0);
+            if (kind == '+') {
+                removals.add('-' + line.substring(1));
+            } else if (kind == '-') {
+                additions.add('+' + line.substring(1));
+            } else {
+                flipped.addAll(removals);
+                flipped.addAll(additions);
+                removals.clear();
+                additions.clear();
+                flipped.add(line);
+            }
+        }
+        flipped.addAll(removals);
+        flipped.addAll(additions);
+        return new Hunk(newStart, newCount, oldStart, oldCount, flipped, newNoEol, oldNoEol);
+    }
+
+    void appendTo(StringBuilder sb) {
+        sb.append("@@ -").append(oldStart).append(',').append(oldCount)
+          .append(" +").append(newStart).append(',').append(newCount).append(" @@\n");
+        int lastOld = -1;
+        int lastNew = -1;
+        for (int i = 0; i < lines.size(); i++) {
+            char kind = lines.get(i).charAt(0);
+            if (kind != '+') lastOld = i;
+            if (kind != '-') lastNew = i;
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            sb.append(lines.get(i)).append('\n');
+            // The marker follows the final line of whichever side lacks the newline
+            if ((oldNoEol && i == lastOld) || (newNoEol && i == lastNew)) {
+                sb.append("\\ No newline at end of file\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.knowledgeos.patch;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming line reader that, unlike {@link java.io.BufferedReader#readLine()},
+ * remembers whether the last line had a terminator and which separator the file
+ * uses, so a patched file keeps its line endings and final-newline state.
+ */
+final class LineReader implements AutoCloseable {
+
+    private final Reader in;
+    private final char[] buf = new char[8192];
+    private int pos;
+    private int len;
+    private boolean eof;
+
+    private String separator;
+    private boolean lastTerminated = true;
+    private final StringBuilder line = new StringBuilder(128);
+
+    LineReader(Reader in) {
+        this.in = in;
+    }
+
+    /** Next line without its terminator, or null at end of input. */
+    String readLine() throws IOException {
+        line.setLength(0);
+        while (true) {
+            if (pos >= len) {
+                if (eof || !fill()) {
+                    if (line.isEmpty()) return null;
+                    lastTerminated = false;
+                    return line.toString();
+                }
+            }
+            char c = buf[pos++];
+            if (c == '\n') {
+                boolean crlf = !line.isEmpty() && line.charAt(line.length() - 1) == '\r';
+                if (crlf) line.setLength(line.length() - 1);
+                if (separator == null) separator = crlf ? "\r\n" : "\n";
+                lastTerminated = true;
+                return line.toString();
+            }
+            line.append(c);
+        }
+    }
+
+    /** Separator of the first terminated line; "\n" if none was seen. */
+    String separator() {
+        return separator != null ? separator : "\n";
+    }
+
+    /** After {@link #readLine()} returned null: did the input end with a newline? */
+    boolean endedWithNewline() {
+        return lastTerminated;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) {
+            eof = true;
+            return false;
+        }
+        pos = 0;
+        len = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,426 @@
+package com.knowledgeos.patch;
+
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applies parsed {@link FilePatch}es to a workspace directory.
+ *
+ * Each file is streamed: the original is read line by line and the result is
+ * written to a temp file next to it, holding only a bounded look-ahead window
+ * in memory. Hunks are placed by their {@code @@ -start} offsets:
+ *   1. try the header position, shifted by the drift of earlier hunks
+ *   2. search outward up to {@code search-window} lines for the hunk's context
+ *   3. retry with up to {@code max-fuzz} leading/trailing context lines ignored
+ * A hunk that still doesn't match fails its file.
+ *
+ * All files of one diff are staged first and only moved into place (atomic
+ * rename) if every file staged cleanly, so a failed hunk leaves the workspace
+ * untouched. Paths that resolve outside the workspace root are rejected.
+ */
+@Singleton
+public class PatchEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PatchEngine.class);
+
+    private final int maxFuzz;
+    private final int searchWindow;
+
+    public PatchEngine(@Value("${app.patch.max-fuzz:2}") int maxFuzz,
+                       @Value("${app.patch.search-window:1000}") int searchWindow) {
+        this.maxFuzz = maxFuzz;
+        this.searchWindow = searchWindow;
+    }
+
+    /**
+     * Apply every file patch under {@code root}, all-or-nothing.
+     * If any file FAILED, nothing is written and the others report ABORTED.
+     */
+    public List<PatchResult> apply(Path root, List<FilePatch> patches) {
+        Path base = root.toAbsolutePath().normalize();
+        List<Staged> staged = new ArrayList<>(patches.size());
+        boolean failed = false;
+        for (FilePatch fp : patches) {
+            Staged s = stage(base, fp);
+            staged.add(s);
+            failed |= s.result.isFailed();
+        }
+
+        List<PatchResult> results = new ArrayList<>(staged.size());
+        if (failed) {
+            for (Staged s : staged) {
+                s.discard();
+                PatchResult r = s.result;
+                results.add(s.temp != null || r.status() == PatchResult.Status.DELETED ? r.aborted() : r);
+            }
+            return results;
+        }
+        for (Staged s : staged) {
+            results.add(s.commit());
+        }
+        return results;
+    }
+
+    // ── Staging ─────────────────────────────────────────────────────────────
+
+    /** A file patched into a temp file (or a delete), not yet visible in the workspace. */
+    private static final class Staged {
+        final PatchResult result;
+        final Path source;
+        final Path target;
+        final Path temp;
+
+        Staged(PatchResult result, Path source, Path target, Path temp) {
+            this.result = result;
+            this.source = source;
+            this.target = target;
+            this.temp = temp;
+        }
+
+        static Staged of(PatchResult result) {
+            return new Staged(result, null, null, null);
+        }
+
+        void discard() {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // best-effort cleanup of our own temp file
+                }
+            }
+        }
+
+        PatchResult commit() {
+            try {
+                switch (result.status()) {
+                    case DELETED -> Files.deleteIfExists(source);
+                    case APPLIED, CREATED -> {
+                        if (target.getParent() != null) Files.createDirectories(target.getParent());
+                        moveIntoPlace(temp, target);
+                        if (source != null && !source.equals(target)) Files.deleteIfExists(source);
+                    }
+                    default -> { }
+                }
+                return result;
+            } catch (IOException e) {
+                discard();
+                log.warn("Patch commit failed for {}: {}", result.path(), e.getMessage());
+                return new PatchResult(result.path(), PatchResult.Status.FAILED, result.hunksApplied(),
+                    result.hunksTotal(), 0, 0, List.of(), "Write failed: " + e.getMessage());
+            }
+        }
+
+        private static void moveIntoPlace(Path from, Path to) throws IOException {
+            try {
+                Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private Staged stage(Path base, FilePatch fp) {
+        Path source = fp.oldPath() != null ? resolve(base, fp.oldPath()) : null;
+        Path target = fp.newPath() != null ? resolve(base, fp.newPath()) : null;
+        if ((fp.oldPath() != null && source == null) || (fp.newPath() != null && target == null)) {
+            return Staged.of(PatchResult.failed(fp, 0, "Path escapes the workspace: " + fp.path()));
+        }
+
+        if (fp.isCreate()) {
+            if (Files.exists(target)) {
+                return Staged.of(PatchResult.failed(fp, 0, "File already exists: " + fp.path()));
+            }
+        } else if (!Files.isRegularFile(source)) {
+            return Staged.of(PatchResult.skipped(fp, "File not found in workspace"));
+        }
+
+        Path dir = (target != null ? target : source).getParent();
+        Path temp = null;
+        try {
+            Files.createDirectories(dir);
+            temp = Files.createTempFile(dir, ".kos-patch-", ".tmp");
+            PatchResult result;
+            try (Reader in = source != null
+                     ? new InputStreamReader(Files.newInputStream(source),
+                         StandardCharsets.UTF_8.newDecoder())
+                     : Reader.nullReader();
+                 Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                result = patchStream(fp, new LineReader(in), out);
+            }
+            if (result.isFailed()) {
+                Files.deleteIfExists(temp);
+                return Staged.of(result);
+            }
+            if (fp.isDelete()) {
+                Files.deleteIfExists(temp);
+                temp = null;
+            }
+            return new Staged(result, source, target, temp);
+        } catch (CharacterCodingException e) {
+            deleteQuietly(temp);
+            return Staged.of(PatchResult.failed(fp, 0, "Not a UTF-8 text file: " + fp.path()));
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            return Staged.of(PatchResult.failed(fp, 0, "I/O error: " + e.getMessage()));
+        }
+    }
+
+    /** Resolve a diff path under the workspace root; null if it would escape it. */
+    private static Path resolve(Path base, String relPath) {
+        Path p = base.resolve(relPath).normalize();
+        return p.startsWith(base) && !p.equals(base) ? p : null;
+    }
+
+    private static void deleteQuietly(Path p) {
+        if (p == null) return;
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+            // temp file cleanup only
+        }
+    }
+
+    // ── Streaming apply ─────────────────────────────────────────────────────
+
+    /**
+     * Stream {@code in} through the hunks into {@code out}.
+     * Lines not covered by a hunk are copied without being retained.
+     */
+    PatchResult patchStream(FilePatch fp, LineReader in, Writer out) throws IOException {
+        List<Hunk> hunks = new ArrayList<>(fp.hunks());
+        hunks.sort(Comparator.comparingInt(Hunk::oldStart));
+
+        Window window = new Window(in);
+        LineWriter writer = new LineWriter(out, in);
+        List<Hunk> applied = new ArrayList<>(hunks.size());
+        int drift = 0;       // matched position - header position, carried to later hunks
+        int outDelta = 0;    // lines added minus removed so far (old → new coordinates)
+        int maxOffset = 0;
+        int maxFuzzUsed = 0;
+        Boolean finalNewline = null;
+
+        for (int h = 0; h < hunks.size(); h++) {
+            Hunk hunk = hunks.get(h);
+            Match match = locate(hunk, window, drift);
+            if (match == null) {
+                return PatchResult.failed(fp, h, "Hunk " + (h + 1) + " (@@ -" + hunk.oldStart() + ","
+                    + hunk.oldCount() + ") does not apply");
+            }
+
+            // Copy untouched lines up to the match, then emit the hunk's new side
+            window.copyTo(match.line, writer);
+            int added = 0;
+            int removed = 0;
+            int oldLines = 0;
+            for (int i = match.from; i < match.to; i++) {
+                String line = hunk.lines().get(i);
+                switch (line.charAt(0)) {
+                    case ' ' -> { writer.write(window.take()); oldLines++; }
+                    case '-' -> { window.take(); removed++; oldLines++; }
+                    default  -> { writer.write(line.substring(1)); added++; }
+                }
+            }
+
+            List<String> trimmed = hunk.lines().subList(match.from, match.to);
+            int newLines = oldLines - removed + added;
+            applied.add(new Hunk(
+                oldLines == 0 ? match.line - 1 : match.line, oldLines,
+                newLines == 0 ? match.line + outDelta - 1 : match.line + outDelta, newLines,
+                List.copyOf(trimmed), hunk.oldNoEol(), hunk.newNoEol()));
+
+            // Leading lines ignored by fuzz are context, so the untrimmed hunk starts match.from earlier
+            int headerLine = hunk.oldCount() == 0 ? hunk.oldStart() + 1 : hunk.oldStart();
+            drift = match.line - match.from - headerLine;
+            outDelta += added - removed;
+            maxOffset = Math.max(maxOffset, Math.abs(drift));
+            maxFuzzUsed = Math.max(maxFuzzUsed, match.fuzz);
+
+            if (window.atEof()) {
+                if (hunk.newNoEol()) finalNewline = false;
+                else if (hunk.oldNoEol()) finalNewline = true;
+            }
+        }
+
+        if (fp.isDelete() && !window.atEof()) {
+            return PatchResult.failed(fp, hunks.size(), "File has content beyond the deleted lines");
+        }
+        window.copyRest(writer);
+        writer.finish(finalNewline != null ? finalNewline : in.endedWithNewline());
+
+        PatchResult.Status status = fp.isCreate() ? PatchResult.Status.CREATED
+            : fp.isDelete() ? PatchResult.Status.DELETED
+            : PatchResult.Status.APPLIED;
+        return new PatchResult(fp.path(), status, hunks.size(), hunks.size(), maxOffset, maxFuzzUsed,
+            List.copyOf(applied), null);
+    }
+
+    /** Where a hunk matched: first old-side line in the file, hunk line range used, fuzz needed. */
+    private record Match(int line, int from, int to, int fuzz) {}
+
+    private Match locate(Hunk hunk, Window window, int drift) throws IOException {
+        List<String> lines = hunk.lines();
+        int leadingContext = 0;
+        while (leadingContext < lines.size() && lines.get(leadingContext).charAt(0) == ' ') leadingContext++;
+        int trailingContext = 0;
+        while (trailingContext < lines.size() - leadingContext
+               && lines.get(lines.size() - 1 - trailingContext).charAt(0) == ' ') trailingContext++;
+
+        int headerLine = hunk.oldCount() == 0 ? hunk.oldStart() + 1 : hunk.oldStart();
+        for (int fuzz = 0; fuzz <= maxFuzz; fuzz++) {
+            int from = Math.min(fuzz, leadingContext);
+            int to = lines.size() - Math.min(fuzz, trailingContext);
+            if (fuzz > 0 && from == 0 && to == lines.size()) break;   // nothing left to ignore
+
+            String[] old = oldSide(lines, from, to);
+            int expected = headerLine + drift + from;
+            Integer at = search(window, old, expected);
+            if (at != null) return new Match(at, from, to, fuzz);
+        }
+        return null;
+    }
+
+    /** Closest position to {@code expected} (within the search window) where {@code old} matches. */
+    private Integer search(Window window, String[] old, int expected) throws IOException {
+        int lo = Math.max(window.next(), expected - searchWindow);
+        int hi = expected + searchWindow;
+        window.fillTo(Math.max(expected, lo) + searchWindow + old.length);
+
+        for (int d = 0; d <= searchWindow; d++) {
+            int below = expected + d;
+            if (below >= lo && below <= hi && window.matches(below, old)) return below;
+            int above = expected - d;
+            if (d > 0 && above >= lo && window.matches(above, old)) return above;
+            if (below > window.last() + 1 && above < lo) break;
+        }
+        return null;
+    }
+
+    private static String[] oldSide(List<String> lines, int from, int to) {
+        List<String> old = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            String line = lines.get(i);
+            if (line.charAt(0) != '+') old.add(line.substring(1));
+        }
+        return old.toArray(String[]::new);
+    }
+
+    // ── Buffers ─────────────────────────────────────────────────────────────
+
+    /**
+     * Look-ahead over the source file. Holds lines from the next unconsumed line
+     * ({@link #next()}, 1-based) up to whatever a hunk search has asked for.
+     */
+    private static final class Window {
+        private final LineReader in;
+        private final ArrayList<String> lines = new ArrayList<>();
+        private int head;          // index in {@code lines} of line number {@code next}
+        private int next = 1;
+        private boolean exhausted;
+
+        Window(LineReader in) {
+            this.in = in;
+        }
+
+        int next() { return next; }
+
+        /** Last line number currently buffered. */
+        int last() { return next + (lines.size() - head) - 1; }
+
+        void fillTo(int lineNo) throws IOException {
+            while (!exhausted && last() < lineNo) {
+                String line = in.readLine();
+                if (line == null) exhausted = true;
+                else lines.add(line);
+            }
+        }
+
+        boolean atEof() throws IOException {
+            fillTo(next);
+            return exhausted && last() < next;
+        }
+
+        boolean matches(int at, String[] old) throws IOException {
+            if (at < next) return false;
+            fillTo(at + old.length - 1);
+            if (at + old.length - 1 > last()) return false;
+            if (old.length == 0) return at <= last() + 1;
+            int idx = head + (at - next);
+            for (int i = 0; i < old.length; i++) {
+                if (!lines.get(idx + i).equals(old[i])) return false;
+            }
+            return true;
+        }
+
+        String take() throws IOException {
+            fillTo(next);
+            String line = lines.get(head);
+            lines.set(head, null);
+            head++;
+            next++;
+            compact();
+            return line;
+        }
+
+        void copyTo(int lineNo, LineWriter out) throws IOException {
+            while (next < lineNo) out.write(take());
+        }
+
+        void copyRest(LineWriter out) throws IOException {
+            while (head < lines.size()) out.write(take());
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(line);
+                next++;
+            }
+            exhausted = true;
+        }
+
+        private void compact() {
+            if (head > 4096 && head * 2 > lines.size()) {
+                lines.subList(0, head).clear();
+                head = 0;
+            }
+        }
+    }
+
+    /**
+     * Writes lines one behind so the final line's terminator can follow the
+     * original file, using the source's line separator.
+     */
+    private static final class LineWriter {
+        private final Writer out;
+        private final LineReader source;
+        private String pending;
+
+        LineWriter(Writer out, LineReader source) {
+            this.out = out;
+            this.source = source;
+        }
+
+        void write(String line) throws IOException {
+            if (pending != null) {
+                out.write(pending);
+                out.write(source.separator());
+            }
+            pending = line;
+        }
+
+        void finish(boolean finalNewline) throws IOException {
+            if (pending != null) {
+                out.write(pending);
+                if (finalNewline) out.write(source.separator());
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.knowledgeos.patch;
+
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Outcome of applying one {@link FilePatch}.
+ *
+ * @param hunksApplied  hunks that matched (equals {@code hunksTotal} unless FAILED)
+ * @param maxOffset     largest distance in lines between a hunk's header position and where it matched
+ * @param maxFuzz       most context lines ignored to make any hunk match
+ * @param appliedHunks  the hunks as actually applied — real positions, fuzz-trimmed context —
+ *                      so that {@code new FilePatch(...).inverse()} reverts the file exactly
+ * @param message       why the file was skipped or failed
+ */
+public record PatchResult(
+    String path,
+    Status status,
+    int hunksApplied,
+    int hunksTotal,
+    int maxOffset,
+    int maxFuzz,
+    List<Hunk> appliedHunks,
+    @Nullable String message
+) {
+
+    public enum Status {
+        /** Existing file modified (or renamed). */
+        APPLIED,
+        CREATED,
+        DELETED,
+        /** Target file missing from the workspace — nothing to patch. */
+        SKIPPED,
+        /** A hunk did not match, the path is unsafe, or I/O failed. Nothing was written. */
+        FAILED,
+        /** This file patched cleanly but another file in the same diff FAILED, so nothing was written. */
+        ABORTED
+    }
+
+    public boolean isFailed() {
+        return status == Status.FAILED;
+    }
+
+    static PatchResult skipped(FilePatch fp, String message) {
+        return new PatchResult(fp.path(), Status.SKIPPED, 0, fp.hunks().size(), 0, 0, List.of(), message);
+    }
+
+    static PatchResult failed(FilePatch fp, int hunksApplied, String message) {
+        return new PatchResult(fp.path(), Status.FAILED, hunksApplied, fp.hunks().size(), 0, 0, List.of(), message);
+    }
+
+    PatchResult aborted() {
+        return new PatchResult(path, Status.ABORTED, hunksApplied, hunksTotal, maxOffset, maxFuzz,
+            appliedHunks, "Not written: another file in the diff failed");
+    }
+}
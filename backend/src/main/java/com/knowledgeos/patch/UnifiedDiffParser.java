@@ -0,0 +1,208 @@
+package com.knowledgeos.patch;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses unified diff text (plain {@code diff -u} or {@code git diff}) into
+ * {@link FilePatch}es, once, before anything touches the workspace.
+ *
+ * Lenient in the ways agent-produced diffs tend to be sloppy:
+ *   - hunk counts are recomputed from the lines actually present
+ *   - an empty line inside a hunk is an empty context line
+ *   - lines after {@code +++} with no {@code @@} header form one hunk at the top of the file
+ *   - a {@code +++} without a preceding {@code ---} patches the same path
+ * Paths lose their {@code a/} / {@code b/} prefix and any trailing timestamp.
+ */
+public final class UnifiedDiffParser {
+
+    private static final Pattern HUNK_HEADER =
+        Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*");
+    private static final String DEV_NULL = "/dev/null";
+
+    private UnifiedDiffParser() {}
+
+    public static List<FilePatch> parse(String diff) {
+        if (diff == null || diff.isBlank()) return new ArrayList<>();
+        try {
+            return parse(new StringReader(diff));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Parse diff text as it is read, without holding the whole text in memory. */
+    public static List<FilePatch> parse(Reader diff) throws IOException {
+        List<FilePatch> files = new ArrayList<>();
+
+        String pendingOld = null;
+        boolean sawOld = false;
+        FileBuilder file = null;
+        HunkBuilder hunk = null;
+
+        LineReader lines = new LineReader(diff);
+        String raw;
+        while ((raw = lines.readLine()) != null) {
+            String line = raw.endsWith("\r") ? raw.substring(0, raw.length() - 1) : raw;
+            boolean inHunk = hunk != null && !hunk.isComplete();
+
+            if (line.startsWith("diff ")) {
+                hunk = closeHunk(file, hunk);
+                file = closeFile(files, file);
+                sawOld = false;
+            } else if (line.startsWith("--- ") && !(inHunk && hunk.oldRemaining > 0)) {
+                hunk = closeHunk(file, hunk);
+                file = closeFile(files, file);
+                pendingOld = parsePath(line.substring(4));
+                sawOld = true;
+            } else if (line.startsWith("+++ ") && !(inHunk && hunk.newRemaining > 0)) {
+                hunk = closeHunk(file, hunk);
+                file = closeFile(files, file);
+                String newPath = parsePath(line.substring(4));
+                file = new FileBuilder(sawOld ? pendingOld : newPath, newPath);
+                sawOld = false;
+            } else if (line.startsWith("@@")) {
+                hunk = closeHunk(file, hunk);
+                Matcher m = HUNK_HEADER.matcher(line);
+                if (file != null && m.matches()) {
+                    hunk = new HunkBuilder(
+                        Integer.parseInt(m.group(1)), count(m.group(2)),
+                        Integer.parseInt(m.group(3)), count(m.group(4)));
+                }
+            } else if (line.startsWith("\\")) {
+                // "\ No newline at end of file" — applies to the preceding line
+                if (hunk != null) hunk.markNoEol();
+            } else if (file != null) {
+                if (line.isEmpty()) {
+                    // Blank context line whose leading space was stripped by an editor
+                    if (inHunk) hunk.add(" ");
+                } else if ("+- ".indexOf(line.charAt(0)) >= 0) {
+                    // Lines past the header's counts still belong to the hunk (counts are recomputed)
+                    if (hunk == null) hunk = HunkBuilder.implicit();
+                    hunk.add(line);
+                }
+                // Anything else (git "index ..." lines, prose) is ignored
+            }
+        }
+        closeHunk(file, hunk);
+        closeFile(files, file);
+        return files;
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private static int count(String group) {
+        return group != null ? Integer.parseInt(group) : 1;
+    }
+
+    /** Strip a/ b/ prefixes and "\t<timestamp>" suffixes; /dev/null becomes null. */
+    private static String parsePath(String spec) {
+        String path = spec;
+        int tab = path.indexOf('\t');
+        if (tab >= 0) path = path.substring(0, tab);
+        path = path.trim();
+        if (path.startsWith("\"") && path.endsWith("\"") && path.length() > 1) {
+            path = path.substring(1, path.length() - 1);
+        }
+        if (DEV_NULL.equals(path)) return null;
+        if (path.startsWith("a/") || path.startsWith("b/")) path = path.substring(2);
+        return path;
+    }
+
+    private static HunkBuilder closeHunk(FileBuilder file, HunkBuilder hunk) {
+        if (file != null && hunk != null && !hunk.lines.isEmpty()) {
+            file.hunks.add(hunk.build());
+        }
+        return null;
+    }
+
+    private static FileBuilder closeFile(List<FilePatch> files, FileBuilder file) {
+        if (file != null && (file.oldPath != null || file.newPath != null)) {
+            files.add(new FilePatch(file.oldPath, file.newPath, List.copyOf(file.hunks)));
+        }
+        return null;
+    }
+
+    private static final class FileBuilder {
+        final String oldPath;
+        final String newPath;
+        final List<Hunk> hunks = new ArrayList<>();
+
+        FileBuilder(String oldPath, String newPath) {
+            this.oldPath = oldPath;
+            this.newPath = newPath;
+        }
+    }
+
+    private static final class HunkBuilder {
+        final int oldStart;
+        final int newStart;
+        final int declaredOld;
+        final int declaredNew;
+        final boolean implicit;
+        int oldRemaining;
+        int newRemaining;
+        final List<String> lines = new ArrayList<>();
+        boolean oldNoEol;
+        boolean newNoEol;
+
+        HunkBuilder(int oldStart, int oldCount, int newStart, int newCount) {
+            this(oldStart, oldCount, newStart, newCount, false);
+        }
+
+        private HunkBuilder(int oldStart, int oldCount, int newStart, int newCount, boolean implicit) {
+            this.oldStart = oldStart;
+            this.newStart = newStart;
+            this.declaredOld = oldCount;
+            this.declaredNew = newCount;
+            this.oldRemaining = oldCount;
+            this.newRemaining = newCount;
+            this.implicit = implicit;
+        }
+
+        /** Headerless hunk: anchored at the top of the file, runs until the next header. */
+        static HunkBuilder implicit() {
+            return new HunkBuilder(1, Integer.MAX_VALUE, 1, Integer.MAX_VALUE, true);
+        }
+
+        boolean isComplete() {
+            return !implicit && oldRemaining <= 0 && newRemaining <= 0;
+        }
+
+        void add(String line) {
+            char kind = line.charAt(0);
+            if (kind != '+' && kind != '-' && kind != ' ') return;
+            lines.add(line);
+            if (kind != '+') oldRemaining--;
+            if (kind != '-') newRemaining--;
+        }
+
+        void markNoEol() {
+            if (lines.isEmpty()) return;
+            char kind = lines.get(lines.size() - 1).charAt(0);
+            if (kind != '+') oldNoEol = true;
+            if (kind != '-') newNoEol = true;
+        }
+
+        Hunk build() {
+            int oldCount = 0;
+            int newCount = 0;
+            for (String line : lines) {
+                char kind = line.charAt(0);
+                if (kind != '+') oldCount++;
+                if (kind != '-') newCount++;
+            }
+            // Unified diff convention: an empty side starts at the line *before* the change.
+            // Headers that claimed lines the hunk doesn't have are converted to it.
+            int os = oldCount == 0 && declaredOld != 0 ? Math.max(0, oldStart - 1) : oldStart;
+            int ns = newCount == 0 && declaredNew != 0 ? Math.max(0, newStart - 1) : newStart;
+            return new Hunk(os, oldCount, ns, newCount, List.copyOf(lines), oldNoEol, newNoEol);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.knowledgeos.repository;
+
+import com.knowledgeos.domain.ChangeSetBlob;
+import io.micronaut.data.annotation.Query;
+import io.micronaut.data.annotation.Repository;
+import io.micronaut.data.repository.CrudRepository;
+
+@Repository
+public interface ChangeSetBlobRepository extends CrudRepository<ChangeSetBlob, String> {
+
+    /** Insert unless a blob with this hash exists; concurrent writers of the same content don't conflict. */
+    @Query(value = "INSERT INTO changeset_blobs (hash, encoding, raw_size, data) " +
+                   "VALUES (:hash, :encoding, :rawSize, :data) ON CONFLICT (hash) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(String hash, String encoding, int rawSize, byte[] data);
+}
@@ -1,14 +1,44 @@
 package com.knowledgeos.repository;
 
 import com.knowledgeos.domain.ChangeSet;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.annotation.Repository;
 import io.micronaut.data.jpa.repository.JpaRepository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ChangeSetRepository extends JpaRepository<ChangeSet, UUID> {
 
     List<ChangeSet> findByProjectId(UUID projectId);
+
+    /** The changeset, row-locked until the caller's transaction ends. */
+    @Query(value = "SELECT * FROM changesets WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<ChangeSet> findByIdForUpdate(UUID id);
+
+    /**
+     * Take a validating changeset for validation, unless another replica holds a
+     * claim refreshed since {@code staleBefore}. Returns 1 if this caller now holds it.
+     */
+    @Query(value = "UPDATE changesets SET validation_claimed_at = :now " +
+                   "WHERE id = :id AND status = 'validating' " +
+                   "AND (validation_claimed_at IS NULL OR validation_claimed_at < :staleBefore)",
+           nativeQuery = true)
+    int claimValidation(UUID id, OffsetDateTime now, OffsetDateTime staleBefore);
+
+    /** Refresh this replica's claims on changesets it is still validating. */
+    @Query(value = "UPDATE changesets SET validation_claimed_at = :now " +
+                   "WHERE id IN (:ids) AND status = 'validating'",
+           nativeQuery = true)
+    int refreshValidationClaims(Collection<UUID> ids, OffsetDateTime now);
+
+    /** Validating changesets nobody has claimed, or touched, since {@code staleBefore}. */
+    @Query(value = "SELECT id FROM changesets WHERE status = 'validating' " +
+                   "AND COALESCE(validation_claimed_at, updated_at, created_at) < :staleBefore",
+           nativeQuery = true)
+    List<UUID> findStaleValidating(OffsetDateTime staleBefore);
 }
@@ -0,0 +1,25 @@
+package com.knowledgeos.repository;
+
+import com.knowledgeos.domain.MemoryOutboxEntry;
+import io.micronaut.data.annotation.Query;
+import io.micronaut.data.annotation.Repository;
+import io.micronaut.data.repository.CrudRepository;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Repository
+public interface MemoryOutboxRepository extends CrudRepository<MemoryOutboxEntry, Long> {
+
+    /** Record a change to a point, in the caller's transaction. */
+    @Query(value = "INSERT INTO memory_outbox (project_id, point_id, op) VALUES (:projectId, :pointId, :op)",
+           nativeQuery = true)
+    int enqueue(UUID projectId, UUID pointId, String op);
+
+    /** Record deletes for the points of entries expiring before {@code now} — ahead of deleting the entries. */
+    @Query(value = "INSERT INTO memory_outbox (project_id, point_id, op) " +
+                   "SELECT project_id, qdrant_id, 'delete' FROM memory_entries " +
+                   "WHERE expires_at < :now AND qdrant_id IS NOT NULL",
+           nativeQuery = true)
+    int enqueueExpiredDeletes(OffsetDateTime now);
+}
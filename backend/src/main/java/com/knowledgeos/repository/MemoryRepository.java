@@ -24,4 +24,6 @@ public interface MemoryRepository extends JpaRepository<MemoryEntry, UUID> {
     int deleteExpiredBefore(OffsetDateTime now);
 
     List<MemoryEntry> findByQdrantIdIn(List<UUID> qdrantIds);
+
+    List<MemoryEntry> findByIdIn(List<UUID> ids);
 }
@@ -3,11 +3,11 @@ package com.knowledgeos.repository;
 import com.knowledgeos.domain.TimelineEvent;
 import io.micronaut.data.annotation.Query;
 import io.micronaut.data.annotation.Repository;
-import io.micronaut.data.model.Page;
 import io.micronaut.data.model.Pageable;
 import io.micronaut.data.repository.CrudRepository;
 import jakarta.annotation.Nullable;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,13 +15,26 @@ import java.util.UUID;
 @Repository
 public interface TimelineEventRepository extends CrudRepository<TimelineEvent, UUID> {
 
-    /** All events for a project, newest first, with optional type filter. */
-    @Query("FROM TimelineEvent e WHERE e.project.id = :projectId AND (:type IS NULL OR e.type = :type) ORDER BY e.createdAt DESC")
+    /**
+     * Offset listing, newest first, with optional type filter.
+     * Only used to serve legacy offset cursors — new pages go through the seek queries below.
+     */
+    @Query("FROM TimelineEvent e WHERE e.project.id = :projectId AND (:type IS NULL OR e.type = :type) ORDER BY e.createdAt DESC, e.id DESC")
     List<TimelineEvent> findByProject(UUID projectId, @Nullable String type, Pageable pageable);
 
-    /** Count events matching the same criteria (for hasMore calculation). */
-    @Query("SELECT COUNT(e) FROM TimelineEvent e WHERE e.project.id = :projectId AND (:type IS NULL OR e.type = :type)")
-    long countByProject(UUID projectId, @Nullable String type);
+    /** Keyset page: up to {@code limit} events strictly older than ({@code createdAt}, {@code id}). */
+    @Query(value = "SELECT * FROM timeline_events WHERE project_id = :projectId " +
+                   "AND (created_at, id) < (:createdAt, :id) " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<TimelineEvent> findPageBefore(UUID projectId, OffsetDateTime createdAt, UUID id, int limit);
+
+    /** Same as {@link #findPageBefore} restricted to one event type (uses idx_timeline_project_type). */
+    @Query(value = "SELECT * FROM timeline_events WHERE project_id = :projectId AND type = :type " +
+                   "AND (created_at, id) < (:createdAt, :id) " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<TimelineEvent> findPageBeforeOfType(UUID projectId, String type, OffsetDateTime createdAt, UUID id, int limit);
 
     Optional<TimelineEvent> findByIdAndProjectId(UUID id, UUID projectId);
 }
@@ -0,0 +1,77 @@
+package com.knowledgeos.service;
+
+import com.knowledgeos.domain.ChangeSetBlob;
+import com.knowledgeos.repository.ChangeSetBlobRepository;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Deflate-compressed, SHA-256-addressed text blobs in {@code changeset_blobs}.
+ * Writing the same content twice stores it once; blobs are never updated.
+ */
+@Singleton
+public class ChangeSetBlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeSetBlobStore.class);
+    private static final String ENCODING = "deflate";
+
+    @Inject ChangeSetBlobRepository blobRepository;
+
+    /** Store {@code content} (if not already present) and return its hash. */
+    public String put(String content) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(raw);
+        byte[] compressed = deflate(raw);
+        int inserted = blobRepository.insertIfAbsent(hash, ENCODING, raw.length, compressed);
+        log.debug("Blob {}: {} → {} bytes{}", hash, raw.length, compressed.length,
+            inserted == 0 ? " (already stored)" : "");
+        return hash;
+    }
+
+    /** Decompressing reader over the blob's content, or empty if no blob has this hash. */
+    public Optional<Reader> open(String hash) {
+        return blobRepository.findById(hash).map(blob -> {
+            if (!ENCODING.equals(blob.getEncoding())) {
+                throw new IllegalStateException("Unsupported blob encoding: " + blob.getEncoding());
+            }
+            return new InputStreamReader(
+                new InflaterInputStream(new ByteArrayInputStream(blob.getData())), StandardCharsets.UTF_8);
+        });
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    private static String sha256(byte[] raw) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(raw));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
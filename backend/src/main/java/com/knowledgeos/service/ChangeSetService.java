@@ -2,14 +2,18 @@ package com.knowledgeos.service;
 
 import com.knowledgeos.domain.Agent;
 import com.knowledgeos.domain.ChangeSet;
-import com.knowledgeos.domain.FileLock;
 import com.knowledgeos.domain.Project;
 import com.knowledgeos.dto.ChangeSetResponse;
 import com.knowledgeos.dto.CreateChangeSetRequest;
 import com.knowledgeos.dto.ValidatorResultResponse;
+import com.knowledgeos.infra.JsonCodec;
+import com.knowledgeos.lock.LockStore;
+import com.knowledgeos.patch.FilePatch;
+import com.knowledgeos.patch.PatchEngine;
+import com.knowledgeos.patch.PatchResult;
+import com.knowledgeos.patch.UnifiedDiffParser;
 import com.knowledgeos.repository.AgentRepository;
 import com.knowledgeos.repository.ChangeSetRepository;
-import com.knowledgeos.repository.FileLockRepository;
 import com.knowledgeos.repository.ProjectRepository;
 import com.knowledgeos.service.validator.ValidatorFactory;
 import io.micronaut.context.annotation.Value;
@@ -22,19 +26,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Manages the changeset lifecycle:
  *
  *   submit → [policy=always] → auto_applied
+ *         → [policy=on_tests_pass] → validating → auto_applied | human_review | agent_review
  *         → [policy=never]   → human_review
  *         → [lock conflict]  → 409 Conflict
  *   approve (human_review → approved)
@@ -42,9 +51,16 @@ import java.util.stream.Collectors;
  *   apply   (approved → applied)
  *   rollback (applied → rolled_back)
  *
- * CRITICAL: submit() checks for conflicting write locks using a query within
- * @Transactional. This serialises the conflict check and changeset creation,
- * preventing two agents from concurrently submitting changesets on the same file.
+ * CRITICAL: submit() rejects a changeset touching any file under a write lock,
+ * checked with one {@link LockStore#writeLocked} call before anything is persisted.
+ * The check is a point-in-time read of the lock store, not serialised with lock
+ * acquisition or with other submits: a write lock taken just after the check does
+ * not block this changeset, and two agents holding no locks can both submit on the
+ * same file. Agents are expected to hold the write lock on a file while they change it.
+ *
+ * Validation never runs inside submit's transaction: on_tests_pass changesets are
+ * handed to {@link ChangeSetValidationPipeline}, which reports back through
+ * {@link #completeValidation}.
  */
 @Singleton
 public class ChangeSetService {
@@ -52,11 +68,15 @@ public class ChangeSetService {
     private static final Logger log = LoggerFactory.getLogger(ChangeSetService.class);
 
     @Inject ChangeSetRepository changeSetRepository;
-    @Inject FileLockRepository fileLockRepository;
+    @Inject LockStore lockStore;
     @Inject ProjectRepository projectRepository;
     @Inject AgentRepository agentRepository;
     @Inject ValidatorFactory validatorFactory;
     @Inject TimelineService timelineService;
+    @Inject JsonCodec jsonCodec;
+    @Inject PatchEngine patchEngine;
+    @Inject ChangeSetBlobStore blobStore;
+    @Inject ChangeSetValidationPipeline validationPipeline;
 
     @Value("${kubernetes.workspace-base-path:/workspaces}")
     String workspaceBasePath;
@@ -67,15 +87,11 @@ public class ChangeSetService {
             .orElseThrow(() -> new HttpStatusException(HttpStatus.NOT_FOUND, "Project not found"));
 
         // CRITICAL: check for conflicting write locks before persisting.
-        // Within @Transactional, Hibernate serialises this read + subsequent write.
-        List<FileLock> conflicting = fileLockRepository
-            .findActiveWriteLocksForFiles(projectId, req.filesChanged());
+        // One lock store round trip for all files, no Postgres query.
+        List<String> conflicting = lockStore.writeLocked(projectId, req.filesChanged());
         if (!conflicting.isEmpty()) {
-            String lockedFiles = conflicting.stream()
-                .map(FileLock::getFilePath)
-                .collect(Collectors.joining(", "));
             throw new HttpStatusException(HttpStatus.CONFLICT,
-                "Write lock(s) held on: " + lockedFiles);
+                "Write lock(s) held on: " + String.join(", ", conflicting));
         }
 
         Agent agent = null;
@@ -87,12 +103,12 @@ public class ChangeSetService {
         cs.setProject(project);
         cs.setAgent(agent);
         cs.setIntent(req.intent());
-        cs.setFilesChanged(toJsonArray(req.filesChanged()));
+        cs.setFilesChanged(jsonCodec.writeStringList(req.filesChanged()));
         cs.setDiff(req.diff());
         cs.setAutoApplyPolicy(req.autoApplyPolicy() != null ? req.autoApplyPolicy() : "never");
 
         if (req.testsRun() != null) {
-            cs.setTestsRun(toJsonArray(req.testsRun()));
+            cs.setTestsRun(jsonCodec.writeStringList(req.testsRun()));
         }
 
         String policy = cs.getAutoApplyPolicy();
@@ -107,18 +123,9 @@ public class ChangeSetService {
                 cs = changeSetRepository.update(cs);
             }
             case "on_tests_pass" -> {
-                String workspacePath = workspaceBasePath + "/" + project.getNamespace();
-                ValidatorResultResponse validatorResult = runValidator(cs, agent, workspacePath);
-                cs.setValidatorResults(validatorResult);
-                if (validatorResult.passed() && !validatorResult.requiresHumanReview()) {
-                    applyDiff(cs, project);
-                    cs.setStatus("auto_applied");
-                } else if (validatorResult.passed() && validatorResult.requiresHumanReview()) {
-                    cs.setStatus("human_review");
-                } else {
-                    cs.setStatus("agent_review");
-                }
+                cs.setStatus("validating");
                 cs = changeSetRepository.update(cs);
+                validationPipeline.enqueue(cs.getId());
             }
             default -> {  // "never"
                 cs.setStatus("human_review");
@@ -207,7 +214,9 @@ public class ChangeSetService {
                 "Only applied changesets can be rolled back: " + cs.getStatus());
         }
 
-        if (cs.getReverseDiff() != null && !cs.getReverseDiff().isBlank()) {
+        if (cs.getReverseDiffHash() != null) {
+            applyReverseDiff(cs);
+        } else if (cs.getReverseDiff() != null && !cs.getReverseDiff().isBlank()) {
             applyRawDiff(cs.getReverseDiff(), cs.getProject());
         } else {
             log.warn("No reverse diff stored for changeset {} — rollback is a no-op", csId);
@@ -222,15 +231,106 @@ public class ChangeSetService {
         return toResponse(cs);
     }
 
+    /**
+     * Claim a changeset still awaiting validation for this replica, with project
+     * and agent loaded so the validator can use them after this transaction ends.
+     * Empty if it has moved on or another replica's claim is fresher than {@code claimTimeout}.
+     */
+    @Transactional
+    public Optional<ChangeSet> claimForValidation(UUID csId, Duration claimTimeout) {
+        OffsetDateTime now = OffsetDateTime.now();
+        if (changeSetRepository.claimValidation(csId, now, now.minus(claimTimeout)) == 0) {
+            return Optional.empty();
+        }
+        return changeSetRepository.findById(csId)
+            .map(cs -> {
+                cs.getProject().getNamespace();
+                if (cs.getAgent() != null) cs.getAgent().getAgentType();
+                return cs;
+            });
+    }
+
+    /** Keep this replica's validation claims fresh while the runs last. */
+    @Transactional
+    public void refreshValidationClaims(Collection<UUID> csIds) {
+        changeSetRepository.refreshValidationClaims(csIds, OffsetDateTime.now());
+    }
+
+    /** Validating changesets whose claim (or submit) is older than {@code claimTimeout}. */
+    @Transactional
+    public List<UUID> staleValidations(Duration claimTimeout) {
+        return changeSetRepository.findStaleValidating(OffsetDateTime.now().minus(claimTimeout));
+    }
+
+    /**
+     * Record a background validation result and move the changeset on, as submit
+     * used to do inline: auto-apply on a clean pass, otherwise route to review.
+     * The row stays locked until commit, so a result is applied at most once even
+     * if two replicas validated the same changeset.
+     */
+    @Transactional
+    public void completeValidation(UUID projectId, UUID csId, ValidatorResultResponse result) {
+        ChangeSet cs = changeSetRepository.findByIdForUpdate(csId).orElse(null);
+        if (cs == null || !"validating".equals(cs.getStatus())) {
+            log.debug("Validation result for changeset {} discarded — no longer validating", csId);
+            return;
+        }
+        if (result.passed() && !result.requiresHumanReview()) {
+            try {
+                applyDiff(cs, cs.getProject());
+                cs.setStatus("auto_applied");
+            } catch (HttpStatusException e) {
+                // Workspace moved on while tests ran; nothing was written
+                log.info("Validated changeset {} no longer applies: {}", csId, e.getMessage());
+                cs.setStatus("agent_review");
+            } catch (RuntimeException e) {
+                log.warn("Applying validated changeset {} failed: {}", csId, e.getMessage());
+                result = withFailure(result, "Apply failed: " + e.getMessage());
+                cs.setStatus("agent_review");
+            }
+        } else if (result.passed()) {
+            cs.setStatus("human_review");
+        } else {
+            cs.setStatus("agent_review");
+        }
+        storeValidatorResults(cs, result);
+        cs.setUpdatedAt(OffsetDateTime.now());
+        cs = changeSetRepository.update(cs);
+
+        timelineService.log(projectId, cs.getAgent() != null ? cs.getAgent().getId() : null,
+            "changeset_validated",
+            Map.of("changesetId", csId.toString(), "status", cs.getStatus(),
+                   "passed", result.passed(), "durationMs", result.durationMs()));
+        log.info("ChangeSet validated: id={} passed={} status={}", csId, result.passed(), cs.getStatus());
+    }
+
+    /**
+     * A background validation broke down before it produced a result: route the
+     * changeset to agent review with the error recorded, rather than leave it validating.
+     */
+    @Transactional
+    public void failValidation(UUID projectId, UUID csId, String error) {
+        ChangeSet cs = changeSetRepository.findByIdForUpdate(csId).orElse(null);
+        if (cs == null || !"validating".equals(cs.getStatus())) return;
+        storeValidatorResults(cs, new ValidatorResultResponse(false, List.of("Validation error: " + error), 0, false));
+        cs.setStatus("agent_review");
+        cs.setUpdatedAt(OffsetDateTime.now());
+        cs = changeSetRepository.update(cs);
+
+        timelineService.log(projectId, cs.getAgent() != null ? cs.getAgent().getId() : null,
+            "changeset_validated",
+            Map.of("changesetId", csId.toString(), "status", cs.getStatus(), "passed", false, "durationMs", 0));
+        log.warn("ChangeSet validation failed: id={} error={}", csId, error);
+    }
+
     /**
      * Manually trigger validation for a changeset (callable from the API).
      */
     @Transactional
     public ValidatorResultResponse validate(UUID projectId, UUID csId) {
         ChangeSet cs = getEntity(projectId, csId);
-        String workspacePath = workspaceBasePath + "/" + cs.getProject().getNamespace();
-        ValidatorResultResponse result = runValidator(cs, cs.getAgent(), workspacePath);
-        cs.setValidatorResults(result);
+        ValidatorResultResponse result = runValidator(cs, cs.getAgent(), workspacePath(cs.getProject()));
+        storeValidatorResults(cs, result);
         changeSetRepository.update(cs);
         return result;
     }
@@ -244,7 +344,11 @@ public class ChangeSetService {
                 "ChangeSet not found: " + csId));
     }
 
-    private ValidatorResultResponse runValidator(ChangeSet cs, Agent agent, String workspacePath) {
+    String workspacePath(Project project) {
+        return workspaceBasePath + "/" + project.getNamespace();
+    }
+
+    ValidatorResultResponse runValidator(ChangeSet cs, Agent agent, String workspacePath) {
         try {
             return validatorFactory.forProject(cs.getProject()).run(cs, agent, workspacePath);
         } catch (Exception e) {
@@ -255,48 +359,70 @@ public class ChangeSetService {
     }
 
     /**
-     * Apply unified diff to workspace files.
-     * Stores original content as reverseDiff for rollback.
-     * Gracefully skips files that don't exist in the workspace.
+     * Apply the changeset's unified diff to the workspace via {@link PatchEngine}.
+     * Stores the inverse of what was applied (at the positions it landed) as a
+     * compressed blob for rollback.
+     * Files missing from the workspace are skipped; if any hunk does not apply,
+     * nothing is written and the request fails with 422.
      */
     private void applyDiff(ChangeSet cs, Project project) {
         String diff = cs.getDiff();
         if (diff == null || diff.isBlank()) return;
 
-        String workspacePath = workspaceBasePath + "/" + project.getNamespace();
-        List<String> reverseParts = new ArrayList<>();
-
-        // Parse each "--- a/..." / "+++ b/..." block
-        String[] lines = diff.split("\n");
-        String targetFile = null;
-        List<String> hunkLines = new ArrayList<>();
-
-        for (String line : lines) {
-            if (line.startsWith("+++ b/") || line.startsWith("+++ ")) {
-                // Flush previous hunk
-                if (targetFile != null && !hunkLines.isEmpty()) {
-                    String reverse = applyHunksToFile(workspacePath, targetFile, hunkLines);
-                    if (reverse != null) reverseParts.add(reverse);
-                    hunkLines.clear();
-                }
-                targetFile = line.replaceFirst("^\\+\\+\\+ (b/)?", "");
-            } else if (line.startsWith("--- ")) {
-                // Skip — just a marker
-            } else {
-                hunkLines.add(line);
+        Path workspace = Path.of(workspaceBasePath, project.getNamespace());
+        List<FilePatch> patches = UnifiedDiffParser.parse(diff);
+        List<PatchResult> results = patchEngine.apply(workspace, patches);
+        List<String> failures = results.stream()
+            .filter(PatchResult::isFailed)
+            .map(r -> r.path() + ": " + r.message())
+            .toList();
+        if (!failures.isEmpty()) {
+            throw new HttpStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Diff does not apply — " + String.join("; ", failures));
+        }
+
+        // Results are in patch order; invert only what was actually written
+        StringBuilder reverse = new StringBuilder();
+        for (int i = 0; i < results.size(); i++) {
+            PatchResult r = results.get(i);
+            FilePatch fp = patches.get(i);
+            log.debug("Patched {} ({}): hunks={} maxOffset={} maxFuzz={}",
+                r.path(), r.status(), r.hunksApplied(), r.maxOffset(), r.maxFuzz());
+            switch (r.status()) {
+                case APPLIED, CREATED, DELETED -> reverse.append(
+                    new FilePatch(fp.oldPath(), fp.newPath(), r.appliedHunks()).inverse().toUnifiedDiff());
+                default -> { }
             }
         }
-        // Flush last file
-        if (targetFile != null && !hunkLines.isEmpty()) {
-            String reverse = applyHunksToFile(workspacePath, targetFile, hunkLines);
-            if (reverse != null) reverseParts.add(reverse);
+        cs.setReverseDiff(null);
+        cs.setReverseDiffHash(reverse.isEmpty() ? null : blobStore.put(reverse.toString()));
+    }
+
+    /** Roll back by applying the stored inverse patch, streamed out of the blob store. */
+    private void applyReverseDiff(ChangeSet cs) {
+        List<FilePatch> patches;
+        try (Reader reader = blobStore.open(cs.getReverseDiffHash())
+                 .orElseThrow(() -> new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                     "Reverse diff missing for changeset " + cs.getId()))) {
+            patches = UnifiedDiffParser.parse(reader);
+        } catch (IOException e) {
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Reverse diff unreadable for changeset " + cs.getId() + ": " + e.getMessage());
         }
 
-        cs.setReverseDiff(String.join("\n---FILE_BOUNDARY---\n", reverseParts));
+        Path workspace = Path.of(workspaceBasePath, cs.getProject().getNamespace());
+        List<String> failures = patchEngine.apply(workspace, patches).stream()
+            .filter(PatchResult::isFailed)
+            .map(r -> r.path() + ": " + r.message())
+            .toList();
+        if (!failures.isEmpty()) {
+            throw new HttpStatusException(HttpStatus.CONFLICT,
+                "Workspace changed since apply; rollback does not apply — " + String.join("; ", failures));
+        }
     }
 
     private void applyRawDiff(String reverseDiff, Project project) {
-        // Reverse diff stores original content per file, separated by ---FILE_BOUNDARY---
+        // Legacy format: original content per file, separated by ---FILE_BOUNDARY---
         if (reverseDiff == null || reverseDiff.isBlank()) return;
         String[] parts = reverseDiff.split("\n---FILE_BOUNDARY---\n");
         for (String part : parts) {
@@ -319,63 +445,39 @@ public class ChangeSetService {
         }
     }
 
-    /**
-     * Apply diff hunks to a single file.
-     *
-     * @return a reverse-diff snippet ("FILE:<path>\n<originalContent>") or null if file missing
-     */
-    private String applyHunksToFile(String workspaceBase, String relPath, List<String> hunkLines) {
-        Path filePath = Path.of(workspaceBase, relPath);
-        String originalContent = "";
-
-        if (Files.exists(filePath)) {
-            try {
-                originalContent = Files.readString(filePath);
-            } catch (IOException e) {
-                log.warn("Cannot read file for diff application: {}", filePath);
-                return null;
-            }
-        } else {
-            log.debug("File not found in workspace, skipping diff: {}", filePath);
-            return null;
-        }
-
-        // Apply hunks line-by-line
-        String[] fileLines = originalContent.split("\n", -1);
-        List<String> result = new ArrayList<>(List.of(fileLines));
-        int offset = 0;
+    private static ValidatorResultResponse withFailure(ValidatorResultResponse result, String failure) {
+        List<String> failures = new ArrayList<>(result.failures() != null ? result.failures() : List.of());
+        failures.add(failure);
+        return new ValidatorResultResponse(false, failures, result.durationMs(), result.requiresHumanReview(),
+            result.warmDaemon());
+    }
 
-        for (String line : hunkLines) {
-            if (line.startsWith("@@")) {
-                // Parse @@ -start,count +start,count @@ header
-                try {
-                    String[] parts = line.split(" ");
-                    String minus = parts[1]; // -start[,count]
-                    int start = Integer.parseInt(minus.substring(1).split(",")[0]) - 1 + offset;
-                    offset = 0; // reset for this hunk
-                    // We'll use a simple approach: track position
-                } catch (Exception e) {
-                    // Ignore malformed hunk header
-                }
-            } else if (line.startsWith("-")) {
-                // Remove line
-                if (!result.isEmpty()) result.remove(0);
-            } else if (line.startsWith("+")) {
-                // Add line
-                result.add(0, line.substring(1));
-                offset++;
-            }
-            // Context lines (no prefix) — skip
-        }
+    private void storeValidatorResults(ChangeSet cs, ValidatorResultResponse result) {
+        cs.setValidatorResults(result);
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("passed", result.passed());
+        json.put("failures", result.failures());
+        json.put("durationMs", result.durationMs());
+        json.put("requiresHumanReview", result.requiresHumanReview());
+        json.put("warmDaemon", result.warmDaemon());
+        cs.setValidatorResultsJson(jsonCodec.writeMap(json));
+    }
 
-        try {
-            String newContent = String.join("\n", result);
-            Files.writeString(filePath, newContent);
-        } catch (IOException e) {
-            log.warn("Cannot write diff result to {}: {}", filePath, e.getMessage());
+    private ValidatorResultResponse validatorResults(ChangeSet cs) {
+        if (cs.getValidatorResults() != null || cs.getValidatorResultsJson() == null) {
+            return cs.getValidatorResults();
         }
-
-        return "FILE:" + relPath + "\n" + originalContent;
+        Map<String, Object> json = jsonCodec.readMap(cs.getValidatorResultsJson());
+        if (json.isEmpty()) return null;
+        List<String> failures = json.get("failures") instanceof List<?> list
+            ? list.stream().map(String::valueOf).toList()
+            : List.of();
+        return new ValidatorResultResponse(
+            Boolean.TRUE.equals(json.get("passed")),
+            failures,
+            json.get("durationMs") instanceof Number n ? n.longValue() : 0L,
+            Boolean.TRUE.equals(json.get("requiresHumanReview")),
+            json.get("warmDaemon") instanceof Boolean warm ? warm : null);
     }
 
     private ChangeSetResponse toResponse(ChangeSet cs) {
@@ -383,36 +485,11 @@ public class ChangeSetService {
             cs.getId(),
             cs.getAgent() != null ? cs.getAgent().getId() : null,
             cs.getIntent(),
-            fromJsonArray(cs.getFilesChanged()),
+            jsonCodec.readStringList(cs.getFilesChanged()),
             cs.getDiff(),
             cs.getStatus(),
-            cs.getValidatorResults(),
+            validatorResults(cs),
             cs.getCreatedAt()
         );
     }
-
-    private String toJsonArray(List<String> list) {
-        if (list == null || list.isEmpty()) return "[]";
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < list.size(); i++) {
-            sb.append("\"").append(list.get(i).replace("\"", "\\\"")).append("\"");
-            if (i < list.size() - 1) sb.append(",");
-        }
-        return sb.append("]").toString();
-    }
-
-    private List<String> fromJsonArray(String json) {
-        if (json == null || json.isBlank() || "[]".equals(json.trim())) return List.of();
-        try {
-            String inner = json.trim().replaceFirst("^\\[", "").replaceFirst("]$", "").trim();
-            if (inner.isEmpty()) return List.of();
-            List<String> result = new ArrayList<>();
-            for (String part : inner.split(",(?=\")")) {
-                result.add(part.trim().replaceAll("^\"|\"$", ""));
-            }
-            return result;
-        } catch (Exception e) {
-            return List.of();
-        }
-    }
 }
@@ -0,0 +1,236 @@
+package com.knowledgeos.service;
+
+import com.knowledgeos.domain.ChangeSet;
+import com.knowledgeos.dto.ValidatorResultResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.exceptions.HttpStatusException;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.annotation.Scheduled;
+import io.micronaut.transaction.TransactionOperations;
+import io.micronaut.transaction.support.TransactionSynchronization;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs changeset validation off the request path.
+ *
+ * {@code submit} of an {@code on_tests_pass} changeset commits it as
+ * {@code validating} and calls {@link #enqueue}; once that transaction commits,
+ * validation runs on a virtual thread. The test run holds no transaction and no
+ * DB connection — the changeset is loaded in one short transaction and the result
+ * written in another ({@link ChangeSetService#completeValidation}), which logs a
+ * {@code changeset_validated} timeline event that reaches WebSocket clients.
+ *
+ * Limits ({@code app.validation.*}):
+ *   max-concurrent — validations running at once across all projects
+ *   per-project    — validations running at once for one project
+ *   queue-capacity — validations accepted but not finished; past this, submit fails with 503
+ *
+ * Replicas share one table, so a changeset is claimed before it is validated
+ * ({@code validation_claimed_at}); the claim is refreshed every
+ * {@code app.validation.heartbeat-interval} while the run lasts. On startup and on
+ * every heartbeat, changesets whose claim is older than {@code app.validation.claim-timeout}
+ * — their replica died or restarted — are re-queued; live replicas' runs are left alone.
+ * A run that fails outright routes the changeset to {@code agent_review} with the error.
+ *
+ * Metrics: kos.validation.pending, kos.validation.duration
+ */
+@Singleton
+public class ChangeSetValidationPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeSetValidationPipeline.class);
+
+    @Inject Provider<ChangeSetService> changeSetService;
+    @Inject TransactionOperations<Session> transactionOperations;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.validation.max-concurrent:8}")
+    int maxConcurrent;
+
+    @Value("${app.validation.per-project:2}")
+    int perProject;
+
+    @Value("${app.validation.queue-capacity:200}")
+    int queueCapacity;
+
+    @Value("${app.validation.claim-timeout:2m}")
+    Duration claimTimeout;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("changeset-validation-", 0).factory());
+    private final Map<UUID, Semaphore> projectPermits = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    /** Changesets this replica has claimed and not yet finished. */
+    private final Set<UUID> claimed = ConcurrentHashMap.newKeySet();
+    private Semaphore globalPermits;
+    private Timer duration;
+
+    @PostConstruct
+    void init() {
+        globalPermits = new Semaphore(maxConcurrent, true);
+        meterRegistry.gauge("kos.validation.pending", pending);
+        duration = meterRegistry.timer("kos.validation.duration");
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue validation of a changeset the caller's transaction is persisting.
+     * Starts after that transaction commits; nothing runs if it rolls back.
+     *
+     * @throws HttpStatusException 503 when queue-capacity validations are already outstanding
+     */
+    public void enqueue(UUID csId) {
+        if (pending.incrementAndGet() > queueCapacity) {
+            pending.decrementAndGet();
+            throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Validation queue is full (" + queueCapacity + " changesets) — retry later");
+        }
+        var tx = transactionOperations.findTransactionStatus();
+        if (tx.isPresent()) {
+            tx.get().registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(Status status) {
+                    if (status == Status.COMMITTED) {
+                        start(csId);
+                    } else {
+                        pending.decrementAndGet();
+                    }
+                }
+            });
+        } else {
+            start(csId);
+        }
+    }
+
+    /** Validations accepted but not yet finished. */
+    public int pending() {
+        return pending.get();
+    }
+
+    /** Block until every accepted validation has finished (tests). */
+    public void awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        requeueStale();
+    }
+
+    @Scheduled(fixedDelay = "${app.validation.heartbeat-interval:30s}")
+    void heartbeat() {
+        try {
+            if (!claimed.isEmpty()) changeSetService.get().refreshValidationClaims(List.copyOf(claimed));
+            requeueStale();
+        } catch (RuntimeException e) {
+            log.warn("Validation heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private void start(UUID csId) {
+        try {
+            executor.execute(() -> {
+                try {
+                    validate(csId);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.decrementAndGet();
+            log.warn("Could not start validation for changeset {}: {}", csId, e.getMessage());
+        }
+    }
+
+    /** Start changesets left validating by a replica that stopped refreshing its claim. */
+    private void requeueStale() {
+        List<UUID> stranded = changeSetService.get().staleValidations(claimTimeout).stream()
+            .filter(id -> !claimed.contains(id))
+            .toList();
+        if (stranded.isEmpty()) return;
+        log.info("Re-queueing {} changesets whose validation claim went stale", stranded.size());
+        for (UUID csId : stranded) {
+            pending.incrementAndGet();
+            start(csId);
+        }
+    }
+
+    private void validate(UUID csId) {
+        ChangeSetService service = changeSetService.get();
+        if (!claimed.add(csId)) return;   // already running here
+        try {
+            ChangeSet cs = service.claimForValidation(csId, claimTimeout).orElse(null);
+            if (cs == null) {
+                log.debug("Changeset {} is no longer validating or is claimed elsewhere — skipped", csId);
+                return;
+            }
+            validate(service, cs);
+        } finally {
+            claimed.remove(csId);
+        }
+    }
+
+    private void validate(ChangeSetService service, ChangeSet cs) {
+        UUID csId = cs.getId();
+        UUID projectId = cs.getProject().getId();
+        Semaphore project = projectPermits.computeIfAbsent(projectId, id -> new Semaphore(perProject, true));
+        try {
+            ValidatorResultResponse result;
+            project.acquire();
+            try {
+                globalPermits.acquire();
+                try {
+                    long start = System.nanoTime();
+                    result = service.runValidator(cs, cs.getAgent(), service.workspacePath(cs.getProject()));
+                    duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                } finally {
+                    globalPermits.release();
+                }
+            } finally {
+                project.release();
+            }
+            service.completeValidation(projectId, csId, result);
+        } catch (InterruptedException e) {
+            // Shutting down: leave it validating; its claim goes stale and another replica re-queues it
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Validation of changeset {} failed: {}", csId, e.getMessage());
+            try {
+                service.failValidation(projectId, csId, e.getMessage());
+            } catch (RuntimeException again) {
+                log.warn("Recording validation failure for changeset {} failed: {}", csId, again.getMessage());
+            }
+        }
+    }
+}
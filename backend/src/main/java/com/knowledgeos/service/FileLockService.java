@@ -1,143 +1,287 @@
 package com.knowledgeos.service;
 
-import com.knowledgeos.domain.Agent;
-import com.knowledgeos.domain.FileLock;
-import com.knowledgeos.domain.Project;
 import com.knowledgeos.dto.AcquireLockRequest;
+import com.knowledgeos.dto.BatchAcquireLockRequest;
+import com.knowledgeos.dto.BatchLockResponse;
 import com.knowledgeos.dto.FileLockResponse;
-import com.knowledgeos.repository.AgentRepository;
-import com.knowledgeos.repository.FileLockRepository;
+import com.knowledgeos.dto.LockTarget;
+import com.knowledgeos.lock.HeldLock;
+import com.knowledgeos.lock.LockJournal;
+import com.knowledgeos.lock.LockPath;
+import com.knowledgeos.lock.LockStore;
+import com.knowledgeos.lock.LockWaitQueue;
 import com.knowledgeos.repository.ProjectRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.exceptions.HttpStatusException;
-import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Manages workspace file locks.
  *
  * Write locks are exclusive (one writer per file per project).
- * Read locks are shared (multiple readers allowed).
+ * Read locks are shared (multiple readers allowed); a file with readers
+ * cannot be write-locked until they release or expire.
+ * A path ending in {@code /} or {@code /**}, or containing a glob, locks a whole
+ * directory subtree ({@link LockPath}); it conflicts with locks inside it and
+ * with subtree locks around it.
  *
- * Redis is used as a fast lookup cache (lock:{projectId}:{filePath}).
- * PostgreSQL is the source of truth for expiry and reclaim.
+ * Grants, releases and reclaims go through the {@link LockStore} (Redis in
+ * production) and never wait on Postgres; {@link LockJournal} writes them
+ * through to {@code file_locks}, the durable record that
+ * {@code LockReconciler} rebuilds the store from after a Redis restart.
+ *
+ * A request with {@code waitSeconds} queues behind the current holder instead of
+ * failing with 409 ({@link LockWaitQueue}); releases and expiries wake the head
+ * of each queue. {@link LockExpiryService} expires each lock at its deadline.
+ *
+ * Metrics: kos.locks.acquire
  */
 @Singleton
 public class FileLockService {
 
     private static final Logger log = LoggerFactory.getLogger(FileLockService.class);
 
-    @Inject FileLockRepository fileLockRepository;
+    /** How long a project id stays known without another existence check. */
+    private static final long PROJECT_CACHE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    @Inject LockStore lockStore;
+    @Inject LockJournal lockJournal;
+    @Inject LockWaitQueue waitQueue;
+    @Inject LockExpiryService lockExpiry;
     @Inject ProjectRepository projectRepository;
-    @Inject AgentRepository agentRepository;
     @Inject TimelineService timelineService;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.locks.lease.duration:5m}")
+    Duration lease;
+
+    private final Map<UUID, Long> knownProjects = new ConcurrentHashMap<>();
+    private Timer acquireTimer;
+
+    @PostConstruct
+    void init() {
+        acquireTimer = Timer.builder("kos.locks.acquire")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
 
-    @Transactional
     public FileLockResponse acquire(UUID projectId, AcquireLockRequest req) {
-        Project project = projectRepository.findById(projectId)
-            .orElseThrow(() -> new HttpStatusException(HttpStatus.NOT_FOUND, "Project not found"));
+        long start = System.nanoTime();
+        HeldLock lock = request(projectId, req);
+        if (waitQueue.hasWaiters(projectId, lock.path()) || !lockStore.tryAcquire(lock)) {
+            throw new HttpStatusException(HttpStatus.CONFLICT,
+                (lock.isWrite() ? "Lock already held on or within: " : "Write lock already held on or within: ")
+                    + lock.path());
+        }
+        acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return granted(lock, "lock_acquired", Map.of());
+    }
 
-        String lockType = req.lockType() != null ? req.lockType() : "write";
-        int duration = req.durationSeconds() > 0 ? req.durationSeconds() : 300;
+    /**
+     * Acquire, waiting up to {@code waitSeconds} in the path's FIFO queue if the lock
+     * is held. Without {@code waitSeconds} this is {@link #acquire}. The future fails
+     * with 409 if the wait runs out.
+     *
+     * A lock granted after waiting is announced as a {@code lock_granted} timeline
+     * event, which also reaches the project's events WebSocket — so a client that
+     * gave up on the HTTP response still learns its lock id.
+     */
+    public CompletableFuture<FileLockResponse> acquireAsync(UUID projectId, AcquireLockRequest req) {
+        int waitSeconds = req.waitSeconds() != null ? req.waitSeconds() : 0;
+        if (waitSeconds <= 0) return CompletableFuture.completedFuture(acquire(projectId, req));
+
+        long start = System.nanoTime();
+        HeldLock request = request(projectId, req);
+        Duration lease = Duration.between(request.createdAt(), request.expiresAt());
+        CompletableFuture<HeldLock> grant = waitQueue.acquire(request, lease, Duration.ofSeconds(waitSeconds));
+        boolean immediate = grant.isDone();
 
-        // For write locks, check for existing write lock on this file (unique constraint in DB)
-        if ("write".equals(lockType)) {
-            List<FileLock> existing = fileLockRepository
-                .findActiveWriteLocksForFiles(projectId, List.of(req.filePath()));
-            if (!existing.isEmpty()) {
-                throw new HttpStatusException(HttpStatus.CONFLICT,
-                    "Write lock already held on: " + req.filePath());
+        CompletableFuture<FileLockResponse> result = new CompletableFuture<>();
+        grant.whenComplete((lock, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                result.completeExceptionally(new HttpStatusException(HttpStatus.CONFLICT,
+                    "Timed out after " + waitSeconds + "s waiting for lock on: " + request.path()));
+                return;
             }
-        }
+            if (cause != null) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            try {
+                if (immediate) {
+                    acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    result.complete(granted(lock, "lock_acquired", Map.of()));
+                } else {
+                    long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    result.complete(granted(lock, "lock_granted", Map.of("waitedMs", waitedMs)));
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
 
-        Agent agent = null;
-        if (req.agentId() != null) {
-            agent = agentRepository.findById(req.agentId()).orElse(null);
+    /**
+     * Acquire every requested lock or none. Paths are normalized and sorted, then
+     * granted in one atomic lock store call and journalled as one multi-row insert.
+     * On conflict nothing is held and the response lists the conflicting paths.
+     */
+    public BatchLockResponse acquireAll(UUID projectId, BatchAcquireLockRequest req) {
+        long start = System.nanoTime();
+        requireProject(projectId);
+
+        int duration = req.durationSeconds() > 0 ? req.durationSeconds() : 300;
+        TreeMap<String, String> targets = new TreeMap<>();
+        for (LockTarget t : req.locks()) {
+            String path = lockPath(t.filePath()).path();
+            if (targets.put(path, lockType(t.lockType())) != null) {
+                throw new HttpStatusException(HttpStatus.BAD_REQUEST, "Path listed twice: " + path);
+            }
         }
 
-        FileLock lock = new FileLock();
-        lock.setProject(project);
-        lock.setFilePath(req.filePath());
-        lock.setLockType(lockType);
-        lock.setLockedBy(agent);
-        lock.setExpiresAt(OffsetDateTime.now().plusSeconds(duration));
+        OffsetDateTime now = OffsetDateTime.now();
+        List<HeldLock> locks = new ArrayList<>(targets.size());
+        targets.forEach((path, type) -> locks.add(new HeldLock(UUID.randomUUID(), projectId, path, type,
+            req.agentId(), now.plusSeconds(duration), now)));
 
-        lock = fileLockRepository.save(lock);
-        log.info("Lock acquired: id={} file={} type={} expires={}", lock.getId(), req.filePath(), lockType, lock.getExpiresAt());
+        List<String> conflicts = lockStore.tryAcquireAll(locks);
+        if (!conflicts.isEmpty()) {
+            return new BatchLockResponse(List.of(), conflicts);
+        }
+        lockJournal.inserted(locks);
+        locks.forEach(lockExpiry::schedule);
+        acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Locks acquired: {} paths for agent {}", locks.size(), req.agentId());
 
-        timelineService.log(projectId, req.agentId(), "lock_acquired",
-            Map.of("lockId", lock.getId().toString(), "filePath", req.filePath(), "lockType", lockType));
+        timelineService.log(projectId, req.agentId(), "locks_acquired", Map.of(
+            "count", locks.size(),
+            "lockIds", locks.stream().map(l -> l.id().toString()).toList(),
+            "filePaths", List.copyOf(targets.keySet()),
+            "lockTypes", List.copyOf(targets.values())));
 
-        return toResponse(lock);
+        return new BatchLockResponse(locks.stream().map(this::toResponse).toList(), List.of());
     }
 
     public List<FileLockResponse> listForProject(UUID projectId) {
-        return fileLockRepository.findActiveByProjectId(projectId)
+        return lockStore.list(projectId)
             .stream()
             .map(this::toResponse)
             .toList();
     }
 
-    @Transactional
     public void release(UUID projectId, UUID lockId) {
-        FileLock lock = fileLockRepository.findById(lockId)
-            .filter(l -> l.getProject().getId().equals(projectId))
+        HeldLock lock = lockStore.release(projectId, lockId)
             .orElseThrow(() -> new HttpStatusException(HttpStatus.NOT_FOUND, "Lock not found: " + lockId));
 
-        fileLockRepository.delete(lock);
-        log.info("Lock released: id={} file={}", lockId, lock.getFilePath());
+        lockJournal.deleted(lock);
+        lockExpiry.cancel(projectId, lockId);
+        waitQueue.released(projectId);
+        log.info("Lock released: id={} file={}", lockId, lock.path());
         timelineService.log(projectId, null, "lock_released",
-            Map.of("lockId", lockId.toString(), "filePath", lock.getFilePath()), "user");
+            Map.of("lockId", lockId.toString(), "filePath", lock.path()), "user");
     }
 
-    @Transactional
     public FileLockResponse reclaim(UUID projectId, UUID lockId) {
-        FileLock lock = fileLockRepository.findById(lockId)
-            .filter(l -> l.getProject().getId().equals(projectId))
+        // Extend expiry by one lease; agents holding many locks heartbeat instead (LockLeaseService)
+        HeldLock lock = lockStore.extend(projectId, lockId, OffsetDateTime.now().plus(lease))
             .orElseThrow(() -> new HttpStatusException(HttpStatus.NOT_FOUND, "Lock not found: " + lockId));
 
-        // Extend expiry by 5 minutes
-        lock.setExpiresAt(OffsetDateTime.now().plusMinutes(5));
-        lock = fileLockRepository.update(lock);
-        log.info("Lock reclaimed: id={} new expires={}", lockId, lock.getExpiresAt());
+        lockJournal.extended(lock);
+        lockExpiry.schedule(lock);
+        log.info("Lock reclaimed: id={} new expires={}", lockId, lock.expiresAt());
 
         return toResponse(lock);
     }
 
-    /**
-     * Scheduled expiry cleaner — runs every 60 seconds.
-     * Removes expired locks from the database.
-     */
-    @Scheduled(fixedDelay = "60s")
-    @Transactional
-    void cleanExpiredLocks() {
+    /** The lock {@code req} asks for, validated and normalized; not yet granted. */
+    private HeldLock request(UUID projectId, AcquireLockRequest req) {
+        requireProject(projectId);
+        String lockType = lockType(req.lockType());
+        int duration = req.durationSeconds() > 0 ? req.durationSeconds() : 300;
+        String path = lockPath(req.filePath()).path();
+
+        OffsetDateTime now = OffsetDateTime.now();
+        return new HeldLock(UUID.randomUUID(), projectId, path, lockType,
+            req.agentId(), now.plusSeconds(duration), now);
+    }
+
+    /** Journal and announce a lock the store has just granted. */
+    private FileLockResponse granted(HeldLock lock, String event, Map<String, Object> extra) {
+        lockJournal.inserted(lock);
+        lockExpiry.schedule(lock);
+        log.info("Lock acquired: id={} file={} type={} expires={}", lock.id(), lock.path(), lock.type(), lock.expiresAt());
+
+        Map<String, Object> payload = new HashMap<>(extra);
+        payload.put("lockId", lock.id().toString());
+        payload.put("filePath", lock.path());
+        payload.put("lockType", lock.type());
+        timelineService.log(lock.projectId(), lock.agentId(), event, payload);
+
+        return toResponse(lock);
+    }
+
+    /** "write" when unset; 400 for anything but read or write. */
+    private static String lockType(String requested) {
+        String lockType = requested != null ? requested : HeldLock.WRITE;
+        if (!HeldLock.WRITE.equals(lockType) && !HeldLock.READ.equals(lockType)) {
+            throw new HttpStatusException(HttpStatus.BAD_REQUEST, "Unknown lock type: " + lockType);
+        }
+        return lockType;
+    }
+
+    /** Normalized lock path; 400 if it is blank or leaves the workspace. */
+    private static LockPath lockPath(String filePath) {
         try {
-            int deleted = fileLockRepository.deleteExpired();
-            if (deleted > 0) {
-                log.info("Cleaned {} expired file locks", deleted);
-            }
-        } catch (Exception e) {
-            log.warn("Error cleaning expired locks: {}", e.getMessage());
+            return LockPath.parse(filePath);
+        } catch (IllegalArgumentException e) {
+            throw new HttpStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /** 404 for unknown projects; a project seen in the last minute is not looked up again. */
+    private void requireProject(UUID projectId) {
+        long now = System.nanoTime();
+        Long seen = knownProjects.get(projectId);
+        if (seen != null && now - seen < PROJECT_CACHE_NANOS) return;
+        if (!projectRepository.existsById(projectId)) {
+            knownProjects.remove(projectId);
+            throw new HttpStatusException(HttpStatus.NOT_FOUND, "Project not found");
         }
+        knownProjects.put(projectId, now);
     }
 
-    private FileLockResponse toResponse(FileLock l) {
+    private FileLockResponse toResponse(HeldLock l) {
         return new FileLockResponse(
-            l.getId(),
-            l.getFilePath(),
-            l.getLockType(),
-            l.getLockedBy() != null ? l.getLockedBy().getId() : null,
-            l.getExpiresAt(),
-            l.getCreatedAt()
+            l.id(),
+            l.path(),
+            l.type(),
+            l.agentId(),
+            l.expiresAt(),
+            l.createdAt()
         );
     }
 }
@@ -0,0 +1,219 @@
+package com.knowledgeos.service;
+
+import com.knowledgeos.lock.HeldLock;
+import com.knowledgeos.lock.LockStore;
+import com.knowledgeos.lock.LockWaitQueue;
+import com.knowledgeos.lock.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires file locks at their deadline rather than on a periodic sweep.
+ *
+ * Every lock granted or extended on this node is put on a {@link TimingWheel}
+ * ({@code app.locks.expiry.tick}, 100ms by default); releasing it takes it off
+ * again. When a deadline passes, the lock is handled in batches of
+ * {@code app.locks.expiry.batch-size}:
+ *   still live in the store (extended elsewhere) → rescheduled
+ *   otherwise → its {@code file_locks} row is deleted, a {@code lock_expired}
+ *               timeline event is logged and the project's queued waiters are woken
+ *
+ * The row delete only matches rows that are past their expiry, and each row is
+ * deleted once — so when several nodes fire for the same lock, or the lock was
+ * released on another node, there is at most one {@code lock_expired} event.
+ *
+ * On startup the wheel is rebuilt from {@code file_locks}, which also picks up
+ * locks granted by nodes that have since gone away. A slow backstop sweep
+ * ({@code app.locks.expiry.sweep-interval}) expires rows that no wheel holds.
+ *
+ * Metrics: kos.locks.expired, kos.locks.expiry.lag, kos.locks.expiry.scheduled
+ */
+@Singleton
+public class LockExpiryService {
+
+    private static final Logger log = LoggerFactory.getLogger(LockExpiryService.class);
+
+    private static final String LOAD_SQL = "SELECT id, project_id, expires_at FROM file_locks";
+    private static final String STALE_SQL =
+        "SELECT id, project_id, expires_at FROM file_locks WHERE expires_at < NOW() - INTERVAL '1 minute' LIMIT 1000";
+    private static final String EXPIRE_SQL =
+        "DELETE FROM file_locks WHERE id = ANY(?) AND expires_at <= NOW() " +
+        "RETURNING id, project_id, file_path, locked_by, expires_at";
+
+    /** A scheduled lock. */
+    record LockRef(UUID projectId, UUID lockId) {}
+
+    @Inject LockStore lockStore;
+    @Inject LockWaitQueue waitQueue;
+    @Inject TimelineService timelineService;
+    @Inject DataSource dataSource;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.locks.expiry.tick:100ms}")
+    Duration tick;
+
+    @Value("${app.locks.expiry.batch-size:100}")
+    int batchSize;
+
+    private TimingWheel<LockRef> wheel;
+    private Thread ticker;
+    private volatile boolean running;
+
+    private Counter expired;
+    private Timer lag;
+
+    @PostConstruct
+    void start() {
+        // One turn of the wheel spans about a minute at the default tick
+        wheel = new TimingWheel<>(tick.toMillis(), 512, System.currentTimeMillis());
+        expired = meterRegistry.counter("kos.locks.expired");
+        lag = Timer.builder("kos.locks.expiry.lag")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        meterRegistry.gauge("kos.locks.expiry.scheduled", wheel, TimingWheel::size);
+
+        running = true;
+        ticker = Thread.ofPlatform().name("lock-expiry").daemon(true).start(this::tickLoop);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (ticker != null) ticker.interrupt();
+    }
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        try {
+            int loaded = scheduleRows(LOAD_SQL);
+            if (loaded > 0) log.info("Lock expiry wheel rebuilt with {} locks from Postgres", loaded);
+        } catch (SQLException e) {
+            log.warn("Rebuilding the lock expiry wheel failed: {}", e.getMessage());
+        }
+    }
+
+    /** Expire {@code lock} at its deadline; a later call for the same lock moves the deadline. */
+    public void schedule(HeldLock lock) {
+        wheel.schedule(new LockRef(lock.projectId(), lock.id()), lock.expiresAt().toInstant().toEpochMilli());
+    }
+
+    /** The lock was released — nothing to expire. */
+    public void cancel(UUID projectId, UUID lockId) {
+        wheel.cancel(new LockRef(projectId, lockId));
+    }
+
+    /**
+     * Backstop for rows no wheel is holding (e.g. the journal wrote them after the
+     * deadline fired): expire rows more than a minute past their expiry, then let
+     * the store drop leftover bookkeeping and retry queued waiters.
+     */
+    @Scheduled(fixedDelay = "${app.locks.expiry.sweep-interval:10m}", initialDelay = "${app.locks.expiry.sweep-interval:10m}")
+    void sweep() {
+        try {
+            int stale = scheduleRows(STALE_SQL);
+            if (stale > 0) log.info("Lock expiry sweep found {} stale file locks", stale);
+            lockStore.purgeExpired();
+            waitQueue.wakeAll();
+        } catch (Exception e) {
+            log.warn("Error sweeping expired locks: {}", e.getMessage());
+        }
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private void tickLoop() {
+        long tickMillis = tick.toMillis();
+        while (running) {
+            try {
+                Thread.sleep(tickMillis);
+                List<LockRef> due = wheel.advance(System.currentTimeMillis());
+                for (int from = 0; from < due.size(); from += batchSize) {
+                    expire(due.subList(from, Math.min(due.size(), from + batchSize)));
+                }
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (Exception e) {
+                log.warn("Lock expiry tick failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Handle one batch of locks whose deadline has passed. */
+    private void expire(List<LockRef> due) throws SQLException {
+        List<UUID> gone = new ArrayList<>(due.size());
+        Set<UUID> projects = new LinkedHashSet<>();
+        for (LockRef ref : due) {
+            Optional<HeldLock> live = lockStore.get(ref.projectId(), ref.lockId());
+            if (live.isPresent()) {
+                schedule(live.get());
+            } else {
+                gone.add(ref.lockId());
+                projects.add(ref.projectId());
+            }
+        }
+        if (gone.isEmpty()) return;
+
+        long now = System.currentTimeMillis();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(EXPIRE_SQL)) {
+            Array ids = conn.createArrayOf("uuid", gone.toArray());
+            ps.setArray(1, ids);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    UUID lockId = rs.getObject(1, UUID.class);
+                    UUID projectId = rs.getObject(2, UUID.class);
+                    String path = rs.getString(3);
+                    UUID agentId = rs.getObject(4, UUID.class);
+                    OffsetDateTime expiresAt = rs.getObject(5, OffsetDateTime.class);
+
+                    expired.increment();
+                    lag.record(Math.max(0, now - expiresAt.toInstant().toEpochMilli()), TimeUnit.MILLISECONDS);
+                    log.info("Lock expired: id={} file={}", lockId, path);
+                    timelineService.log(projectId, agentId, "lock_expired",
+                        Map.of("lockId", lockId.toString(), "filePath", path));
+                }
+            }
+            ids.free();
+        } finally {
+            // The store has let these go whatever Postgres said
+            projects.forEach(waitQueue::released);
+        }
+    }
+
+    /** Put every row {@code sql} selects on the wheel; returns how many. */
+    private int scheduleRows(String sql) throws SQLException {
+        int n = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                wheel.schedule(new LockRef(rs.getObject(2, UUID.class), rs.getObject(1, UUID.class)),
+                    rs.getObject(3, OffsetDateTime.class).toInstant().toEpochMilli());
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,109 @@
+package com.knowledgeos.service;
+
+import com.knowledgeos.domain.Agent;
+import com.knowledgeos.dto.LeaseResponse;
+import com.knowledgeos.k8s.AgentPodManager;
+import com.knowledgeos.lock.HeldLock;
+import com.knowledgeos.lock.LockJournal;
+import com.knowledgeos.lock.LockStore;
+import com.knowledgeos.lock.LockWaitQueue;
+import com.knowledgeos.repository.AgentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Lock leases kept alive by agent heartbeats.
+ *
+ * An agent sends one heartbeat, however many locks it holds; every lock of the
+ * agent that would run out within {@code app.locks.lease.duration} is moved out
+ * to now + that duration, in one lock store call and one {@code file_locks}
+ * UPDATE. Locks are never shortened, so a long {@code durationSeconds} still
+ * counts. An agent that stops heartbeating loses its locks when they expire.
+ *
+ * Every {@code app.locks.lease.check-interval}, locks held by agents that were
+ * deleted, or whose pod {@link AgentPodManager} reports as gone, are revoked
+ * without waiting for them to expire.
+ *
+ * Metrics: kos.locks.heartbeats, kos.locks.revoked{reason}
+ */
+@Singleton
+public class LockLeaseService {
+
+    private static final Logger log = LoggerFactory.getLogger(LockLeaseService.class);
+
+    @Inject LockStore lockStore;
+    @Inject LockJournal lockJournal;
+    @Inject LockWaitQueue waitQueue;
+    @Inject LockExpiryService lockExpiry;
+    @Inject AgentRepository agentRepository;
+    @Inject AgentPodManager podManager;
+    @Inject TimelineService timelineService;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.locks.lease.duration:5m}")
+    Duration lease;
+
+    /** Renew every lease {@code agentId} holds in the project. */
+    public LeaseResponse heartbeat(UUID projectId, UUID agentId) {
+        OffsetDateTime expiresAt = OffsetDateTime.now().plus(lease);
+        List<HeldLock> renewed = lockStore.renewAgent(projectId, agentId, expiresAt);
+        lockJournal.extended(renewed);
+        renewed.forEach(lockExpiry::schedule);
+        meterRegistry.counter("kos.locks.heartbeats").increment();
+        log.debug("Heartbeat: agent={} renewed {} locks until {}", agentId, renewed.size(), expiresAt);
+        return new LeaseResponse(agentId, renewed.size(), expiresAt);
+    }
+
+    /** Release every lock the agent holds in the project; returns how many. */
+    public int revoke(UUID projectId, UUID agentId, String reason) {
+        List<HeldLock> released = lockStore.releaseAgent(projectId, agentId);
+        if (released.isEmpty()) return 0;
+        for (HeldLock lock : released) {
+            lockJournal.deleted(lock);
+            lockExpiry.cancel(projectId, lock.id());
+        }
+        waitQueue.released(projectId);
+
+        meterRegistry.counter("kos.locks.revoked", "reason", reason).increment(released.size());
+        log.info("Revoked {} locks of agent {} ({})", released.size(), agentId, reason);
+        timelineService.log(projectId, agentId, "locks_revoked", Map.of(
+            "reason", reason,
+            "count", released.size(),
+            "lockIds", released.stream().map(l -> l.id().toString()).toList(),
+            "filePaths", released.stream().map(HeldLock::path).toList()));
+        return released.size();
+    }
+
+    /** Revoke locks of agents that no longer exist or whose pod is gone. */
+    @Scheduled(fixedDelay = "${app.locks.lease.check-interval:30s}", initialDelay = "${app.locks.lease.check-interval:30s}")
+    @Transactional
+    void revokeOrphaned() {
+        try {
+            Map<UUID, UUID> holders = new HashMap<>();   // agent → project
+            for (HeldLock lock : lockStore.listAll()) {
+                if (lock.agentId() != null) holders.putIfAbsent(lock.agentId(), lock.projectId());
+            }
+            holders.forEach((agentId, projectId) -> {
+                Optional<Agent> agent = agentRepository.findById(agentId);
+                if (agent.isEmpty()) {
+                    revoke(projectId, agentId, "agent_deleted");
+                } else if (agent.get().getPodName() != null
+                        && podManager.isPodGone(agent.get().getPodName(), agent.get().getProject().getNamespace())) {
+                    revoke(projectId, agentId, "pod_gone");
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Error revoking orphaned lock leases: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.knowledgeos.service;
+
+import com.knowledgeos.dto.CreateMemoryRequest;
+import com.knowledgeos.dto.MemoryImportError;
+import com.knowledgeos.dto.MemoryImportResponse;
+import com.knowledgeos.dto.MemoryResponse;
+import com.knowledgeos.infra.JsonCodec;
+import com.knowledgeos.memory.MemoryListCache;
+import com.knowledgeos.memory.MemoryVectorStore;
+import com.knowledgeos.repository.ProjectRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.exceptions.HttpStatusException;
+import io.micronaut.json.JsonMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk memory writes: NDJSON imports and JSON batches.
+ *
+ * Entries are written a chunk at a time ({@code app.memory.import.batch-size}):
+ *   one JDBC batch insert into {@code memory_entries}, committed on its own
+ *     together with the chunk's {@code memory_outbox} rows — the outbox relay
+ *     then embeds and indexes them in bulk ({@link MemoryVectorStore#upsertAll}),
+ *     and the {@link MemoryListCache} listings of the chunk's layers are invalidated
+ *   for imports, one {@code memory_import_progress} timeline event — which also
+ *     reaches the project's events WebSocket
+ *
+ * An import streams: the body is read line by line and never held in memory.
+ * A line that is not a valid {@link CreateMemoryRequest} is skipped and reported
+ * by line number; everything else is imported. Chunks already written stay
+ * written if a later one fails.
+ *
+ * Metrics: kos.memory.imported
+ */
+@Singleton
+public class MemoryImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO memory_entries (id, project_id, title, content, justification, layer, scope_key, " +
+        "tags, qdrant_id, expires_at, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?)";
+    private static final String OUTBOX_SQL =
+        "INSERT INTO memory_outbox (project_id, point_id, op) VALUES (?, ?, 'upsert')";
+
+    @Inject DataSource dataSource;
+    @Inject ProjectRepository projectRepository;
+    @Inject TimelineService timelineService;
+    @Inject MemoryListCache listCache;
+    @Inject JsonCodec jsonCodec;
+    @Inject JsonMapper jsonMapper;
+    @Inject Validator validator;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.memory.import.batch-size:500}")
+    int batchSize;
+
+    private Counter imported;
+
+    @PostConstruct
+    void init() {
+        imported = meterRegistry.counter("kos.memory.imported");
+    }
+
+    /**
+     * Import NDJSON from {@code body}, one {@link CreateMemoryRequest} per line;
+     * blank lines are ignored.
+     */
+    public MemoryImportResponse importNdjson(UUID projectId, InputStream body) {
+        requireProject(projectId);
+        UUID importId = UUID.randomUUID();
+        long start = System.currentTimeMillis();
+        int written = 0;
+        int failed = 0;
+        List<MemoryImportError> errors = new ArrayList<>();
+        List<CreateMemoryRequest> chunk = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            int lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                String problem;
+                try {
+                    CreateMemoryRequest req = jsonMapper.readValue(line, CreateMemoryRequest.class);
+                    problem = problem(req);
+                    if (problem == null) chunk.add(req);
+                } catch (IOException e) {
+                    problem = "Malformed JSON: " + e.getMessage();
+                }
+                if (problem != null) {
+                    failed++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) errors.add(new MemoryImportError(lineNo, problem));
+                }
+                if (chunk.size() == batchSize) {
+                    written += flush(projectId, importId, chunk, written, failed);
+                }
+            }
+        } catch (IOException e) {
+            throw new HttpStatusException(HttpStatus.BAD_REQUEST,
+                "Import body unreadable after " + written + " entries: " + e.getMessage());
+        }
+        if (!chunk.isEmpty()) written += flush(projectId, importId, chunk, written, failed);
+
+        long tookMs = System.currentTimeMillis() - start;
+        log.info("Memory import {}: {} entries written, {} lines rejected in {}ms (project {})",
+            importId, written, failed, tookMs, projectId);
+        timelineService.log(projectId, null, "memory_imported", Map.of(
+            "importId", importId.toString(), "imported", written, "failed", failed, "tookMs", tookMs), "user");
+        return new MemoryImportResponse(importId, written, failed, errors);
+    }
+
+    /** Write {@code requests} (already validated) in chunks; the responses, in request order. */
+    public List<MemoryResponse> writeAll(UUID projectId, List<CreateMemoryRequest> requests) {
+        requireProject(projectId);
+        for (CreateMemoryRequest req : requests) {
+            String problem = problem(req);
+            if (problem != null) throw new HttpStatusException(HttpStatus.BAD_REQUEST, problem);
+        }
+        List<MemoryResponse> responses = new ArrayList<>(requests.size());
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            responses.addAll(insert(projectId, requests.subList(from, Math.min(requests.size(), from + batchSize))));
+        }
+        log.info("Memory batch written: {} entries (project {})", responses.size(), projectId);
+        timelineService.log(projectId, null, "memories_written", Map.of(
+            "count", responses.size(),
+            "memoryIds", responses.stream().map(r -> r.id().toString()).toList()));
+        return responses;
+    }
+
+    // ── Private helpers ────────────────────────────────────────────────────
+
+    /** Write and index one chunk of an import, announce progress, then clear it. */
+    private int flush(UUID projectId, UUID importId, List<CreateMemoryRequest> chunk, int writtenBefore, int failed) {
+        int n = insert(projectId, chunk).size();
+        chunk.clear();
+        timelineService.log(projectId, null, "memory_import_progress", Map.of(
+            "importId", importId.toString(), "imported", writtenBefore + n, "failed", failed), "user");
+        return n;
+    }
+
+    /** One batch insert of entries and their outbox rows, in one transaction. */
+    private List<MemoryResponse> insert(UUID projectId, List<CreateMemoryRequest> chunk) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<MemoryResponse> written = new ArrayList<>(chunk.size());
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL);
+                 PreparedStatement outbox = conn.prepareStatement(OUTBOX_SQL)) {
+                for (CreateMemoryRequest req : chunk) {
+                    UUID id = UUID.randomUUID();
+                    UUID pointId = UUID.randomUUID();
+                    OffsetDateTime expiresAt = "scratch".equals(req.layer())
+                        ? now.plusHours(MemoryService.SCRATCH_TTL_HOURS) : null;
+                    List<String> tags = req.tags() != null ? req.tags() : List.of();
+
+                    ps.setObject(1, id);
+                    ps.setObject(2, projectId);
+                    ps.setString(3, req.title());
+                    ps.setString(4, req.content());
+                    ps.setString(5, req.justification());
+                    ps.setString(6, req.layer());
+                    ps.setString(7, req.scopeKey());
+                    ps.setString(8, jsonCodec.writeStringList(tags));
+                    ps.setObject(9, pointId);
+                    ps.setObject(10, expiresAt);
+                    ps.setObject(11, now);
+                    ps.addBatch();
+                    outbox.setObject(1, projectId);
+                    outbox.setObject(2, pointId);
+                    outbox.addBatch();
+
+                    written.add(new MemoryResponse(id, req.title(), req.content(), req.justification(),
+                        req.layer(), req.scopeKey(), tags, null, null, now, expiresAt));
+                }
+                ps.executeBatch();
+                outbox.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            log.error("Memory batch insert of {} entries failed: {}", chunk.size(), e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Writing memory entries failed: " + e.getMessage());
+        }
+
+        chunk.stream().map(CreateMemoryRequest::layer).distinct()
+            .forEach(layer -> listCache.invalidate(projectId, layer));
+        imported.increment(written.size());
+        return written;
+    }
+
+    /** Why {@code req} cannot be written, or null if it can. */
+    private String problem(CreateMemoryRequest req) {
+        if (req == null) return "Empty entry";
+        Set<ConstraintViolation<CreateMemoryRequest>> violations = validator.validate(req);
+        if (violations.isEmpty()) return null;
+        return violations.stream()
+            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+            .sorted()
+            .collect(Collectors.joining("; "));
+    }
+
+    private void requireProject(UUID projectId) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new HttpStatusException(HttpStatus.NOT_FOUND, "Project not found");
+        }
+    }
+}
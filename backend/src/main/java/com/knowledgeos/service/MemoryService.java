@@ -1,13 +1,22 @@
 package com.knowledgeos.service;
 
 import com.knowledgeos.domain.MemoryEntry;
+import com.knowledgeos.domain.MemoryOutboxEntry;
 import com.knowledgeos.domain.Project;
 import com.knowledgeos.dto.CreateMemoryRequest;
 import com.knowledgeos.dto.MemoryResponse;
 import com.knowledgeos.dto.MemorySearchRequest;
-import com.knowledgeos.memory.QdrantMemoryStore;
+import com.knowledgeos.embedding.EmbeddingService;
+import com.knowledgeos.infra.JsonCodec;
+import com.knowledgeos.memory.MaximalMarginalRelevance;
+import com.knowledgeos.memory.MemoryListCache;
+import com.knowledgeos.memory.MemoryTextIndex;
+import com.knowledgeos.memory.MemoryVectorStore;
+import com.knowledgeos.memory.RankFusion;
+import com.knowledgeos.repository.MemoryOutboxRepository;
 import com.knowledgeos.repository.MemoryRepository;
 import com.knowledgeos.repository.ProjectRepository;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.exceptions.HttpStatusException;
 import io.micronaut.scheduling.annotation.Scheduled;
@@ -18,6 +27,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -26,12 +37,23 @@ import java.util.UUID;
 public class MemoryService {
 
     private static final Logger log = LoggerFactory.getLogger(MemoryService.class);
-    private static final int SCRATCH_TTL_HOURS = 4;
+    static final int SCRATCH_TTL_HOURS = 4;
 
     @Inject MemoryRepository memoryRepository;
+    @Inject MemoryOutboxRepository outboxRepository;
     @Inject ProjectRepository projectRepository;
-    @Inject QdrantMemoryStore qdrantStore;
+    @Inject MemoryVectorStore vectorStore;
+    @Inject MemoryTextIndex textIndex;
+    @Inject MemoryListCache listCache;
+    @Inject EmbeddingService embeddings;
     @Inject TimelineService timelineService;
+    @Inject JsonCodec jsonCodec;
+
+    @Value("${app.memory.search.candidates:50}")
+    int candidates;
+
+    @Value("${app.memory.search.rrf-k:60}")
+    int rrfK;
 
     @Transactional
     public MemoryResponse write(UUID projectId, CreateMemoryRequest req) {
@@ -51,7 +73,7 @@ public class MemoryService {
         entry.setJustification(req.justification());
         entry.setLayer(req.layer());
         entry.setScopeKey(req.scopeKey());
-        entry.setTags(toJsonArray(req.tags()));
+        entry.setTags(jsonCodec.writeStringList(req.tags()));
 
         // Scratch layer gets a 4-hour TTL
         if ("scratch".equals(req.layer())) {
@@ -64,12 +86,9 @@ public class MemoryService {
 
         entry = memoryRepository.save(entry);
 
-        // Asynchronously upsert to Qdrant (failures are logged, not propagated)
-        String textToEmbed = req.title() + " " + req.content();
-        qdrantStore.upsert(qdrantId, projectId, req.layer(), textToEmbed,
-            Map.of("memoryId", entry.getId().toString(),
-                   "title", req.title(),
-                   "scopeKey", req.scopeKey() != null ? req.scopeKey() : ""));
+        // Indexed for semantic search by the outbox relay once this commits
+        outboxRepository.enqueue(projectId, qdrantId, MemoryOutboxEntry.UPSERT);
+        listCache.invalidate(projectId, req.layer());
 
         log.info("Memory written: id={} layer={} project={}", entry.getId(), req.layer(), projectId);
         timelineService.log(projectId, null, "memory_written",
@@ -77,12 +96,17 @@ public class MemoryService {
         return toResponse(entry);
     }
 
+    /**
+     * The project's entries, of one layer or all. Canonical and feature listings
+     * come from the {@link MemoryListCache}; scratch is always read from the database.
+     */
     public List<MemoryResponse> list(UUID projectId, String layer) {
-        List<MemoryEntry> entries = (layer != null)
-            ? memoryRepository.findByProjectIdAndLayer(projectId, layer)
-            : memoryRepository.findByProjectId(projectId);
+        if (layer != null) return listLayer(projectId, layer);
 
-        return entries.stream().map(this::toResponse).toList();
+        List<MemoryResponse> all = new ArrayList<>(listLayer(projectId, "canonical"));
+        all.addAll(listLayer(projectId, "feature"));
+        all.addAll(listLayer(projectId, "scratch"));
+        return all;
     }
 
     @Transactional
@@ -92,36 +116,80 @@ public class MemoryService {
             .orElseThrow(() -> new HttpStatusException(HttpStatus.NOT_FOUND, "Memory entry not found: " + memId));
 
         if (entry.getQdrantId() != null) {
-            qdrantStore.delete(entry.getQdrantId());
+            outboxRepository.enqueue(projectId, entry.getQdrantId(), MemoryOutboxEntry.DELETE);
         }
         memoryRepository.delete(entry);
+        listCache.invalidate(projectId, entry.getLayer());
         log.info("Memory deleted: id={} project={}", memId, projectId);
         timelineService.log(projectId, null, "memory_deleted",
             Map.of("memoryId", memId.toString()), "user");
     }
 
+    /**
+     * Hybrid search: the vector store's semantic ranking and the full-text ranking
+     * ({@link MemoryTextIndex}), each up to {@code app.memory.search.candidates} deep,
+     * merged by reciprocal rank fusion. Each entry carries its fused score and, if
+     * the vector store returned it, its similarity to the query.
+     *
+     * With {@code diversity} the fused candidates are re-ranked by maximal marginal
+     * relevance, so near-duplicates give way to entries that add something. Then the
+     * best-ranked entries are taken, up to {@code limit} and, with {@code tokenBudget},
+     * as many as fit in the budget — an entry too large to fit is skipped for smaller
+     * ones further down. Empty when neither ranking finds anything.
+     *
+     * When the embedding provider carries no meaning ({@code hash}), the vector ranking
+     * and the diversity step are skipped: the result is the full-text ranking.
+     */
     public List<MemoryResponse> search(UUID projectId, MemorySearchRequest req) {
-        // Ask Qdrant for top-K point IDs ordered by semantic similarity
-        List<UUID> qdrantIds = qdrantStore.search(projectId, req.layer(), req.query(), req.limit());
+        int depth = Math.max(req.limit(), candidates);
+        boolean semantic = embeddings.semantic();
+        List<MemoryVectorStore.Match> matches = semantic
+            ? vectorStore.search(projectId, req.layer(), req.query(), depth)
+            : List.of();
+        List<UUID> textIds = textIndex.search(projectId, req.layer(), req.query(), depth);
 
-        if (qdrantIds.isEmpty()) {
-            // Fallback: return all entries for the project (plain DB listing)
-            return list(projectId, req.layer());
+        // Vector hits are point ids: map them to entries, dropping stale points and expired entries
+        Map<UUID, MemoryEntry> byId = new HashMap<>();
+        Map<UUID, Double> similarity = new HashMap<>();
+        List<UUID> vectorIds = new ArrayList<>(matches.size());
+        if (!matches.isEmpty()) {
+            Map<UUID, MemoryEntry> byPoint = new HashMap<>();
+            List<UUID> pointIds = matches.stream().map(MemoryVectorStore.Match::pointId).toList();
+            for (MemoryEntry e : memoryRepository.findByQdrantIdIn(pointIds)) byPoint.put(e.getQdrantId(), e);
+            OffsetDateTime now = OffsetDateTime.now();
+            for (MemoryVectorStore.Match match : matches) {
+                MemoryEntry e = byPoint.get(match.pointId());
+                if (e == null || (e.getExpiresAt() != null && e.getExpiresAt().isBefore(now))) continue;
+                byId.put(e.getId(), e);
+                similarity.put(e.getId(), (double) match.score());
+                vectorIds.add(e.getId());
+            }
         }
-
-        // Fetch entries in ranked order
-        List<MemoryEntry> entries = memoryRepository.findByQdrantIdIn(qdrantIds);
-        // Re-order to match Qdrant ranking
-        Map<UUID, MemoryEntry> byQdrantId = new java.util.HashMap<>();
-        for (MemoryEntry e : entries) {
-            if (e.getQdrantId() != null) byQdrantId.put(e.getQdrantId(), e);
+        List<UUID> unloaded = textIds.stream().filter(id -> !byId.containsKey(id)).toList();
+        if (!unloaded.isEmpty()) {
+            memoryRepository.findByIdIn(unloaded).forEach(e -> byId.put(e.getId(), e));
         }
 
-        return qdrantIds.stream()
-            .map(byQdrantId::get)
-            .filter(java.util.Objects::nonNull)
-            .map(this::toResponse)
+        List<Map.Entry<UUID, Double>> ranked = RankFusion.fuse(rrfK, List.of(vectorIds, textIds)).entrySet().stream()
+            .filter(hit -> byId.containsKey(hit.getKey()))
+            .limit(depth)
             .toList();
+        double diversity = req.diversity() != null ? req.diversity() : 0;
+        if (semantic && diversity > 0 && ranked.size() > 1) ranked = diversify(ranked, byId, diversity);
+
+        List<MemoryResponse> results = new ArrayList<>(req.limit());
+        int tokens = 0;
+        for (Map.Entry<UUID, Double> hit : ranked) {
+            if (results.size() == req.limit()) break;
+            MemoryEntry e = byId.get(hit.getKey());
+            if (req.tokenBudget() != null) {
+                int cost = estimateTokens(e);
+                if (tokens + cost > req.tokenBudget()) continue;
+                tokens += cost;
+            }
+            results.add(toResponse(e, hit.getValue(), similarity.get(e.getId())));
+        }
+        return results;
     }
 
     /**
@@ -131,7 +199,10 @@ public class MemoryService {
     @Transactional
     void cleanExpiredScratch() {
         try {
-            int deleted = memoryRepository.deleteExpiredBefore(OffsetDateTime.now());
+            OffsetDateTime now = OffsetDateTime.now();
+            outboxRepository.enqueueExpiredDeletes(now);
+            // Only scratch entries expire, and scratch listings are never cached
+            int deleted = memoryRepository.deleteExpiredBefore(now);
             if (deleted > 0) {
                 log.info("Cleaned {} expired scratch memory entries", deleted);
             }
@@ -142,7 +213,46 @@ public class MemoryService {
 
     // ── Private helpers ────────────────────────────────────────────────────
 
+    private List<MemoryResponse> listLayer(UUID projectId, String layer) {
+        return listCache.get(projectId, layer, () ->
+            memoryRepository.findByProjectIdAndLayer(projectId, layer).stream().map(this::toResponse).toList());
+    }
+
+    /**
+     * {@code ranked} re-ordered by maximal marginal relevance over the entries' embeddings
+     * (already cached from indexing); the fused score, scaled to 0..1, is the relevance.
+     */
+    private List<Map.Entry<UUID, Double>> diversify(List<Map.Entry<UUID, Double>> ranked,
+                                                    Map<UUID, MemoryEntry> byId, double diversity) {
+        List<float[]> vectors;
+        try {
+            vectors = embeddings.embedAll(ranked.stream().map(hit -> indexedText(byId.get(hit.getKey()))).toList());
+        } catch (RuntimeException e) {
+            log.warn("Embedding search candidates failed — returning them undiversified: {}", e.getMessage());
+            return ranked;
+        }
+        double top = ranked.get(0).getValue();
+        double[] relevance = ranked.stream().mapToDouble(hit -> hit.getValue() / top).toArray();
+        return MaximalMarginalRelevance.rerank(relevance, vectors, 1 - diversity).stream()
+            .map(ranked::get)
+            .toList();
+    }
+
+    /** The text the outbox relay embeds for an entry, so its embedding is a cache hit. */
+    private static String indexedText(MemoryEntry m) {
+        return m.getTitle() + " " + m.getContent();
+    }
+
+    /** Rough token count of an entry as an agent would read it: ~4 characters per token. */
+    private static int estimateTokens(MemoryEntry m) {
+        return (m.getTitle().length() + m.getContent().length() + 3) / 4;
+    }
+
     private MemoryResponse toResponse(MemoryEntry m) {
+        return toResponse(m, null, null);
+    }
+
+    private MemoryResponse toResponse(MemoryEntry m, Double score, Double similarity) {
         return new MemoryResponse(
             m.getId(),
             m.getTitle(),
@@ -150,35 +260,11 @@ public class MemoryService {
             m.getJustification(),
             m.getLayer(),
             m.getScopeKey(),
-            fromJsonArray(m.getTags()),
-            null,  // score — only set from Qdrant search results
+            jsonCodec.readStringList(m.getTags()),
+            score,       // only set for search results
+            similarity,  // search results the vector store returned
             m.getCreatedAt(),
             m.getExpiresAt()
         );
     }
-
-    private String toJsonArray(List<String> list) {
-        if (list == null || list.isEmpty()) return "[]";
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < list.size(); i++) {
-            sb.append("\"").append(list.get(i).replace("\"", "\\\"")).append("\"");
-            if (i < list.size() - 1) sb.append(",");
-        }
-        return sb.append("]").toString();
-    }
-
-    private List<String> fromJsonArray(String json) {
-        if (json == null || json.isBlank() || "[]".equals(json.trim())) return List.of();
-        try {
-            String inner = json.trim().replaceFirst("^\\[", "").replaceFirst("]$", "").trim();
-            if (inner.isEmpty()) return List.of();
-            List<String> result = new java.util.ArrayList<>();
-            for (String part : inner.split(",(?=\")")) {
-                result.add(part.trim().replaceAll("^\"|\"$", ""));
-            }
-            return result;
-        } catch (Exception e) {
-            return List.of();
-        }
-    }
 }
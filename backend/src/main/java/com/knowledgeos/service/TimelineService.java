@@ -1,33 +1,40 @@
 package com.knowledgeos.service;
 
-import com.knowledgeos.domain.Agent;
-import com.knowledgeos.domain.Project;
 import com.knowledgeos.domain.TimelineEvent;
 import com.knowledgeos.dto.TimelineEventResponse;
 import com.knowledgeos.dto.TimelinePage;
-import com.knowledgeos.repository.AgentRepository;
-import com.knowledgeos.repository.ProjectRepository;
+import com.knowledgeos.infra.JsonCodec;
 import com.knowledgeos.repository.TimelineEventRepository;
-import com.knowledgeos.websocket.AgentEventWebSocket;
+import com.knowledgeos.timeline.PendingTimelineEvent;
+import com.knowledgeos.timeline.TimelineWriter;
 import io.micronaut.data.model.Pageable;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.exceptions.HttpStatusException;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 /**
  * Cross-cutting timeline log.
  *
  * Every service calls {@link #log} to record what happened.
- * Events are persisted in {@code timeline_events} and immediately broadcast
- * to WebSocket subscribers of {@code /ws/events/{projectId}}.
+ * Events are handed to {@link TimelineWriter}, which batches them into
+ * {@code timeline_events} and then broadcasts them to WebSocket subscribers
+ * of {@code /ws/events/{projectId}}. The request path never waits on the insert.
  *
- * Cursor pagination: cursor = base64( offset integer ).
+ * Keyset pagination: events are ordered by (created_at DESC, id DESC) and the
+ * cursor is base64url( "k1:" + createdAt epoch micros + ":" + id ) of the last
+ * event on the page. Each page is a single index seek of limit+1 rows — no
+ * OFFSET and no COUNT(*), so page 10 000 costs the same as page 1.
+ * Legacy offset cursors (base64 of an integer) are still accepted.
  * Default page size: 20 events, newest first.
  */
 @Singleton
@@ -35,14 +42,21 @@ public class TimelineService {
 
     private static final Logger log = LoggerFactory.getLogger(TimelineService.class);
     private static final int DEFAULT_LIMIT = 20;
+    private static final String KEYSET_PREFIX = "k1:";
+
+    /** Upper bound for the first page — sorts after every real (created_at, id). */
+    private static final Seek FIRST_PAGE = new Seek(
+        OffsetDateTime.of(9999, 12, 31, 23, 59, 59, 0, ZoneOffset.UTC),
+        new UUID(-1L, -1L)
+    );
 
     @Inject TimelineEventRepository eventRepository;
-    @Inject ProjectRepository projectRepository;
-    @Inject AgentRepository agentRepository;
-    @Inject AgentEventWebSocket webSocket;
+    @Inject TimelineWriter writer;
+    @Inject JsonCodec jsonCodec;
 
     /**
-     * Record a timeline event and broadcast it to WebSocket subscribers.
+     * Record a timeline event. Persistence and the WebSocket broadcast happen
+     * off the request path in {@link TimelineWriter}, after the caller commits.
      *
      * @param projectId project scope (required)
      * @param agentId   agent that triggered the event (nullable)
@@ -50,64 +64,36 @@ public class TimelineService {
      * @param payload   key-value metadata stored as JSONB
      * @param source    "pod" | "local" | "user"
      */
-    @Transactional
     public void log(UUID projectId, UUID agentId, String type,
                     Map<String, Object> payload, String source) {
-        try {
-            Project project = projectRepository.findById(projectId).orElse(null);
-            if (project == null) {
-                TimelineService.log.warn("Timeline log skipped — project not found: {}", projectId);
-                return;
-            }
-
-            TimelineEvent event = new TimelineEvent();
-            event.setProject(project);
-            event.setType(type);
-            event.setSource(source != null ? source : "user");
-
-            if (agentId != null) {
-                agentRepository.findById(agentId).ifPresent(event::setAgent);
-            }
-
-            event.setPayload(toJson(payload != null ? payload : Map.of()));
-            event = eventRepository.save(event);
-
-            // Broadcast to WebSocket subscribers (best-effort)
-            try {
-                webSocket.broadcast(projectId.toString(), toJson(responseToMap(event)));
-            } catch (Exception e) {
-                TimelineService.log.debug("WS broadcast skipped: {}", e.getMessage());
-            }
-
-            TimelineService.log.debug("Timeline[{}] {} project={}", type, source, projectId);
-
-        } catch (Exception e) {
-            // Timeline must never throw — log and swallow
-            TimelineService.log.warn("Timeline log failed for type={}: {}", type, e.getMessage());
-        }
+        enqueue(projectId, agentId, type, payload, source != null ? source : "user");
     }
 
-    /** Convenience: derive source from agent type. */
+    /** Convenience: source is derived from the agent type when the event is flushed. */
     public void log(UUID projectId, UUID agentId, String type, Map<String, Object> payload) {
-        String source = "user";
-        if (agentId != null) {
-            source = agentRepository.findById(agentId)
-                .map(Agent::getAgentType)
-                .orElse("user");
-        }
-        log(projectId, agentId, type, payload, source);
+        enqueue(projectId, agentId, type, payload, null);
     }
 
     public TimelinePage list(UUID projectId, String cursor, Integer limit, String type) {
         int pageSize = (limit != null && limit > 0 && limit <= 100) ? limit : DEFAULT_LIMIT;
-        int offset   = decodeCursor(cursor);
 
-        Pageable pageable = Pageable.from(offset, pageSize);
-        List<TimelineEvent> events = eventRepository.findByProject(projectId, type, pageable);
+        List<TimelineEvent> events;
+        boolean hasMore;
+        Integer legacyOffset = decodeLegacyCursor(cursor);
+        if (legacyOffset != null) {
+            // Clients that paged before the keyset switch: serve the page they asked for,
+            // then hand back a keyset cursor so the next request seeks.
+            events = eventRepository.findByProject(projectId, type, Pageable.from(legacyOffset, pageSize));
+            hasMore = events.size() == pageSize
+                && !fetchBefore(projectId, type, seekOf(events.get(events.size() - 1)), 1).isEmpty();
+        } else {
+            Seek seek = decodeCursor(cursor);
+            events = fetchBefore(projectId, type, seek, pageSize + 1);
+            hasMore = events.size() > pageSize;
+            if (hasMore) events = events.subList(0, pageSize);
+        }
 
-        long total = eventRepository.countByProject(projectId, type);
-        boolean hasMore = (offset + pageSize) < total;
-        String nextCursor = hasMore ? encodeCursor(offset + pageSize) : null;
+        String nextCursor = hasMore ? encodeCursor(seekOf(events.get(events.size() - 1))) : null;
 
         return new TimelinePage(
             events.stream().map(this::toResponse).toList(),
@@ -125,8 +111,27 @@ public class TimelineService {
 
     // ── Private helpers ─────────────────────────────────────────────────────
 
+    private void enqueue(UUID projectId, UUID agentId, String type,
+                         Map<String, Object> payload, String source) {
+        try {
+            writer.submit(new PendingTimelineEvent(
+                UUID.randomUUID(),
+                projectId,
+                agentId,
+                type,
+                jsonCodec.writeMap(payload),
+                source,
+                OffsetDateTime.now()
+            ));
+            TimelineService.log.debug("Timeline[{}] {} project={}", type, source, projectId);
+        } catch (Exception e) {
+            // Timeline must never throw — log and swallow
+            TimelineService.log.warn("Timeline log failed for type={}: {}", type, e.getMessage());
+        }
+    }
+
     private TimelineEventResponse toResponse(TimelineEvent e) {
-        Map<String, Object> payloadMap = fromJson(e.getPayload());
+        Map<String, Object> payloadMap = jsonCodec.readMap(e.getPayload());
         return new TimelineEventResponse(
             e.getId(),
             e.getType(),
@@ -138,105 +143,50 @@ public class TimelineService {
         );
     }
 
-    /** Build a simple map for WS broadcast (avoid ObjectMapper dependency). */
-    private Map<String, Object> responseToMap(TimelineEvent e) {
-        Map<String, Object> m = new LinkedHashMap<>();
-        m.put("id", e.getId() != null ? e.getId().toString() : null);
-        m.put("type", e.getType());
-        m.put("source", e.getSource());
-        m.put("agentId", e.getAgent() != null ? e.getAgent().getId().toString() : null);
-        m.put("createdAt", e.getCreatedAt() != null ? e.getCreatedAt().toString() : null);
-        return m;
+    /** Position in the (created_at DESC, id DESC) ordering. */
+    private record Seek(OffsetDateTime createdAt, UUID id) {}
+
+    private List<TimelineEvent> fetchBefore(UUID projectId, String type, Seek seek, int limit) {
+        return type == null
+            ? eventRepository.findPageBefore(projectId, seek.createdAt(), seek.id(), limit)
+            : eventRepository.findPageBeforeOfType(projectId, type, seek.createdAt(), seek.id(), limit);
     }
 
-    /**
-     * Minimal JSON serializer for {@code Map<String, Object>}.
-     * Values must be strings, numbers, booleans, or null.
-     * Used instead of Jackson ObjectMapper to avoid a bean dependency.
-     */
-    static String toJson(Map<String, Object> map) {
-        if (map == null || map.isEmpty()) return "{}";
-        StringBuilder sb = new StringBuilder("{");
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            if (!first) sb.append(",");
-            first = false;
-            sb.append("\"").append(escape(entry.getKey())).append("\":");
-            Object val = entry.getValue();
-            if (val == null) {
-                sb.append("null");
-            } else if (val instanceof Number || val instanceof Boolean) {
-                sb.append(val);
-            } else {
-                sb.append("\"").append(escape(val.toString())).append("\"");
-            }
-        }
-        sb.append("}");
-        return sb.toString();
+    private static Seek seekOf(TimelineEvent e) {
+        return new Seek(e.getCreatedAt(), e.getId());
     }
 
-    /** Parse a flat JSON object string back into a Map (best-effort). */
-    @SuppressWarnings("unchecked")
-    static Map<String, Object> fromJson(String json) {
-        if (json == null || json.isBlank() || "{}".equals(json.trim())) return Map.of();
+    /** Keyset cursor of the page's last event; malformed or missing cursors mean "first page". */
+    private Seek decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return FIRST_PAGE;
         try {
-            Map<String, Object> result = new LinkedHashMap<>();
-            String inner = json.trim();
-            if (inner.startsWith("{")) inner = inner.substring(1);
-            if (inner.endsWith("}")) inner = inner.substring(0, inner.length() - 1);
-            // Split on top-level commas (simplified — no nested objects)
-            for (String pair : splitTopLevel(inner)) {
-                int colon = pair.indexOf(':');
-                if (colon < 0) continue;
-                String key = pair.substring(0, colon).trim().replaceAll("^\"|\"$", "");
-                String rawVal = pair.substring(colon + 1).trim();
-                if ("null".equals(rawVal)) {
-                    result.put(key, null);
-                } else if (rawVal.startsWith("\"")) {
-                    result.put(key, rawVal.replaceAll("^\"|\"$", "").replace("\\\"", "\""));
-                } else {
-                    result.put(key, rawVal);
-                }
-            }
-            return result;
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(KEYSET_PREFIX)) return FIRST_PAGE;
+            int sep = raw.indexOf(':', KEYSET_PREFIX.length());
+            long micros = Long.parseLong(raw.substring(KEYSET_PREFIX.length(), sep));
+            UUID id = UUID.fromString(raw.substring(sep + 1));
+            Instant at = Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+            return new Seek(OffsetDateTime.ofInstant(at, ZoneOffset.UTC), id);
         } catch (Exception e) {
-            return Map.of();
+            return FIRST_PAGE;
         }
     }
 
-    private static List<String> splitTopLevel(String s) {
-        List<String> parts = new ArrayList<>();
-        int depth = 0;
-        boolean inStr = false;
-        int start = 0;
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if (c == '"' && (i == 0 || s.charAt(i - 1) != '\\')) inStr = !inStr;
-            else if (!inStr && (c == '{' || c == '[')) depth++;
-            else if (!inStr && (c == '}' || c == ']')) depth--;
-            else if (!inStr && depth == 0 && c == ',') {
-                parts.add(s.substring(start, i).trim());
-                start = i + 1;
-            }
-        }
-        if (start < s.length()) parts.add(s.substring(start).trim());
-        return parts;
-    }
-
-    private static String escape(String s) {
-        return s.replace("\\", "\\\\").replace("\"", "\\\"");
-    }
-
-    private int decodeCursor(String cursor) {
-        if (cursor == null || cursor.isBlank()) return 0;
+    /** Pre-keyset cursor: base64 of the page number. Returns null for anything else. */
+    private Integer decodeLegacyCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
         try {
-            return Integer.parseInt(new String(Base64.getDecoder().decode(cursor)));
+            int offset = Integer.parseInt(new String(Base64.getDecoder().decode(cursor), StandardCharsets.UTF_8));
+            return offset >= 0 ? offset : null;
         } catch (Exception e) {
-            return 0;
+            return null;
         }
     }
 
-    private String encodeCursor(int offset) {
-        return Base64.getEncoder().encodeToString(String.valueOf(offset).getBytes());
+    private String encodeCursor(Seek seek) {
+        // Postgres timestamps have microsecond precision, so micros round-trip exactly
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, seek.createdAt().toInstant());
+        String raw = KEYSET_PREFIX + micros + ":" + seek.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
     }
 }
@@ -4,6 +4,7 @@ import com.knowledgeos.domain.Project;
 import com.knowledgeos.domain.Workspace;
 import com.knowledgeos.dto.CreateWorkspaceRequest;
 import com.knowledgeos.dto.WorkspaceResponse;
+import com.knowledgeos.infra.JsonCodec;
 import com.knowledgeos.repository.WorkspaceRepository;
 import io.micronaut.context.annotation.Value;
 import jakarta.inject.Inject;
@@ -41,6 +42,9 @@ public class WorkspaceService {
     @Inject
     WorkspaceRepository workspaceRepository;
 
+    @Inject
+    JsonCodec jsonCodec;
+
     @Value("${kubernetes.workspace-base-path:/workspaces}")
     String workspaceBasePath;
 
@@ -63,7 +67,7 @@ public class WorkspaceService {
         ws.setMode(mode);
         ws.setPath(path);
         ws.setPvcName(pvcName);
-        ws.setFileTree(toJson(fileTree));
+        ws.setFileTree(jsonCodec.writeStringList(fileTree));
         ws = workspaceRepository.save(ws);
 
         // Write .mcp/ scaffold after save so we have the real entity ID
@@ -76,13 +80,13 @@ public class WorkspaceService {
     public List<WorkspaceResponse> listForProject(UUID projectId) {
         return workspaceRepository.findByProjectId(projectId)
             .stream()
-            .map(ws -> toResponse(ws, fromJsonList(ws.getFileTree())))
+            .map(ws -> toResponse(ws, jsonCodec.readStringList(ws.getFileTree())))
             .toList();
     }
 
     public Optional<WorkspaceResponse> findById(UUID id) {
         return workspaceRepository.findById(id)
-            .map(ws -> toResponse(ws, fromJsonList(ws.getFileTree())));
+            .map(ws -> toResponse(ws, jsonCodec.readStringList(ws.getFileTree())));
     }
 
     public Optional<Workspace> findEntityById(UUID id) {
@@ -188,30 +192,4 @@ public class WorkspaceService {
             fileTree
         );
     }
-
-    private String toJson(List<String> list) {
-        if (list == null || list.isEmpty()) return "[]";
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < list.size(); i++) {
-            sb.append("\"").append(list.get(i).replace("\\", "\\\\").replace("\"", "\\\"")).append("\"");
-            if (i < list.size() - 1) sb.append(",");
-        }
-        return sb.append("]").toString();
-    }
-
-    private List<String> fromJsonList(String json) {
-        if (json == null || json.isBlank() || "[]".equals(json.trim())) return List.of();
-        // Simple extraction: strip brackets and split by comma-quoted-string boundaries
-        try {
-            String inner = json.trim().replaceFirst("^\\[", "").replaceFirst("]$", "").trim();
-            if (inner.isEmpty()) return List.of();
-            List<String> result = new ArrayList<>();
-            for (String part : inner.split(",(?=\")")) {
-                result.add(part.trim().replaceAll("^\"|\"$", ""));
-            }
-            return result;
-        } catch (Exception e) {
-            return List.of();
-        }
-    }
 }
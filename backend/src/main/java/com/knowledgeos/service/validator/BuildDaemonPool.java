@@ -0,0 +1,180 @@
+package com.knowledgeos.service.validator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps build daemons warm per workspace so validation skips JVM startup,
+ * build configuration and dependency resolution after the first run.
+ *
+ *   gradle → {@code --daemon} with the daemon's own idle timeout set to ours
+ *   maven  → {@code mvnd} instead of {@code mvn}, when {@code mvnd} is configured
+ *   npm    → no daemon; commands pass through unchanged
+ *
+ * A workspace's first run (or first after eviction) is cold; later runs within
+ * the idle timeout are warm. At most {@code max-workspaces} workspaces hold a
+ * daemon — past that, runs stay {@code --no-daemon} rather than start another JVM.
+ *
+ * Gradle and mvnd daemons are shared per user home and version, not per workspace,
+ * so nothing here ever runs {@code --stop}: that would kill other workspaces'
+ * running validations. Idle workspaces are forgotten by a scheduled sweep and their
+ * daemons exit by themselves on the same timeout; a run that fails with a daemon
+ * crash just makes that workspace's next run cold.
+ *
+ * Metrics: kos.validation.daemons (gauge), kos.validation.daemon.runs{state=warm|cold}
+ */
+@Singleton
+public class BuildDaemonPool {
+
+    private static final Logger log = LoggerFactory.getLogger(BuildDaemonPool.class);
+
+    private static final List<String> DAEMON_CRASH_MARKERS = List.of(
+        "daemon disappeared unexpectedly",
+        "Could not connect to the Gradle daemon",
+        "Could not receive a message from the daemon",
+        "Daemon terminated");
+
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.validation.daemon.enabled:true}")
+    boolean enabled;
+
+    @Value("${app.validation.daemon.idle-timeout:10m}")
+    Duration idleTimeout;
+
+    @Value("${app.validation.daemon.max-workspaces:16}")
+    int maxWorkspaces;
+
+    /** mvnd executable; blank keeps Maven on plain (cold) {@code mvn}. */
+    @Value("${app.validation.daemon.mvnd:}")
+    String mvnd;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    /** Guards admitting a workspace, so the size check and the insert are one step. */
+    private final Object admission = new Object();
+
+    /** A workspace whose daemon we believe is running. */
+    private static final class Slot {
+        final String workspace;
+        volatile long lastUsedNanos;
+        volatile boolean started;
+
+        Slot(String workspace) {
+            this.workspace = workspace;
+        }
+    }
+
+    /**
+     * A build about to run.
+     *
+     * @param command the test command rewritten to use the daemon (or unchanged)
+     * @param warm    true if a daemon should already be up; null when no daemon is involved
+     */
+    public record Lease(String key, List<String> command, Boolean warm) {}
+
+    @PostConstruct
+    void init() {
+        meterRegistry.gaugeMapSize("kos.validation.daemons", List.of(), slots);
+    }
+
+    /** Rewrite {@code testCmd} to run on this workspace's daemon. */
+    public Lease acquire(String workspacePath, String buildTool, List<String> testCmd) {
+        if (!enabled || !supportsDaemon(buildTool)) {
+            return new Lease(null, testCmd, null);
+        }
+        String key = buildTool + ":" + Path.of(workspacePath).toAbsolutePath().normalize();
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            synchronized (admission) {
+                slot = slots.get(key);
+                if (slot == null) {
+                    if (slots.size() >= maxWorkspaces) {
+                        log.debug("Daemon pool full ({}), running {} without a daemon", maxWorkspaces, workspacePath);
+                        return new Lease(null, testCmd, null);
+                    }
+                    slot = new Slot(workspacePath);
+                    slots.put(key, slot);
+                }
+            }
+        }
+        boolean warm = slot.started && !isIdle(slot, System.nanoTime());
+        slot.lastUsedNanos = System.nanoTime();
+        meterRegistry.counter("kos.validation.daemon.runs", "state", warm ? "warm" : "cold").increment();
+        return new Lease(key, daemonCommand(buildTool, testCmd), warm);
+    }
+
+    /** Record the outcome of a leased run; after a daemon crash the workspace's next run is cold. */
+    public void release(Lease lease, ProcessResult result) {
+        if (lease.key() == null) return;
+        Slot slot = slots.get(lease.key());
+        if (slot == null) return;
+        if (crashed(result)) {
+            log.warn("Build daemon for {} crashed, next build will be cold", slot.workspace);
+            slots.remove(lease.key(), slot);
+        } else {
+            slot.started = true;
+            slot.lastUsedNanos = System.nanoTime();
+        }
+    }
+
+    /** Forget workspaces idle past the timeout; their daemons have exited on the same timeout. */
+    @Scheduled(fixedDelay = "${app.validation.daemon.health-check-interval:1m}")
+    void healthCheck() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Slot> e : slots.entrySet()) {
+            Slot slot = e.getValue();
+            if (isIdle(slot, now)) {
+                log.debug("Daemon for {} idle past {}, released", slot.workspace, idleTimeout);
+                slots.remove(e.getKey(), slot);
+            }
+        }
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private boolean supportsDaemon(String buildTool) {
+        return "gradle".equals(buildTool) || ("maven".equals(buildTool) && !mvnd.isBlank());
+    }
+
+    private boolean isIdle(Slot slot, long now) {
+        return now - slot.lastUsedNanos > idleTimeout.toNanos();
+    }
+
+    private List<String> daemonCommand(String buildTool, List<String> testCmd) {
+        List<String> cmd = new ArrayList<>(testCmd.size() + 2);
+        if ("maven".equals(buildTool)) {
+            cmd.add(mvnd);
+            cmd.addAll(testCmd.subList(1, testCmd.size()));
+            cmd.add("-Dmvnd.idleTimeout=" + idleTimeout.toSeconds() + "s");
+            return cmd;
+        }
+        for (String arg : testCmd) {
+            if (!"--no-daemon".equals(arg)) cmd.add(arg);
+        }
+        cmd.add("--daemon");
+        cmd.add("-Dorg.gradle.daemon.idletimeout=" + idleTimeout.toMillis());
+        return cmd;
+    }
+
+    private static boolean crashed(ProcessResult result) {
+        if (result == null || result.success() || result.output() == null) return false;
+        for (String marker : DAEMON_CRASH_MARKERS) {
+            if (result.output().contains(marker)) return true;
+        }
+        return false;
+    }
+}
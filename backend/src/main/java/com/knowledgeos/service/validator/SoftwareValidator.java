@@ -3,6 +3,7 @@ package com.knowledgeos.service.validator;
 import com.knowledgeos.domain.Agent;
 import com.knowledgeos.domain.ChangeSet;
 import com.knowledgeos.dto.ValidatorResultResponse;
+import com.knowledgeos.infra.JsonCodec;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.slf4j.Logger;
@@ -21,6 +22,10 @@ import java.util.List;
  *   local → runs tests directly in workspacePath via ProcessBuilder
  *
  * Build tool is auto-detected from workspace files (Gradle > Maven > npm > Gradle default).
+ * Local runs go through {@link BuildDaemonPool}; the result reports whether the
+ * daemon was warm so cold and warm durations can be told apart.
+ * Only tests affected by the changeset's files run when {@link TestSelector} can
+ * tell which those are; otherwise the full suite runs.
  */
 @Singleton
 public class SoftwareValidator implements Validator {
@@ -30,35 +35,61 @@ public class SoftwareValidator implements Validator {
     @Inject
     ProcessRunner processRunner;
 
+    @Inject
+    TestSelector testSelector;
+
+    @Inject
+    JsonCodec jsonCodec;
+
+    @Inject
+    BuildDaemonPool daemonPool;
+
     @Override
     public ValidatorResultResponse run(ChangeSet changeset, Agent agent, String workspacePath) {
         long start = System.currentTimeMillis();
 
+        List<String> testCmd = selectTests(changeset, workspacePath);
         ProcessResult result;
+        Boolean warm = null;
         if (agent != null && "pod".equals(agent.getAgentType()) && agent.getPodName() != null) {
-            result = runViaPodExec(changeset, agent, workspacePath);
+            result = runViaPodExec(changeset, agent, workspacePath, testCmd);
         } else {
-            result = runViaShell(workspacePath);
+            BuildDaemonPool.Lease lease = daemonPool.acquire(workspacePath, detectBuildTool(workspacePath), testCmd);
+            result = runViaShell(workspacePath, lease.command());
+            daemonPool.release(lease, result);
+            warm = lease.warm();
         }
 
         long durationMs = System.currentTimeMillis() - start;
+        String daemon = warm == null ? "no daemon" : warm ? "warm daemon" : "cold daemon";
 
         if (result.success()) {
-            log.info("SoftwareValidator PASSED in {}ms", durationMs);
-            return new ValidatorResultResponse(true, List.of(), durationMs, false);
+            log.info("SoftwareValidator PASSED in {}ms ({})", durationMs, daemon);
+            return new ValidatorResultResponse(true, List.of(), durationMs, false, warm);
         } else {
             List<String> failures = extractFailures(result.output());
-            log.info("SoftwareValidator FAILED in {}ms: {} failures", durationMs, failures.size());
-            return new ValidatorResultResponse(false, failures, durationMs, false);
+            log.info("SoftwareValidator FAILED in {}ms ({}): {} failures", durationMs, daemon, failures.size());
+            return new ValidatorResultResponse(false, failures, durationMs, false, warm);
         }
     }
 
     // ── Private helpers ─────────────────────────────────────────────────────
 
-    private ProcessResult runViaPodExec(ChangeSet changeset, Agent agent, String workspacePath) {
+    private List<String> selectTests(ChangeSet changeset, String workspacePath) {
+        TestSelector.Selection selection = testSelector.select(
+            Path.of(workspacePath),
+            detectBuildTool(workspacePath),
+            jsonCodec.readStringList(changeset.getFilesChanged()),
+            jsonCodec.readStringList(changeset.getTestsRun()));
+        log.debug("Test selection for changeset {}: {} ({})", changeset.getId(),
+            selection.full() ? "full suite" : "affected tests", selection.reason());
+        return selection.command();
+    }
+
+    private ProcessResult runViaPodExec(ChangeSet changeset, Agent agent, String workspacePath,
+                                        List<String> testCmd) {
         String namespace = changeset.getProject().getNamespace();
         String podName = agent.getPodName();
-        String buildTool = detectBuildTool(workspacePath);
 
         List<String> cmd = new ArrayList<>();
         cmd.add("kubectl");
@@ -67,18 +98,15 @@ public class SoftwareValidator implements Validator {
         cmd.add(namespace);
         cmd.add(podName);
         cmd.add("--");
-        cmd.addAll(buildCmd(buildTool));
+        cmd.addAll(testCmd);
 
         log.debug("Running tests via kubectl exec: {}", String.join(" ", cmd));
         return processRunner.run(cmd, Path.of(workspacePath));
     }
 
-    private ProcessResult runViaShell(String workspacePath) {
-        Path workspace = Path.of(workspacePath);
-        String buildTool = detectBuildTool(workspacePath);
-        List<String> cmd = buildCmd(buildTool);
-        log.debug("Running tests via shell: {}", String.join(" ", cmd));
-        return processRunner.run(cmd, workspace);
+    private ProcessResult runViaShell(String workspacePath, List<String> testCmd) {
+        log.debug("Running tests via shell: {}", String.join(" ", testCmd));
+        return processRunner.run(testCmd, Path.of(workspacePath));
     }
 
     /**
@@ -99,14 +127,6 @@ public class SoftwareValidator implements Validator {
         return "gradle";
     }
 
-    private List<String> buildCmd(String buildTool) {
-        return switch (buildTool) {
-            case "maven" -> List.of("mvn", "-B", "test");
-            case "npm"   -> List.of("npm", "test", "--", "--ci");
-            default      -> List.of("./gradlew", "test", "--no-daemon");
-        };
-    }
-
     private List<String> extractFailures(String output) {
         List<String> failures = new ArrayList<>();
         if (output == null) return failures;
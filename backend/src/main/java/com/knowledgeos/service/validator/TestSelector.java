@@ -0,0 +1,361 @@
+package com.knowledgeos.service.validator;
+
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Narrows a validation run to the tests a changeset can affect.
+ *
+ * Each changed file is mapped to its build module (nearest directory with a
+ * build file) and, for JVM sources, to the test classes that sit next to it by
+ * naming convention ({@code Foo} → {@code FooTest}, {@code FooTests},
+ * {@code FooIT}, {@code TestFoo}). Tests the agent reported in {@code testsRun}
+ * are resolved to a test class in the module holding its source and added to that
+ * module's filters; one that can't be found makes the selected modules run all
+ * their tests.
+ *
+ *   gradle → {@code :module:test --tests <fqcn>} per module
+ *   maven  → {@code -pl <modules> -am -Dtest=<classes>}
+ *   npm    → {@code --findRelatedTests <files>} when the project uses jest
+ *
+ * A module whose changed sources have no matching test runs all of its tests.
+ * The full suite runs when the change set lists no files, touches build
+ * configuration, or has files the mapping can't place.
+ */
+@Singleton
+public class TestSelector {
+
+    private static final Logger log = LoggerFactory.getLogger(TestSelector.class);
+
+    private static final List<String> SOURCE_LANGS = List.of("java", "kotlin", "groovy", "scala");
+    private static final Set<String> SOURCE_EXTENSIONS = Set.of("java", "kt", "groovy", "scala");
+    private static final Set<String> BUILD_FILES = Set.of(
+        "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts",
+        "gradle.properties", "libs.versions.toml", "gradlew", "pom.xml",
+        "package.json", "package-lock.json", "yarn.lock", "pnpm-lock.yaml",
+        "jest.config.js", "jest.config.ts", "tsconfig.json");
+    private static final Set<String> DOC_EXTENSIONS = Set.of("md", "txt", "adoc", "rst");
+
+    /**
+     * Test command for the given build tool.
+     *
+     * @param workspace     workspace root the changed paths are relative to
+     * @param buildTool     "gradle", "maven" or "npm"
+     * @param filesChanged  workspace-relative paths from the change set
+     * @param testsRun      test identifiers the agent already ran (class names or test files)
+     */
+    public Selection select(Path workspace, String buildTool, List<String> filesChanged, List<String> testsRun) {
+        Selection full = Selection.full(fullCommand(buildTool));
+        if (filesChanged == null || filesChanged.isEmpty()) return full;
+
+        List<String> files = new ArrayList<>(filesChanged.size());
+        for (String f : filesChanged) {
+            String rel = normalize(f);
+            if (rel == null) return full.because("unmappable path " + f);
+            if (BUILD_FILES.contains(fileName(rel)) || rel.startsWith("gradle/") || rel.startsWith(".mvn/")) {
+                return full.because("build configuration changed: " + rel);
+            }
+            files.add(rel);
+        }
+        List<String> reported = testsRun != null ? testsRun : List.of();
+
+        try {
+            return switch (buildTool) {
+                case "maven" -> selectMaven(workspace, files, reported, full);
+                case "npm"   -> selectNpm(workspace, files, reported, full);
+                default      -> selectGradle(workspace, files, reported, full);
+            };
+        } catch (IOException e) {
+            log.debug("Test selection failed, running full suite: {}", e.getMessage());
+            return full.because("selection error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Chosen test command.
+     *
+     * @param command the command to run
+     * @param full    true when this is the whole test suite
+     * @param reason  why the full suite was chosen, or a summary of the selection
+     */
+    public record Selection(List<String> command, boolean full, String reason) {
+
+        static Selection full(List<String> command) {
+            return new Selection(command, true, "no files listed");
+        }
+
+        Selection because(String why) {
+            return new Selection(command, true, why);
+        }
+    }
+
+    // ── Per build tool ──────────────────────────────────────────────────────
+
+    private Selection selectGradle(Path ws, List<String> files, List<String> reported, Selection full)
+            throws IOException {
+        Map<String, Set<String>> modules = mapToModules(ws, files, "build.gradle", "build.gradle.kts");
+        if (modules == null) return full.because("file outside any Gradle module");
+        if (modules.isEmpty()) return full.because("only documentation changed");
+        addReported(ws, modules, reported, "build.gradle", "build.gradle.kts");
+
+        List<String> cmd = new ArrayList<>(List.of("./gradlew"));
+        int filters = 0;
+        for (Map.Entry<String, Set<String>> m : modules.entrySet()) {
+            cmd.add(m.getKey().isEmpty() ? ":test" : ":" + m.getKey().replace('/', ':') + ":test");
+            for (String test : m.getValue()) {
+                cmd.add("--tests");
+                cmd.add(test);
+                filters++;
+            }
+        }
+        cmd.add("--no-daemon");
+        return new Selection(cmd, false, modules.size() + " module(s), " + filters + " test filter(s)");
+    }
+
+    private Selection selectMaven(Path ws, List<String> files, List<String> reported, Selection full)
+            throws IOException {
+        Map<String, Set<String>> modules = mapToModules(ws, files, "pom.xml");
+        if (modules == null) return full.because("file outside any Maven module");
+        if (modules.isEmpty()) return full.because("only documentation changed");
+        addReported(ws, modules, reported, "pom.xml");
+
+        List<String> cmd = new ArrayList<>(List.of("mvn", "-B", "test"));
+        List<String> dirs = modules.keySet().stream().filter(m -> !m.isEmpty()).toList();
+        if (!modules.containsKey("") && !dirs.isEmpty()) {
+            cmd.add("-pl");
+            cmd.add(String.join(",", dirs));
+            cmd.add("-am");
+        }
+        // -Dtest is global: only usable when every selected module has specific tests
+        boolean allSpecific = modules.values().stream().noneMatch(Set::isEmpty);
+        if (allSpecific) {
+            Set<String> classes = new TreeSet<>();
+            for (Set<String> tests : modules.values()) {
+                for (String t : tests) classes.add(t.substring(t.lastIndexOf('.') + 1));
+            }
+            cmd.add("-Dtest=" + String.join(",", classes));
+            cmd.add("-Dsurefire.failIfNoSpecifiedTests=false");
+        }
+        return new Selection(cmd, false, modules.size() + " module(s)" + (allSpecific ? ", test filter" : ""));
+    }
+
+    private Selection selectNpm(Path ws, List<String> files, List<String> reported, Selection full)
+            throws IOException {
+        Path packageJson = ws.resolve("package.json");
+        if (!Files.isRegularFile(packageJson) || !Files.readString(packageJson).contains("jest")) {
+            return full.because("related-test selection needs jest");
+        }
+        Set<String> related = new TreeSet<>();
+        for (String f : files) {
+            if (!isDoc(f)) related.add(f);
+        }
+        for (String t : reported) {
+            if (Files.isRegularFile(ws.resolve(t))) related.add(t);
+        }
+        if (related.isEmpty()) return full.because("only documentation changed");
+
+        List<String> cmd = new ArrayList<>(List.of("npm", "test", "--", "--ci", "--findRelatedTests"));
+        cmd.addAll(related);
+        return new Selection(cmd, false, related.size() + " related file(s)");
+    }
+
+    // ── Mapping ─────────────────────────────────────────────────────────────
+
+    /**
+     * Module directory ("" for the root) → test classes to run there; an empty set
+     * means all of that module's tests. Null if a file belongs to no module.
+     */
+    private Map<String, Set<String>> mapToModules(Path ws, List<String> files, String... buildFiles)
+            throws IOException {
+        Map<String, Set<String>> modules = new TreeMap<>();
+        Set<String> wholeModules = new HashSet<>();
+        for (String rel : files) {
+            if (isDoc(rel)) continue;
+            String module = moduleOf(ws, rel, buildFiles);
+            if (module == null) return null;
+            Set<String> tests = modules.computeIfAbsent(module, m -> new TreeSet<>());
+            if (wholeModules.contains(module)) continue;
+
+            String inModule = module.isEmpty() ? rel : rel.substring(module.length() + 1);
+            List<String> found = testsFor(ws.resolve(module), inModule);
+            if (found.isEmpty()) {
+                // No convention match (resource, new class, helper…): run the module's tests
+                wholeModules.add(module);
+                tests.clear();
+            } else {
+                tests.addAll(found);
+            }
+        }
+        return modules;
+    }
+
+    /** Nearest ancestor directory of {@code rel} (including the root) holding one of the build files. */
+    private static String moduleOf(Path ws, String rel, String... buildFiles) {
+        Path dir = Path.of(rel).getParent();
+        while (true) {
+            Path abs = dir == null ? ws : ws.resolve(dir);
+            for (String bf : buildFiles) {
+                if (Files.isRegularFile(abs.resolve(bf))) {
+                    return dir == null ? "" : dir.toString().replace('\\', '/');
+                }
+            }
+            if (dir == null) return null;
+            dir = dir.getParent();
+        }
+    }
+
+    /** Test classes (FQCN) for a module-relative file by naming convention. */
+    private static List<String> testsFor(Path module, String inModule) throws IOException {
+        for (String lang : SOURCE_LANGS) {
+            String testRoot = "src/test/" + lang + "/";
+            if (inModule.startsWith(testRoot)) {
+                return List.of(className(inModule.substring(testRoot.length())));
+            }
+        }
+        for (String lang : SOURCE_LANGS) {
+            String mainRoot = "src/main/" + lang + "/";
+            if (!inModule.startsWith(mainRoot)) continue;
+            String fqcn = className(inModule.substring(mainRoot.length()));
+            int dot = fqcn.lastIndexOf('.');
+            String pkg = dot < 0 ? "" : fqcn.substring(0, dot + 1);
+            String simple = fqcn.substring(dot + 1);
+            List<String> found = new ArrayList<>();
+            for (String testLang : SOURCE_LANGS) {
+                Path pkgDir = module.resolve("src/test/" + testLang).resolve(pkg.replace('.', '/'));
+                if (!Files.isDirectory(pkgDir)) continue;
+                for (String candidate : List.of(simple + "Test", simple + "Tests", simple + "IT", "Test" + simple)) {
+                    try (var listing = Files.list(pkgDir)) {
+                        if (listing.anyMatch(p -> stripExtension(p.getFileName().toString()).equals(candidate))) {
+                            found.add(pkg + candidate);
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+        return List.of();
+    }
+
+    /**
+     * Add each reported test, as a class name, to the module holding its source — a
+     * module not selected so far is added with just that test. A test that can't be
+     * found makes every selected module run all of its tests.
+     */
+    private static void addReported(Path ws, Map<String, Set<String>> modules, List<String> reported,
+                                    String... buildFiles) throws IOException {
+        if (reported.isEmpty()) return;
+        Set<String> whole = new HashSet<>();
+        modules.forEach((module, tests) -> {
+            if (tests.isEmpty()) whole.add(module);
+        });
+        for (String id : reported) {
+            Map.Entry<String, String> test = locateTest(ws, modules.keySet(), id, buildFiles);
+            if (test == null) {
+                log.debug("Reported test {} not found, running the selected modules in full", id);
+                modules.values().forEach(Set::clear);
+                whole.addAll(modules.keySet());
+                continue;
+            }
+            if (whole.contains(test.getKey())) continue;
+            modules.computeIfAbsent(test.getKey(), m -> new TreeSet<>()).add(test.getValue());
+        }
+    }
+
+    /**
+     * Module and FQCN of a reported test: a workspace-relative test source path, or a
+     * class name (qualified or simple, optionally with a source extension or
+     * {@code #method}) looked up in the test sources of {@code modules}. Null if not found.
+     */
+    private static Map.Entry<String, String> locateTest(Path ws, Set<String> modules, String id,
+                                                        String... buildFiles) throws IOException {
+        String name = id.trim();
+        int hash = name.indexOf('#');
+        if (hash >= 0) name = name.substring(0, hash);
+        if (name.isEmpty()) return null;
+
+        if (name.contains("/")) {
+            String rel = normalize(name);
+            if (rel == null) return null;
+            String module = moduleOf(ws, rel, buildFiles);
+            if (module == null) return null;
+            String inModule = module.isEmpty() ? rel : rel.substring(module.length() + 1);
+            for (String lang : SOURCE_LANGS) {
+                String testRoot = "src/test/" + lang + "/";
+                if (inModule.startsWith(testRoot)) {
+                    return Map.entry(module, className(inModule.substring(testRoot.length())));
+                }
+            }
+            return null;
+        }
+
+        if (hasSourceExtension(name)) name = stripExtension(name);
+        String wanted = name;
+        for (String module : modules) {
+            for (String lang : SOURCE_LANGS) {
+                Path root = ws.resolve(module).resolve("src/test/" + lang);
+                if (!Files.isDirectory(root)) continue;
+                try (var files = Files.walk(root)) {
+                    Optional<String> fqcn = files
+                        .filter(Files::isRegularFile)
+                        .map(p -> className(root.relativize(p).toString().replace('\\', '/')))
+                        .filter(c -> c.equals(wanted) || c.endsWith("." + wanted))
+                        .findFirst();
+                    if (fqcn.isPresent()) return Map.entry(module, fqcn.get());
+                }
+            }
+        }
+        return null;
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    static List<String> fullCommand(String buildTool) {
+        return switch (buildTool) {
+            case "maven" -> List.of("mvn", "-B", "test");
+            case "npm"   -> List.of("npm", "test", "--", "--ci");
+            default      -> List.of("./gradlew", "test", "--no-daemon");
+        };
+    }
+
+    /** Workspace-relative path without ./ or leading /; null if it escapes the workspace. */
+    private static String normalize(String file) {
+        if (file == null || file.isBlank()) return null;
+        String rel = file.trim().replace('\\', '/');
+        while (rel.startsWith("./")) rel = rel.substring(2);
+        while (rel.startsWith("/")) rel = rel.substring(1);
+        Path p = Path.of(rel).normalize();
+        if (rel.isEmpty() || p.startsWith("..")) return null;
+        return p.toString().replace('\\', '/');
+    }
+
+    private static boolean isDoc(String rel) {
+        if (rel.startsWith("docs/")) return true;
+        String name = fileName(rel);
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && DOC_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String fileName(String rel) {
+        return rel.substring(rel.lastIndexOf('/') + 1);
+    }
+
+    private static boolean hasSourceExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && SOURCE_EXTENSIONS.contains(name.substring(dot + 1));
+    }
+
+    private static String className(String sourcePath) {
+        return stripExtension(sourcePath).replace('/', '.');
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+}
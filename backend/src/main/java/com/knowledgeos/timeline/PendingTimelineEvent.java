@@ -0,0 +1,31 @@
+package com.knowledgeos.timeline;
+
+import jakarta.annotation.Nullable;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A timeline event accepted by {@link TimelineWriter} but not yet persisted.
+ *
+ * The ID and timestamp are assigned at log time so that ordering reflects when
+ * the action happened, not when the background writer got around to flushing it.
+ *
+ * @param source "pod" | "local" | "user", or null to derive it from the agent type at flush time
+ */
+public record PendingTimelineEvent(
+    UUID id,
+    UUID projectId,
+    @Nullable UUID agentId,
+    String type,
+    String payloadJson,
+    @Nullable String source,
+    OffsetDateTime createdAt
+) {
+
+    /** Copy with the agent and source resolved by the writer. */
+    PendingTimelineEvent resolved(@Nullable UUID resolvedAgentId, String resolvedSource) {
+        return new PendingTimelineEvent(id, projectId, resolvedAgentId, type, payloadJson,
+            resolvedSource, createdAt);
+    }
+}
@@ -0,0 +1,23 @@
+package com.knowledgeos.timeline;
+
+import jakarta.annotation.Nullable;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * WebSocket message sent to {@code /ws/events/{projectId}} subscribers for each
+ * persisted timeline event. Serialized by {@link com.knowledgeos.infra.JsonCodec#writeTimelineEvent}.
+ */
+public record TimelineEventMessage(
+    UUID id,
+    String type,
+    String source,
+    @Nullable UUID agentId,
+    OffsetDateTime createdAt
+) {
+
+    static TimelineEventMessage of(PendingTimelineEvent e) {
+        return new TimelineEventMessage(e.id(), e.type(), e.source(), e.agentId(), e.createdAt());
+    }
+}
@@ -0,0 +1,323 @@
+package com.knowledgeos.timeline;
+
+import com.knowledgeos.infra.JsonCodec;
+import com.knowledgeos.websocket.AgentEventWebSocket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.transaction.TransactionOperations;
+import io.micronaut.transaction.support.TransactionSynchronization;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timeline ingestion pipeline.
+ *
+ * {@link #submit} is called on the request path and only enqueues: the event is
+ * handed to a bounded ring buffer once the caller's transaction commits (events
+ * from rolled-back transactions are discarded, matching the old in-transaction
+ * insert). A single background thread drains the buffer and writes
+ * {@code timeline_events} with JDBC batch inserts, then broadcasts each event to
+ * WebSocket subscribers.
+ *
+ * When the buffer is full new events are dropped and counted — audit logging must
+ * never block or fail a request.
+ *
+ * Modes ({@code app.timeline.writer.mode}):
+ *   async — background batching (default)
+ *   sync  — each event is written on the committing thread; used by tests that
+ *           read the timeline immediately after the triggering request
+ *
+ * Metrics: kos.timeline.queue.depth, kos.timeline.dropped, kos.timeline.flush
+ */
+@Singleton
+public class TimelineWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(TimelineWriter.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO timeline_events (id, project_id, agent_id, type, payload, source, created_at) " +
+        "VALUES (?, ?, ?, ?, ?::jsonb, ?, ?)";
+
+    @Inject DataSource dataSource;
+    @Inject TransactionOperations<Session> transactionOperations;
+    @Inject AgentEventWebSocket webSocket;
+    @Inject JsonCodec jsonCodec;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.timeline.writer.mode:async}")
+    String mode;
+
+    @Value("${app.timeline.writer.capacity:10000}")
+    int capacity;
+
+    @Value("${app.timeline.writer.batch-size:200}")
+    int batchSize;
+
+    @Value("${app.timeline.writer.flush-interval:250ms}")
+    Duration flushInterval;
+
+    private BlockingQueue<PendingTimelineEvent> buffer;
+    private Thread drainer;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean running;
+
+    private Counter droppedOverflow;
+    private Counter droppedWriteError;
+    private Counter written;
+    private Timer flushTimer;
+
+    @PostConstruct
+    void start() {
+        buffer = new ArrayBlockingQueue<>(capacity);
+        meterRegistry.gauge("kos.timeline.queue.depth", buffer, BlockingQueue::size);
+        droppedOverflow   = meterRegistry.counter("kos.timeline.dropped", "reason", "overflow");
+        droppedWriteError = meterRegistry.counter("kos.timeline.dropped", "reason", "write_error");
+        written           = meterRegistry.counter("kos.timeline.written");
+        flushTimer        = meterRegistry.timer("kos.timeline.flush");
+
+        if (isAsync()) {
+            running = true;
+            drainer = Thread.ofPlatform().name("timeline-writer").daemon(true).start(this::drainLoop);
+            log.info("Timeline writer started: capacity={} batchSize={} flushInterval={}",
+                capacity, batchSize, flushInterval);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (drainer != null) {
+            drainer.interrupt();
+            try {
+                drainer.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Flush whatever is left so a clean shutdown loses nothing
+        List<PendingTimelineEvent> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+            inFlight.addAndGet(-rest.size());
+        }
+    }
+
+    /**
+     * Accept an event for persistence. Never throws and never blocks.
+     * If a transaction is active the event is enqueued after it commits.
+     */
+    public void submit(PendingTimelineEvent event) {
+        try {
+            var tx = transactionOperations.findTransactionStatus();
+            if (tx.isPresent()) {
+                tx.get().registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        accept(event);
+                    }
+                });
+            } else {
+                accept(event);
+            }
+        } catch (Exception e) {
+            log.warn("Timeline submit failed for type={}: {}", event.type(), e.getMessage());
+        }
+    }
+
+    /** Block until everything enqueued so far has been written (tests and shutdown). */
+    public void awaitDrained(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private boolean isAsync() {
+        return !"sync".equalsIgnoreCase(mode);
+    }
+
+    private void accept(PendingTimelineEvent event) {
+        if (!isAsync()) {
+            flush(List.of(event));
+            return;
+        }
+        inFlight.incrementAndGet();
+        if (!buffer.offer(event)) {
+            inFlight.decrementAndGet();
+            droppedOverflow.increment();
+            log.warn("Timeline buffer full ({}) — dropped event type={} project={}",
+                capacity, event.type(), event.projectId());
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingTimelineEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingTimelineEvent first = buffer.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                flush(batch);
+                inFlight.addAndGet(-batch.size());
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (Exception e) {
+                log.warn("Timeline drain iteration failed: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /** Persist one batch and broadcast what was written. Never throws. */
+    private void flush(List<PendingTimelineEvent> events) {
+        long start = System.nanoTime();
+        List<PendingTimelineEvent> persisted = List.of();
+        try (Connection conn = dataSource.getConnection()) {
+            List<PendingTimelineEvent> resolved = resolve(conn, events);
+            persisted = insert(conn, resolved);
+        } catch (Exception e) {
+            droppedWriteError.increment(events.size());
+            log.warn("Timeline flush of {} events failed: {}", events.size(), e.getMessage());
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        written.increment(persisted.size());
+        for (PendingTimelineEvent event : persisted) {
+            try {
+                webSocket.broadcast(event.projectId().toString(),
+                    jsonCodec.writeTimelineEvent(TimelineEventMessage.of(event)));
+            } catch (Exception e) {
+                log.debug("WS broadcast skipped: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drop events whose project no longer exists, null out unknown agents and
+     * derive missing sources from the agent type — two lookups per batch instead
+     * of two per event on the request path.
+     */
+    private List<PendingTimelineEvent> resolve(Connection conn, List<PendingTimelineEvent> events)
+            throws SQLException {
+        Set<UUID> projectIds = new HashSet<>();
+        Set<UUID> agentIds = new HashSet<>();
+        for (PendingTimelineEvent e : events) {
+            projectIds.add(e.projectId());
+            if (e.agentId() != null) agentIds.add(e.agentId());
+        }
+
+        Set<UUID> existingProjects = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM projects WHERE id = ANY (?)")) {
+            ps.setArray(1, uuidArray(conn, projectIds));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) existingProjects.add(rs.getObject(1, UUID.class));
+            }
+        }
+
+        Map<UUID, String> agentTypes = new HashMap<>();
+        if (!agentIds.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id, agent_type FROM agents WHERE id = ANY (?)")) {
+                ps.setArray(1, uuidArray(conn, agentIds));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) agentTypes.put(rs.getObject(1, UUID.class), rs.getString(2));
+                }
+            }
+        }
+
+        List<PendingTimelineEvent> resolved = new ArrayList<>(events.size());
+        for (PendingTimelineEvent e : events) {
+            if (!existingProjects.contains(e.projectId())) {
+                log.warn("Timeline log skipped — project not found: {}", e.projectId());
+                continue;
+            }
+            UUID agentId = (e.agentId() != null && agentTypes.containsKey(e.agentId())) ? e.agentId() : null;
+            String source = e.source() != null
+                ? e.source()
+                : (agentId != null ? agentTypes.get(agentId) : "user");
+            resolved.add(e.resolved(agentId, source));
+        }
+        return resolved;
+    }
+
+    /**
+     * Batch insert in one transaction. If the batch is rejected (e.g. an agent was
+     * deleted mid-flight) fall back to row-by-row so one bad event doesn't take
+     * the rest of the batch with it.
+     */
+    private List<PendingTimelineEvent> insert(Connection conn, List<PendingTimelineEvent> events)
+            throws SQLException {
+        if (events.isEmpty()) return List.of();
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            for (PendingTimelineEvent e : events) {
+                bind(ps, e);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            return events;
+        } catch (SQLException batchFailure) {
+            conn.rollback();
+            log.debug("Timeline batch insert failed, retrying row-by-row: {}", batchFailure.getMessage());
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        List<PendingTimelineEvent> persisted = new ArrayList<>(events.size());
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            for (PendingTimelineEvent e : events) {
+                try {
+                    bind(ps, e);
+                    ps.executeUpdate();
+                    persisted.add(e);
+                } catch (SQLException rowFailure) {
+                    droppedWriteError.increment();
+                    log.warn("Timeline insert failed for type={}: {}", e.type(), rowFailure.getMessage());
+                }
+            }
+        }
+        return persisted;
+    }
+
+    private static void bind(PreparedStatement ps, PendingTimelineEvent e) throws SQLException {
+        ps.setObject(1, e.id());
+        ps.setObject(2, e.projectId());
+        ps.setObject(3, e.agentId());
+        ps.setString(4, e.type());
+        ps.setString(5, e.payloadJson());
+        ps.setString(6, e.source());
+        ps.setObject(7, e.createdAt());
+    }
+
+    private static Array uuidArray(Connection conn, Collection<UUID> ids) throws SQLException {
+        return conn.createArrayOf("uuid", ids.toArray());
+    }
+}
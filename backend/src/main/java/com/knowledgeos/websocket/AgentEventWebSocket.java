@@ -1,12 +1,21 @@
 package com.knowledgeos.websocket;
 
+import com.knowledgeos.events.ClusterEventBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.websocket.WebSocketSession;
 import io.micronaut.websocket.annotation.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -15,8 +24,18 @@ import java.util.concurrent.ConcurrentHashMap;
  * Connect: ws://host/ws/events/{projectId}
  * Each message is a JSON-serialized {@link com.knowledgeos.dto.TimelineEventResponse}.
  *
- * Session registry is in-process only (single node). For multi-node deployments
- * this would need a Redis pub/sub bus.
+ * Multi-node: {@link #broadcast} publishes once to the {@link ClusterEventBus}
+ * topic {@code events:{projectId}}; every replica with sessions for that project
+ * receives it and fans out to its own sessions only. A node subscribes to a
+ * project's topic when its first session opens and unsubscribes when the last
+ * one closes.
+ *
+ * Backpressure: each session gets a bounded {@link SessionOutbox}. A message is
+ * encoded to UTF-8 once and the same bytes are queued for every session; slow
+ * consumers are coalesced or evicted per {@code app.websocket.outbox.*}.
+ *
+ * Metrics: kos.ws.sessions, kos.ws.outbox.lag, kos.ws.events.skipped,
+ * kos.ws.evictions. Per-session lag: {@code /websockets} management endpoint.
  */
 @Singleton
 @ServerWebSocket("/ws/events/{projectId}")
@@ -24,23 +43,67 @@ public class AgentEventWebSocket {
 
     private static final Logger log = LoggerFactory.getLogger(AgentEventWebSocket.class);
 
-    /** projectId → set of open WebSocket sessions */
-    private final ConcurrentHashMap<String, Set<WebSocketSession>> registry =
+    @Inject ClusterEventBus eventBus;
+    @Inject MeterRegistry meterRegistry;
+
+    @Value("${app.websocket.outbox.high-water:256}")
+    int highWater;
+
+    /** coalesce | evict */
+    @Value("${app.websocket.outbox.overflow:coalesce}")
+    String overflow;
+
+    @Value("${app.websocket.outbox.max-stall:30s}")
+    Duration maxStall;
+
+    /** projectId → (sessionId → outbox) for open sessions on this node */
+    private final ConcurrentHashMap<String, Map<String, SessionOutbox>> registry =
         new ConcurrentHashMap<>();
 
+    /** projectId → bus subscription, present while the project has local sessions */
+    private final ConcurrentHashMap<String, ClusterEventBus.Subscription> subscriptions =
+        new ConcurrentHashMap<>();
+
+    private DistributionSummary lagSummary;
+    private Counter skippedCounter;
+
+    @PostConstruct
+    void initMetrics() {
+        meterRegistry.gauge("kos.ws.sessions", registry, r -> r.values().stream().mapToInt(Map::size).sum());
+        lagSummary = DistributionSummary.builder("kos.ws.outbox.lag")
+            .description("Frames queued for a session when a new event is offered")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        skippedCounter = meterRegistry.counter("kos.ws.events.skipped");
+    }
+
     @OnOpen
     public void onOpen(String projectId, WebSocketSession session) {
-        registry.computeIfAbsent(projectId, k -> ConcurrentHashMap.newKeySet()).add(session);
+        SessionOutbox outbox = new SessionOutbox(projectId, session, highWater,
+            !"evict".equalsIgnoreCase(overflow), maxStall.toMillis(),
+            reason -> meterRegistry.counter("kos.ws.evictions", "reason", reason).increment());
+        Map<String, SessionOutbox> sessions = registry.compute(projectId, (id, map) -> {
+            if (map == null) {
+                map = new ConcurrentHashMap<>();
+                subscriptions.put(id, eventBus.subscribe(topic(id), message -> deliverLocal(id, message)));
+            }
+            map.put(session.getId(), outbox);
+            return map;
+        });
         log.info("Events WS opened: project={} session={} total={}",
-            projectId, session.getId(), registry.get(projectId).size());
+            projectId, session.getId(), sessions.size());
     }
 
     @OnClose
     public void onClose(String projectId, WebSocketSession session) {
-        Set<WebSocketSession> sessions = registry.get(projectId);
-        if (sessions != null) {
-            sessions.remove(session);
-        }
+        registry.computeIfPresent(projectId, (id, map) -> {
+            SessionOutbox outbox = map.remove(session.getId());
+            if (outbox != null) outbox.close();
+            if (!map.isEmpty()) return map;
+            ClusterEventBus.Subscription subscription = subscriptions.remove(id);
+            if (subscription != null) subscription.close();
+            return null;
+        });
         log.debug("Events WS closed: project={} session={}", projectId, session.getId());
     }
 
@@ -50,23 +113,47 @@ public class AgentEventWebSocket {
     }
 
     /**
-     * Broadcast a pre-serialized JSON string to all subscribers of the project.
-     * Called by {@link com.knowledgeos.service.TimelineService} on every log() call.
-     * Failures are swallowed — WebSocket delivery is best-effort.
+     * Broadcast a pre-serialized JSON string to all subscribers of the project,
+     * on every node. Called by {@link com.knowledgeos.timeline.TimelineWriter}
+     * after each persisted event. WebSocket delivery is best-effort.
      */
     public void broadcast(String projectId, String jsonMessage) {
-        Set<WebSocketSession> sessions = registry.get(projectId);
+        eventBus.publish(topic(projectId), jsonMessage);
+    }
+
+    /** Snapshot of every local session's outbox, for the management endpoint. */
+    public List<Map<String, Object>> outboxStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        registry.forEach((projectId, map) -> map.values().forEach(outbox -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("sessionId", outbox.sessionId());
+            row.put("projectId", projectId);
+            row.put("lag", outbox.lag());
+            row.put("skipped", outbox.skippedTotal());
+            stats.add(row);
+        }));
+        return stats;
+    }
+
+    /**
+     * Fan a bus message out to this node's sessions for the project. The frame is
+     * encoded once; every outbox queues a reference to the same bytes.
+     */
+    private void deliverLocal(String projectId, String jsonMessage) {
+        Map<String, SessionOutbox> sessions = registry.get(projectId);
         if (sessions == null || sessions.isEmpty()) return;
 
-        for (WebSocketSession session : sessions) {
-            if (session.isOpen()) {
-                try {
-                    session.sendAsync(jsonMessage);
-                } catch (Exception e) {
-                    log.debug("WS send failed for session {}: {}", session.getId(), e.getMessage());
-                }
+        byte[] frame = jsonMessage.getBytes(StandardCharsets.UTF_8);
+        for (SessionOutbox outbox : sessions.values()) {
+            lagSummary.record(outbox.lag());
+            if (outbox.offer(frame) == SessionOutbox.OfferResult.SKIPPED) {
+                skippedCounter.increment();
             }
         }
-        log.debug("Broadcast to {} subscribers for project {}", sessions.size(), projectId);
+        log.debug("Delivered to {} local subscribers for project {}", sessions.size(), projectId);
+    }
+
+    private static String topic(String projectId) {
+        return "events:" + projectId;
     }
 }
@@ -0,0 +1,181 @@
+package com.knowledgeos.websocket;
+
+import io.micronaut.websocket.CloseReason;
+import io.micronaut.websocket.WebSocketSession;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Bounded outbound queue for one {@code /ws/events} session.
+ *
+ * At most one {@code sendAsync} is in flight per session; the next frame is
+ * written only when Netty reports the previous one flushed, so a stalled
+ * client backs up here (bounded) instead of in Netty's outbound buffer
+ * (unbounded).
+ *
+ * Once {@code highWater} frames are queued the session is a slow consumer:
+ *   coalesce — further events are counted and dropped; when the queue drains
+ *              to half the mark one {@code events_skipped} marker is queued so
+ *              the UI knows to refetch. A session that stays saturated for
+ *              longer than {@code maxStallMillis} is evicted anyway.
+ *   evict    — the session is closed immediately with 1013 (try again later).
+ *
+ * Frames are UTF-8 bytes encoded once per event by {@link AgentEventWebSocket}
+ * and shared by every session; each send wraps them without copying.
+ */
+final class SessionOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionOutbox.class);
+
+    /** What the broadcaster should record after {@link #offer}. */
+    enum OfferResult { QUEUED, SKIPPED, EVICTED }
+
+    private final String projectId;
+    private final WebSocketSession session;
+    private final int highWater;
+    private final boolean coalesce;
+    private final long maxStallMillis;
+    private final Consumer<String> onEvicted;
+
+    private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    private boolean sending;
+    private boolean closed;
+    private long skipped;
+    private long totalSkipped;
+    private long saturatedSince;
+
+    SessionOutbox(String projectId, WebSocketSession session, int highWater, boolean coalesce,
+                  long maxStallMillis, Consumer<String> onEvicted) {
+        this.projectId = projectId;
+        this.session = session;
+        this.highWater = highWater;
+        this.coalesce = coalesce;
+        this.maxStallMillis = maxStallMillis;
+        this.onEvicted = onEvicted;
+    }
+
+    String sessionId() { return session.getId(); }
+    String projectId() { return projectId; }
+
+    synchronized int lag() { return queue.size() + (sending ? 1 : 0); }
+    synchronized long skippedTotal() { return totalSkipped; }
+
+    /** Queue a shared frame for this session. Never blocks. */
+    OfferResult offer(byte[] frame) {
+        OfferResult result;
+        String evictReason = null;
+        synchronized (this) {
+            if (closed) return OfferResult.EVICTED;
+            if (queue.size() < highWater) {
+                queue.add(frame);
+                result = OfferResult.QUEUED;
+            } else if (!coalesce) {
+                evictReason = "overflow";
+                result = OfferResult.EVICTED;
+            } else if (stalledTooLong()) {
+                evictReason = "stalled";
+                result = OfferResult.EVICTED;
+            } else {
+                skipped++;
+                totalSkipped++;
+                result = OfferResult.SKIPPED;
+            }
+        }
+        if (evictReason != null) {
+            evict(evictReason, lag() + " frames queued");
+        } else {
+            pump();
+        }
+        return result;
+    }
+
+    /** Stop sending and drop anything queued — the session is gone. */
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    // ── Private helpers ─────────────────────────────────────────────────────
+
+    private boolean stalledTooLong() {
+        long now = System.currentTimeMillis();
+        if (saturatedSince == 0) saturatedSince = now;
+        return now - saturatedSince > maxStallMillis;
+    }
+
+    /**
+     * Write queued frames one at a time. Sends that complete inline (common on the
+     * event loop) continue in this loop rather than recursing from the callback.
+     */
+    private void pump() {
+        while (true) {
+            byte[] next;
+            synchronized (this) {
+                if (sending || closed || queue.isEmpty()) return;
+                next = queue.poll();
+                sending = true;
+            }
+
+            CompletableFuture<?> future;
+            try {
+                future = session.sendAsync(new TextWebSocketFrame(Unpooled.wrappedBuffer(next)));
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+
+            if (!future.isDone()) {
+                future.whenComplete((ignored, error) -> {
+                    if (onSent(error)) pump();
+                });
+                return;
+            }
+            Throwable error = future.isCompletedExceptionally()
+                ? future.handle((ignored, e) -> e).join()
+                : null;
+            if (!onSent(error)) return;
+        }
+    }
+
+    /** @return true if the pump should continue */
+    private boolean onSent(Throwable error) {
+        if (error != null) {
+            evict("send_error", String.valueOf(error.getMessage()));
+            return false;
+        }
+        synchronized (this) {
+            sending = false;
+            if (skipped > 0 && queue.size() <= highWater / 2) {
+                queue.add(skippedMarker(skipped));
+                skipped = 0;
+                saturatedSince = 0;
+            }
+        }
+        return true;
+    }
+
+    private void evict(String reason, String detail) {
+        synchronized (this) {
+            if (closed) return;
+            close();
+        }
+        log.info("Evicting WS session {} (project={}): {} — {}", session.getId(), projectId, reason, detail);
+        onEvicted.accept(reason);
+        try {
+            if (session.isOpen()) session.close(CloseReason.TRY_AGAIN_LATER);
+        } catch (Exception e) {
+            log.debug("WS close failed for session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private static byte[] skippedMarker(long count) {
+        return ("{\"type\":\"events_skipped\",\"skipped\":" + count + ",\"action\":\"refetch\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,26 @@
+package com.knowledgeos.websocket;
+
+import io.micronaut.management.endpoint.annotation.Endpoint;
+import io.micronaut.management.endpoint.annotation.Read;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management endpoint: {@code GET /websockets} — per-session outbox lag and
+ * skipped-event counts for this node's {@code /ws/events} sessions.
+ */
+@Endpoint(id = "websockets")
+public class WebSocketOutboxEndpoint {
+
+    private final AgentEventWebSocket webSocket;
+
+    public WebSocketOutboxEndpoint(AgentEventWebSocket webSocket) {
+        this.webSocket = webSocket;
+    }
+
+    @Read
+    public List<Map<String, Object>> sessions() {
+        return webSocket.outboxStats();
+    }
+}
@@ -0,0 +1,12 @@
+-- V10: Keyset (seek) pagination for the timeline API.
+--
+-- TimelineService pages with  (created_at, id) < (:cursorCreatedAt, :cursorId)
+-- ORDER BY created_at DESC, id DESC  instead of OFFSET + COUNT(*).
+-- id is the tie-breaker for events sharing a timestamp, so both listing indexes
+-- carry it; the type-filtered listing gets its own ordered index so it seeks too.
+
+DROP INDEX IF EXISTS idx_timeline_project;
+CREATE INDEX idx_timeline_project ON timeline_events(project_id, created_at DESC, id DESC);
+
+DROP INDEX IF EXISTS idx_timeline_project_type;
+CREATE INDEX idx_timeline_project_type ON timeline_events(project_id, type, created_at DESC, id DESC);
@@ -0,0 +1,25 @@
+-- V11: Content-addressed storage for reverse diffs.
+--
+-- changesets.reverse_diff held the full original text of every touched file.
+-- New changesets store the inverse patch instead, deflate-compressed, in
+-- changeset_blobs keyed by the SHA-256 of the uncompressed text; identical
+-- reverse patches (re-applied or re-submitted changesets) share one row.
+-- reverse_diff remains readable for changesets applied before this migration.
+
+CREATE TABLE changeset_blobs (
+    hash        VARCHAR(64) PRIMARY KEY,                 -- hex SHA-256 of the uncompressed content
+    encoding    VARCHAR(16) NOT NULL DEFAULT 'deflate',
+    raw_size    INTEGER     NOT NULL,
+    data        BYTEA       NOT NULL,
+    created_at  TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+-- Already compressed: skip TOAST compression, keep out-of-line storage
+ALTER TABLE changeset_blobs ALTER COLUMN data SET STORAGE EXTERNAL;
+
+ALTER TABLE changesets
+    ADD COLUMN reverse_diff_hash VARCHAR(64) REFERENCES changeset_blobs(hash);
+
+-- Rolled-back changesets cannot be rolled back again; drop their snapshots
+UPDATE changesets SET reverse_diff = NULL
+    WHERE status = 'rolled_back' AND reverse_diff IS NOT NULL;
@@ -0,0 +1,11 @@
+-- V12: 'validating' changeset status.
+-- on_tests_pass changesets are committed as 'validating' and validated in the
+-- background (ChangeSetValidationPipeline); the result moves them on to
+-- auto_applied | human_review | agent_review.
+
+ALTER TABLE changesets
+    DROP CONSTRAINT changesets_status_check,
+    ADD CONSTRAINT changesets_status_check CHECK (status IN (
+        'pending', 'validating', 'auto_applied', 'agent_review', 'human_review',
+        'approved', 'rejected', 'applied', 'rolled_back'
+    ));
@@ -0,0 +1,15 @@
+-- V13: embedding cache.
+-- Vectors keyed by SHA-256 of (model, text), so an unchanged text is embedded
+-- once across restarts and replicas (EmbeddingCache). vector is float32
+-- little-endian, dimensions * 4 bytes. Rows are immutable; a model change
+-- produces new hashes and old rows can be deleted by model.
+
+CREATE TABLE embedding_cache (
+    content_hash TEXT        PRIMARY KEY,
+    model        TEXT        NOT NULL,
+    dimensions   INT         NOT NULL,
+    vector       BYTEA       NOT NULL,
+    created_at   TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_embedding_cache_model ON embedding_cache (model);
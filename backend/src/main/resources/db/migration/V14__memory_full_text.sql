@@ -0,0 +1,11 @@
+-- V14: full-text index over memory entries.
+-- Lexical half of hybrid memory search (MemoryTextIndex): title weighted above
+-- content, kept up to date by Postgres itself.
+
+ALTER TABLE memory_entries
+    ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(content, '')), 'B')
+    ) STORED;
+
+CREATE INDEX idx_memory_search ON memory_entries USING GIN (search_vector);
@@ -0,0 +1,18 @@
+-- V15: memory vector outbox.
+-- Vector store changes are recorded here in the same transaction as the
+-- memory_entries change and applied by MemoryOutboxRelay, which retries with
+-- backoff. A row says only which point changed; the relay reads the entry's
+-- current state when it applies it, so repeated changes to a point coalesce.
+
+CREATE TABLE memory_outbox (
+    id              BIGSERIAL    PRIMARY KEY,
+    project_id      UUID         NOT NULL,
+    point_id        UUID         NOT NULL,              -- memory_entries.qdrant_id
+    op              VARCHAR(10)  NOT NULL CHECK (op IN ('upsert', 'delete')),
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    last_error      TEXT,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_memory_outbox_due ON memory_outbox (next_attempt_at, id);
@@ -0,0 +1,8 @@
+-- V16: validation claims.
+-- The replica validating a changeset stamps validation_claimed_at when it takes
+-- the changeset and keeps refreshing it while the run lasts. Other replicas only
+-- pick up 'validating' changesets whose claim has gone stale (the claimer died).
+
+ALTER TABLE changesets ADD COLUMN validation_claimed_at TIMESTAMPTZ;
+
+CREATE INDEX idx_changesets_validating ON changesets (validation_claimed_at) WHERE status = 'validating';
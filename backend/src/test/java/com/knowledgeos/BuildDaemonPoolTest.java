@@ -0,0 +1,101 @@
+package com.knowledgeos;
+
+import com.knowledgeos.domain.ChangeSet;
+import com.knowledgeos.domain.Project;
+import com.knowledgeos.dto.ValidatorResultResponse;
+import com.knowledgeos.service.validator.BuildDaemonPool;
+import com.knowledgeos.service.validator.ProcessResult;
+import com.knowledgeos.service.validator.ProcessRunner;
+import com.knowledgeos.service.validator.SoftwareValidator;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@MicronautTest
+class BuildDaemonPoolTest {
+
+    @Inject BuildDaemonPool pool;
+    @Inject SoftwareValidator validator;
+    @Inject ProcessRunner processRunner;   // resolves to the mock below
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @MockBean(ProcessRunner.class)
+    ProcessRunner mockRunner() {
+        return mock(ProcessRunner.class);
+    }
+
+    private static final List<String> GRADLE_TEST = List.of("./gradlew", "test", "--no-daemon");
+
+    @BeforeEach
+    void setup() {
+        reset(processRunner);
+    }
+
+    @Test
+    void firstRunIsCold_nextRunIsWarm_onADaemon() {
+        String ws = "/tmp/daemon-" + UUID.randomUUID();
+
+        BuildDaemonPool.Lease first = pool.acquire(ws, "gradle", GRADLE_TEST);
+        pool.release(first, new ProcessResult(0, "BUILD SUCCESSFUL"));
+        BuildDaemonPool.Lease second = pool.acquire(ws, "gradle", GRADLE_TEST);
+
+        assertThat(first.warm()).isFalse();
+        assertThat(second.warm()).isTrue();
+        assertThat(second.command()).contains("--daemon").doesNotContain("--no-daemon");
+    }
+
+    @Test
+    void daemonCrash_makesNextRunColdWithoutStoppingSharedDaemons() {
+        String ws = "/tmp/daemon-" + UUID.randomUUID();
+        pool.release(pool.acquire(ws, "gradle", GRADLE_TEST), new ProcessResult(0, "ok"));
+
+        BuildDaemonPool.Lease crashed = pool.acquire(ws, "gradle", GRADLE_TEST);
+        pool.release(crashed, new ProcessResult(1, "Gradle build daemon disappeared unexpectedly"));
+
+        verify(processRunner, never()).run(eq(List.of("./gradlew", "--stop")), any());
+        assertThat(pool.acquire(ws, "gradle", GRADLE_TEST).warm()).isFalse();
+    }
+
+    @Test
+    void npm_hasNoDaemon() {
+        List<String> npm = List.of("npm", "test", "--", "--ci");
+
+        BuildDaemonPool.Lease lease = pool.acquire("/tmp/daemon-npm", "npm", npm);
+
+        assertThat(lease.warm()).isNull();
+        assertThat(lease.command()).isEqualTo(npm);
+    }
+
+    @Test
+    void validator_reportsWarmDaemonOnSecondRun() {
+        when(processRunner.run(any(), any())).thenReturn(new ProcessResult(0, "BUILD SUCCESSFUL"));
+        Project project = new Project("Daemon", "software", "default");
+        ChangeSet cs = new ChangeSet();
+        cs.setProject(project);
+        cs.setIntent("test");
+        cs.setDiff("");
+        String ws = "/tmp/daemon-" + UUID.randomUUID();
+
+        ValidatorResultResponse cold = validator.run(cs, null, ws);
+        ValidatorResultResponse warm = validator.run(cs, null, ws);
+
+        assertThat(cold.warmDaemon()).isFalse();
+        assertThat(warm.warmDaemon()).isTrue();
+    }
+}
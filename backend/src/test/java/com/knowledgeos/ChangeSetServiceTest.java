@@ -18,6 +18,9 @@ import org.junit.jupiter.api.Test;
 
 import io.micronaut.core.type.Argument;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -39,6 +42,7 @@ class ChangeSetServiceTest {
     }
 
     private UUID projectId;
+    private String namespace;
 
     @BeforeEach
     void setup() {
@@ -48,6 +52,7 @@ class ChangeSetServiceTest {
             ProjectResponse.class
         );
         projectId = resp.getBody().get().id();
+        namespace = resp.getBody().get().namespace();
     }
 
     @Test
@@ -213,6 +218,32 @@ class ChangeSetServiceTest {
         AssertionsForClassTypes.assertThat(rollResp.getBody().get().status()).isEqualTo("rolled_back");
     }
 
+    @Test
+    void rollback_restoresFileFromStoredInversePatch() throws IOException {
+        Path file = Path.of("/tmp/test-workspaces", namespace, "src/Real.java");
+        Files.createDirectories(file.getParent());
+        String original = "class Real {\n    int a = 1;\n    int b = 2;\n    int c = 3;\n}\n";
+        Files.writeString(file, original);
+
+        var req = new CreateChangeSetRequest(
+            "Bump b", List.of("src/Real.java"),
+            "--- a/src/Real.java\n+++ b/src/Real.java\n@@ -2,3 +2,3 @@\n     int a = 1;\n-    int b = 2;\n+    int b = 20;\n     int c = 3;\n",
+            null, "always", null
+        );
+        UUID csId = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/changesets", req),
+            ChangeSetResponse.class
+        ).getBody().get().id();
+        Assertions.assertThat(Files.readString(file)).contains("int b = 20;");
+
+        client.toBlocking().exchange(
+            HttpRequest.PUT("/api/v1/projects/" + projectId + "/changesets/" + csId + "/rollback", ""),
+            ChangeSetResponse.class
+        );
+
+        Assertions.assertThat(Files.readString(file)).isEqualTo(original);
+    }
+
     @Test
     void listChangesets_returnsAll() {
         submitChangeset("First", "src/A.java", "never");
@@ -0,0 +1,140 @@
+package com.knowledgeos;
+
+import com.knowledgeos.dto.ChangeSetResponse;
+import com.knowledgeos.dto.CreateChangeSetRequest;
+import com.knowledgeos.dto.CreateProjectRequest;
+import com.knowledgeos.dto.ProjectResponse;
+import com.knowledgeos.service.ChangeSetService;
+import com.knowledgeos.service.ChangeSetValidationPipeline;
+import com.knowledgeos.service.validator.ProcessResult;
+import com.knowledgeos.service.validator.ProcessRunner;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@MicronautTest
+class ChangeSetValidationPipelineTest {
+
+    @Inject
+    @Client("/")
+    HttpClient client;
+
+    @Inject ChangeSetValidationPipeline pipeline;
+    @Inject ChangeSetService changeSetService;
+    @Inject ProcessRunner processRunner;   // resolves to the mock below
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @MockBean(ProcessRunner.class)
+    ProcessRunner mockRunner() {
+        return mock(ProcessRunner.class);
+    }
+
+    private UUID projectId;
+
+    @BeforeEach
+    void setup() {
+        reset(processRunner);
+        projectId = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects",
+                new CreateProjectRequest("Validation Project", "software", null)),
+            ProjectResponse.class
+        ).getBody().get().id();
+    }
+
+    @Test
+    void submit_onTestsPass_returnsValidatingThenAutoApplies() throws InterruptedException {
+        when(processRunner.run(any(), any())).thenReturn(new ProcessResult(0, "BUILD SUCCESSFUL"));
+
+        HttpResponse<ChangeSetResponse> resp = submit("Validated change");
+
+        assertThat(resp.getStatus()).isEqualTo(HttpStatus.CREATED);
+        assertThat(resp.getBody().get().status()).isEqualTo("validating");
+
+        pipeline.awaitIdle(Duration.ofSeconds(10));
+        ChangeSetResponse done = find(resp.getBody().get().id());
+        assertThat(done.status()).isEqualTo("auto_applied");
+        assertThat(done.validatorResults().passed()).isTrue();
+    }
+
+    @Test
+    void submit_onTestsPass_failingTests_goesToAgentReviewWithFailures() throws InterruptedException {
+        when(processRunner.run(any(), any()))
+            .thenReturn(new ProcessResult(1, "FooTest > bar() FAILED\nBUILD FAILED"));
+
+        UUID csId = submit("Broken change").getBody().get().id();
+
+        pipeline.awaitIdle(Duration.ofSeconds(10));
+        ChangeSetResponse done = find(csId);
+        assertThat(done.status()).isEqualTo("agent_review");
+        assertThat(done.validatorResults().passed()).isFalse();
+        assertThat(done.validatorResults().failures()).contains("FooTest > bar() FAILED");
+    }
+
+    @Test
+    void claim_isHeldByTheRunningReplicaUntilItGoesStale() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(processRunner.run(any(), any())).thenAnswer(inv -> {
+            running.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return new ProcessResult(0, "BUILD SUCCESSFUL");
+        });
+
+        UUID csId = submit("Claimed change").getBody().get().id();
+        assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(changeSetService.claimForValidation(csId, Duration.ofMinutes(2))).isEmpty();
+        assertThat(changeSetService.staleValidations(Duration.ofMinutes(2))).doesNotContain(csId);
+
+        release.countDown();
+        pipeline.awaitIdle(Duration.ofSeconds(10));
+        assertThat(find(csId).status()).isEqualTo("auto_applied");
+        assertThat(changeSetService.claimForValidation(csId, Duration.ZERO)).isEmpty();
+    }
+
+    // ── Helpers ─────────────────────────────────────────────────────────────
+
+    private HttpResponse<ChangeSetResponse> submit(String intent) {
+        var req = new CreateChangeSetRequest(
+            intent, List.of("src/Validated.java"),
+            "--- a/src/Validated.java\n+++ b/src/Validated.java\n@@ -1 +1 @@\n-old\n+new\n",
+            null, "on_tests_pass", null
+        );
+        return client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/changesets", req),
+            ChangeSetResponse.class
+        );
+    }
+
+    private ChangeSetResponse find(UUID csId) {
+        List<ChangeSetResponse> all = client.toBlocking().retrieve(
+            HttpRequest.GET("/api/v1/projects/" + projectId + "/changesets"),
+            Argument.listOf(ChangeSetResponse.class)
+        );
+        return all.stream().filter(cs -> cs.id().equals(csId)).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,75 @@
+package com.knowledgeos;
+
+import com.knowledgeos.events.ClusterEventBus;
+import com.knowledgeos.events.LocalClusterEventBus;
+import com.knowledgeos.websocket.AgentEventWebSocket;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.websocket.WebSocketSession;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.*;
+
+@MicronautTest
+class ClusterEventBusTest {
+
+    @Inject ClusterEventBus bus;
+    @Inject AgentEventWebSocket webSocket;
+    @Inject MeterRegistry meterRegistry;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @Test
+    void testProfile_usesLocalStandIn() {
+        assertThat(bus).isInstanceOf(LocalClusterEventBus.class);
+    }
+
+    @Test
+    void publish_reachesListenersUntilClosed() {
+        List<String> received = new CopyOnWriteArrayList<>();
+        ClusterEventBus.Subscription sub = bus.subscribe("test:topic", received::add);
+
+        bus.publish("test:topic", "{\"n\":1}");
+        sub.close();
+        bus.publish("test:topic", "{\"n\":2}");
+
+        assertThat(received).containsExactly("{\"n\":1}");
+        assertThat(meterRegistry.find("kos.events.delivery.latency").tag("channel", "test").timer())
+            .isNotNull();
+    }
+
+    @Test
+    void webSocket_subscribesOnlyWhileProjectHasSessions() {
+        String projectId = UUID.randomUUID().toString();
+        LocalClusterEventBus local = (LocalClusterEventBus) bus;
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("s1");
+        when(session.sendAsync(any())).thenAnswer(inv -> CompletableFuture.completedFuture(inv.getArgument(0)));
+
+        assertThat(local.hasListeners("events:" + projectId)).isFalse();
+
+        webSocket.onOpen(projectId, session);
+        assertThat(local.hasListeners("events:" + projectId)).isTrue();
+
+        webSocket.broadcast(projectId, "{\"type\":\"x\"}");
+        verify(session).sendAsync(any(TextWebSocketFrame.class));
+
+        webSocket.onClose(projectId, session);
+        assertThat(local.hasListeners("events:" + projectId)).isFalse();
+    }
+}
@@ -0,0 +1,76 @@
+package com.knowledgeos;
+
+import com.knowledgeos.embedding.EmbeddingProvider;
+import com.knowledgeos.embedding.EmbeddingService;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.*;
+
+@MicronautTest
+class EmbeddingServiceTest {
+
+    @Inject EmbeddingService embeddings;
+    @Inject EmbeddingProvider provider;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @MockBean(EmbeddingProvider.class)
+    EmbeddingProvider mockProvider() {
+        return mock(EmbeddingProvider.class);
+    }
+
+    @BeforeEach
+    void stubs() {
+        reset(provider);
+        when(provider.model()).thenReturn("test-model");
+        when(provider.dimensions()).thenReturn(4);
+        when(provider.embed(anyList())).thenAnswer(inv -> {
+            List<String> texts = inv.getArgument(0);
+            List<float[]> vectors = new ArrayList<>();
+            for (String t : texts) vectors.add(new float[]{t.length(), 1, 2, 3});
+            return vectors;
+        });
+    }
+
+    @Test
+    void embedAll_embedsDistinctMissesInOneCallAndCachesThem() {
+        String a = "alpha " + UUID.randomUUID();
+        String b = "beta " + UUID.randomUUID();
+
+        List<float[]> first = embeddings.embedAll(List.of(a, b, a));
+
+        assertThat(first).hasSize(3);
+        assertThat(first.get(0)).isEqualTo(first.get(2));
+        verify(provider, times(1)).embed(List.of(a, b));
+
+        // Unchanged texts are never embedded again
+        embeddings.embedAll(List.of(b, a));
+        assertThat(embeddings.embed(a)).isEqualTo(first.get(0));
+        verify(provider, times(1)).embed(anyList());
+    }
+
+    @Test
+    void embedAsync_batchesConcurrentTexts() {
+        List<CompletableFuture<float[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) futures.add(embeddings.embedAsync("text " + i + " " + UUID.randomUUID()));
+
+        futures.forEach(f -> assertThat(f.join()).hasSize(4));
+        verify(provider, atMost(4)).embed(anyList());
+    }
+}
@@ -1,6 +1,8 @@
 package com.knowledgeos;
 
 import com.knowledgeos.dto.*;
+import com.knowledgeos.lock.LockWaitQueue;
+import com.knowledgeos.service.LockLeaseService;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.micronaut.core.type.Argument;
 import io.micronaut.http.HttpRequest;
@@ -19,9 +21,12 @@ import org.junit.jupiter.api.Test;
 
 import io.micronaut.core.type.Argument;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Answers.RETURNS_DEEP_STUBS;
@@ -34,6 +39,12 @@ class FileLockServiceTest {
     @Client("/")
     HttpClient client;
 
+    @Inject
+    LockWaitQueue waitQueue;
+
+    @Inject
+    LockLeaseService lockLeaseService;
+
     @MockBean(KubernetesClient.class)
     KubernetesClient mockK8s() {
         return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
@@ -184,4 +195,177 @@ class FileLockServiceTest {
             AssertionsForClassTypes.assertThat(ex.getStatus()).isEqualTo(HttpStatus.CONFLICT)
         );
     }
+
+    @Test
+    void batchAcquire_grantsAllLocksInCanonicalOrder() {
+        var req = new BatchAcquireLockRequest(List.of(
+            new LockTarget("src/b/Two.java", "write"),
+            new LockTarget("src/a/One.java", null),
+            new LockTarget("docs/", "read")
+        ), 300, agentId);
+
+        HttpResponse<BatchLockResponse> resp = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks/batch", req),
+            BatchLockResponse.class
+        );
+
+        AssertionsForClassTypes.assertThat(resp.getStatus()).isEqualTo(HttpStatus.CREATED);
+        Assertions.assertThat(resp.getBody().get().conflicts()).isEmpty();
+        Assertions.assertThat(resp.getBody().get().locks())
+            .extracting(FileLockResponse::filePath)
+            .containsExactly("docs/**", "src/a/One.java", "src/b/Two.java");
+    }
+
+    @Test
+    void batchAcquire_withOneConflict_grantsNothingAndListsConflicts() {
+        client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Held.java", "write", 300, agentId)),
+            FileLockResponse.class
+        );
+        var req = new BatchAcquireLockRequest(List.of(
+            new LockTarget("src/Free.java", "write"),
+            new LockTarget("src/Held.java", "write")
+        ), 300, agentId);
+
+        assertThatThrownBy(() -> client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks/batch", req),
+            BatchLockResponse.class
+        )).isInstanceOfSatisfying(HttpClientResponseException.class, ex -> {
+            AssertionsForClassTypes.assertThat(ex.getStatus()).isEqualTo(HttpStatus.CONFLICT);
+            Assertions.assertThat(ex.getResponse().getBody(BatchLockResponse.class).get().conflicts())
+                .containsExactly("src/Held.java");
+        });
+
+        // All or nothing: the free path was not left locked
+        HttpResponse<FileLockResponse> free = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Free.java", "write", 300, agentId)),
+            FileLockResponse.class
+        );
+        AssertionsForClassTypes.assertThat(free.getStatus()).isEqualTo(HttpStatus.CREATED);
+    }
+
+    @Test
+    void acquire_withWait_isGrantedWhenHolderReleases() throws Exception {
+        UUID heldId = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Queued.java", "write", 300, agentId)),
+            FileLockResponse.class
+        ).getBody().get().id();
+
+        CompletableFuture<HttpResponse<FileLockResponse>> waiting = CompletableFuture.supplyAsync(() ->
+            client.toBlocking().exchange(
+                HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                    new AcquireLockRequest("src/Queued.java", "write", 300, agentId, 10)),
+                FileLockResponse.class
+            ));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!waitQueue.hasWaiters(projectId, "src/Queued.java") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Queued behind the holder: a non-waiting request does not jump the queue
+        assertThatThrownBy(() -> client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Queued.java", "write", 300, agentId)),
+            FileLockResponse.class
+        )).isInstanceOfSatisfying(HttpClientResponseException.class, ex ->
+            AssertionsForClassTypes.assertThat(ex.getStatus()).isEqualTo(HttpStatus.CONFLICT)
+        );
+
+        client.toBlocking().exchange(
+            HttpRequest.DELETE("/api/v1/projects/" + projectId + "/locks/" + heldId), Void.class);
+
+        HttpResponse<FileLockResponse> granted = waiting.get(10, TimeUnit.SECONDS);
+        AssertionsForClassTypes.assertThat(granted.getStatus()).isEqualTo(HttpStatus.CREATED);
+        Assertions.assertThat(granted.getBody().get().id()).isNotEqualTo(heldId);
+    }
+
+    @Test
+    void acquire_withWait_timesOutWith409() {
+        client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Busy.java", "write", 300, agentId)),
+            FileLockResponse.class
+        );
+
+        assertThatThrownBy(() -> client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Busy.java", "write", 300, agentId, 1)),
+            FileLockResponse.class
+        )).isInstanceOfSatisfying(HttpClientResponseException.class, ex ->
+            AssertionsForClassTypes.assertThat(ex.getStatus()).isEqualTo(HttpStatus.CONFLICT)
+        );
+        Assertions.assertThat(waitQueue.hasWaiters(projectId, "src/Busy.java")).isFalse();
+    }
+
+    @Test
+    void acquire_withWait_isGrantedSoonAfterHolderExpires() throws Exception {
+        client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/ShortLease.java", "write", 1, agentId)),
+            FileLockResponse.class
+        );
+
+        long start = System.nanoTime();
+        HttpResponse<FileLockResponse> granted = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/ShortLease.java", "write", 300, agentId, 10)),
+            FileLockResponse.class
+        );
+
+        // Expired at its deadline by the timing wheel, not by a periodic sweep
+        AssertionsForClassTypes.assertThat(granted.getStatus()).isEqualTo(HttpStatus.CREATED);
+        Assertions.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(3_000);
+
+        TimelinePage expired = client.toBlocking().retrieve(
+            HttpRequest.GET("/api/v1/projects/" + projectId + "/timeline?type=lock_expired"),
+            TimelinePage.class
+        );
+        Assertions.assertThat(expired.events()).hasSize(1);
+    }
+
+    @Test
+    void heartbeat_renewsAllLeasesOfTheAgent() {
+        for (String path : List.of("src/Lease1.java", "src/Lease2.java")) {
+            client.toBlocking().exchange(
+                HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                    new AcquireLockRequest(path, "write", 5, agentId)),
+                FileLockResponse.class
+            );
+        }
+
+        HttpResponse<LeaseResponse> resp = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/agents/" + agentId + "/heartbeat", ""),
+            LeaseResponse.class
+        );
+
+        AssertionsForClassTypes.assertThat(resp.getStatus()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(resp.getBody().get().renewed()).isEqualTo(2);
+        List<FileLockResponse> locks = client.toBlocking().retrieve(
+            HttpRequest.GET("/api/v1/projects/" + projectId + "/locks"),
+            Argument.listOf(FileLockResponse.class)
+        );
+        Assertions.assertThat(locks).allSatisfy(l ->
+            Assertions.assertThat(l.expiresAt()).isAfter(OffsetDateTime.now().plusMinutes(4)));
+    }
+
+    @Test
+    void revoke_releasesEveryLockOfTheAgent() {
+        client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Orphaned.java", "write", 300, agentId)),
+            FileLockResponse.class
+        );
+
+        Assertions.assertThat(lockLeaseService.revoke(projectId, agentId, "pod_gone")).isEqualTo(1);
+
+        HttpResponse<FileLockResponse> reacquired = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Orphaned.java", "write", 300, null)),
+            FileLockResponse.class
+        );
+        AssertionsForClassTypes.assertThat(reacquired.getStatus()).isEqualTo(HttpStatus.CREATED);
+    }
 }
@@ -0,0 +1,85 @@
+package com.knowledgeos;
+
+import com.knowledgeos.memory.HnswMemoryStore;
+import com.knowledgeos.memory.MemoryVectorStore;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+@MicronautTest
+@Property(name = "app.memory.vector-store", value = "hnsw")
+@Property(name = "app.memory.hnsw.dir", value = "build/hnsw-test")
+class HnswMemoryStoreTest {
+
+    @Inject MemoryVectorStore store;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @Test
+    void hnswBackendIsSelected() {
+        assertThat(store).isInstanceOf(HnswMemoryStore.class);
+    }
+
+    @Test
+    void search_ranksTheMatchingEntryFirstAndFiltersByLayer() {
+        UUID projectId = UUID.randomUUID();
+        UUID target = UUID.randomUUID();
+        List<MemoryVectorStore.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entries.add(entry(UUID.randomUUID(), i % 2 == 0 ? "canonical" : "feature", "entry " + i));
+        }
+        entries.add(entry(target, "feature", "the deployment runbook"));
+        store.upsertAll(projectId, entries);
+
+        List<MemoryVectorStore.Match> hits = store.search(projectId, null, "the deployment runbook", 5);
+        assertThat(hits).hasSize(5);
+        assertThat(hits.get(0).pointId()).isEqualTo(target);
+        assertThat(hits.get(0).score()).isGreaterThan(hits.get(1).score());
+
+        assertThat(ids(store.search(projectId, "canonical", "the deployment runbook", 5))).doesNotContain(target);
+        assertThat(store.search(UUID.randomUUID(), null, "the deployment runbook", 5)).isEmpty();
+    }
+
+    @Test
+    void deleteAndReplace_areReflectedInSearch() {
+        UUID projectId = UUID.randomUUID();
+        UUID point = UUID.randomUUID();
+        store.upsertAll(projectId, List.of(
+            entry(point, "canonical", "first version"),
+            entry(UUID.randomUUID(), "canonical", "something else")));
+
+        store.upsertAll(projectId, List.of(entry(point, "canonical", "second version")));
+        List<UUID> hits = ids(store.search(projectId, null, "second version", 10));
+        assertThat(hits).containsOnlyOnce(point);
+        assertThat(hits.get(0)).isEqualTo(point);
+
+        store.deleteAll(projectId, List.of(point));
+        assertThat(ids(store.search(projectId, null, "second version", 10))).doesNotContain(point);
+        assertThat(store.pointIds(projectId)).hasSize(1).doesNotContain(point);
+    }
+
+    // ── Helper ─────────────────────────────────────────────────────────────
+
+    private static List<UUID> ids(List<MemoryVectorStore.Match> matches) {
+        return matches.stream().map(MemoryVectorStore.Match::pointId).toList();
+    }
+
+    private static MemoryVectorStore.Entry entry(UUID pointId, String layer, String text) {
+        return new MemoryVectorStore.Entry(pointId, layer, text, Map.of());
+    }
+}
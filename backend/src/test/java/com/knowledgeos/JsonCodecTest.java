@@ -0,0 +1,78 @@
+package com.knowledgeos;
+
+import com.knowledgeos.infra.JsonCodec;
+import com.knowledgeos.timeline.TimelineEventMessage;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+@MicronautTest
+class JsonCodecTest {
+
+    @Inject JsonCodec codec;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @Test
+    void map_roundTripsNestedValuesAndEscapes() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("path", "src/a,\"b\"\\c.java");
+        payload.put("count", 3);
+        payload.put("ratio", 0.5);
+        payload.put("ok", true);
+        payload.put("none", null);
+        payload.put("nested", Map.of("files", List.of("x", "y")));
+
+        Map<String, Object> back = codec.readMap(codec.writeMap(payload));
+
+        assertThat(back).containsEntry("path", "src/a,\"b\"\\c.java")
+            .containsEntry("count", 3)
+            .containsEntry("ratio", 0.5)
+            .containsEntry("ok", true)
+            .containsEntry("none", null)
+            .containsEntry("nested", Map.of("files", List.of("x", "y")));
+    }
+
+    @Test
+    void stringList_roundTripsCommasAndQuotes() {
+        List<String> files = List.of("src/a,b.java", "say \"hi\".md", "");
+        assertThat(codec.readStringList(codec.writeStringList(files))).containsExactlyElementsOf(files);
+        assertThat(codec.writeStringList(null)).isEqualTo("[]");
+    }
+
+    @Test
+    void malformedInput_yieldsEmptyResult() {
+        assertThat(codec.readMap("{\"a\":")).isEmpty();
+        assertThat(codec.readMap("not json")).isEmpty();
+        assertThat(codec.readStringList("[\"a\",")).isEmpty();
+    }
+
+    @Test
+    void timelineEventMessage_hasBroadcastShape() {
+        UUID id = UUID.randomUUID();
+        String json = codec.writeTimelineEvent(new TimelineEventMessage(
+            id, "lock_acquired", "user", null, OffsetDateTime.parse("2025-01-01T00:00:00Z")));
+
+        assertThat(codec.readMap(json))
+            .containsEntry("id", id.toString())
+            .containsEntry("type", "lock_acquired")
+            .containsEntry("source", "user")
+            .containsEntry("agentId", null)
+            .containsEntry("createdAt", "2025-01-01T00:00Z");
+    }
+}
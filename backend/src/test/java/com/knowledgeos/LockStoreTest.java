@@ -0,0 +1,173 @@
+package com.knowledgeos;
+
+import com.knowledgeos.dto.AcquireLockRequest;
+import com.knowledgeos.dto.CreateChangeSetRequest;
+import com.knowledgeos.dto.CreateProjectRequest;
+import com.knowledgeos.dto.FileLockResponse;
+import com.knowledgeos.dto.ProjectResponse;
+import com.knowledgeos.lock.HeldLock;
+import com.knowledgeos.lock.LockJournal;
+import com.knowledgeos.lock.LockPath;
+import com.knowledgeos.lock.LockStore;
+import com.knowledgeos.repository.FileLockRepository;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+@MicronautTest
+class LockStoreTest {
+
+    @Inject
+    @Client("/")
+    HttpClient client;
+
+    @Inject LockStore lockStore;
+    @Inject FileLockRepository fileLockRepository;
+    @Inject LockJournal lockJournal;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    private UUID projectId;
+
+    @BeforeEach
+    void setup() {
+        projectId = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects",
+                new CreateProjectRequest("Lock Store Project", "software", null)),
+            ProjectResponse.class
+        ).getBody().get().id();
+    }
+
+    @Test
+    void readLocks_areShared_andBlockWriters() {
+        HeldLock r1 = lock("src/Shared.java", HeldLock.READ, 300);
+        HeldLock r2 = lock("src/Shared.java", HeldLock.READ, 300);
+        assertThat(lockStore.tryAcquire(r1)).isTrue();
+        assertThat(lockStore.tryAcquire(r2)).isTrue();
+        assertThat(lockStore.tryAcquire(lock("src/Shared.java", HeldLock.WRITE, 300))).isFalse();
+
+        lockStore.release(projectId, r1.id());
+        lockStore.release(projectId, r2.id());
+        assertThat(lockStore.tryAcquire(lock("src/Shared.java", HeldLock.WRITE, 300))).isTrue();
+        assertThat(lockStore.tryAcquire(lock("src/Shared.java", HeldLock.READ, 300))).isFalse();
+    }
+
+    @Test
+    void expiredLock_doesNotBlock() {
+        HeldLock stale = new HeldLock(UUID.randomUUID(), projectId, "src/Stale.java", HeldLock.WRITE, null,
+            OffsetDateTime.now().minusSeconds(1), OffsetDateTime.now().minusMinutes(5));
+        lockStore.tryAcquire(stale);
+
+        assertThat(lockStore.tryAcquire(lock("src/Stale.java", HeldLock.WRITE, 300))).isTrue();
+        assertThat(lockStore.get(projectId, stale.id())).isEmpty();
+    }
+
+    @Test
+    void writeLocked_reportsOnlyWriteLockedPaths() {
+        lockStore.tryAcquire(lock("src/W.java", HeldLock.WRITE, 300));
+        lockStore.tryAcquire(lock("src/R.java", HeldLock.READ, 300));
+
+        assertThat(lockStore.writeLocked(projectId, List.of("src/W.java", "src/R.java", "src/Free.java")))
+            .containsExactly("src/W.java");
+    }
+
+    @Test
+    void directoryLock_coversSubtree_andConflictsWithLocksInside() {
+        HeldLock inside = lock("src/billing/Invoice.java", HeldLock.READ, 300);
+        assertThat(lockStore.tryAcquire(inside)).isTrue();
+        assertThat(lockStore.tryAcquire(lock("src/billing/**", HeldLock.WRITE, 300))).isFalse();
+
+        lockStore.release(projectId, inside.id());
+        assertThat(lockStore.tryAcquire(lock("src/billing/**", HeldLock.WRITE, 300))).isTrue();
+        assertThat(lockStore.tryAcquire(lock("src/billing/tax/Rate.java", HeldLock.READ, 300))).isFalse();
+        assertThat(lockStore.tryAcquire(lock("src/shipping/Parcel.java", HeldLock.WRITE, 300))).isTrue();
+        assertThat(lockStore.writeLocked(projectId, List.of("src/billing/tax/Rate.java", "src/Main.java")))
+            .containsExactly("src/billing/tax/Rate.java");
+    }
+
+    @Test
+    void globLock_isNormalizedAndBlocksChangesetsBelowItsPrefix() {
+        FileLockResponse lock = client.toBlocking().retrieve(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("./src/api/**/*.java", "write", 300, null)),
+            FileLockResponse.class
+        );
+        assertThat(lock.filePath()).isEqualTo("src/api/**/*.java");
+
+        var csReq = new CreateChangeSetRequest(
+            "Touch a file under the glob", List.of("src/api/v1/Users.java"),
+            "--- a/src/api/v1/Users.java\n+++ b/src/api/v1/Users.java\n@@ -1 +1 @@\n-old\n+new\n",
+            null, "never", null
+        );
+        assertThatThrownBy(() -> client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/changesets", csReq))
+        ).isInstanceOfSatisfying(HttpClientResponseException.class, ex ->
+            assertThat(ex.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    @Test
+    void journal_replacesAnExpiredWriteRowOnARegrantedPath() {
+        // The store let the old lock lapse and granted the path again before the expiry sweep ran
+        HeldLock lapsed = new HeldLock(UUID.randomUUID(), projectId, "src/Regrant.java", HeldLock.WRITE, null,
+            OffsetDateTime.now().minusSeconds(1), OffsetDateTime.now().minusMinutes(5));
+        HeldLock regranted = lock("src/Regrant.java", HeldLock.WRITE, 300);
+        lockJournal.inserted(lapsed);
+        lockJournal.inserted(regranted);
+
+        assertThat(fileLockRepository.findById(lapsed.id())).isEmpty();
+        assertThat(fileLockRepository.findById(regranted.id())).isPresent();
+    }
+
+    @Test
+    void acquire_isWrittenThroughToPostgres_andReleaseRemovesIt() {
+        FileLockResponse lock = client.toBlocking().retrieve(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Durable.java", "write", 300, null)),
+            FileLockResponse.class
+        );
+        assertThat(fileLockRepository.findById(lock.id())).isPresent();
+
+        client.toBlocking().exchange(
+            HttpRequest.DELETE("/api/v1/projects/" + projectId + "/locks/" + lock.id()));
+        assertThat(fileLockRepository.findById(lock.id())).isEmpty();
+    }
+
+    @Test
+    void acquireWrite_whileReadLockHeld_returns409() {
+        client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Read.java", "read", 300, null)));
+
+        assertThatThrownBy(() -> client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                new AcquireLockRequest("src/Read.java", "write", 300, null)))
+        ).isInstanceOfSatisfying(HttpClientResponseException.class, ex ->
+            assertThat(ex.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    private HeldLock lock(String path, String type, int seconds) {
+        OffsetDateTime now = OffsetDateTime.now();
+        return new HeldLock(UUID.randomUUID(), projectId, LockPath.parse(path).path(), type, null,
+            now.plusSeconds(seconds), now);
+    }
+}
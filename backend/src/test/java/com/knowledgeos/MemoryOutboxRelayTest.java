@@ -0,0 +1,134 @@
+package com.knowledgeos;
+
+import com.knowledgeos.dto.*;
+import com.knowledgeos.memory.MemoryOutboxRelay;
+import com.knowledgeos.memory.MemoryVectorStore;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.*;
+
+@MicronautTest
+@Property(name = "app.memory.outbox.backoff", value = "1ms")
+class MemoryOutboxRelayTest {
+
+    @Inject
+    @Client("/")
+    HttpClient client;
+
+    @Inject MemoryOutboxRelay relay;
+    @Inject MemoryVectorStore vectorStore;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @MockBean(MemoryVectorStore.class)
+    MemoryVectorStore mockVectorStore() {
+        return mock(MemoryVectorStore.class);
+    }
+
+    private UUID projectId;
+
+    @BeforeEach
+    void setup() throws Exception {
+        drain();
+        reset(vectorStore);
+        projectId = client.toBlocking().retrieve(
+            HttpRequest.POST("/api/v1/projects", new CreateProjectRequest("Outbox Test Project", "software", null)),
+            ProjectResponse.class
+        ).id();
+    }
+
+    @Test
+    void relay_writesTheLatestStateOfEachPointOnce() throws Exception {
+        UUID kept = writeMemory("Kept");
+        UUID dropped = writeMemory("Dropped");
+        client.toBlocking().exchange(HttpRequest.DELETE("/api/v1/projects/" + projectId + "/memory/" + dropped));
+
+        drain();
+
+        List<MemoryVectorStore.Entry> upserted = upserted();
+        assertThat(upserted).singleElement().satisfies(e -> {
+            assertThat(e.text()).isEqualTo("Kept Content of Kept");
+            assertThat(e.payload()).containsEntry("memoryId", kept.toString());
+        });
+        verify(vectorStore).deleteAll(eq(projectId), argThat(l -> l.size() == 1));
+    }
+
+    @Test
+    void relay_retriesAFailedWrite() throws Exception {
+        doThrow(new IllegalStateException("vector store down")).doNothing()
+            .when(vectorStore).upsertAll(eq(projectId), anyList());
+
+        writeMemory("Retried");
+        drain();
+
+        verify(vectorStore, times(2)).upsertAll(eq(projectId), argThat(l -> l.size() == 1));
+        assertThat(relay.relayOnce()).isZero();
+    }
+
+    @Test
+    void reconcile_queuesMissingAndOrphanedPoints() throws Exception {
+        UUID memId = writeMemory("Lost point");
+        drain();
+        reset(vectorStore);
+        UUID orphan = UUID.randomUUID();
+        when(vectorStore.pointIds(projectId)).thenReturn(Set.of(orphan));
+
+        MemoryReconcileResponse result = client.toBlocking().retrieve(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/memory/reconcile", ""),
+            MemoryReconcileResponse.class);
+
+        assertThat(result.entries()).isEqualTo(1);
+        assertThat(result.missing()).isEqualTo(1);
+        assertThat(result.orphaned()).isEqualTo(1);
+
+        drain();
+        assertThat(upserted()).singleElement()
+            .satisfies(e -> assertThat(e.payload()).containsEntry("memoryId", memId.toString()));
+        verify(vectorStore).deleteAll(projectId, List.of(orphan));
+    }
+
+    // ── Helper ─────────────────────────────────────────────────────────────
+
+    private UUID writeMemory(String title) {
+        var req = new CreateMemoryRequest(title, "Content of " + title, "Test justification", "canonical", null, null);
+        return client.toBlocking().retrieve(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/memory", req),
+            MemoryResponse.class
+        ).id();
+    }
+
+    /** Relay until nothing is due; retries fall due again within a few ms. */
+    private void drain() throws Exception {
+        for (int i = 0; i < 100 && relay.relayOnce() > 0; i++) Thread.sleep(5);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MemoryVectorStore.Entry> upserted() {
+        ArgumentCaptor<List<MemoryVectorStore.Entry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(vectorStore, atLeastOnce()).upsertAll(eq(projectId), captor.capture());
+        List<MemoryVectorStore.Entry> all = new ArrayList<>();
+        captor.getAllValues().forEach(all::addAll);
+        return all;
+    }
+}
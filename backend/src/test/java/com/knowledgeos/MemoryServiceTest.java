@@ -1,7 +1,9 @@
 package com.knowledgeos;
 
 import com.knowledgeos.dto.*;
+import com.knowledgeos.memory.MaximalMarginalRelevance;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
@@ -33,6 +35,9 @@ class MemoryServiceTest {
     @Client("/")
     HttpClient client;
 
+    @Inject
+    MeterRegistry meterRegistry;
+
     @MockBean(KubernetesClient.class)
     KubernetesClient mockK8s() {
         return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
@@ -166,6 +171,26 @@ class MemoryServiceTest {
         Assertions.assertThat(resp.getBody().get()).isNotEmpty();
     }
 
+    @Test
+    void list_cachedLayerReflectsWritesAndDeletes() {
+        UUID first = writeMemory("Cached one", "canonical");
+        Assertions.assertThat(listTitles("canonical")).containsExactly("Cached one");
+
+        double hitsBefore = meterRegistry.counter("kos.memory.cache", "result", "hit").count();
+        Assertions.assertThat(listTitles("canonical")).containsExactly("Cached one");
+        Assertions.assertThat(meterRegistry.counter("kos.memory.cache", "result", "hit").count())
+            .isGreaterThan(hitsBefore);
+
+        writeMemory("Cached two", "canonical");
+        Assertions.assertThat(listTitles("canonical")).containsExactlyInAnyOrder("Cached one", "Cached two");
+
+        client.toBlocking().exchange(HttpRequest.DELETE("/api/v1/projects/" + projectId + "/memory/" + first));
+        Assertions.assertThat(listTitles("canonical")).containsExactly("Cached two");
+
+        writeMemory("Uncached scratch", "scratch");
+        Assertions.assertThat(listTitles(null)).containsExactlyInAnyOrder("Cached two", "Uncached scratch");
+    }
+
     @Test
     void delete_memory_returns204() {
         UUID memId = writeMemory("To delete", "feature");
@@ -182,7 +207,7 @@ class MemoryServiceTest {
     void search_returnsResults() {
         writeMemory("Hexagonal architecture", "canonical");
 
-        var searchReq = new MemorySearchRequest("architecture patterns", null, 5);
+        var searchReq = new MemorySearchRequest("architecture patterns", null, 5, null, null);
 
         HttpResponse<List<Map>> resp = client.toBlocking().exchange(
             HttpRequest.POST("/api/v1/projects/" + projectId + "/memory/search", searchReq),
@@ -193,8 +218,142 @@ class MemoryServiceTest {
         // Results may vary depending on Qdrant availability; just assert 200 OK
     }
 
+    @Test
+    void search_ranksFullTextMatchesAndHonoursLimit() {
+        writeMemory("Kafka consumer groups", "canonical");
+        writeMemory("Kafka topic retention", "feature");
+        writeMemory("Kafka partition keys", "canonical");
+        writeMemory("Frontend build pipeline", "canonical");
+
+        var searchReq = new MemorySearchRequest("how are kafka partitions keyed", null, 2, null, null);
+        HttpResponse<List<MemoryResponse>> resp = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/memory/search", searchReq),
+            Argument.listOf(MemoryResponse.class)
+        );
+
+        List<MemoryResponse> results = resp.getBody().get();
+        Assertions.assertThat(results).hasSize(2);
+        Assertions.assertThat(results).allSatisfy(r -> {
+            Assertions.assertThat(r.title()).startsWith("Kafka");
+            Assertions.assertThat(r.score()).isPositive();
+        });
+    }
+
+    @Test
+    void search_withHashEmbeddings_returnsTheTextRankingUndiversified() {
+        writeMemory("Kafka partition keys", "canonical");
+        writeMemory("Kafka partition keys", "feature");
+        writeMemory("Kafka consumer groups", "canonical");
+
+        // Tests run on the hash provider, whose vectors mean nothing
+        Assertions.assertThat(searchTitles(new MemorySearchRequest("kafka partition keys", null, 2, 0.5, null)))
+            .containsExactly("Kafka partition keys", "Kafka partition keys");
+    }
+
+    @Test
+    void maximalMarginalRelevance_demotesNearDuplicates() {
+        List<float[]> vectors = List.of(new float[]{1, 0}, new float[]{1, 0.01f}, new float[]{0, 1});
+
+        Assertions.assertThat(MaximalMarginalRelevance.rerank(new double[]{1, 0.9, 0.8}, vectors, 1))
+            .containsExactly(0, 1, 2);
+        Assertions.assertThat(MaximalMarginalRelevance.rerank(new double[]{1, 0.9, 0.8}, vectors, 0.5))
+            .containsExactly(0, 2, 1);
+    }
+
+    @Test
+    void search_withTokenBudget_returnsWhatFits() {
+        client.toBlocking().exchange(HttpRequest.POST("/api/v1/projects/" + projectId + "/memory",
+            new CreateMemoryRequest("Budget runbook", "budget ".repeat(500), "Test justification",
+                "canonical", null, null)));
+        writeMemory("Budget note one", "canonical");
+        writeMemory("Budget note two", "canonical");
+
+        Assertions.assertThat(searchTitles(new MemorySearchRequest("budget", null, 10, null, 40)))
+            .containsExactlyInAnyOrder("Budget note one", "Budget note two");
+    }
+
+    @Test
+    void import_ndjson_writesValidLinesAndReportsBadOnes() {
+        String body = """
+            {"title":"Import one","content":"First imported","justification":"seed","layer":"canonical"}
+            {"title":"Import two","content":"Second imported","justification":"seed","layer":"feature","tags":["a"]}
+
+            {"title":"Broken","content":"No justification","justification":"","layer":"canonical"}
+            not json
+            {"title":"Import three","content":"Third imported","justification":"seed","layer":"scratch"}
+            """;
+
+        HttpResponse<MemoryImportResponse> resp = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/memory/import", body)
+                .contentType("application/x-ndjson"),
+            MemoryImportResponse.class
+        );
+
+        MemoryImportResponse result = resp.getBody().get();
+        Assertions.assertThat(result.imported()).isEqualTo(3);
+        Assertions.assertThat(result.failed()).isEqualTo(2);
+        Assertions.assertThat(result.errors()).extracting(MemoryImportError::line).containsExactly(4, 5);
+
+        List<MemoryResponse> entries = client.toBlocking().retrieve(
+            HttpRequest.GET("/api/v1/projects/" + projectId + "/memory"),
+            Argument.listOf(MemoryResponse.class));
+        Assertions.assertThat(entries).extracting(MemoryResponse::title)
+            .containsExactlyInAnyOrder("Import one", "Import two", "Import three");
+        Assertions.assertThat(entries).filteredOn(e -> "scratch".equals(e.layer()))
+            .allSatisfy(e -> Assertions.assertThat(e.expiresAt()).isNotNull());
+    }
+
+    @Test
+    void import_ndjson_acceptsABodyOverTheDefault10MbLimit() {
+        String content = "bulk ".repeat(20_000);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 110; i++) {
+            body.append("{\"title\":\"Bulk ").append(i).append("\",\"content\":\"").append(content)
+                .append("\",\"justification\":\"seed\",\"layer\":\"canonical\"}\n");
+        }
+        Assertions.assertThat(body.length()).isGreaterThan(10 * 1024 * 1024);
+
+        HttpResponse<MemoryImportResponse> resp = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/memory/import", body.toString())
+                .contentType("application/x-ndjson"),
+            MemoryImportResponse.class
+        );
+
+        Assertions.assertThat(resp.getBody().get().imported()).isEqualTo(110);
+        Assertions.assertThat(resp.getBody().get().failed()).isZero();
+    }
+
+    @Test
+    void writeBatch_returns201WithAllEntries() {
+        var reqs = List.of(
+            new CreateMemoryRequest("Batch one", "Content", "Test justification", "canonical", null, null),
+            new CreateMemoryRequest("Batch two", "Content", "Test justification", "feature", "sprint-1", List.of("x")));
+
+        HttpResponse<List<MemoryResponse>> resp = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/memory/batch", reqs),
+            Argument.listOf(MemoryResponse.class)
+        );
+
+        AssertionsForClassTypes.assertThat(resp.getStatus()).isEqualTo(HttpStatus.CREATED);
+        Assertions.assertThat(resp.getBody().get()).extracting(MemoryResponse::title)
+            .containsExactly("Batch one", "Batch two");
+    }
+
     // ── Helper ─────────────────────────────────────────────────────────────
 
+    private List<String> searchTitles(MemorySearchRequest req) {
+        return client.toBlocking().retrieve(
+            HttpRequest.POST("/api/v1/projects/" + projectId + "/memory/search", req),
+            Argument.listOf(MemoryResponse.class)
+        ).stream().map(MemoryResponse::title).toList();
+    }
+
+    private List<String> listTitles(String layer) {
+        String uri = "/api/v1/projects/" + projectId + "/memory" + (layer != null ? "?layer=" + layer : "");
+        return client.toBlocking().retrieve(HttpRequest.GET(uri), Argument.listOf(MemoryResponse.class))
+            .stream().map(MemoryResponse::title).toList();
+    }
+
     private UUID writeMemory(String title, String layer) {
         var req = new CreateMemoryRequest(
             title, "Content of " + title, "Test justification", layer, null, null
@@ -0,0 +1,183 @@
+package com.knowledgeos;
+
+import com.knowledgeos.patch.FilePatch;
+import com.knowledgeos.patch.PatchEngine;
+import com.knowledgeos.patch.PatchResult;
+import com.knowledgeos.patch.UnifiedDiffParser;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+@MicronautTest
+class PatchEngineTest {
+
+    @Inject PatchEngine engine;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    private Path root;
+
+    @BeforeEach
+    void setup() throws IOException {
+        root = Files.createTempDirectory("kos-patch-test");
+    }
+
+    @Test
+    void multiHunk_appliesAtOffsetAndReportsIt() throws IOException {
+        // Two lines were inserted at the top since the diff was made
+        List<String> lines = new ArrayList<>(List.of("extra1", "extra2"));
+        lines.addAll(numbered(30));
+        write("a.txt", lines);
+
+        String diff = """
+            --- a/a.txt
+            +++ b/a.txt
+            @@ -2,3 +2,3 @@
+             line2
+            -line3
+            +LINE3
+             line4
+            @@ -20,3 +20,4 @@
+             line20
+             line21
+            +inserted
+             line22
+            """;
+
+        List<PatchResult> results = engine.apply(root, UnifiedDiffParser.parse(diff));
+
+        assertThat(results).singleElement().satisfies(r -> {
+            assertThat(r.status()).isEqualTo(PatchResult.Status.APPLIED);
+            assertThat(r.hunksApplied()).isEqualTo(2);
+            assertThat(r.maxOffset()).isEqualTo(2);
+            assertThat(r.maxFuzz()).isZero();
+        });
+        List<String> patched = Files.readAllLines(root.resolve("a.txt"));
+        assertThat(patched.get(4)).isEqualTo("LINE3");
+        assertThat(patched.get(23)).isEqualTo("inserted");
+        assertThat(patched).hasSize(33);
+    }
+
+    @Test
+    void staleContext_appliesWithFuzz() throws IOException {
+        write("b.txt", numbered(10));
+
+        String diff = """
+            --- a/b.txt
+            +++ b/b.txt
+            @@ -4,5 +4,5 @@
+             edited-elsewhere
+             line5
+            -line6
+            +LINE6
+             line7
+            """;
+
+        PatchResult r = engine.apply(root, UnifiedDiffParser.parse(diff)).get(0);
+
+        assertThat(r.status()).isEqualTo(PatchResult.Status.APPLIED);
+        assertThat(r.maxFuzz()).isEqualTo(1);
+        assertThat(Files.readAllLines(root.resolve("b.txt")).get(5)).isEqualTo("LINE6");
+    }
+
+    @Test
+    void inverseOfAppliedHunks_restoresOriginal() throws IOException {
+        List<String> original = numbered(20);
+        write("c.txt", original);
+
+        String diff = """
+            --- a/c.txt
+            +++ b/c.txt
+            @@ -5,3 +5,2 @@
+             line5
+            -line6
+             line7
+            @@ -15,2 +14,3 @@
+             line15
+            +added
+             line16
+            """;
+
+        PatchResult r = engine.apply(root, UnifiedDiffParser.parse(diff)).get(0);
+        FilePatch inverse = new FilePatch(r.path(), r.path(), r.appliedHunks()).inverse();
+        engine.apply(root, UnifiedDiffParser.parse(inverse.toUnifiedDiff()));
+
+        assertThat(Files.readAllLines(root.resolve("c.txt"))).isEqualTo(original);
+    }
+
+    @Test
+    void oneFileFails_noFileIsModified() throws IOException {
+        write("ok.txt", numbered(5));
+        write("bad.txt", numbered(5));
+
+        String diff = """
+            --- a/ok.txt
+            +++ b/ok.txt
+            @@ -1,2 +1,2 @@
+            -line1
+            +LINE1
+             line2
+            --- a/bad.txt
+            +++ b/bad.txt
+            @@ -1,2 +1,2 @@
+            -nothing
+            +like
+            -this
+            +here
+            """;
+
+        List<PatchResult> results = engine.apply(root, UnifiedDiffParser.parse(diff));
+
+        assertThat(results).extracting(PatchResult::status)
+            .containsExactly(PatchResult.Status.ABORTED, PatchResult.Status.FAILED);
+        assertThat(Files.readAllLines(root.resolve("ok.txt"))).isEqualTo(numbered(5));
+        try (Stream<Path> files = Files.list(root)) {
+            assertThat(files.map(p -> p.getFileName().toString()))
+                .containsExactlyInAnyOrder("ok.txt", "bad.txt");
+        }
+    }
+
+    @Test
+    void pathOutsideWorkspace_isRejected() {
+        String diff = """
+            --- /dev/null
+            +++ b/../escape.txt
+            @@ -0,0 +1 @@
+            +nope
+            """;
+
+        PatchResult r = engine.apply(root, UnifiedDiffParser.parse(diff)).get(0);
+
+        assertThat(r.isFailed()).isTrue();
+        assertThat(Files.exists(root.getParent().resolve("escape.txt"))).isFalse();
+    }
+
+    // ── Helpers ─────────────────────────────────────────────────────────────
+
+    private static List<String> numbered(int n) {
+        List<String> lines = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) lines.add("line" + i);
+        return lines;
+    }
+
+    private void write(String name, List<String> lines) throws IOException {
+        Files.write(root.resolve(name), lines);
+    }
+}
@@ -0,0 +1,122 @@
+package com.knowledgeos;
+
+import com.knowledgeos.embedding.EmbeddingService;
+import com.knowledgeos.memory.CollectionNotFoundException;
+import com.knowledgeos.memory.MemoryVectorStore;
+import com.knowledgeos.memory.QdrantMemoryStore;
+import com.knowledgeos.memory.QdrantTransport;
+import com.knowledgeos.memory.VectorSizeMismatchException;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.*;
+
+@MicronautTest
+class QdrantMemoryStoreTest {
+
+    @Inject QdrantMemoryStore store;
+    @Inject QdrantTransport transport;
+    @Inject EmbeddingService embeddings;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @MockBean(QdrantTransport.class)
+    QdrantTransport mockTransport() {
+        return mock(QdrantTransport.class);
+    }
+
+    @BeforeEach
+    void stubs() {
+        reset(transport);
+        when(transport.vectorSize(anyString())).thenReturn(Mono.just(embeddings.dimensions()));
+        when(transport.createCollection(anyString(), anyInt())).thenReturn(Mono.empty());
+        when(transport.createKeywordIndex(anyString(), anyString())).thenReturn(Mono.empty());
+        when(transport.upsert(anyString(), anyList())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void upsertAll_checksTheCollectionOnlyOnce() {
+        UUID projectId = UUID.randomUUID();
+        store.upsertAll(projectId, List.of(entry("first")));
+        store.upsertAll(projectId, List.of(entry("second")));
+
+        verify(transport, atMost(1)).vectorSize(anyString());
+        verify(transport, times(2)).upsert(anyString(), anyList());
+    }
+
+    @Test
+    void upsertAll_recreatesTheCollectionWhenQdrantLostIt() {
+        store.upsertAll(UUID.randomUUID(), List.of(entry("warm-up")));
+        reset(transport);
+        stubs();
+        when(transport.vectorSize(anyString())).thenReturn(Mono.empty());
+        when(transport.upsert(anyString(), anyList()))
+            .thenReturn(Mono.error(new CollectionNotFoundException("knowledgeos-memory-test", null)))
+            .thenReturn(Mono.empty());
+
+        store.upsertAll(UUID.randomUUID(), List.of(entry("after restart")));
+
+        verify(transport).createCollection(anyString(), anyInt());
+        verify(transport, times(2)).upsert(anyString(), anyList());
+    }
+
+    @Test
+    void deleteAll_removesThePointsInOneRequest_andThrowsOnTransportError() {
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID());
+        when(transport.delete(anyString(), anyList())).thenReturn(Mono.empty());
+        store.deleteAll(UUID.randomUUID(), ids);
+        store.deleteAllAsync(UUID.randomUUID(), ids).block();
+        verify(transport, times(2)).delete(anyString(), eq(ids));
+
+        when(transport.delete(anyString(), anyList()))
+            .thenReturn(Mono.error(new IllegalStateException("connection refused")));
+        assertThatThrownBy(() -> store.deleteAll(UUID.randomUUID(), ids))
+            .hasMessageContaining("connection refused");
+    }
+
+    @Test
+    void upsertAll_refusesACollectionOfAnotherVectorSize() {
+        // Lost collection forces a fresh check, which finds vectors from another model
+        when(transport.upsert(anyString(), anyList()))
+            .thenReturn(Mono.error(new CollectionNotFoundException("knowledgeos-memory-test", null)));
+        when(transport.vectorSize(anyString())).thenReturn(Mono.just(embeddings.dimensions() + 1));
+
+        assertThatThrownBy(() -> store.upsertAll(UUID.randomUUID(), List.of(entry("text"))))
+            .isInstanceOf(VectorSizeMismatchException.class);
+        verify(transport, never()).createCollection(anyString(), anyInt());
+    }
+
+    @Test
+    void search_returnsScoredPointsInRankOrder_andEmptyOnTransportError() {
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        when(transport.search(anyString(), any(), anyMap(), anyInt())).thenReturn(Mono.just(List.of(
+            new QdrantTransport.Match(b, 0.9f), new QdrantTransport.Match(a, 0.4f))));
+
+        assertThat(store.searchAsync(UUID.randomUUID(), null, "query", 5).block())
+            .containsExactly(new MemoryVectorStore.Match(b, 0.9f), new MemoryVectorStore.Match(a, 0.4f));
+
+        when(transport.search(anyString(), any(), anyMap(), anyInt()))
+            .thenReturn(Mono.error(new IllegalStateException("connection refused")));
+        assertThat(store.search(UUID.randomUUID(), null, "query", 5)).isEmpty();
+    }
+
+    private static MemoryVectorStore.Entry entry(String text) {
+        return new MemoryVectorStore.Entry(UUID.randomUUID(), "canonical", text, Map.of());
+    }
+}
@@ -0,0 +1,124 @@
+package com.knowledgeos;
+
+import com.knowledgeos.service.validator.TestSelector;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+@MicronautTest
+class TestSelectorTest {
+
+    @Inject TestSelector selector;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    private Path ws;
+
+    @BeforeEach
+    void setup() throws IOException {
+        // Two-module Gradle build: api has a test for Foo, core has no tests for Bar
+        ws = Files.createTempDirectory("kos-selector-test");
+        touch("settings.gradle");
+        touch("api/build.gradle");
+        touch("api/src/main/java/com/acme/api/Foo.java");
+        touch("api/src/test/java/com/acme/api/FooTest.java");
+        touch("core/build.gradle");
+        touch("core/src/main/java/com/acme/core/Bar.java");
+    }
+
+    @Test
+    void gradle_sourceWithTest_runsOnlyThatTestInItsModule() {
+        var sel = selector.select(ws, "gradle", List.of("api/src/main/java/com/acme/api/Foo.java"), List.of());
+
+        assertThat(sel.full()).isFalse();
+        assertThat(sel.command()).containsSubsequence(":api:test", "--tests", "com.acme.api.FooTest");
+        assertThat(sel.command()).doesNotContain(":core:test");
+    }
+
+    @Test
+    void gradle_sourceWithoutTest_runsWholeModule() {
+        var sel = selector.select(ws, "gradle", List.of("core/src/main/java/com/acme/core/Bar.java"), List.of());
+
+        assertThat(sel.full()).isFalse();
+        assertThat(sel.command()).contains(":core:test").doesNotContain("--tests");
+    }
+
+    @Test
+    void gradle_reportedTestsAreAddedToTheirOwnModule() throws IOException {
+        touch("api/src/test/java/com/acme/api/FooIntegrationTest.java");
+        touch("core/src/test/java/com/acme/core/BarTest.java");
+        var sel = selector.select(ws, "gradle",
+            List.of("api/src/main/java/com/acme/api/Foo.java"),
+            List.of("FooIntegrationTest", "core/src/test/java/com/acme/core/BarTest.java"));
+
+        assertThat(sel.command()).containsSubsequence(
+            ":api:test", "--tests", "com.acme.api.FooIntegrationTest",
+            ":core:test", "--tests", "com.acme.core.BarTest");
+    }
+
+    @Test
+    void unknownReportedTest_runsTheSelectedModulesInFull() {
+        var sel = selector.select(ws, "gradle",
+            List.of("api/src/main/java/com/acme/api/Foo.java"), List.of("NoSuchTest"));
+
+        assertThat(sel.full()).isFalse();
+        assertThat(sel.command()).contains(":api:test").doesNotContain("--tests");
+    }
+
+    @Test
+    void buildFileChange_runsFullSuite() {
+        var sel = selector.select(ws, "gradle",
+            List.of("api/src/main/java/com/acme/api/Foo.java", "api/build.gradle"), List.of());
+
+        assertThat(sel.full()).isTrue();
+        assertThat(sel.command()).containsExactly("./gradlew", "test", "--no-daemon");
+    }
+
+    @Test
+    void noFilesOrEscapingPath_runsFullSuite() {
+        assertThat(selector.select(ws, "gradle", List.of(), List.of()).full()).isTrue();
+        assertThat(selector.select(ws, "gradle", List.of("../elsewhere/X.java"), List.of()).full()).isTrue();
+    }
+
+    @Test
+    void maven_selectsModuleAndTestClass() throws IOException {
+        touch("api/pom.xml");
+
+        var sel = selector.select(ws, "maven", List.of("api/src/main/java/com/acme/api/Foo.java"),
+            List.of("FooTest.java"));
+
+        assertThat(sel.full()).isFalse();
+        assertThat(sel.command()).containsSubsequence("-pl", "api", "-am");
+        assertThat(sel.command()).contains("-Dtest=FooTest");
+    }
+
+    @Test
+    void npm_withJest_usesFindRelatedTests() throws IOException {
+        Files.writeString(ws.resolve("package.json"), "{\"devDependencies\":{\"jest\":\"29\"}}");
+
+        var sel = selector.select(ws, "npm", List.of("src/util.js"), List.of());
+
+        assertThat(sel.command()).containsSubsequence("--findRelatedTests", "src/util.js");
+    }
+
+    private void touch(String rel) throws IOException {
+        Path p = ws.resolve(rel);
+        Files.createDirectories(p.getParent());
+        Files.writeString(p, "");
+    }
+}
@@ -0,0 +1,147 @@
+package com.knowledgeos;
+
+import com.knowledgeos.dto.CreateProjectRequest;
+import com.knowledgeos.dto.ProjectResponse;
+import com.knowledgeos.dto.TimelinePage;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Page-1 vs page-10 000 latency for the timeline API.
+ *
+ * Excluded from {@code ./gradlew test}; run with {@code ./gradlew benchmark}
+ * against the docker-compose Postgres. Seeds 200 000 events, then times the
+ * first page and a keyset seek to page 10 000 (20 events per page). With the
+ * (project_id, created_at DESC, id DESC) index both are a single index seek, so
+ * the deep page should cost about the same as the first. The legacy offset
+ * cursor at the same depth is printed for comparison.
+ */
+@MicronautTest
+@Tag("benchmark")
+class TimelinePaginationBenchmarkTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGE = 10_000;
+    private static final int EVENTS = PAGE_SIZE * DEEP_PAGE;
+    private static final int SAMPLES = 50;
+
+    @Inject
+    @Client("/")
+    HttpClient client;
+
+    @Inject DataSource dataSource;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @Test
+    void deepKeysetPage_costsAboutTheSameAsFirstPage() throws Exception {
+        UUID projectId = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects", new CreateProjectRequest("Pagination Benchmark", "software", null)),
+            ProjectResponse.class
+        ).getBody().get().id();
+
+        seed(projectId);
+        String deepCursor = keysetCursorAt(projectId, (DEEP_PAGE - 1) * PAGE_SIZE - 1);
+        String legacyCursor = Base64.getEncoder().encodeToString(
+            String.valueOf(DEEP_PAGE - 1).getBytes(StandardCharsets.UTF_8));
+
+        String base = "/api/v1/projects/" + projectId + "/timeline?limit=" + PAGE_SIZE;
+        long first  = medianMicros(base);
+        long deep   = medianMicros(base + "&cursor=" + deepCursor);
+        long offset = medianMicros(base + "&cursor=" + legacyCursor);
+
+        System.out.printf("timeline pagination p50: page 1 = %d µs, page %d keyset = %d µs, page %d offset = %d µs%n",
+            first, DEEP_PAGE, deep, DEEP_PAGE, offset);
+
+        TimelinePage deepPage = client.toBlocking().retrieve(HttpRequest.GET(base + "&cursor=" + deepCursor),
+            TimelinePage.class);
+        assertThat(deepPage.events()).hasSize(PAGE_SIZE);
+        assertThat(deep).isLessThanOrEqualTo(Math.max(first * 3, first + 25_000));
+    }
+
+    // ── Helpers ────────────────────────────────────────────────────────────
+
+    private void seed(UUID projectId) throws Exception {
+        OffsetDateTime start = OffsetDateTime.now(ZoneOffset.UTC).minusDays(30);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                 "INSERT INTO timeline_events (id, project_id, type, payload, source, created_at) " +
+                 "VALUES (?, ?, 'benchmark_event', '{}'::jsonb, 'user', ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < EVENTS; i++) {
+                ps.setObject(1, UUID.randomUUID());
+                ps.setObject(2, projectId);
+                // Two events per millisecond so the id tie-breaker is exercised
+                ps.setObject(3, start.plus(i / 2, ChronoUnit.MILLIS));
+                ps.addBatch();
+                if (i % 1_000 == 999) ps.executeBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("ANALYZE timeline_events")) {
+            ps.execute();
+        }
+    }
+
+    /** Cursor in the service's keyset format for the event at {@code position} (0 = newest). */
+    private String keysetCursorAt(UUID projectId, int position) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                 "SELECT created_at, id FROM timeline_events WHERE project_id = ? " +
+                 "ORDER BY created_at DESC, id DESC OFFSET ? LIMIT 1")) {
+            ps.setObject(1, projectId);
+            ps.setInt(2, position);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                Instant at = rs.getObject(1, OffsetDateTime.class).toInstant();
+                UUID id = rs.getObject(2, UUID.class);
+                String raw = "k1:" + ChronoUnit.MICROS.between(Instant.EPOCH, at) + ":" + id;
+                return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private long medianMicros(String uri) {
+        for (int i = 0; i < 10; i++) {
+            client.toBlocking().retrieve(HttpRequest.GET(uri), TimelinePage.class);
+        }
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long t0 = System.nanoTime();
+            client.toBlocking().retrieve(HttpRequest.GET(uri), TimelinePage.class);
+            samples[i] = (System.nanoTime() - t0) / 1_000;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
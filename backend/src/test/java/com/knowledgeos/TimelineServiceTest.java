@@ -204,6 +204,48 @@ class TimelineServiceTest {
         assertThat(page1Ids).doesNotContainAnyElementsOf(page2Ids);
     }
 
+    @Test
+    void listEvents_keysetWalk_visitsEveryEventOnce() {
+        for (int i = 0; i < 5; i++) {
+            client.toBlocking().exchange(
+                HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                    new AcquireLockRequest("src/Walk" + i + ".java", "write", 300, null)),
+                FileLockResponse.class
+            );
+        }
+        TimelinePage all = client.toBlocking().exchange(
+            HttpRequest.GET("/api/v1/projects/" + projectId + "/timeline?limit=100"),
+            TimelinePage.class
+        ).getBody().get();
+
+        List<UUID> walked = new java.util.ArrayList<>();
+        String cursor = null;
+        do {
+            String uri = "/api/v1/projects/" + projectId + "/timeline?limit=2"
+                + (cursor != null ? "&cursor=" + cursor : "");
+            TimelinePage page = client.toBlocking().exchange(HttpRequest.GET(uri), TimelinePage.class)
+                .getBody().get();
+            page.events().forEach(e -> walked.add(e.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(walked).doesNotHaveDuplicates();
+        assertThat(walked).containsExactlyElementsOf(
+            all.events().stream().map(TimelineEventResponse::id).toList());
+    }
+
+    @Test
+    void listEvents_legacyOffsetCursor_stillAccepted() {
+        // base64("1") — the pre-keyset cursor format
+        HttpResponse<TimelinePage> resp = client.toBlocking().exchange(
+            HttpRequest.GET("/api/v1/projects/" + projectId + "/timeline?limit=1&cursor=MQ=="),
+            TimelinePage.class
+        );
+
+        AssertionsForClassTypes.assertThat(resp.getStatus()).isEqualTo(HttpStatus.OK);
+        assertThat(resp.getBody().get().events()).hasSize(1);
+    }
+
     @Test
     void getEventById_returnsEvent() {
         HttpResponse<TimelinePage> listResp = client.toBlocking().exchange(
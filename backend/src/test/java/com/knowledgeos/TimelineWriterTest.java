@@ -0,0 +1,92 @@
+package com.knowledgeos;
+
+import com.knowledgeos.dto.*;
+import com.knowledgeos.timeline.TimelineWriter;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+@MicronautTest
+@Property(name = "app.timeline.writer.mode", value = "async")
+@Property(name = "app.timeline.writer.flush-interval", value = "20ms")
+class TimelineWriterTest {
+
+    @Inject
+    @Client("/")
+    HttpClient client;
+
+    @Inject TimelineWriter writer;
+    @Inject MeterRegistry meterRegistry;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @Test
+    void asyncMode_eventIsPersistedByBackgroundWriter() throws Exception {
+        UUID projectId = createProject("Async Timeline Project");
+
+        writer.awaitDrained(Duration.ofSeconds(5));
+
+        HttpResponse<TimelinePage> resp = client.toBlocking().exchange(
+            HttpRequest.GET("/api/v1/projects/" + projectId + "/timeline?type=project_created"),
+            TimelinePage.class
+        );
+        assertThat(resp.getBody().get().events()).hasSize(1);
+    }
+
+    @Test
+    void asyncMode_batchesManyEvents() throws Exception {
+        UUID projectId = createProject("Async Batch Project");
+        for (int i = 0; i < 25; i++) {
+            client.toBlocking().exchange(
+                HttpRequest.POST("/api/v1/projects/" + projectId + "/locks",
+                    new AcquireLockRequest("src/Batch" + i + ".java", "write", 300, null)),
+                FileLockResponse.class
+            );
+        }
+
+        writer.awaitDrained(Duration.ofSeconds(5));
+
+        HttpResponse<TimelinePage> resp = client.toBlocking().exchange(
+            HttpRequest.GET("/api/v1/projects/" + projectId + "/timeline?type=lock_acquired&limit=100"),
+            TimelinePage.class
+        );
+        assertThat(resp.getBody().get().events()).hasSize(25);
+    }
+
+    @Test
+    void metrics_areRegistered() throws Exception {
+        createProject("Metrics Project");
+        writer.awaitDrained(Duration.ofSeconds(5));
+
+        assertThat(meterRegistry.find("kos.timeline.queue.depth").gauge()).isNotNull();
+        assertThat(meterRegistry.find("kos.timeline.flush").timer()).isNotNull();
+        assertThat(meterRegistry.find("kos.timeline.flush").timer().count()).isPositive();
+        assertThat(meterRegistry.find("kos.timeline.dropped").tag("reason", "overflow").counter()).isNotNull();
+    }
+
+    private UUID createProject(String name) {
+        HttpResponse<ProjectResponse> resp = client.toBlocking().exchange(
+            HttpRequest.POST("/api/v1/projects", new CreateProjectRequest(name, "software", null)),
+            ProjectResponse.class
+        );
+        return resp.getBody().get().id();
+    }
+}
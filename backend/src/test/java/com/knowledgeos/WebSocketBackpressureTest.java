@@ -0,0 +1,96 @@
+package com.knowledgeos;
+
+import com.knowledgeos.websocket.AgentEventWebSocket;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.websocket.CloseReason;
+import io.micronaut.websocket.WebSocketSession;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.*;
+
+@MicronautTest
+@Property(name = "app.websocket.outbox.high-water", value = "4")
+@Property(name = "app.websocket.outbox.overflow", value = "coalesce")
+class WebSocketBackpressureTest {
+
+    @Inject AgentEventWebSocket webSocket;
+    @Inject MeterRegistry meterRegistry;
+
+    @MockBean(KubernetesClient.class)
+    KubernetesClient mockK8s() {
+        return mock(KubernetesClient.class, RETURNS_DEEP_STUBS);
+    }
+
+    @Test
+    void stalledSession_isBoundedAndGetsSkipMarker() {
+        String projectId = UUID.randomUUID().toString();
+        List<CompletableFuture<Object>> pending = new CopyOnWriteArrayList<>();
+        List<String> sent = new CopyOnWriteArrayList<>();
+        WebSocketSession slow = session("slow", inv -> {
+            TextWebSocketFrame frame = inv.getArgument(0);
+            sent.add(frame.text());
+            CompletableFuture<Object> f = new CompletableFuture<>();
+            pending.add(f);
+            return f;
+        });
+        webSocket.onOpen(projectId, slow);
+
+        for (int i = 0; i < 20; i++) {
+            webSocket.broadcast(projectId, "{\"n\":" + i + "}");
+        }
+
+        // One frame in flight, high-water (4) queued, the rest coalesced
+        assertThat(sent).hasSize(1);
+        Map<String, Object> stats = webSocket.outboxStats().stream()
+            .filter(s -> "slow".equals(s.get("sessionId"))).findFirst().orElseThrow();
+        assertThat(stats.get("lag")).isEqualTo(5);
+        assertThat(stats.get("skipped")).isEqualTo(15L);
+
+        // Client catches up: queued frames, then the refetch marker
+        for (int i = 0; i < 10; i++) {
+            pending.stream().filter(f -> !f.isDone()).findFirst().ifPresent(f -> f.complete(null));
+        }
+        assertThat(sent).hasSize(6);
+        assertThat(sent.get(5)).contains("\"type\":\"events_skipped\"").contains("\"skipped\":15");
+        assertThat(meterRegistry.find("kos.ws.events.skipped").counter().count()).isGreaterThanOrEqualTo(15);
+
+        webSocket.onClose(projectId, slow);
+    }
+
+    @Test
+    void failedSend_evictsSession() {
+        String projectId = UUID.randomUUID().toString();
+        WebSocketSession broken = session("broken",
+            inv -> CompletableFuture.failedFuture(new IllegalStateException("channel closed")));
+        webSocket.onOpen(projectId, broken);
+
+        webSocket.broadcast(projectId, "{\"n\":1}");
+
+        verify(broken).close(CloseReason.TRY_AGAIN_LATER);
+        assertThat(meterRegistry.find("kos.ws.evictions").tag("reason", "send_error").counter().count())
+            .isPositive();
+        webSocket.onClose(projectId, broken);
+    }
+
+    private static WebSocketSession session(String id, org.mockito.stubbing.Answer<?> onSend) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        when(session.sendAsync(any())).thenAnswer(onSend);
+        return session;
+    }
+}
@@ -25,6 +25,8 @@ export function registerMemoryTools(server: Server): void {
         query: args?.query,
         layer: args?.layer ?? null,
         limit: args?.limit ?? 5,
+        diversity: args?.diversity ?? null,
+        tokenBudget: args?.tokenBudget ?? null,
       });
       return {
         content: [{ type: "text", text: JSON.stringify(resp.data, null, 2) }],
@@ -79,6 +81,14 @@ export const memoryToolDefinitions = [
           description: "Limit to a specific layer (optional)",
         },
         limit: { type: "number", description: "Max results (default: 5)" },
+        diversity: {
+          type: "number",
+          description: "0-1: how strongly near-duplicate results are demoted (default: 0)",
+        },
+        tokenBudget: {
+          type: "number",
+          description: "Only return the best results that fit in about this many tokens",
+        },
       },
       required: ["query"],
     },